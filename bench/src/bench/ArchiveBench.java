@@ -0,0 +1,72 @@
+package bench;
+
+import org.openjdk.jmh.annotations.*;
+import persistence.ArchiveStore;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Discharge archiving: the hand-off to the archive against the loose CSV
+ * file per resident it replaced, and fetching one former resident's record.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ArchiveBench {
+
+    /** Residents already archived. */
+    @Param({"100", "1000", "10000"})
+    public int residents;
+
+    private Path dir;
+    private ArchiveStore archive;
+    private String record;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        dir = Files.createTempDirectory("archive-bench");
+        archive = ArchiveStore.open(dir);
+        StringBuilder sb = new StringBuilder("Resident,R0,Resident 0,F,84\nPrescriptions\nParacetamol,500mg,08:00\nAdministered\n");
+        for (int d = 1; d <= 28; d++)
+            sb.append("2026-02-").append(d < 10 ? "0" : "").append(d).append("T08:00,Paracetamol,500mg,N0\n");
+        record = sb.toString();
+        for (int i = 0; i < residents; i++)
+            archive.archive("R" + i, "Resident " + i, 1_700_000_000_000L + i * 60_000L, record);
+        archive.flush();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        archive.close();
+        for (File f : dir.toFile().listFiles()) f.delete();
+        dir.toFile().delete();
+    }
+
+    /** What a discharge now waits for: queueing the record (writes happen on the archive thread). */
+    @Benchmark
+    public String archive() {
+        int i = residents + next++;
+        return archive.archive("R" + i, "Resident " + i, System.currentTimeMillis(), record);
+    }
+
+    /** What a discharge used to wait for: its own CSV file. */
+    @Benchmark
+    public Path looseCsvFile() throws IOException {
+        return Files.writeString(dir.resolve("archive_R" + (next++ % 1000) + ".csv"), record);
+    }
+
+    /** A readmission or audit request: index lookup, one read, inflate. */
+    @Benchmark
+    public String fetchById() throws IOException {
+        return archive.latest("R" + ThreadLocalRandom.current().nextInt(residents));
+    }
+}
@@ -0,0 +1,84 @@
+package bench;
+
+import model.*;
+import org.openjdk.jmh.annotations.*;
+import util.PasswordHasher;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/** Logins at shift change and the per-action session check, for 100 staff. */
+@State(Scope.Benchmark)
+@Fork(1)
+public class AuthBench {
+
+    private static final int STAFF = 100;
+
+    /** PBKDF2 cost: the default, and a cheaper setting for slow hardware. */
+    @Param({"210000", "50000"})
+    public int iterations;
+
+    private CareHome home;
+    private AuthService auth;
+    private ExecutorService pool;
+    private String token;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        home = new CareHome(Fixtures.layoutFor(100));
+        home.setPasswordHasher(new PasswordHasher(iterations));
+        for (int n = 0; n < STAFF; n++)
+            home.addStaff(Fixtures.MANAGER, new Nurse("N" + n, "Nurse " + n, 'F', "nurse" + n, "pw" + n));
+        auth = new AuthService(home);
+        pool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        token = auth.login("nurse0", "pw0".toCharArray()).token();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.shutdownNow();
+    }
+
+    /** All 100 staff log in at once; one op is the whole burst, on every core. */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 10)
+    public int shiftChangeBurst() throws Exception {
+        List<Future<AuthService.Session>> logins = new ArrayList<>(STAFF);
+        for (int n = 0; n < STAFF; n++) {
+            String user = "nurse" + n;
+            char[] password = ("pw" + n).toCharArray();
+            logins.add(pool.submit(() -> auth.login(user, password)));
+        }
+        for (Future<AuthService.Session> f : logins) auth.logout(f.get().token());
+        return logins.size();
+    }
+
+    /** One login: a full PBKDF2 verification. */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2, time = 2)
+    @Measurement(iterations = 5, time = 2)
+    public String login() throws Exception {
+        String t = auth.login("nurse1", "pw1".toCharArray()).token();
+        auth.logout(t);
+        return t;
+    }
+
+    /** The check before every action: a cached session, no hashing. */
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Warmup(iterations = 3, time = 1)
+    @Measurement(iterations = 5, time = 1)
+    public Nurse requireRole() throws Exception {
+        return auth.require(token, Nurse.class);
+    }
+}
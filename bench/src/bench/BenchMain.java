@@ -0,0 +1,21 @@
+package bench;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs every benchmark (or those matching the JMH command-line filters) and
+ * writes results to bench-results.json for release-to-release comparison.
+ */
+public class BenchMain {
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .include("bench\\..*")
+                .resultFormat(ResultFormatType.JSON)
+                .result("bench-results.json")
+                .build()).run();
+    }
+}
@@ -0,0 +1,88 @@
+package bench;
+
+import model.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/** Hot paths of the in-memory model at different facility sizes. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CareHomeBench {
+
+    @Param({"100", "1000", "10000"})
+    public int residents;
+
+    private CareHome home;
+    private Bed admitBed, spareA, spareB;
+    private Resident mover;
+    private long counter;
+    private LocalDateTime clock;
+    private AccessPolicy policy;
+    private Resident first;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        home = Fixtures.home(residents);
+        Bed[] vacant = Fixtures.vacantBeds(home, 3);
+        admitBed = vacant[0];
+        spareA = vacant[1];
+        spareB = vacant[2];
+        mover = new Resident("MOVER", "Mover", 'M', 70);
+        home.addResident(Fixtures.MANAGER, mover, spareA.getPackedId());
+        clock = LocalDateTime.of(2025, 1, 1, 0, 0);
+        policy = home.getAccessPolicy();
+        first = home.getResidents().get("R0");
+        policy.assignedResidentsOnly(Permission.ADMINISTER);   // exercise the assigned-residents scope
+        home.assignResident(Fixtures.MANAGER, Fixtures.NURSE.getUsername(), "R0");
+    }
+
+    /** Admit into a vacant bed; the admission is undone in the same op so the home does not fill up. */
+    @Benchmark
+    public Resident addResident() throws Exception {
+        Resident r = new Resident("X" + (counter++), "Extra", 'F', 80);
+        home.addResident(Fixtures.MANAGER, r, admitBed.getPackedId());
+        home.getResidents().remove(r.getId());
+        home.restoreBed(admitBed, null);
+        return r;
+    }
+
+    /** Move one resident back and forth between two vacant beds. */
+    @Benchmark
+    public Bed moveResident() throws Exception {
+        Bed target = mover.getBed() == spareB ? spareA : spareB;
+        home.moveResident(Fixtures.NURSE, mover.getId(), target.getPackedId());
+        return target;
+    }
+
+    /** Record a dose; each op is one minute later so the history grows like a real round. */
+    @Benchmark
+    public int administerMedication() throws Exception {
+        clock = clock.plusMinutes(1);
+        home.administerMedication(Fixtures.NURSE, "R0", "Paracetamol", "500mg", clock);
+        return home.getResidents().get("R0").getAdministrationHistory().size();
+    }
+
+    /** The check at the start of every action: cached grants, ward and assigned-resident scope. */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public Resident authorize() throws Exception {
+        policy.check(Fixtures.NURSE, Permission.ADMINISTER, first);
+        return first;
+    }
+
+    @Benchmark
+    public boolean checkCompliance() {
+        try {
+            home.checkCompliance();
+            return true;
+        } catch (exceptions.ShiftViolationException e) {
+            return false;
+        }
+    }
+}
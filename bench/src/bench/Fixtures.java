@@ -0,0 +1,59 @@
+package bench;
+
+import model.*;
+
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+
+/** Shared setup: homes of a given size with residents, staff and shifts. */
+final class Fixtures {
+    private Fixtures() {}
+
+    static final Manager MANAGER = new Manager("M1", "Manager", 'M', "mgr", "p");
+    static final Nurse NURSE = new Nurse("N0", "Nina", 'F', "nina", "p");
+    static final Doctor DOCTOR = new Doctor("D1", "Dev", 'M', "dev", "p", "General");
+
+    /** Layout with room for the residents plus 25% vacant beds: wards of 50 four-bed rooms. */
+    static Topology layoutFor(int residents) {
+        int wards = Math.max(1, (int) Math.ceil(residents * 1.25 / 200.0));
+        int[][] rooms = new int[wards][50];
+        for (int[] w : rooms) java.util.Arrays.fill(w, 4);
+        return new Topology(rooms);
+    }
+
+    /** A home with the given number of residents (one prescription each) and residents/10 nurses. */
+    static CareHome home(int residents) throws Exception {
+        CareHome home = new CareHome(layoutFor(residents));
+        home.setPasswordHasher(new util.PasswordHasher(util.PasswordHasher.MIN_ITERATIONS)); // AuthBench measures hashing
+        home.addStaff(MANAGER, NURSE);
+        home.addStaff(MANAGER, DOCTOR);
+        java.util.Iterator<Bed> beds = home.getBeds().iterator();
+        for (int i = 0; i < residents; i++) {
+            Resident r = new Resident("R" + i, "Resident " + i, i % 2 == 0 ? 'M' : 'F', 60 + i % 40);
+            home.addResident(MANAGER, r, beds.next().getPackedId());
+            home.addPrescription(DOCTOR, r.getId(),
+                    new Prescription("Paracetamol", "500mg", LocalTime.of(8 + i % 12, 0), DOCTOR.getId()));
+        }
+        for (int n = 1; n <= Math.max(1, residents / 10); n++) {
+            Nurse nurse = new Nurse("N" + n, "Nurse " + n, 'F', "nurse" + n, "p");
+            home.addStaff(MANAGER, nurse);
+            for (DayOfWeek d : DayOfWeek.values()) {
+                if (d.getValue() > 5) continue;
+                home.addShiftForNurse(MANAGER, nurse.getUsername(),
+                        new Shift(d, LocalTime.of(n % 2 == 0 ? 8 : 14, 0), LocalTime.of(n % 2 == 0 ? 16 : 22, 0)));
+            }
+        }
+        return home;
+    }
+
+    /** First vacant beds of the home, in layout order. */
+    static Bed[] vacantBeds(CareHome home, int count) {
+        Bed[] out = new Bed[count];
+        int i = 0;
+        for (Bed b : home.getBeds()) {
+            if (!b.isOccupied()) out[i++] = b;
+            if (i == count) break;
+        }
+        return out;
+    }
+}
@@ -0,0 +1,65 @@
+package bench;
+
+import model.CareHome;
+import org.openjdk.jmh.annotations.*;
+import persistence.*;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/** SQLite paths against a temporary database file. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PersistenceBench {
+
+    @Param({"100", "1000", "10000"})
+    public int residents;
+
+    private CareHome home;
+    private File dbFile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        dbFile = File.createTempFile("carehome-bench", ".db");
+        dbFile.deleteOnExit();
+        Db.configure("jdbc:sqlite:" + dbFile.getPath(), Db.DEFAULT_READERS);
+        Db.init();
+        home = Fixtures.home(residents);
+        BedDao.initBedsFromModel(home);
+        for (var r : home.getResidents().values()) {
+            ResidentDao.upsert(r);
+            if (r.getBed() != null) BedDao.setOccupant(r.getBed().getBedId(), r.getId());
+        }
+    }
+
+    @Benchmark
+    public CareHome loadIntoModel() throws Exception {
+        BedDao.loadIntoModel(home);
+        return home;
+    }
+
+    /** Enqueue cost seen by the caller (the writer commits in the background). */
+    @Benchmark
+    public void auditLog() {
+        AuditDao.log("bench audit line");
+    }
+
+    /** 100 lines plus a durable flush: the cost of one group commit. */
+    @Benchmark
+    @OperationsPerInvocation(100)
+    public void auditLogDurable() throws Exception {
+        for (int i = 0; i < 99; i++) AuditDao.log("bench audit line " + i);
+        AuditDao.logDurable("bench audit line 99");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        AuditDao.flush();
+        Db.close();
+        dbFile.delete();
+    }
+}
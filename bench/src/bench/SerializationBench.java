@@ -0,0 +1,75 @@
+package bench;
+
+import model.CareHome;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full-graph save/load round trips of carehome.dat, in the binary format and
+ * (legacy*) with the Java serialization it replaced.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBench {
+
+    @Param({"100", "1000", "10000"})
+    public int residents;
+
+    private CareHome home;
+    private File file, legacyFile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        home = Fixtures.home(residents);
+        file = File.createTempFile("carehome-bench", ".dat");
+        file.deleteOnExit();
+        home.saveData(file.getPath());
+        legacyFile = File.createTempFile("carehome-bench", ".legacy");
+        legacyFile.deleteOnExit();
+        legacySave();
+    }
+
+    @Benchmark
+    public void saveData() throws Exception {
+        home.saveData(file.getPath());
+    }
+
+    @Benchmark
+    public CareHome loadData() throws Exception {
+        return CareHome.loadData(file.getPath());
+    }
+
+    @Benchmark
+    public CareHome roundTrip() throws Exception {
+        home.saveData(file.getPath());
+        return CareHome.loadData(file.getPath());
+    }
+
+    @Benchmark
+    public void legacySave() throws Exception {
+        try (ObjectOutputStream out = new ObjectOutputStream(
+                new BufferedOutputStream(new FileOutputStream(legacyFile)))) {
+            out.writeObject(home);
+        }
+    }
+
+    @Benchmark
+    public CareHome legacyLoad() throws Exception {
+        try (ObjectInputStream in = new ObjectInputStream(
+                new BufferedInputStream(new FileInputStream(legacyFile)))) {
+            return (CareHome) in.readObject();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        file.delete();
+        legacyFile.delete();
+    }
+}
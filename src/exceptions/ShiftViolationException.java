@@ -1,10 +1,25 @@
 package exceptions;
 
+import java.util.List;
+
 /** Thrown when staff shift rules (e.g., >8h/day) are violated. */
 public class ShiftViolationException extends Exception {
     private static final long serialVersionUID = 1L;
 
+    private final List<String> violations;
+
     public ShiftViolationException(String message) {
         super(message);
+        this.violations = List.of(message);
+    }
+
+    /** One exception carrying every violation found; the message lists them one per line. */
+    public ShiftViolationException(List<String> violations) {
+        super(String.join("\n", violations));
+        this.violations = List.copyOf(violations);
+    }
+
+    public List<String> getViolations() {
+        return violations;
     }
 }
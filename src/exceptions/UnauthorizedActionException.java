@@ -7,4 +7,12 @@ public class UnauthorizedActionException extends Exception {
     public UnauthorizedActionException(String message) {
         super(message);
     }
+
+    /**
+     * A routine denial: no stack trace is captured, so refusing an action
+     * costs about as much as allowing it.
+     */
+    public UnauthorizedActionException(String message, boolean stackTrace) {
+        super(message, null, false, stackTrace);
+    }
 }
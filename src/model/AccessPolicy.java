@@ -0,0 +1,172 @@
+package model;
+
+import exceptions.UnauthorizedActionException;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Who may do what in a {@link CareHome}.
+ *
+ * Each role has a permission mask ({@link Permission} bits); individual staff
+ * can be granted extra permissions, have some revoked, and be limited to
+ * certain wards. Permissions listed in {@link #assignedResidentsOnly} (none
+ * by default, so homes that do not assign residents work as before)
+ * additionally require the resident to be in the nurse's
+ * {@link Nurse#getAssignedResidents()}; a nurse with no assignments may not
+ * use them on anyone.
+ *
+ * The mask, wards and scoped permissions of a staff member are resolved once
+ * (at login, or on first use) and cached on the {@link Staff} object until the
+ * policy changes, so a check is a volatile read and a few bit tests. Denials
+ * do not capture a stack trace.
+ */
+public final class AccessPolicy {
+
+    /** What one staff member may do, as resolved against one version of a policy. */
+    static final class Grants {
+        final AccessPolicy policy;
+        final int version;
+        final String role;
+        final int mask;
+        final BitSet wards;           // null = every ward
+        final int assignedOnly;
+
+        Grants(AccessPolicy policy, int version, String role, int mask, BitSet wards, int assignedOnly) {
+            this.policy = policy;
+            this.version = version;
+            this.role = role;
+            this.mask = mask;
+            this.wards = wards;
+            this.assignedOnly = assignedOnly;
+        }
+    }
+
+    // all guarded by this
+    private final Map<String, Integer> roleMasks = new HashMap<>();
+    private final Map<String, Integer> granted = new HashMap<>();    // username -> extra permissions
+    private final Map<String, Integer> revoked = new HashMap<>();    // username -> withdrawn permissions
+    private final Map<String, BitSet> wards = new HashMap<>();       // username -> allowed wards
+    private int assignedOnly;                                        // none: scoping is opt-in
+    private volatile int version;                                    // bumped by every change
+
+    /** Managers admit, discharge and run staff; nurses move and administer; doctors prescribe. */
+    public static AccessPolicy defaults() {
+        return new AccessPolicy()
+                .role("MANAGER", Permission.ADD_STAFF, Permission.ADMIT, Permission.DISCHARGE,
+                      Permission.CHANGE_PASSWORD, Permission.EDIT_SHIFTS, Permission.ASSIGN_RESIDENTS)
+                .role("NURSE", Permission.MOVE, Permission.ADMINISTER)
+                .role("DOCTOR", Permission.PRESCRIBE);
+    }
+
+    // -------------------------------------------------------------------
+    // CONFIGURATION
+    // -------------------------------------------------------------------
+    /** Replace the permissions of a role (as in {@link Staff#getRole()}). */
+    public synchronized AccessPolicy role(String role, Permission... ps) {
+        roleMasks.put(role, Permission.mask(ps));
+        version++;
+        return this;
+    }
+
+    public synchronized AccessPolicy grant(String username, Permission... ps) {
+        granted.merge(username, Permission.mask(ps), (a, b) -> a | b);
+        revoked.computeIfPresent(username, (u, m) -> m & ~Permission.mask(ps));
+        version++;
+        return this;
+    }
+
+    public synchronized AccessPolicy revoke(String username, Permission... ps) {
+        revoked.merge(username, Permission.mask(ps), (a, b) -> a | b);
+        granted.computeIfPresent(username, (u, m) -> m & ~Permission.mask(ps));
+        version++;
+        return this;
+    }
+
+    /** Limit a staff member to these wards; no wards lifts the limit. */
+    public synchronized AccessPolicy wards(String username, int... wardNumbers) {
+        if (wardNumbers.length == 0) {
+            wards.remove(username);
+        } else {
+            BitSet set = new BitSet();
+            for (int w : wardNumbers) {
+                if (w < 1) throw new IllegalArgumentException("Ward must be 1 or more: " + w);
+                set.set(w);
+            }
+            wards.put(username, set);
+        }
+        version++;
+        return this;
+    }
+
+    /** Permissions a nurse may only use on residents assigned to them. */
+    public synchronized AccessPolicy assignedResidentsOnly(Permission... ps) {
+        assignedOnly = Permission.mask(ps);
+        version++;
+        return this;
+    }
+
+    // -------------------------------------------------------------------
+    // CHECKS
+    // -------------------------------------------------------------------
+    public boolean allows(Staff staff, Permission p) {
+        return staff != null && (grants(staff).mask & p.bit) != 0;
+    }
+
+    /** Throws unless {@code staff} has {@code p}. */
+    public void check(Staff staff, Permission p) throws UnauthorizedActionException {
+        if (!allows(staff, p)) throw deny(p.denial);
+    }
+
+    /** Throws unless {@code staff} has {@code p} on ward {@code ward} (0 = not on a ward). */
+    public void check(Staff staff, Permission p, int ward) throws UnauthorizedActionException {
+        checked(staff, p, ward);
+    }
+
+    /** Throws unless {@code staff} has {@code p} on this resident's ward and, if scoped, in their care. */
+    public void check(Staff staff, Permission p, Resident r) throws UnauthorizedActionException {
+        Bed bed = r.getBed();
+        Grants g = checked(staff, p, bed == null ? 0 : bed.getWard());
+        if ((g.assignedOnly & p.bit) != 0 && staff instanceof Nurse n) {
+            Set<String> mine = n.getAssignedResidents();
+            if (!mine.contains(r.getId()))
+                throw deny(r.getName() + " is not in the care of " + staff.getUsername());
+        }
+    }
+
+    private Grants checked(Staff staff, Permission p, int ward) throws UnauthorizedActionException {
+        if (staff == null) throw deny(p.denial);
+        Grants g = grants(staff);
+        if ((g.mask & p.bit) == 0) throw deny(p.denial);
+        if (ward != 0 && g.wards != null && !g.wards.get(ward))
+            throw deny(staff.getUsername() + " may not work on ward " + ward);
+        return g;
+    }
+
+    /** Resolve (or re-resolve) what {@code staff} may do; called at login so the first action is fast too. */
+    public void resolve(Staff staff) {
+        grants(staff);
+    }
+
+    private Grants grants(Staff staff) {
+        Grants g = staff.grants;
+        if (g != null && g.policy == this && g.version == version && g.role == staff.getRole()) return g;
+        return resolveNow(staff);
+    }
+
+    private synchronized Grants resolveNow(Staff staff) {
+        String user = staff.getUsername();
+        int mask = (roleMasks.getOrDefault(staff.getRole(), 0) | granted.getOrDefault(user, 0))
+                   & ~revoked.getOrDefault(user, 0);
+        BitSet w = wards.get(user);
+        Grants g = new Grants(this, version, staff.getRole(), mask, w == null ? null : (BitSet) w.clone(), assignedOnly);
+        staff.grants = g;
+        return g;
+    }
+
+    private static UnauthorizedActionException deny(String message) {
+        return new UnauthorizedActionException(message, false);
+    }
+}
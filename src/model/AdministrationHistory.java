@@ -0,0 +1,113 @@
+package model;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * A resident's administered doses kept in time order, with the latest dose
+ * of each medicine indexed (by {@link Formulary} code). Appends in time order are O(1) (late entries
+ * are inserted in place); range queries binary-search the bounds instead
+ * of scanning the whole history. Codes are per JVM, so the index is not
+ * serialized but rebuilt from the records when read.
+ */
+public class AdministrationHistory implements Serializable {
+
+    private final ArrayList<AdministrationRecord> records = new ArrayList<>();
+    private transient Map<Integer, AdministrationRecord> latestByMedicine = new HashMap<>();
+
+    public synchronized void add(AdministrationRecord rec) {
+        int n = records.size();
+        if (n == 0 || !rec.getAdministeredAt().isBefore(records.get(n - 1).getAdministeredAt())) {
+            records.add(rec);
+        } else {
+            records.add(upperBound(rec.getAdministeredAt()), rec); // back-dated entry
+        }
+        index(rec);
+    }
+
+    private void index(AdministrationRecord rec) {
+        latestByMedicine.merge(rec.getMedicineCode(), rec,
+                (old, cur) -> cur.getAdministeredAt().isBefore(old.getAdministeredAt()) ? old : cur);
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        latestByMedicine = new HashMap<>();
+        for (AdministrationRecord rec : records) index(rec);
+    }
+
+    /** Doses given in [from, to), oldest first. */
+    public synchronized List<AdministrationRecord> between(LocalDateTime from, LocalDateTime to) {
+        int lo = lowerBound(from), hi = lowerBound(to);
+        return lo >= hi ? List.of() : List.copyOf(records.subList(lo, hi));
+    }
+
+    /** Doses given at or after from, oldest first (e.g. "last 24 hours"). */
+    public synchronized List<AdministrationRecord> since(LocalDateTime from) {
+        int lo = lowerBound(from);
+        return List.copyOf(records.subList(lo, records.size()));
+    }
+
+    /** Most recent dose of this medicine, or null if never given. */
+    public synchronized AdministrationRecord latest(String medicine) {
+        return latestByMedicine.get(Formulary.MEDICINES.find(medicine));
+    }
+
+    /** Whether this medicine was given in [from, to) (e.g. "already given today"). */
+    public synchronized boolean given(String medicine, LocalDateTime from, LocalDateTime to) {
+        int code = Formulary.MEDICINES.find(medicine);
+        AdministrationRecord last = latestByMedicine.get(code);
+        if (last == null || last.getAdministeredAt().isBefore(from)) return false;
+        for (int i = lowerBound(from), hi = lowerBound(to); i < hi; i++) {
+            if (records.get(i).getMedicineCode() == code) return true;
+        }
+        return false;
+    }
+
+    /** Every dose of this medicine, oldest first. */
+    public synchronized List<AdministrationRecord> of(String medicine) {
+        int code = Formulary.MEDICINES.find(medicine);
+        List<AdministrationRecord> out = new ArrayList<>();
+        if (code < 0) return out;
+        for (AdministrationRecord rec : records) if (rec.getMedicineCode() == code) out.add(rec);
+        return out;
+    }
+
+    /** Visit every dose oldest first without copying the history. */
+    public synchronized void forEach(Consumer<AdministrationRecord> action) {
+        records.forEach(action);
+    }
+
+    /** All doses, oldest first (a copy). */
+    public synchronized List<AdministrationRecord> all() {
+        return List.copyOf(records);
+    }
+
+    public synchronized int size() {
+        return records.size();
+    }
+
+    // first index with time >= t
+    private int lowerBound(LocalDateTime t) {
+        int lo = 0, hi = records.size();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (records.get(mid).getAdministeredAt().isBefore(t)) lo = mid + 1; else hi = mid;
+        }
+        return lo;
+    }
+
+    // first index with time > t
+    private int upperBound(LocalDateTime t) {
+        int lo = 0, hi = records.size();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (records.get(mid).getAdministeredAt().isAfter(t)) hi = mid; else lo = mid + 1;
+        }
+        return lo;
+    }
+}
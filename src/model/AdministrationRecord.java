@@ -1,27 +1,45 @@
 package model;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.time.LocalDateTime;
 
 /** One administered dose for a resident. */
 public class AdministrationRecord implements Serializable {
-    private final String medicine;
-    private final String dosage;
+    private transient int medicine;   // Formulary.MEDICINES code
+    private transient int dosage;     // Formulary.DOSAGES code
     private final LocalDateTime administeredAt;
     private final String nurseId;
 
     public AdministrationRecord(String medicine, String dosage, LocalDateTime administeredAt, String nurseId) {
-        this.medicine = medicine;
-        this.dosage = dosage;
+        this.medicine = Formulary.MEDICINES.code(medicine);
+        this.dosage = Formulary.DOSAGES.code(dosage);
         this.administeredAt = administeredAt;
         this.nurseId = nurseId;
     }
-    public String getMedicine() { return medicine; }
-    public String getDosage() { return dosage; }
+    public String getMedicine() { return Formulary.MEDICINES.name(medicine); }
+    public String getDosage() { return Formulary.DOSAGES.name(dosage); }
+    public int getMedicineCode() { return medicine; }
+    public int getDosageCode() { return dosage; }
     public LocalDateTime getAdministeredAt() { return administeredAt; }
     public String getNurseId() { return nurseId; }
 
+    // codes are per JVM: write the shared dictionary terms (each once per stream)
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        out.writeObject(Formulary.MEDICINES.term(medicine));
+        out.writeObject(Formulary.DOSAGES.term(dosage));
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        medicine = ((Formulary.Term) in.readObject()).code();
+        dosage = ((Formulary.Term) in.readObject()).code();
+    }
+
     @Override public String toString() {
-        return administeredAt + " - " + medicine + " " + dosage + " (nurse " + nurseId + ")";
+        return administeredAt + " - " + getMedicine() + " " + getDosage() + " (nurse " + nurseId + ")";
     }
 }
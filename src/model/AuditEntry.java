@@ -0,0 +1,23 @@
+package model;
+
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * One audit record: when, who, what kind of change, to whom, and the
+ * human-readable message. {@link #line()} is the classic
+ * {@code "<date> - <message>"} form shown and exported by the app.
+ *
+ * @param at      epoch millis
+ * @param actor   staff id of whoever made the change (null if unknown)
+ * @param action  event type, e.g. "DoseAdministered" (null if unknown)
+ * @param subject resident id or staff username the change is about (null if unknown)
+ * @param message text after the date
+ */
+public record AuditEntry(long at, String actor, String action, String subject, String message)
+        implements Serializable {
+
+    public String line() {
+        return new Date(at) + " - " + message;
+    }
+}
@@ -0,0 +1,230 @@
+package model;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Audit trail of a CareHome with search.
+ *
+ * Entries are kept in append order. An inverted index maps each actor,
+ * subject, action and lower-case word to the sorted ordinals of the entries
+ * that contain it, and a parallel array of times (never decreasing) turns a
+ * time range into an ordinal range by binary search. A query intersects the
+ * postings of its terms inside that range, starting from the shortest list.
+ *
+ * As a {@code List<String>} it reads as the classic "date - message" lines;
+ * {@link #add(String)} accepts such lines (e.g. from the database) and
+ * indexes their words and time. A log read back from storage indexes its
+ * terms on the first search rather than while loading. All methods
+ * synchronize on this object.
+ */
+public final class AuditLog extends AbstractList<String> implements Serializable {
+
+    /** One page of search results plus the total number of matches. */
+    public record Page(List<AuditEntry> entries, int total) {}
+
+    private final List<AuditEntry> entries = new ArrayList<>();
+    private transient long[] times;                  // [ordinal], clamped to be non-decreasing
+    private transient Map<String, Postings> index;   // "a:"/"s:"/"c:"/"t:" + term -> ordinals
+    private transient int indexed;                   // entries [0, indexed) are in the term index
+
+    public AuditLog() {
+        initIndex();
+    }
+
+    private void initIndex() {
+        times = new long[Math.max(16, entries.size())];
+        index = new HashMap<>();
+        indexed = 0;
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        initIndex();
+        for (int i = 0; i < entries.size(); i++) indexTime(i, entries.get(i));
+    }
+
+    // -------------------------------------------------------------------
+    // APPEND
+    // -------------------------------------------------------------------
+    public synchronized void append(AuditEntry e) {
+        restore(e);
+        if (indexed == entries.size() - 1) indexTerms(indexed++, e);
+    }
+
+    /** Append without indexing terms yet (loading a saved log; see {@link #search}). */
+    /* package-private */ synchronized void restore(AuditEntry e) {
+        entries.add(e);
+        indexTime(entries.size() - 1, e);
+    }
+
+    /** Append an unstructured "date - message" line; only its time and words are indexed. */
+    @Override
+    public synchronized boolean add(String line) {
+        int sep = line.indexOf(" - ");
+        long at = sep < 0 ? 0 : parseDate(line.substring(0, sep));
+        append(new AuditEntry(at, null, null, null, sep < 0 ? line : line.substring(sep + 3)));
+        return true;
+    }
+
+    private static long parseDate(String s) {
+        try {
+            return new SimpleDateFormat("EEE MMM dd HH:mm:ss zzz yyyy", Locale.US).parse(s).getTime();
+        } catch (ParseException e) {
+            return 0;
+        }
+    }
+
+    private void indexTime(int ordinal, AuditEntry e) {
+        if (ordinal == times.length) times = Arrays.copyOf(times, times.length * 2);
+        times[ordinal] = ordinal == 0 ? e.at() : Math.max(e.at(), times[ordinal - 1]);
+    }
+
+    private void indexTerms(int ordinal, AuditEntry e) {
+        if (e.actor() != null) post("a:" + e.actor(), ordinal);
+        if (e.subject() != null) post("s:" + e.subject(), ordinal);
+        if (e.action() != null) post("c:" + e.action(), ordinal);
+        for (String word : words(e.message())) post("t:" + word, ordinal);
+    }
+
+    private void post(String term, int ordinal) {
+        index.computeIfAbsent(term, t -> new Postings()).add(ordinal);
+    }
+
+    static Set<String> words(String text) {
+        Set<String> out = new LinkedHashSet<>();
+        if (text == null) return out;
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean word = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (word && start < 0) start = i;
+            if (!word && start >= 0) {
+                out.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return out;
+    }
+
+    // -------------------------------------------------------------------
+    // SEARCH
+    // -------------------------------------------------------------------
+    public synchronized Page search(AuditQuery q) {
+        for (; indexed < entries.size(); indexed++) indexTerms(indexed, entries.get(indexed));   // catch up after a load
+        int lo = firstAtOrAfter(q.from());
+        int hi = q.to() == Long.MAX_VALUE ? entries.size() : firstAtOrAfter(q.to());
+        if (lo >= hi) return new Page(List.of(), 0);
+
+        List<Postings> lists = new ArrayList<>();
+        if (!addTerm(lists, "a:", q.actor())
+                || !addTerm(lists, "s:", q.subject())
+                || !addTerm(lists, "c:", q.action())) return new Page(List.of(), 0);
+        for (String word : words(q.text())) {
+            Postings p = index.get("t:" + word);
+            if (p == null) return new Page(List.of(), 0);
+            lists.add(p);
+        }
+
+        List<AuditEntry> page = new ArrayList<>(Math.min(q.limit(), 256));
+        if (lists.isEmpty()) {                         // time range only
+            for (int i = lo + q.offset(); i < hi && page.size() < q.limit(); i++) page.add(entries.get(i));
+            return new Page(page, hi - lo);
+        }
+
+        lists.sort((a, b) -> Integer.compare(a.size, b.size));
+        Postings driver = lists.get(0);
+        int[] cursors = new int[lists.size()];
+        int total = 0;
+        for (int k = driver.lowerBound(lo, 0); k < driver.size; k++) {
+            int ordinal = driver.ids[k];
+            if (ordinal >= hi) break;
+            boolean all = true;
+            for (int j = 1; j < lists.size() && all; j++) {
+                Postings p = lists.get(j);
+                cursors[j] = p.lowerBound(ordinal, cursors[j]);
+                all = cursors[j] < p.size && p.ids[cursors[j]] == ordinal;
+            }
+            if (!all) continue;
+            if (total >= q.offset() && page.size() < q.limit()) page.add(entries.get(ordinal));
+            total++;
+        }
+        return new Page(page, total);
+    }
+
+    private boolean addTerm(List<Postings> lists, String prefix, String value) {
+        if (value == null || value.isBlank()) return true;
+        Postings p = index.get(prefix + value.trim());
+        if (p == null) return false;
+        lists.add(p);
+        return true;
+    }
+
+    /** Index of the first entry at or after {@code t} (size() if none); iterate with {@link #entry}. */
+    public synchronized int firstIndexAt(long t) {
+        return firstAtOrAfter(t);
+    }
+
+    private int firstAtOrAfter(long t) {
+        int lo = 0, hi = entries.size();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (times[mid] < t) lo = mid + 1; else hi = mid;
+        }
+        return lo;
+    }
+
+    /** Sorted, growable list of entry ordinals. */
+    private static final class Postings {
+        int[] ids = new int[4];
+        int size;
+
+        void add(int ordinal) {
+            if (size > 0 && ids[size - 1] == ordinal) return;
+            if (size == ids.length) ids = Arrays.copyOf(ids, size * 2);
+            ids[size++] = ordinal;
+        }
+
+        /** First position >= from holding a value >= target (galloping, then binary search). */
+        int lowerBound(int target, int from) {
+            if (from >= size || ids[from] >= target) return from;
+            int step = 1, hi = from + 1;
+            while (hi < size && ids[hi] < target) { from = hi; step <<= 1; hi = from + step; }
+            hi = Math.min(hi, size);
+            int lo = from + 1;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (ids[mid] < target) lo = mid + 1; else hi = mid;
+            }
+            return lo;
+        }
+    }
+
+    // -------------------------------------------------------------------
+    // LIST VIEW ("date - message" lines)
+    // -------------------------------------------------------------------
+    @Override
+    public synchronized String get(int i) {
+        return entries.get(i).line();
+    }
+
+    @Override
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized AuditEntry entry(int i) {
+        return entries.get(i);
+    }
+}
@@ -0,0 +1,49 @@
+package model;
+
+/**
+ * Filter for {@link AuditLog#search}. Null or blank fields match anything;
+ * every given field must match. {@code text} matches entries containing all
+ * of its words. Results are in time order; {@code offset}/{@code limit} page
+ * through them.
+ */
+public record AuditQuery(String actor, String subject, String action, String text,
+                         long from, long to, int offset, int limit) {
+
+    public AuditQuery {
+        if (offset < 0 || limit < 1) throw new IllegalArgumentException("offset must be >= 0, limit >= 1");
+        if (to < from) throw new IllegalArgumentException("Time range is reversed");
+    }
+
+    /** Everything, first 100 results. */
+    public static AuditQuery all() {
+        return new AuditQuery(null, null, null, null, Long.MIN_VALUE, Long.MAX_VALUE, 0, 100);
+    }
+
+    /** Made by this staff id. */
+    public AuditQuery by(String actorId) {
+        return new AuditQuery(actorId, subject, action, text, from, to, offset, limit);
+    }
+
+    /** About this resident id or staff username. */
+    public AuditQuery about(String subjectId) {
+        return new AuditQuery(actor, subjectId, action, text, from, to, offset, limit);
+    }
+
+    /** Of this event type, e.g. "ResidentMoved". */
+    public AuditQuery action(String eventType) {
+        return new AuditQuery(actor, subject, eventType, text, from, to, offset, limit);
+    }
+
+    public AuditQuery containing(String words) {
+        return new AuditQuery(actor, subject, action, words, from, to, offset, limit);
+    }
+
+    /** Between two instants in epoch millis, from inclusive, to exclusive. */
+    public AuditQuery between(long fromMillis, long toMillis) {
+        return new AuditQuery(actor, subject, action, text, fromMillis, toMillis, offset, limit);
+    }
+
+    public AuditQuery page(int pageOffset, int pageLimit) {
+        return new AuditQuery(actor, subject, action, text, from, to, pageOffset, pageLimit);
+    }
+}
@@ -0,0 +1,192 @@
+package model;
+
+import exceptions.UnauthorizedActionException;
+import model.CareEvent.PasswordChanged;
+import util.Metrics;
+import util.OpStats;
+import util.PasswordHasher;
+
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Logins and sessions for the staff of a {@link CareHome}.
+ *
+ * {@link #login} verifies the password against the stored PBKDF2 hash (the
+ * slow part, run outside any lock) and returns a random session token.
+ * Verified sessions live in a bounded LRU map with an idle timeout and a
+ * maximum lifetime, so {@link #authenticate} / {@link #require} on every
+ * action is a map lookup, not a re-hash. Passwords stored as plain text or
+ * with fewer iterations than the home's hasher are re-hashed after a
+ * successful login. Changing a password ends that user's sessions.
+ *
+ * Register with {@link CareHome#addListener} so password changes are seen.
+ */
+public final class AuthService implements CareListener {
+    private static final OpStats LOGIN = Metrics.op("AuthService.login");
+    private static final OpStats AUTHENTICATE = Metrics.op("AuthService.authenticate");
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    /** A verified login; pass {@link #token()} with each action. */
+    public record Session(String token, String username, String role, long createdAt) {}
+
+    private static final class Entry {
+        final Session session;
+        final Staff staff;
+        final long created;     // System.nanoTime()
+        long lastUsed;
+
+        Entry(Session session, Staff staff, long now) {
+            this.session = session;
+            this.staff = staff;
+            this.created = now;
+            this.lastUsed = now;
+        }
+    }
+
+    private final CareHome home;
+    private final long idleNanos, lifetimeNanos;
+    private final int maxSessions;
+    private final String dummyHash;                       // verified for unknown users: same cost, same timing
+    private final LinkedHashMap<String, Entry> sessions;  // token -> entry, least recently used first
+
+    /** Sessions end after 30 idle minutes or 14 hours; at most 1024 at once. */
+    public AuthService(CareHome home) {
+        this(home, Duration.ofMinutes(30), Duration.ofHours(14), 1024);
+    }
+
+    public AuthService(CareHome home, Duration idleTimeout, Duration maxLifetime, int maxSessions) {
+        if (maxSessions < 1) throw new IllegalArgumentException("maxSessions must be >= 1");
+        this.home = home;
+        this.idleNanos = idleTimeout.toNanos();
+        this.lifetimeNanos = maxLifetime.toNanos();
+        this.maxSessions = maxSessions;
+        this.dummyHash = home.getPasswordHasher().hash(new char[] {'x'});
+        this.sessions = new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > AuthService.this.maxSessions;
+            }
+        };
+        Metrics.gauge("auth.sessions", this::activeSessions);
+    }
+
+    // -------------------------------------------------------------------
+    // LOGIN / LOGOUT
+    // -------------------------------------------------------------------
+    /**
+     * Verify the password and open a session. Unknown user and wrong
+     * password fail the same way, after the same amount of work. The
+     * password array is wiped.
+     */
+    public Session login(String username, char[] password) throws UnauthorizedActionException {
+        long t0 = System.nanoTime();
+        try {
+            Staff staff = username == null ? null : home.getStaffList().get(username);
+            String stored = staff == null ? null : staff.getPasswordHash();
+            boolean ok = PasswordHasher.verify(password, stored != null ? stored : dummyHash) && stored != null;
+            if (!ok) throw new UnauthorizedActionException("Invalid username or password");
+
+            PasswordHasher hasher = home.getPasswordHasher();
+            if (hasher.needsRehash(stored)) home.upgradePasswordHash(username, stored, hasher.hash(password));
+
+            home.getAccessPolicy().resolve(staff);               // first action needs no resolving
+            Session session = new Session(newToken(), username, staff.getRole(), System.currentTimeMillis());
+            long now = System.nanoTime();
+            synchronized (sessions) {
+                evictExpired(now);
+                sessions.put(session.token(), new Entry(session, staff, now));
+            }
+            return session;
+        } catch (Exception e) {
+            LOGIN.failed(e);
+            throw e;
+        } finally {
+            PasswordHasher.wipe(password);
+            LOGIN.stop(t0);
+        }
+    }
+
+    public void logout(String token) {
+        synchronized (sessions) {
+            sessions.remove(token);
+        }
+    }
+
+    /** End every session of this user (e.g. after a password change). */
+    public void logoutAll(String username) {
+        synchronized (sessions) {
+            sessions.values().removeIf(e -> e.session.username().equals(username));
+        }
+    }
+
+    // -------------------------------------------------------------------
+    // PER-ACTION CHECKS
+    // -------------------------------------------------------------------
+    /** The staff member of a live session; refreshes its idle timer. */
+    public Staff authenticate(String token) throws UnauthorizedActionException {
+        long t0 = System.nanoTime();
+        try {
+            synchronized (sessions) {
+                Entry e = token == null ? null : sessions.get(token);
+                if (e == null) throw new UnauthorizedActionException("Not signed in");
+                if (expired(e, t0)) {
+                    sessions.remove(token);
+                    throw new UnauthorizedActionException("Session expired, please sign in again");
+                }
+                e.lastUsed = t0;
+                return e.staff;
+            }
+        } catch (Exception e) {
+            AUTHENTICATE.failed(e);
+            throw e;
+        } finally {
+            AUTHENTICATE.stop(t0);
+        }
+    }
+
+    /** The session's staff member if it has the given role (e.g. {@code Manager.class}). */
+    public <T extends Staff> T require(String token, Class<T> role) throws UnauthorizedActionException {
+        Staff s = authenticate(token);
+        if (!role.isInstance(s))
+            throw new UnauthorizedActionException("Only " + role.getSimpleName().toLowerCase() + "s may do this");
+        return role.cast(s);
+    }
+
+    public int activeSessions() {
+        synchronized (sessions) {
+            return sessions.size();
+        }
+    }
+
+    // password changed by someone else: that user's sessions end
+    @Override
+    public void changed(CareEvent e) {
+        if (e instanceof PasswordChanged ev && !CareHome.SYSTEM_ACTOR.equals(ev.actor())) logoutAll(ev.username());
+    }
+
+    // -------------------------------------------------------------------
+
+    private boolean expired(Entry e, long now) {
+        return now - e.lastUsed > idleNanos || now - e.created > lifetimeNanos;
+    }
+
+    // least recently used first, so stop at the first session still idle-valid
+    private void evictExpired(long now) {
+        for (Iterator<Entry> it = sessions.values().iterator(); it.hasNext(); ) {
+            Entry e = it.next();
+            if (now - e.lastUsed <= idleNanos) break;
+            it.remove();
+        }
+    }
+
+    private static String newToken() {
+        byte[] b = new byte[32];
+        RANDOM.nextBytes(b);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(b);
+    }
+}
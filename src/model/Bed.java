@@ -1,20 +1,50 @@
 package model;
 
 import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 /** Bed within a room/ward. Example id: W1-R3-B2 */
 public class Bed implements Serializable {
-    private final String bedId;
-    private Resident occupant; // null if vacant
+    private transient String bedId;   // built on first use: most beds of a large home are never shown
+    private final int ward;      // 1-based
+    private final int room;      // 1-based within the ward
+    private final int number;    // 1-based within the room
+    private final int packedId;  // see BedRegistry.pack
+    private final int roomIndex; // facility-wide room index
+    private volatile Resident occupant; // null if vacant
 
-    public Bed(String bedId) { this.bedId = bedId; }
+    private static final AtomicReferenceFieldUpdater<Bed, Resident> OCCUPANT =
+            AtomicReferenceFieldUpdater.newUpdater(Bed.class, Resident.class, "occupant");
 
-    public String getBedId() { return bedId; }
+    /* package-private */ Bed(int ward, int room, int number, int packedId, int roomIndex) {
+        this.ward = ward;
+        this.room = room;
+        this.number = number;
+        this.packedId = packedId;
+        this.roomIndex = roomIndex;
+    }
+
+    public String getBedId() {
+        String id = bedId;
+        if (id == null) bedId = id = "W" + ward + "-R" + room + "-B" + number;
+        return id;
+    }
+    public int getWard() { return ward; }
+    public int getRoom() { return room; }
+    public int getNumber() { return number; }
+    public int getPackedId() { return packedId; }
+    public int getRoomIndex() { return roomIndex; }
     public boolean isOccupied() { return occupant != null; }
     public Resident getOccupant() { return occupant; }
 
     /* package-private */ void assign(Resident r) { this.occupant = r; }
     /* package-private */ void vacate() { this.occupant = null; }
 
-    @Override public String toString() { return bedId + (isOccupied() ? " [OCCUPIED]" : " [VACANT]"); }
+    /** Atomically take a vacant bed; false if someone else holds it. */
+    /* package-private */ boolean claim(Resident r) { return OCCUPANT.compareAndSet(this, null, r); }
+
+    /** Atomically free the bed if r still holds it. */
+    /* package-private */ boolean release(Resident r) { return OCCUPANT.compareAndSet(this, r, null); }
+
+    @Override public String toString() { return getBedId() + (isOccupied() ? " [OCCUPIED]" : " [VACANT]"); }
 }
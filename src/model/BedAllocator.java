@@ -0,0 +1,143 @@
+package model;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Vacant-bed index of a {@link BedRegistry}, kept as bitsets so a search is a
+ * handful of word operations per 64 rooms.
+ *
+ * <ul>
+ *   <li>per room: one word with a bit per vacant bed (rooms hold at most 64 beds)</li>
+ *   <li>per facility: bitsets over the room index for "has a vacant bed",
+ *       "has a male resident" and "has a female resident"</li>
+ *   <li>per room size: a fixed bitset of the rooms with that many beds</li>
+ * </ul>
+ * Rooms of a ward are contiguous in the room index, so a ward search only
+ * touches that ward's words. Searches are lock-free and may see a bed that
+ * is taken a moment later; callers claim the bed and retry on failure.
+ */
+public final class BedAllocator {
+    private final BedRegistry registry;
+    private final Occupancy occupancy;
+    private final AtomicLongArray roomFree;      // [room index] -> vacant-bed bits
+    private final AtomicLongArray roomsWithFree; // bit per room index
+    private final AtomicLongArray roomsWithMale;
+    private final AtomicLongArray roomsWithFemale;
+    private final long[][] roomsOfSize;          // [beds] -> bit per room index (null if no such room)
+
+    BedAllocator(BedRegistry registry, Occupancy occupancy) {
+        this.registry = registry;
+        this.occupancy = occupancy;
+        int rooms = registry.roomTotal();
+        int words = (rooms + 63) >>> 6;
+        roomFree = new AtomicLongArray(rooms);
+        roomsWithFree = new AtomicLongArray(words);
+        roomsWithMale = new AtomicLongArray(words);
+        roomsWithFemale = new AtomicLongArray(words);
+        roomsOfSize = new long[Topology.MAX_BEDS_PER_ROOM + 1][];
+        for (int i = 0; i < rooms; i++) {
+            int size = registry.inRoom(i).size();
+            if (roomsOfSize[size] == null) roomsOfSize[size] = new long[words];
+            roomsOfSize[size][i >>> 6] |= 1L << i;
+            for (Bed b : registry.inRoom(i)) {
+                if (!b.isOccupied()) roomFree.set(i, roomFree.get(i) | 1L << (b.getNumber() - 1));
+            }
+            refresh(i);
+        }
+    }
+
+    // called by the registry after the occupancy counters changed (room's ward lock held)
+    void occupied(Bed bed) {
+        int i = bed.getRoomIndex();
+        long bit = 1L << (bed.getNumber() - 1);
+        long m;
+        do { m = roomFree.get(i); } while (!roomFree.compareAndSet(i, m, m & ~bit));
+        refresh(i);
+    }
+
+    void vacated(Bed bed) {
+        int i = bed.getRoomIndex();
+        long bit = 1L << (bed.getNumber() - 1);
+        long m;
+        do { m = roomFree.get(i); } while (!roomFree.compareAndSet(i, m, m | bit));
+        refresh(i);
+    }
+
+    private void refresh(int room) {
+        setBit(roomsWithFree, room, roomFree.get(room) != 0);
+        setBit(roomsWithMale, room, occupancy.occupiedInRoom(room, 'M') > 0);
+        setBit(roomsWithFemale, room, occupancy.occupiedInRoom(room, 'F') > 0);
+    }
+
+    private static void setBit(AtomicLongArray bits, int index, boolean on) {
+        int w = index >>> 6;
+        long bit = 1L << index;
+        long m;
+        do {
+            m = bits.get(w);
+            if (((m & bit) != 0) == on) return;
+        } while (!bits.compareAndSet(w, m, on ? m | bit : m & ~bit));
+    }
+
+    /**
+     * First vacant bed (lowest ward, room, bed number) matching the request
+     * for a resident of the given gender, or null if there is none.
+     */
+    public Bed findFree(BedRequest req, char gender) {
+        long[] sizeMask = sizeMask(req.minRoomSize(), req.maxRoomSize());
+        if (sizeMask == null) return null;
+        int preferred = req.preferredWard();
+        if (preferred > registry.wardCount()) return null;
+        if (preferred > 0) {
+            Bed b = findInWard(preferred, sizeMask, req.sameGender(), gender);
+            if (b != null || !req.otherWards()) return b;
+        }
+        for (int w = 1; w <= registry.wardCount(); w++) {
+            if (w == preferred) continue;
+            Bed b = findInWard(w, sizeMask, req.sameGender(), gender);
+            if (b != null) return b;
+        }
+        return null;
+    }
+
+    private Bed findInWard(int ward, long[] sizeMask, boolean sameGender, char gender) {
+        if (occupancy.vacantInWard(ward) == 0) return null;
+        int lo = registry.roomIndex(ward, 1);
+        int hi = lo + registry.roomCount(ward);          // exclusive
+        AtomicLongArray otherGender = gender == 'M' ? roomsWithFemale : roomsWithMale;
+        for (int w = lo >>> 6; w <= (hi - 1) >>> 6; w++) {
+            long bits = roomsWithFree.get(w) & sizeMask[w];
+            if (sameGender) bits &= ~otherGender.get(w);
+            if (w == lo >>> 6) bits &= -1L << lo;         // drop rooms before the ward
+            if (w == (hi - 1) >>> 6 && (hi & 63) != 0) bits &= -1L >>> (64 - (hi & 63)); // and after it
+            while (bits != 0) {
+                int room = (w << 6) + Long.numberOfTrailingZeros(bits);
+                long free = roomFree.get(room);
+                if (free != 0) return registry.inRoom(room).get(Long.numberOfTrailingZeros(free));
+                bits &= bits - 1;
+            }
+        }
+        return null;
+    }
+
+    private long[] sizeMask(int min, int max) {
+        long[] mask = null;
+        for (int size = min; size <= Math.min(max, Topology.MAX_BEDS_PER_ROOM); size++) {
+            long[] rooms = roomsOfSize[size];
+            if (rooms == null) continue;
+            if (mask == null) {
+                if (size == max || allAbsent(size + 1, max)) return rooms;  // single size: no copy
+                mask = rooms.clone();
+            } else {
+                for (int w = 0; w < mask.length; w++) mask[w] |= rooms[w];
+            }
+        }
+        return mask;
+    }
+
+    private boolean allAbsent(int from, int max) {
+        for (int size = from; size <= Math.min(max, Topology.MAX_BEDS_PER_ROOM); size++)
+            if (roomsOfSize[size] != null) return false;
+        return true;
+    }
+}
@@ -0,0 +1,188 @@
+package model;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * All beds of a facility, indexed by ward, room and bed number.
+ * Ward, room and packed-id lookups are array accesses; callers that still
+ * address beds as "W1-R3-B2" have the code parsed into the same lookup.
+ *
+ * Occupancy changes go through {@link #claim}, {@link #release} and
+ * {@link #set} so the {@link Occupancy} counters and the
+ * {@link BedAllocator} bitsets stay exact.
+ */
+public final class BedRegistry implements Serializable {
+
+    // packed id layout: [ward:8][room:12][bed:8]
+    private static final int WARD_SHIFT = 20;
+    private static final int ROOM_SHIFT = 8;
+    private static final int ROOM_MASK = 0xFFF;
+    private static final int BED_MASK = 0xFF;
+
+    private final Topology topology;
+    private final Bed[][][] beds;            // [ward-1][room-1][bed-1]
+    private final List<List<Bed>> wardBeds;  // [ward-1] -> beds in ward order
+    private final List<List<Bed>> roomBeds;  // [room index] -> beds in room
+    private final int[] firstRoomIndex;      // [ward-1] -> room index of R1
+    private final List<Bed> all;
+    private transient Occupancy occupancy;   // rebuilt from the beds on deserialization
+    private transient BedAllocator allocator; // likewise
+
+    public BedRegistry(Topology topology) {
+        this.topology = topology;
+        int wards = topology.wardCount();
+        beds = new Bed[wards][][];
+        firstRoomIndex = new int[wards];
+        wardBeds = new ArrayList<>(wards);
+        roomBeds = new ArrayList<>();
+        List<Bed> flat = new ArrayList<>(topology.totalBeds());
+
+        for (int w = 1; w <= wards; w++) {
+            int rooms = topology.roomCount(w);
+            beds[w - 1] = new Bed[rooms][];
+            firstRoomIndex[w - 1] = roomBeds.size();
+            List<Bed> inWard = new ArrayList<>();
+            for (int r = 1; r <= rooms; r++) {
+                int roomIndex = roomBeds.size();
+                Bed[] inRoom = new Bed[topology.bedCount(w, r)];
+                for (int b = 1; b <= inRoom.length; b++) {
+                    Bed bed = new Bed(w, r, b, pack(w, r, b), roomIndex);
+                    inRoom[b - 1] = bed;
+                    inWard.add(bed);
+                    flat.add(bed);
+                }
+                beds[w - 1][r - 1] = inRoom;
+                roomBeds.add(Collections.unmodifiableList(Arrays.asList(inRoom)));
+            }
+            wardBeds.add(Collections.unmodifiableList(inWard));
+        }
+        all = Collections.unmodifiableList(flat);
+        occupancy = new Occupancy(this);   // all vacant
+        allocator = new BedAllocator(this, occupancy);
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        in.registerValidation(this::recount, 0); // occupants are complete only once the whole graph is read
+    }
+
+    private void recount() {
+        Occupancy counts = new Occupancy(this);
+        for (Bed b : all) {
+            Resident r = b.getOccupant();
+            if (r != null) counts.occupied(b, r.getGender());
+        }
+        occupancy = counts;
+        allocator = new BedAllocator(this, counts);
+    }
+
+    /** Atomically take a vacant bed for r; false if someone else holds it. */
+    boolean claim(Bed bed, Resident r) {
+        if (!bed.claim(r)) return false;
+        occupancy.occupied(bed, r.getGender());
+        allocator.occupied(bed);
+        return true;
+    }
+
+    /** Atomically free the bed if r still holds it. */
+    boolean release(Bed bed, Resident r) {
+        if (!bed.release(r)) return false;
+        occupancy.vacated(bed, r.getGender());
+        allocator.vacated(bed);
+        return true;
+    }
+
+    /** Overwrite a bed's occupant (hydration only; not atomic). */
+    void set(Bed bed, Resident r) {
+        Resident previous = bed.getOccupant();
+        if (previous == r) return;
+        if (previous != null) { bed.vacate(); occupancy.vacated(bed, previous.getGender()); allocator.vacated(bed); }
+        if (r != null) { bed.assign(r); occupancy.occupied(bed, r.getGender()); allocator.occupied(bed); }
+    }
+
+    /** Bitset index of vacant beds for automatic allocation. */
+    public BedAllocator allocator() {
+        return allocator;
+    }
+
+    /** Live occupancy counters (constant-time reads). */
+    public Occupancy occupancy() {
+        return occupancy;
+    }
+
+    /** Pack ward/room/bed numbers (all 1-based) into one int id. */
+    public static int pack(int ward, int room, int bed) {
+        return (ward << WARD_SHIFT) | (room << ROOM_SHIFT) | bed;
+    }
+
+    public static int wardOf(int packedId) { return packedId >>> WARD_SHIFT; }
+    public static int roomOf(int packedId) { return (packedId >>> ROOM_SHIFT) & ROOM_MASK; }
+    public static int bedOf(int packedId)  { return packedId & BED_MASK; }
+
+    /** Bed for a packed id, or null if it is outside the layout. */
+    public Bed get(int packedId) {
+        return get(wardOf(packedId), roomOf(packedId), bedOf(packedId));
+    }
+
+    /** Bed by ward/room/bed number, or null if it is outside the layout. */
+    public Bed get(int ward, int room, int bed) {
+        if (ward < 1 || ward > beds.length) return null;
+        Bed[][] rooms = beds[ward - 1];
+        if (room < 1 || room > rooms.length) return null;
+        Bed[] inRoom = rooms[room - 1];
+        if (bed < 1 || bed > inRoom.length) return null;
+        return inRoom[bed - 1];
+    }
+
+    /** Bed by its display code (e.g. "W1-R3-B2"), or null; parsed, so only the exact form matches. */
+    public Bed byCode(String code) {
+        if (code == null) return null;
+        int[] n = new int[3];
+        int at = 0;
+        for (int part = 0; part < 3; part++) {
+            if (part > 0 && (at == code.length() || code.charAt(at++) != '-')) return null;
+            if (at == code.length() || code.charAt(at++) != "WRB".charAt(part)) return null;
+            int start = at;
+            while (at < code.length() && at - start < 6 && code.charAt(at) >= '0' && code.charAt(at) <= '9')
+                n[part] = n[part] * 10 + code.charAt(at++) - '0';
+            if (at == start || code.charAt(start) == '0') return null;      // no digits, or a leading zero
+        }
+        return at == code.length() ? get(n[0], n[1], n[2]) : null;
+    }
+
+    public List<Bed> inWard(int ward) {
+        return wardBeds.get(ward - 1);
+    }
+
+    public List<Bed> inRoom(int ward, int room) {
+        return roomBeds.get(roomIndex(ward, room));
+    }
+
+    /** Beds of a room by its facility-wide index (0..roomTotal-1). */
+    public List<Bed> inRoom(int roomIndex) {
+        return roomBeds.get(roomIndex);
+    }
+
+    /** Facility-wide 0-based index of a room, stable for the layout. */
+    public int roomIndex(int ward, int room) {
+        return firstRoomIndex[ward - 1] + room - 1;
+    }
+
+    public int wardCount() { return beds.length; }
+
+    public int roomCount(int ward) { return beds[ward - 1].length; }
+
+    public int roomTotal() { return roomBeds.size(); }
+
+    public List<Bed> all() { return all; }
+
+    public int size() { return all.size(); }
+
+    public Topology getTopology() { return topology; }
+}
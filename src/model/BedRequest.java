@@ -0,0 +1,43 @@
+package model;
+
+/**
+ * Constraints for automatic bed allocation (see {@link CareHome#admit}).
+ *
+ * @param preferredWard  ward searched first (0 = no preference)
+ * @param otherWards     whether other wards may be used when the preferred one is full
+ * @param minRoomSize    smallest acceptable room (beds)
+ * @param maxRoomSize    largest acceptable room (beds)
+ * @param sameGender     only rooms that are empty or hold residents of the same gender
+ */
+public record BedRequest(int preferredWard, boolean otherWards, int minRoomSize, int maxRoomSize,
+                         boolean sameGender) {
+
+    public BedRequest {
+        if (preferredWard < 0) throw new IllegalArgumentException("Ward must be 1 or more (0 = any)");
+        if (minRoomSize < 1 || maxRoomSize < minRoomSize)
+            throw new IllegalArgumentException("Room size range must be 1 <= min <= max");
+    }
+
+    /** Any vacant bed, same-gender rooms only. */
+    public static BedRequest any() {
+        return new BedRequest(0, true, 1, Topology.MAX_BEDS_PER_ROOM, true);
+    }
+
+    /** Try this ward first, then the others. */
+    public BedRequest preferWard(int ward) {
+        return new BedRequest(ward, true, minRoomSize, maxRoomSize, sameGender);
+    }
+
+    /** This ward only. */
+    public BedRequest onlyWard(int ward) {
+        return new BedRequest(ward, false, minRoomSize, maxRoomSize, sameGender);
+    }
+
+    public BedRequest roomSize(int min, int max) {
+        return new BedRequest(preferredWard, otherWards, min, max, sameGender);
+    }
+
+    public BedRequest mixedGender() {
+        return new BedRequest(preferredWard, otherWards, minRoomSize, maxRoomSize, false);
+    }
+}
@@ -0,0 +1,41 @@
+package model;
+
+import java.io.Serializable;
+
+/**
+ * One change made to a {@link CareHome}. Every mutating CareHome method
+ * produces exactly one event; applying the same events in order to a fresh
+ * home (see {@link CareHome#replay}) rebuilds the same state.
+ *
+ * Beds are referenced by packed id (see {@link BedRegistry#pack}), 0 = none.
+ */
+public sealed interface CareEvent extends Serializable
+        permits CareEvent.StaffAdded, CareEvent.ResidentAdmitted, CareEvent.ResidentMoved,
+                CareEvent.PrescriptionAdded, CareEvent.DoseAdministered, CareEvent.ResidentDischarged,
+                CareEvent.PasswordChanged, CareEvent.ShiftAssigned, CareEvent.ResidentAssigned {
+
+    /** When the change happened (epoch millis). */
+    long at();
+
+    /** Staff member who made the change, formatted "Name (id)". */
+    String actor();
+
+    record StaffAdded(long at, String actor, Staff staff) implements CareEvent {}
+
+    record ResidentAdmitted(long at, String actor, Resident resident, int bedId) implements CareEvent {}
+
+    record ResidentMoved(long at, String actor, String residentId, int fromBedId, int toBedId) implements CareEvent {}
+
+    record PrescriptionAdded(long at, String actor, String residentId, Prescription prescription) implements CareEvent {}
+
+    record DoseAdministered(long at, String actor, String residentId, AdministrationRecord record) implements CareEvent {}
+
+    record ResidentDischarged(long at, String actor, String residentId, int bedId, String archiveFile) implements CareEvent {}
+
+    record PasswordChanged(long at, String actor, String username, String passwordHash) implements CareEvent {}
+
+    record ShiftAssigned(long at, String actor, String username, Shift shift) implements CareEvent {}
+
+    /** A resident put into ({@code assigned}) or taken out of a nurse's care. */
+    record ResidentAssigned(long at, String actor, String username, String residentId, boolean assigned) implements CareEvent {}
+}
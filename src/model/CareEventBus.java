@@ -0,0 +1,206 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+import util.Metrics;
+
+/**
+ * Fan-out of {@link CareEvent}s to background subscribers through a fixed
+ * ring buffer. Attach it with {@link CareHome#addListener}.
+ *
+ * Publishing is serialized (one writer at a time), never allocates and never
+ * waits for subscribers. Each subscriber has its own thread and read
+ * position and is handed every event in publish order, with an end-of-batch
+ * flag so it can group its work. A subscriber that falls more than
+ * {@code capacity} events behind is overrun: it is told how many events it
+ * missed and continues from the oldest event still in the ring.
+ *
+ * Events of one resident are published under that resident's ward lock, so
+ * they always arrive in the order they were applied.
+ */
+public final class CareEventBus implements CareListener, AutoCloseable {
+
+    /** Receives events on the subscription's own thread. */
+    public interface Subscriber {
+        void onEvent(CareEvent e, long sequence, boolean endOfBatch) throws Exception;
+
+        /** Called (on the subscriber thread) when {@code missed} events were overwritten before being read. */
+        default void onOverrun(long missed) {}
+    }
+
+    private final int mask;
+    private final AtomicReferenceArray<CareEvent> events;
+    private final AtomicLongArray slotSeq;           // sequence held by each slot, -1 while being rewritten
+    private final AtomicLong cursor = new AtomicLong(); // last published sequence
+    private volatile Subscription[] subscriptions = new Subscription[0];
+
+    /** @param capacity ring size, rounded up to a power of two */
+    public CareEventBus(int capacity) {
+        if (capacity < 2) throw new IllegalArgumentException("capacity must be at least 2");
+        int size = Integer.highestOneBit(capacity - 1) << 1;
+        mask = size - 1;
+        events = new AtomicReferenceArray<>(size);
+        slotSeq = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) slotSeq.set(i, -1);
+    }
+
+    @Override
+    public void changed(CareEvent e) {
+        publish(e);
+    }
+
+    /** Append an event; returns its sequence number (from 1). */
+    public synchronized long publish(CareEvent e) {
+        long s = cursor.get() + 1;
+        int i = (int) (s & mask);
+        slotSeq.set(i, -1);
+        events.set(i, e);
+        slotSeq.set(i, s);
+        cursor.set(s);
+        for (Subscription sub : subscriptions) LockSupport.unpark(sub.thread);
+        return s;
+    }
+
+    /** Last published sequence (0 before the first event). */
+    public long getCursor() {
+        return cursor.get();
+    }
+
+    public int getCapacity() {
+        return mask + 1;
+    }
+
+    /** Start a subscriber thread that receives every event published from now on. */
+    public synchronized Subscription subscribe(String name, Subscriber subscriber) {
+        Subscription sub = new Subscription(name, subscriber, cursor.get() + 1);
+        Subscription[] next = java.util.Arrays.copyOf(subscriptions, subscriptions.length + 1);
+        next[next.length - 1] = sub;
+        subscriptions = next;
+        Metrics.gauge("bus." + name + ".lag", sub::getLag);
+        Metrics.gauge("bus." + name + ".overruns", sub::getOverruns);
+        sub.thread.start();
+        return sub;
+    }
+
+    private synchronized void remove(Subscription sub) {
+        List<Subscription> next = new ArrayList<>(List.of(subscriptions));
+        next.remove(sub);
+        subscriptions = next.toArray(new Subscription[0]);
+    }
+
+    /** Stop every subscriber after it has handled what is already published. */
+    @Override
+    public void close() {
+        for (Subscription sub : subscriptions) sub.close();
+    }
+
+    /** One subscriber's thread and read position. */
+    public final class Subscription implements AutoCloseable {
+        private final String name;
+        private final Subscriber subscriber;
+        private final Thread thread;
+        private final AtomicLong processed;            // last sequence handed to the subscriber
+        private final AtomicLong overruns = new AtomicLong();
+        private final AtomicLong failures = new AtomicLong();
+        private volatile boolean running = true;
+
+        private Subscription(String name, Subscriber subscriber, long first) {
+            this.name = name;
+            this.subscriber = subscriber;
+            this.processed = new AtomicLong(first - 1);
+            this.thread = new Thread(this::run, "bus-" + name);
+            this.thread.setDaemon(true);
+        }
+
+        private void run() {
+            long next = processed.get() + 1;
+            while (true) {
+                long available = cursor.get();
+                if (available < next) {
+                    if (!running) return;
+                    LockSupport.park(this);   // publish and close unpark after moving the cursor / flag
+                    continue;
+                }
+                next = skipTo(next, available - getCapacity() + 1);   // no-op unless overrun
+                while (next <= available) {
+                    int i = (int) (next & mask);
+                    long before = slotSeq.get(i);
+                    CareEvent e = events.get(i);
+                    if (before != next || slotSeq.get(i) != next) {      // lapped by the writer while reading
+                        next = skipTo(next, cursor.get() - getCapacity() + 1);
+                        continue;
+                    }
+                    deliver(e, next, next == available);
+                    processed.set(next++);
+                }
+            }
+        }
+
+        private long skipTo(long next, long oldest) {
+            if (oldest <= next) return next;
+            long missed = oldest - next;
+            overruns.addAndGet(missed);
+            try {
+                subscriber.onOverrun(missed);
+            } catch (RuntimeException ex) {
+                System.err.println("Bus subscriber " + name + " failed on overrun: " + ex);
+            }
+            processed.set(oldest - 1);
+            return oldest;
+        }
+
+        private void deliver(CareEvent e, long s, boolean endOfBatch) {
+            try {
+                subscriber.onEvent(e, s, endOfBatch);
+            } catch (Exception ex) {                  // one bad event must not stop the subscriber
+                failures.incrementAndGet();
+                System.err.println("Bus subscriber " + name + " failed on event " + s + ": " + ex);
+            }
+        }
+
+        public String getName() { return name; }
+
+        /** Last sequence this subscriber has handled (or skipped). */
+        public long getProcessed() { return processed.get(); }
+
+        public long getLag() { return cursor.get() - processed.get(); }
+
+        public long getOverruns() { return overruns.get(); }
+
+        public long getFailures() { return failures.get(); }
+
+        /** Wait until every event published before this call has been handled. */
+        public boolean awaitCaughtUp(long timeout, TimeUnit unit) throws InterruptedException {
+            long target = cursor.get();
+            long deadline = System.nanoTime() + unit.toNanos(timeout);
+            while (processed.get() < target) {
+                if (System.nanoTime() >= deadline) return false;
+                if (Thread.interrupted()) throw new InterruptedException();
+                LockSupport.unpark(thread);
+                LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(200));
+            }
+            return true;
+        }
+
+        /** Stop after handling what is already published. */
+        @Override
+        public void close() {
+            running = false;
+            LockSupport.unpark(thread);
+            if (Thread.currentThread() != thread) {
+                try {
+                    thread.join(TimeUnit.SECONDS.toMillis(5));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            remove(this);
+        }
+    }
+}
@@ -3,52 +3,117 @@ package model;
 import java.io.*;
 import java.time.DayOfWeek;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import exceptions.*;
+import model.CareEvent.*;
+import util.Metrics;
+import util.OpStats;
+import util.PasswordHasher;
 
 /**
  * Main system class that manages staff, residents, beds, and actions.
  * Demonstrates use of collections, exceptions, and serialization.
+ *
+ * Every mutating method checks authorization against the home's
+ * {@link AccessPolicy}, turns the request into a
+ * {@link CareEvent}, hands it to the journal (if any) and then applies it.
+ * The apply step is the only place that changes state, so replaying the
+ * journal rebuilds exactly what the live calls did.
+ *
+ * Thread safety: reads of residents, staff and beds are lock-free (concurrent
+ * maps, volatile bed occupancy). Changes lock the ward(s) they touch; a move
+ * between wards locks both in ascending ward order. Stripe 0 covers staff
+ * and residents without a bed.
  */
 public class CareHome implements Serializable {
 
+    // latency / error stats of the public operations (see util.Metrics)
+    private static final OpStats ADD_STAFF = Metrics.op("CareHome.addStaff");
+    private static final OpStats ADD_RESIDENT = Metrics.op("CareHome.addResident");
+    private static final OpStats MOVE_RESIDENT = Metrics.op("CareHome.moveResident");
+    private static final OpStats ADD_PRESCRIPTION = Metrics.op("CareHome.addPrescription");
+    private static final OpStats ADMINISTER = Metrics.op("CareHome.administerMedication");
+    private static final OpStats DISCHARGE = Metrics.op("CareHome.dischargeResident");
+    private static final OpStats CHANGE_PASSWORD = Metrics.op("CareHome.changeStaffPassword");
+    private static final OpStats ADD_SHIFT = Metrics.op("CareHome.addShiftForNurse");
+    private static final OpStats ADD_SHIFTS = Metrics.op("CareHome.addShifts");
+    private static final OpStats ASSIGN_RESIDENT = Metrics.op("CareHome.assignResident");
+    private static final OpStats CHECK_COMPLIANCE = Metrics.op("CareHome.checkCompliance");
+    private static final OpStats SAVE = Metrics.op("CareHome.saveData");
+    private static final OpStats LOAD = Metrics.op("CareHome.loadData");
+
+    /** Actor of changes the system makes on its own (e.g. password hash upgrades). */
+    public static final String SYSTEM_ACTOR = "system";
+
     private Map<String, Staff> staffList;
     private Map<String, Resident> residents;
-    private Map<String, Bed> beds;
-    private List<String> auditLog;
+    private BedRegistry beds;
+    private AuditLog auditLog;
+    private ComplianceEngine compliance;
+    private RosterStore roster;
+    private DoseScheduler doses;
+
+    // mutations hold the read lock from journal append to apply; checkpoints take the write lock
+    private final ReentrantReadWriteLock checkpointLock = new ReentrantReadWriteLock();
+    private transient volatile CareJournal journal;
+    private transient volatile ResidentArchive archive;  // null = discharge to a CSV file only
+    private transient volatile List<CareListener> listeners;
+    private transient volatile PasswordHasher hasher;   // null = PasswordHasher.standard()
+    private transient volatile AccessPolicy access;     // created on first use
+    transient volatile int lastImageSize;                // of the last saveData/toImage; sizes the next buffer (HomeCodec)
+    private final ReentrantLock[] wardLocks; // [ward], [0] = staff / unplaced residents
 
+    /** Facility with the default layout (2 wards × 6 rooms with 1–4 beds each). */
     public CareHome() {
-        staffList = new HashMap<>();
-        residents = new HashMap<>();
-        beds = new LinkedHashMap<>();
-        auditLog = new ArrayList<>();
-
-        // --- build 2 wards × 6 rooms with 1–4 beds each ---
-        for (int w = 1; w <= 2; w++) {
-            for (int r = 1; r <= 6; r++) {
-                int bedCount = switch (r) {
-                    case 1 -> 1;
-                    case 2, 3 -> 2;
-                    case 4 -> 3;
-                    default -> 4;
-                };
-                for (int b = 1; b <= bedCount; b++) {
-                    String id = "W" + w + "-R" + r + "-B" + b;
-                    beds.put(id, new Bed(id));
-                }
-            }
-        }
+        this(Topology.defaultLayout());
+    }
+
+    /** Facility with wards, rooms and beds built from the given layout. */
+    public CareHome(Topology topology) {
+        staffList = new ConcurrentHashMap<>();
+        residents = new ConcurrentHashMap<>();
+        beds = new BedRegistry(topology);
+        auditLog = new AuditLog();
+        compliance = new ComplianceEngine(ComplianceRules.defaults());
+        roster = new RosterStore();
+        doses = new DoseScheduler();
+        wardLocks = new ReentrantLock[topology.wardCount() + 1];
+        for (int w = 0; w < wardLocks.length; w++) wardLocks[w] = new ReentrantLock();
     }
 
     // -------------------------------------------------------------------
     // STAFF MANAGEMENT
     // -------------------------------------------------------------------
+    /**
+     * Add a staff member; a plain-text password is replaced by its hash before
+     * it is recorded. Shifts and assigned residents are not part of the record,
+     * so they must be added afterwards ({@link #addShiftForNurse},
+     * {@link #assignResident}).
+     */
     public void addStaff(Manager manager, Staff staff) throws UnauthorizedActionException {
-        if (manager == null)
-            throw new UnauthorizedActionException("Only manager can add staff!");
-        staffList.put(staff.getUsername(), staff);
-        log(manager.getName() + " (" + manager.getId() + ") added staff: "
-                + staff.getName() + " [" + staff.getUsername() + "]");
+        long t0 = System.nanoTime();
+        try {
+            getAccessPolicy().check(manager, Permission.ADD_STAFF);
+            if (!staff.getShifts().isEmpty() || staff instanceof Nurse n && !n.getAssignedResidents().isEmpty())
+                throw new IllegalArgumentException("Add " + staff.getUsername() + " before giving them shifts or residents");
+            String pw = staff.getPasswordHash();
+            if (pw != null && !PasswordHasher.isHash(pw)) staff.setPasswordHash(getPasswordHasher().hash(pw.toCharArray()));
+            ReentrantLock lock = wardLocks[0];
+            lock.lock();
+            try {
+                record(new StaffAdded(now(), actor(manager), staff));
+            } finally {
+                lock.unlock();
+            }
+        } catch (Exception e) {
+            ADD_STAFF.failed(e);
+            throw e;
+        } finally {
+            ADD_STAFF.stop(t0);
+        }
     }
 
     // -------------------------------------------------------------------
@@ -56,36 +121,140 @@ public class CareHome implements Serializable {
     // -------------------------------------------------------------------
     public void addResident(Manager manager, Resident r, String bedId)
             throws UnauthorizedActionException, BedOccupiedException {
-        if (manager == null)
-            throw new UnauthorizedActionException("Only manager can add residents!");
-        Bed bed = beds.get(bedId);
-        if (bed == null)
-            throw new IllegalArgumentException("Invalid bed ID: " + bedId);
-        if (bed.isOccupied())
-            throw new BedOccupiedException("Bed already occupied!");
-        bed.assign(r);
-        r.setBed(bed);
-        residents.put(r.getId(), r);
-        log(manager.getName() + " (" + manager.getId() + ") added resident "
-                + r.getName() + " to " + bedId);
+        addResident(manager, r, beds.byCode(bedId), bedId, null);
+    }
+
+    /** Admit to a bed addressed by its packed id (see {@link BedRegistry#pack}). */
+    public void addResident(Manager manager, Resident r, int packedBedId)
+            throws UnauthorizedActionException, BedOccupiedException {
+        addResident(manager, r, beds.get(packedBedId), packedBedId, null);
+    }
+
+    /**
+     * Admit to the first vacant bed matching the request (lowest ward, room,
+     * bed; preferred ward first). Throws BedOccupiedException if none matches.
+     */
+    public Bed admit(Manager manager, Resident r, BedRequest request)
+            throws UnauthorizedActionException, BedOccupiedException {
+        getAccessPolicy().check(manager, Permission.ADMIT);
+        while (true) {
+            Bed bed = beds.allocator().findFree(request, r.getGender());
+            if (bed == null)
+                throw new BedOccupiedException("No vacant bed matches the request for " + r.getName());
+            try {
+                addResident(manager, r, bed, bed.getBedId(), request);
+                return bed;
+            } catch (BedOccupiedException raced) {
+                // taken (or the room changed) since the search: look again
+            }
+        }
+    }
+
+    /**
+     * Admit a batch (e.g. hospital transfers) with one request. Returns the
+     * bed of each resident in order, or null where no bed matched.
+     */
+    public List<Bed> admitAll(Manager manager, List<Resident> batch, BedRequest request)
+            throws UnauthorizedActionException {
+        List<Bed> placed = new ArrayList<>(batch.size());
+        for (Resident r : batch) {
+            try {
+                placed.add(admit(manager, r, request));
+            } catch (BedOccupiedException full) {
+                placed.add(null);
+            }
+        }
+        return placed;
+    }
+
+    private void addResident(Manager manager, Resident r, Bed bed, Object requestedId, BedRequest request)
+            throws UnauthorizedActionException, BedOccupiedException {
+        long t0 = System.nanoTime();
+        try {
+            getAccessPolicy().check(manager, Permission.ADMIT, bed == null ? 0 : bed.getWard());
+            if (bed == null)
+                throw new IllegalArgumentException("Invalid bed ID: " + requestedId);
+            if (!r.getPrescriptions().isEmpty() || !r.getAdministrations().isEmpty())
+                throw new IllegalArgumentException("Admit " + r.getId() + " before adding prescriptions or doses");
+            ReentrantLock lock = wardLocks[bed.getWard()];
+            lock.lock();
+            try {
+                if (bed.isOccupied())
+                    throw new BedOccupiedException("Bed already occupied!");
+                if (request != null && request.sameGender()
+                        && beds.occupancy().occupiedInRoom(bed.getRoomIndex(), r.getGender() == 'M' ? 'F' : 'M') > 0)
+                    throw new BedOccupiedException("Room is no longer single-gender: " + bed.getBedId());
+                // reserve the id first so the same resident cannot be admitted in two wards at once
+                if (residents.putIfAbsent(r.getId(), r) != null)
+                    throw new IllegalArgumentException("Resident already admitted: " + r.getId());
+                try {
+                    record(new ResidentAdmitted(now(), actor(manager), r, bed.getPackedId()));
+                } catch (RuntimeException ex) {
+                    residents.remove(r.getId(), r);
+                    throw ex;
+                }
+            } finally {
+                lock.unlock();
+            }
+        } catch (Exception e) {
+            ADD_RESIDENT.failed(e);
+            throw e;
+        } finally {
+            ADD_RESIDENT.stop(t0);
+        }
     }
 
     public void moveResident(Nurse nurse, String residentId, String toBedId)
             throws UnauthorizedActionException, BedOccupiedException {
-        if (nurse == null)
-            throw new UnauthorizedActionException("Only nurse can move residents!");
-        Resident r = residents.get(residentId);
-        Bed to = beds.get(toBedId);
-        if (to == null)
-            throw new IllegalArgumentException("Invalid bed ID: " + toBedId);  // <-- added guard
-        if (to.isOccupied())
-            throw new BedOccupiedException("Destination bed occupied!");
-        if (r.getBed() != null)
-            r.getBed().vacate();
-        to.assign(r);
-        r.setBed(to);
-        log(nurse.getName() + " (" + nurse.getId() + ") moved resident "
-                + r.getName() + " to " + toBedId);
+        moveResident(nurse, residentId, beds.byCode(toBedId), toBedId);
+    }
+
+    /** Move to a bed addressed by its packed id (see {@link BedRegistry#pack}). */
+    public void moveResident(Nurse nurse, String residentId, int toPackedBedId)
+            throws UnauthorizedActionException, BedOccupiedException {
+        moveResident(nurse, residentId, beds.get(toPackedBedId), toPackedBedId);
+    }
+
+    private void moveResident(Nurse nurse, String residentId, Bed to, Object requestedId)
+            throws UnauthorizedActionException, BedOccupiedException {
+        long t0 = System.nanoTime();
+        try {
+            AccessPolicy policy = getAccessPolicy();
+            policy.check(nurse, Permission.MOVE, to == null ? 0 : to.getWard());
+            Resident r = residents.get(residentId);
+            if (r == null)
+                throw new IllegalArgumentException("Resident not found: " + residentId);
+            if (to == null)
+                throw new IllegalArgumentException("Invalid bed ID: " + requestedId);  // <-- added guard
+
+            while (true) {
+                Bed from = r.getBed();
+                int a = from == null ? 0 : from.getWard();
+                int b = to.getWard();
+                ReentrantLock first = wardLocks[Math.min(a, b)], second = wardLocks[Math.max(a, b)];
+                first.lock();
+                second.lock();
+                try {
+                    if (r.getBed() != from) continue; // moved by someone else meanwhile: retry
+                    if (residents.get(residentId) != r)
+                        throw new IllegalArgumentException("Resident not found: " + residentId);
+                    policy.check(nurse, Permission.MOVE, r);     // from ward, and in this nurse's care
+                    if (to.isOccupied())
+                        throw new BedOccupiedException("Destination bed occupied!");
+                    int fromId = from == null ? 0 : from.getPackedId();
+                    record(new ResidentMoved(now(), actor(nurse), residentId, fromId, to.getPackedId()));
+                    return;
+                } finally {
+                    second.unlock();
+                    first.unlock();
+                }
+            }
+        } catch (Exception e) {
+            MOVE_RESIDENT.failed(e);
+            throw e;
+        } finally {
+            MOVE_RESIDENT.stop(t0);
+        }
     }
 
     // -------------------------------------------------------------------
@@ -93,13 +262,26 @@ public class CareHome implements Serializable {
     // -------------------------------------------------------------------
     public void addPrescription(Doctor doc, String residentId, Prescription p)
             throws UnauthorizedActionException {
-        if (doc == null)
-            throw new UnauthorizedActionException("Only doctors can add prescriptions!");
-        Resident r = residents.get(residentId);
-        if (r != null) {
-            r.addPrescription(p);
-            log(doc.getName() + " (" + doc.getId() + ") added prescription for "
-                    + r.getName() + ": " + p);
+        long t0 = System.nanoTime();
+        try {
+            AccessPolicy policy = getAccessPolicy();
+            policy.check(doc, Permission.PRESCRIBE);
+            Resident r = residents.get(residentId);
+            if (r == null) return;
+            ReentrantLock lock = lockResident(r);
+            try {
+                if (residents.get(residentId) == r) {
+                    policy.check(doc, Permission.PRESCRIBE, r);
+                    record(new PrescriptionAdded(now(), actor(doc), residentId, p));
+                }
+            } finally {
+                lock.unlock();
+            }
+        } catch (Exception e) {
+            ADD_PRESCRIPTION.failed(e);
+            throw e;
+        } finally {
+            ADD_PRESCRIPTION.stop(t0);
         }
     }
 
@@ -112,128 +294,661 @@ public class CareHome implements Serializable {
                                      String dosage,
                                      java.time.LocalDateTime when)
             throws UnauthorizedActionException {
-        if (nurse == null)
-            throw new UnauthorizedActionException("Only a nurse can administer medication.");
-        Resident r = residents.get(residentId);
-        if (r == null)
-            throw new IllegalArgumentException("Resident not found: " + residentId);
+        long t0 = System.nanoTime();
+        try {
+            AccessPolicy policy = getAccessPolicy();
+            policy.check(nurse, Permission.ADMINISTER);
+            Resident r = residents.get(residentId);
+            if (r == null)
+                throw new IllegalArgumentException("Resident not found: " + residentId);
 
-        r.addAdministration(new AdministrationRecord(medicine, dosage, when, nurse.getId()));
-        log(nurse.getName() + " (" + nurse.getId() + ") administered "
-                + medicine + " " + dosage + " to " + r.getName() + " at " + when);
+            ReentrantLock lock = lockResident(r);
+            try {
+                if (residents.get(residentId) != r)
+                    throw new IllegalArgumentException("Resident not found: " + residentId);
+                policy.check(nurse, Permission.ADMINISTER, r);   // ward, and in this nurse's care
+                // same medicine at the same minute is a double entry, not a second dose
+                java.time.LocalDateTime minute = when.truncatedTo(java.time.temporal.ChronoUnit.MINUTES);
+                if (r.getAdministrationHistory().given(medicine, minute, minute.plusMinutes(1)))
+                    throw new IllegalArgumentException(medicine + " at " + minute + " is already recorded for " + r.getName());
+                record(new DoseAdministered(now(), actor(nurse), residentId,
+                        new AdministrationRecord(medicine, dosage, when, nurse.getId())));
+            } finally {
+                lock.unlock();
+            }
+        } catch (Exception e) {
+            ADMINISTER.failed(e);
+            throw e;
+        } finally {
+            ADMINISTER.stop(t0);
+        }
     }
 
     // -------------------------------------------------------------------
     // DISCHARGE + ARCHIVE (Manager)
     // -------------------------------------------------------------------
-    /** Discharge a resident and archive their details to a CSV file. */
+    /**
+     * Discharge a resident into the home's {@link ResidentArchive}; the
+     * record is queued there, so this does not wait for a file write.
+     */
+    public void dischargeResident(Manager manager, String residentId)
+            throws UnauthorizedActionException, IOException {
+        ResidentArchive target = archive;
+        if (target == null) throw new IllegalStateException("No resident archive attached");
+        discharge(manager, residentId, null, target);
+    }
+
+    /** Discharge a resident and archive their details to a CSV file of their own (written before returning). */
     public void dischargeResident(Manager manager, String residentId, String outFile)
             throws UnauthorizedActionException, IOException {
-        if (manager == null) throw new UnauthorizedActionException("Only manager can discharge!");
-        Resident r = residents.get(residentId);
-        if (r == null) throw new IllegalArgumentException("Resident not found: " + residentId);
-
-        // write archive CSV (resident + prescriptions + administered doses)
-        try (java.io.PrintWriter w = new java.io.PrintWriter(outFile)) {
-            w.println("Resident," + r.getId() + "," + r.getName() + "," + r.getGender() + "," + r.getAge());
-            w.println("Prescriptions");
-            for (var p : r.getPrescriptions()) {
-                w.println(p.getMedicine() + "," + p.getDosage() + "," + p.getTime());
-            }
-            w.println("Administered");
-            for (var a : r.getAdministrations()) {
-                w.println(a.getAdministeredAt() + "," + a.getMedicine() + "," + a.getDosage() + "," + a.getNurseId());
+        discharge(manager, residentId, outFile, null);
+    }
+
+    // to a CSV file, or (outFile null) to the archive
+    private void discharge(Manager manager, String residentId, String outFile, ResidentArchive target)
+            throws UnauthorizedActionException, IOException {
+        long t0 = System.nanoTime();
+        try {
+            AccessPolicy policy = getAccessPolicy();
+            policy.check(manager, Permission.DISCHARGE);
+            Resident r = residents.get(residentId);
+            if (r == null) throw new IllegalArgumentException("Resident not found: " + residentId);
+
+            ReentrantLock lock = lockResident(r);
+            try {
+                if (residents.get(residentId) != r)
+                    throw new IllegalArgumentException("Resident not found: " + residentId);
+                policy.check(manager, Permission.DISCHARGE, r);
+                archiveAndDischarge(manager, r, outFile, target);
+            } finally {
+                lock.unlock();
             }
+        } catch (Exception e) {
+            DISCHARGE.failed(e);
+            throw e;
+        } finally {
+            DISCHARGE.stop(t0);
+        }
+    }
+
+    private void archiveAndDischarge(Manager manager, Resident r, String outFile, ResidentArchive target)
+            throws IOException {
+        long at = now();
+        String record = archiveRecord(r);
+        String where;
+        if (outFile != null) {
+            java.nio.file.Files.writeString(java.nio.file.Path.of(outFile), record);
+            where = outFile;
+        } else {
+            where = target.archive(r.getId(), r.getName(), at, record);
         }
 
-        // free bed and remove from active residents
-        if (r.getBed() != null) { r.getBed().vacate(); r.setBed(null); }
-        residents.remove(residentId);
+        int bedId = r.getBed() == null ? 0 : r.getBed().getPackedId();
+        record(new ResidentDischarged(at, actor(manager), r.getId(), bedId, where));
+    }
 
-        log(manager.getName() + " (" + manager.getId() + ") discharged "
-                + r.getName() + " (archived: " + outFile + ")");
+    // archive CSV: resident, prescriptions, administered doses (oldest first)
+    private static String archiveRecord(Resident r) {
+        StringBuilder sb = new StringBuilder(256);
+        sb.append("Resident,").append(r.getId()).append(',').append(r.getName()).append(',')
+          .append(r.getGender()).append(',').append(r.getAge()).append('\n');
+        sb.append("Prescriptions\n");
+        for (var p : r.getPrescriptions())
+            sb.append(p.getMedicine()).append(',').append(p.getDosage()).append(',').append(p.getTime()).append('\n');
+        sb.append("Administered\n");
+        r.getAdministrationHistory().forEach(a ->   // oldest first, no copy
+            sb.append(a.getAdministeredAt()).append(',').append(a.getMedicine()).append(',')
+              .append(a.getDosage()).append(',').append(a.getNurseId()).append('\n'));
+        return sb.toString();
     }
 
     // -------------------------------------------------------------------
     // STAFF ADMIN (Manager-only)
     // -------------------------------------------------------------------
-    /** Change a staff member's password by username. */
+    /** Change a staff member's password by username; only its salted hash is recorded. */
     public void changeStaffPassword(Manager manager, String username, String newPassword)
             throws UnauthorizedActionException {
-        if (manager == null) throw new UnauthorizedActionException("Only manager can change passwords!");
-        Staff s = staffList.get(username);
-        if (s == null) throw new IllegalArgumentException("Staff not found: " + username);
+        long t0 = System.nanoTime();
+        try {
+            getAccessPolicy().check(manager, Permission.CHANGE_PASSWORD);
+            if (!staffList.containsKey(username)) throw new IllegalArgumentException("Staff not found: " + username);
+            String hash = getPasswordHasher().hash(newPassword.toCharArray());  // slow: outside the lock
 
-        s.setPasswordHash(newPassword);
-        log(manager.getName() + " (" + manager.getId() + ") changed password for " + s.getUsername());
+            ReentrantLock lock = wardLocks[0];
+            lock.lock();
+            try {
+                record(new PasswordChanged(now(), actor(manager), username, hash));
+            } finally {
+                lock.unlock();
+            }
+        } catch (Exception e) {
+            CHANGE_PASSWORD.failed(e);
+            throw e;
+        } finally {
+            CHANGE_PASSWORD.stop(t0);
+        }
     }
 
-    /** Assign a shift to a nurse (identified by username). */
+    /**
+     * Assign a shift to a nurse (identified by username). A dated shift that
+     * overlaps one of the nurse's dated shifts is rejected.
+     */
     public void addShiftForNurse(Manager manager, String nurseUsername, Shift shift)
             throws UnauthorizedActionException {
-        if (manager == null) throw new UnauthorizedActionException("Only manager can edit shifts!");
-        Staff s = staffList.get(nurseUsername);
-        if (!(s instanceof Nurse n)) throw new IllegalArgumentException("Not a nurse: " + nurseUsername);
+        long t0 = System.nanoTime();
+        try {
+            getAccessPolicy().check(manager, Permission.EDIT_SHIFTS);
+            if (!(staffList.get(nurseUsername) instanceof Nurse))
+                throw new IllegalArgumentException("Not a nurse: " + nurseUsername);
 
-        n.addShift(shift);
-        log(manager.getName() + " (" + manager.getId() + ") assigned shift to "
-                + n.getUsername() + ": " + shift);
+            ReentrantLock lock = wardLocks[0];
+            lock.lock();
+            try {
+                int clash = roster.firstOverlap(nurseUsername, shift);
+                if (clash >= 0)
+                    throw new IllegalArgumentException("Shift " + shift + " overlaps " + roster.shift(clash)
+                            + " of " + nurseUsername);
+                record(new ShiftAssigned(now(), actor(manager), nurseUsername, shift));
+            } finally {
+                lock.unlock();
+            }
+        } catch (Exception e) {
+            ADD_SHIFT.failed(e);
+            throw e;
+        } finally {
+            ADD_SHIFT.stop(t0);
+        }
+    }
+
+    /**
+     * Assign a batch of shifts all or nothing: every nurse and shift is
+     * checked (including overlaps within the batch) before the first one is
+     * recorded. Returns how many were assigned.
+     */
+    int addShifts(Manager manager, List<RosterGenerator.Assignment> batch) throws UnauthorizedActionException {
+        long t0 = System.nanoTime();
+        try {
+            getAccessPolicy().check(manager, Permission.EDIT_SHIFTS);
+            ReentrantLock lock = wardLocks[0];
+            lock.lock();
+            try {
+                Map<String, List<Shift>> added = new HashMap<>();
+                for (RosterGenerator.Assignment a : batch) {
+                    String user = a.username();
+                    Shift shift = a.shift();
+                    if (!(staffList.get(user) instanceof Nurse))
+                        throw new IllegalArgumentException("Not a nurse: " + user);
+                    int clash = roster.firstOverlap(user, shift);
+                    if (clash >= 0)
+                        throw new IllegalArgumentException("Shift " + shift + " overlaps " + roster.shift(clash) + " of " + user);
+                    List<Shift> mine = added.computeIfAbsent(user, u -> new ArrayList<>());
+                    for (Shift other : mine)
+                        if (overlap(shift, other))
+                            throw new IllegalArgumentException("Shift " + shift + " overlaps " + other + " of " + user);
+                    mine.add(shift);
+                }
+                long at = now();
+                String actor = actor(manager);
+                for (RosterGenerator.Assignment a : batch)
+                    record(new ShiftAssigned(at, actor, a.username(), a.shift()));
+                return batch.size();
+            } finally {
+                lock.unlock();
+            }
+        } catch (Exception e) {
+            ADD_SHIFTS.failed(e);
+            throw e;
+        } finally {
+            ADD_SHIFTS.stop(t0);
+        }
+    }
+
+    private static boolean overlap(Shift a, Shift b) {
+        if (a.getDate() == null || b.getDate() == null) return false;
+        long aStart = a.getDate().atTime(a.getStartTime()).toEpochSecond(java.time.ZoneOffset.UTC) / 60;
+        long bStart = b.getDate().atTime(b.getStartTime()).toEpochSecond(java.time.ZoneOffset.UTC) / 60;
+        return aStart < bStart + b.getMinutes() && bStart < aStart + a.getMinutes();
+    }
+
+    /** Put a resident into a nurse's care (see {@link AccessPolicy}). */
+    public void assignResident(Manager manager, String nurseUsername, String residentId)
+            throws UnauthorizedActionException {
+        assignResident(manager, nurseUsername, residentId, true);
+    }
+
+    /** Take a resident out of a nurse's care; the resident need not still be admitted. */
+    public void unassignResident(Manager manager, String nurseUsername, String residentId)
+            throws UnauthorizedActionException {
+        assignResident(manager, nurseUsername, residentId, false);
+    }
+
+    private void assignResident(Manager manager, String nurseUsername, String residentId, boolean assigned)
+            throws UnauthorizedActionException {
+        long t0 = System.nanoTime();
+        try {
+            getAccessPolicy().check(manager, Permission.ASSIGN_RESIDENTS);
+            if (!(staffList.get(nurseUsername) instanceof Nurse))
+                throw new IllegalArgumentException("Not a nurse: " + nurseUsername);
+            if (assigned && !residents.containsKey(residentId))
+                throw new IllegalArgumentException("Resident not found: " + residentId);
+
+            ReentrantLock lock = wardLocks[0];
+            lock.lock();
+            try {
+                record(new ResidentAssigned(now(), actor(manager), nurseUsername, residentId, assigned));
+            } finally {
+                lock.unlock();
+            }
+        } catch (Exception e) {
+            ASSIGN_RESIDENT.failed(e);
+            throw e;
+        } finally {
+            ASSIGN_RESIDENT.stop(t0);
+        }
     }
 
     // -------------------------------------------------------------------
     // COMPLIANCE CHECK
     // -------------------------------------------------------------------
+    /** Throws with every current violation if the roster breaks any compliance rule. */
     public void checkCompliance() throws ShiftViolationException {
-        for (Staff s : staffList.values()) {
-            if (s instanceof Nurse nurse) {
-                Map<DayOfWeek, Long> hoursPerDay = new EnumMap<>(DayOfWeek.class);
-                for (Shift shift : nurse.getShifts()) {
-                    hoursPerDay.merge(shift.getDay(), shift.getHours(), Long::sum);
-                }
-                for (var e : hoursPerDay.entrySet()) {
-                    if (e.getValue() > 8)
-                        throw new ShiftViolationException("Nurse " + nurse.getName()
-                                + " exceeds 8 hours on " + e.getKey());
-                }
+        long t0 = System.nanoTime();
+        try {
+            if (compliance.isCompliant()) return;
+            List<String> messages = new ArrayList<>();
+            for (Violation v : compliance.getViolations()) messages.add(v.message());
+            throw new ShiftViolationException(messages);
+        } catch (Exception e) {
+            CHECK_COMPLIANCE.failed(e);
+            throw e;
+        } finally {
+            CHECK_COMPLIANCE.stop(t0);
+        }
+    }
+
+    /**
+     * Incremental compliance state: isCompliant(), the full violation list
+     * and per-day totals. Add {@link ComplianceRules#doctorCoverage()} or
+     * {@link ComplianceRules#minimumRest(int)} here if required.
+     */
+    public ComplianceEngine getCompliance() {
+        return compliance;
+    }
+
+    /** Dated shifts of all staff, for coverage ("who is on ward 2 at 03:00") and overlap queries. */
+    public RosterStore getRoster() {
+        return roster;
+    }
+
+    // -------------------------------------------------------------------
+    // EVENTS: journal, apply, replay
+    // -------------------------------------------------------------------
+    /** Send every future change to this journal before applying it (null to detach). */
+    public void setJournal(CareJournal journal) {
+        this.journal = journal;
+    }
+
+    /** Archive used by {@link #dischargeResident(Manager, String)} (null to detach). */
+    public void setArchive(ResidentArchive archive) {
+        this.archive = archive;
+    }
+
+    public ResidentArchive getArchive() {
+        return archive;
+    }
+
+    /**
+     * Replace a stored password (plain text or a cheaper hash) after it was
+     * verified at login; skipped if it changed meanwhile. Journaled like a
+     * password change by {@link #SYSTEM_ACTOR}.
+     */
+    /* package-private */ void upgradePasswordHash(String username, String verified, String hash) {
+        ReentrantLock lock = wardLocks[0];
+        lock.lock();
+        try {
+            Staff s = staffList.get(username);
+            if (s != null && Objects.equals(s.getPasswordHash(), verified))
+                record(new PasswordChanged(now(), SYSTEM_ACTOR, username, hash));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Hasher for new passwords (default {@link PasswordHasher#standard()}); not saved with the home. */
+    public PasswordHasher getPasswordHasher() {
+        PasswordHasher h = hasher;
+        return h != null ? h : PasswordHasher.standard();
+    }
+
+    public void setPasswordHasher(PasswordHasher hasher) {
+        this.hasher = hasher;
+    }
+
+    /** Who may do what here (default {@link AccessPolicy#defaults()}); not saved with the home. */
+    public AccessPolicy getAccessPolicy() {
+        AccessPolicy p = access;
+        if (p != null) return p;
+        synchronized (this) {
+            if (access == null) access = AccessPolicy.defaults();
+            return access;
+        }
+    }
+
+    public void setAccessPolicy(AccessPolicy policy) {
+        this.access = policy;
+    }
+
+    /** Be told about every change after it is applied (replays are not reported). */
+    public synchronized void addListener(CareListener l) {
+        List<CareListener> next = listeners == null ? new ArrayList<>() : new ArrayList<>(listeners);
+        next.add(l);
+        listeners = List.copyOf(next);
+    }
+
+    public synchronized void removeListener(CareListener l) {
+        if (listeners == null) return;
+        List<CareListener> next = new ArrayList<>(listeners);
+        next.remove(l);
+        listeners = List.copyOf(next);
+    }
+
+    /** Re-apply an event read back from a journal (no authorization, not re-journaled). */
+    public void replay(CareEvent e) {
+        apply(e);
+    }
+
+    /** Work run while no change is between its journal append and its apply. */
+    @FunctionalInterface
+    public interface Checkpoint<T> {
+        T run() throws IOException;
+    }
+
+    /** Run a checkpoint (e.g. snapshot + journal rotation) with all mutations paused. */
+    public <T> T checkpoint(Checkpoint<T> work) throws IOException {
+        checkpointLock.writeLock().lock();
+        try {
+            return work.run();
+        } finally {
+            checkpointLock.writeLock().unlock();
+        }
+    }
+
+    private void record(CareEvent e) {
+        checkpointLock.readLock().lock();
+        try {
+            if (journal != null) journal.append(e);
+            apply(e);
+        } finally {
+            checkpointLock.readLock().unlock();
+        }
+        List<CareListener> ls = listeners;
+        if (ls == null) return;
+        for (CareListener l : ls) {
+            try {
+                l.changed(e);
+            } catch (RuntimeException ex) {  // the change is already applied; a listener cannot undo it
+                System.err.println("Change listener failed: " + ex);
             }
         }
+    }
+
+    private void apply(CareEvent e) {
+        if (e instanceof StaffAdded ev) {
+            Staff staff = ev.staff();
+            staffList.put(staff.getUsername(), staff);
+            compliance.track(staff);
+            log(ev, staff.getUsername(), ev.actor() + " added staff: " + staff.getName() + " [" + staff.getUsername() + "]");
+
+        } else if (e instanceof ResidentAdmitted ev) {
+            Resident r = ev.resident();
+            Bed bed = beds.get(ev.bedId());
+            if (!beds.claim(bed, r)) throw new IllegalStateException("Bed already occupied: " + bed.getBedId());
+            r.setBed(bed);
+            residents.put(r.getId(), r);
+            log(ev, r.getId(), ev.actor() + " added resident " + r.getName() + " to " + bed.getBedId());
+
+        } else if (e instanceof ResidentMoved ev) {
+            Resident r = residents.get(ev.residentId());
+            Bed to = beds.get(ev.toBedId());
+            if (!beds.claim(to, r)) throw new IllegalStateException("Bed already occupied: " + to.getBedId());
+            if (r.getBed() != null)
+                beds.release(r.getBed(), r);
+            r.setBed(to);
+            log(ev, r.getId(), ev.actor() + " moved resident " + r.getName() + " to " + to.getBedId());
 
-        // OPTIONAL: doctor presence rule (uncomment if required by your tutor)
-        // boolean anyDoctor = staffList.values().stream().anyMatch(s -> s instanceof Doctor);
-        // if (!anyDoctor) {
-        //     throw new ShiftViolationException("Compliance: No doctor available.");
-        // }
+        } else if (e instanceof PrescriptionAdded ev) {
+            Resident r = residents.get(ev.residentId());
+            r.addPrescription(ev.prescription());
+            doses.prescriptionAdded(r.getId(), ev.prescription(), toLocal(ev.at()));
+            log(ev, r.getId(), ev.actor() + " added prescription for " + r.getName() + ": " + ev.prescription());
+
+        } else if (e instanceof DoseAdministered ev) {
+            Resident r = residents.get(ev.residentId());
+            AdministrationRecord rec = ev.record();
+            r.addAdministration(rec);
+            doses.administered(r.getId(), rec);
+            log(ev, r.getId(), ev.actor() + " administered " + rec.getMedicine() + " " + rec.getDosage()
+                    + " to " + r.getName() + " at " + rec.getAdministeredAt());
+
+        } else if (e instanceof ResidentDischarged ev) {
+            // free bed and remove from active residents
+            Resident r = residents.remove(ev.residentId());
+            doses.residentDischarged(r.getId());
+            if (r.getBed() != null) { beds.release(r.getBed(), r); r.setBed(null); }
+            log(ev, r.getId(), ev.actor() + " discharged " + r.getName() + " (archived: " + ev.archiveFile() + ")");
+
+        } else if (e instanceof PasswordChanged ev) {
+            Staff s = staffList.get(ev.username());
+            s.setPasswordHash(ev.passwordHash());
+            log(ev, s.getUsername(), ev.actor() + " changed password for " + s.getUsername());
+
+        } else if (e instanceof ShiftAssigned ev) {
+            Staff n = staffList.get(ev.username());
+            n.addShift(ev.shift());
+            if (ev.shift().getDate() != null) roster.add(n.getUsername(), ev.shift());
+            log(ev, n.getUsername(), ev.actor() + " assigned shift to " + n.getUsername() + ": " + ev.shift());
+
+        } else if (e instanceof ResidentAssigned ev) {
+            Nurse n = (Nurse) staffList.get(ev.username());
+            if (ev.assigned()) n.addResident(ev.residentId());
+            else n.removeResident(ev.residentId());
+            log(ev, n.getUsername(), ev.actor() + (ev.assigned() ? " assigned " : " unassigned ") + ev.residentId()
+                    + (ev.assigned() ? " to " : " from ") + n.getUsername());
+        }
     }
 
     // -------------------------------------------------------------------
-    // FILE SAVE / LOAD (Serialization)
+    // FILE SAVE / LOAD (binary format, see HomeCodec)
     // -------------------------------------------------------------------
+    /** Save the whole home; changes wait while it is encoded, not while it is written. */
     public void saveData(String filename) throws IOException {
-        try (ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(filename))) {
-            out.writeObject(this);
+        long t0 = System.nanoTime();
+        try {
+            HomeCodec.Out image = checkpoint(() -> HomeCodec.encode(this));
+            HomeCodec.write(java.nio.file.Path.of(filename), image.buf, image.size);
+        } catch (Exception e) {
+            SAVE.failed(e);
+            throw e;
+        } finally {
+            SAVE.stop(t0);
         }
     }
 
-    public static CareHome loadData(String filename)
-            throws IOException, ClassNotFoundException {
-        try (ObjectInputStream in = new ObjectInputStream(new FileInputStream(filename))) {
-            return (CareHome) in.readObject();
+    /**
+     * The whole home in the {@link #saveData} format, e.g. for a journal
+     * snapshot; call inside {@link #checkpoint} so no change is half-applied.
+     */
+    public byte[] toImage() {
+        HomeCodec.Out image = HomeCodec.encode(this);
+        return Arrays.copyOf(image.buf, image.size);
+    }
+
+    /** A home from the {@link #toImage} bytes at {@code data[offset, offset + length)}. */
+    public static CareHome fromImage(byte[] data, int offset, int length, String source) throws IOException {
+        return HomeCodec.read(data, offset, length, source);
+    }
+
+    /**
+     * Load a home saved by {@link #saveData}. Files saved with Java
+     * serialization by older versions are refused; convert them once with
+     * {@code persistence.LegacyMigrator}.
+     */
+    public static CareHome loadData(String filename) throws IOException {
+        long t0 = System.nanoTime();
+        try {
+            java.nio.file.Path file = java.nio.file.Path.of(filename);
+            if (!HomeCodec.isCodecFile(file))
+                throw new IOException(filename + " is not in the current format (saved by an older version?)"
+                                      + "; convert it with persistence.LegacyMigrator");
+            return HomeCodec.read(file);
+        } catch (Exception e) {
+            LOAD.failed(e);
+            throw e;
+        } finally {
+            LOAD.stop(t0);
         }
     }
 
+    // -------------------------------------------------------------------
+    // HYDRATION (persistence layer only: no authorization, no audit)
+    // -------------------------------------------------------------------
+    /** Size the resident map for n residents about to be restored (no resize while loading). */
+    void reserveResidents(int n) {
+        if (residents.isEmpty()) residents = new ConcurrentHashMap<>(Math.max(16, n * 4 / 3 + 1));
+    }
+
+    /**
+     * Put a resident into a bed (or vacate the bed when r is null) while
+     * rebuilding the model from storage.
+     */
+    public void restoreBed(Bed bed, Resident r) {
+        Resident previous = bed.getOccupant();
+        if (previous != null) previous.setBed(null);
+        if (r == null) { beds.set(bed, null); return; }
+        if (r.getBed() != null && r.getBed() != bed) beds.set(r.getBed(), null);
+        beds.set(bed, r);
+        r.setBed(bed);
+    }
+
+    /**
+     * Register a staff member and their shifts (for compliance) while
+     * rebuilding the model from storage; dated shifts also go to the roster,
+     * in their original order, through {@link #restoreRosterShift}.
+     */
+    public void restoreStaff(Staff s) {
+        staffList.put(s.getUsername(), s);
+        compliance.track(s);
+    }
+
+    /** Register staff members while rebuilding the model from storage, checking roster compliance once. */
+    public void restoreStaff(Collection<? extends Staff> all) {
+        for (Staff s : all) staffList.put(s.getUsername(), s);
+        compliance.trackAll(all);
+    }
+
+    /** Add a dated shift already on its staff member to the roster while rebuilding the model from storage. */
+    public void restoreRosterShift(String username, Shift shift) {
+        roster.add(username, shift);
+    }
+
+    /** Assign a resident to a nurse already restored while rebuilding the model from storage. */
+    public void restoreAssignedResident(Nurse n, String residentId) {
+        n.addResident(residentId);
+    }
+
+    /** Register a resident (and optional bed) while rebuilding the model from storage. */
+    public void restoreResident(Resident r, Bed bed) {
+        residents.put(r.getId(), r);
+        if (bed != null) restoreBed(bed, r);
+    }
+
+    /** Add a prescription (scheduled from now) while rebuilding the model from storage. */
+    public void restorePrescription(Resident r, Prescription p) {
+        r.addPrescription(p);
+        doses.prescriptionAdded(r.getId(), p, java.time.LocalDateTime.now());
+    }
+
+    /** Add a prescription whose next dose was due at {@code due} (null: schedule from now) when saved. */
+    public void restorePrescription(Resident r, Prescription p, java.time.LocalDateTime due) {
+        if (due == null) { restorePrescription(r, p); return; }
+        r.addPrescription(p);
+        doses.restore(r.getId(), p, due);
+    }
+
+    /** Append an audit entry while rebuilding the model from storage. */
+    public void restoreAuditEntry(AuditEntry e) {
+        auditLog.restore(e);
+    }
+
+    /** Append an already-formatted audit line while rebuilding the model from storage. */
+    public void restoreAuditEntry(String line) {
+        auditLog.add(line);
+    }
+
     // -------------------------------------------------------------------
     // UTILS
     // -------------------------------------------------------------------
-    private void log(String msg) {
-        auditLog.add(new Date() + " - " + msg);
+    /** Lock the stripe of the resident's current ward, re-checking after a concurrent move. */
+    private ReentrantLock lockResident(Resident r) {
+        while (true) {
+            Bed bed = r.getBed();
+            ReentrantLock lock = wardLocks[bed == null ? 0 : bed.getWard()];
+            lock.lock();
+            if (r.getBed() == bed) return lock;
+            lock.unlock();
+        }
+    }
+
+    private static long now() {
+        return System.currentTimeMillis();
+    }
+
+    private static java.time.LocalDateTime toLocal(long epochMillis) {
+        return java.time.LocalDateTime.ofInstant(java.time.Instant.ofEpochMilli(epochMillis),
+                                                 java.time.ZoneId.systemDefault());
+    }
+
+    private static String actor(Staff s) {
+        return s.getName() + " (" + s.getId() + ")";
+    }
+
+    private void log(CareEvent e, String subject, String msg) {
+        auditLog.append(new AuditEntry(e.at(), actorId(e.actor()), e.getClass().getSimpleName(), subject, msg));
     }
 
+    // "Name (id)" -> "id"
+    private static String actorId(String actor) {
+        int open = actor.lastIndexOf('('), close = actor.lastIndexOf(')');
+        return open >= 0 && close > open ? actor.substring(open + 1, close) : actor;
+    }
+
+    /** The audit trail as "date - message" lines (synchronize on it while iterating). */
     public List<String> getAuditLog() {
         return auditLog;
     }
 
+    /** The audit trail with search by actor, subject, action, words and time. */
+    public AuditLog getAudit() {
+        return auditLog;
+    }
+
+    /** Facility-wide worklist of pending doses (next due, overdue, due soon). */
+    public DoseScheduler getDoseScheduler() {
+        return doses;
+    }
+
     public Collection<Bed> getBeds() {
-        return beds.values();
+        return beds.all();
+    }
+
+    /** Live bed counts for the facility, each ward and room, by gender (constant time). */
+    public Occupancy getOccupancy() {
+        return beds.occupancy();
+    }
+
+    /** Ward/room/packed-id index over all beds. */
+    public BedRegistry getBedRegistry() {
+        return beds;
     }
 
     public Map<String, Staff> getStaffList() {
@@ -0,0 +1,9 @@
+package model;
+
+/**
+ * Receives every {@link CareEvent} of a CareHome before it is applied
+ * (write-ahead). Implementations must keep events in the order received.
+ */
+public interface CareJournal {
+    void append(CareEvent e);
+}
@@ -0,0 +1,11 @@
+package model;
+
+/**
+ * Told about every {@link CareEvent} after a CareHome has applied it.
+ * Called on the mutating thread while its ward lock is held, so
+ * implementations must only hand the event off (e.g. to a UI thread).
+ */
+@FunctionalInterface
+public interface CareListener {
+    void changed(CareEvent e);
+}
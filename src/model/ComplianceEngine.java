@@ -0,0 +1,106 @@
+package model;
+
+import java.io.Serializable;
+import java.util.*;
+
+/**
+ * Keeps shift compliance up to date as shifts are added, instead of
+ * re-scanning the whole roster on every check. Per-day minute totals are
+ * updated in place; per-staff rules re-run only for the staff member that
+ * changed, roster rules only when staff join. {@link #isCompliant()} is a
+ * single read.
+ */
+public class ComplianceEngine implements Serializable {
+
+    private final List<ComplianceRule> rules;
+    private final Map<String, Staff> staff = new LinkedHashMap<>();           // by username
+    private final Map<String, DailyHours> hours = new HashMap<>();
+    private final Map<String, List<Violation>> staffViolations = new HashMap<>();
+    private List<Violation> rosterViolations = List.of();
+    private volatile int violationCount;
+
+    public ComplianceEngine(List<ComplianceRule> rules) {
+        this.rules = new ArrayList<>(rules);
+    }
+
+    /** Start tracking a staff member (existing shifts included). */
+    public synchronized void track(Staff s) {
+        add(s);
+        recheckRoster();
+    }
+
+    /** Start tracking several staff members, checking the roster once. */
+    public synchronized void trackAll(Collection<? extends Staff> all) {
+        for (Staff s : all) add(s);
+        recheckRoster();
+    }
+
+    private void add(Staff s) {
+        Staff previous = staff.put(s.getUsername(), s);
+        if (previous != null && previous != s) previous.setShiftListener(null);
+        DailyHours totals = new DailyHours();
+        for (Shift shift : s.getShifts()) totals.add(shift);
+        hours.put(s.getUsername(), totals);
+        s.setShiftListener(this);
+        recheckStaff(s);
+    }
+
+    /** Called by {@link Staff#addShift} for tracked staff. */
+    /* package-private */ synchronized void shiftAdded(Staff s, Shift shift) {
+        DailyHours totals = hours.get(s.getUsername());
+        if (totals == null || staff.get(s.getUsername()) != s) return;
+        totals.add(shift);
+        recheckStaff(s);
+    }
+
+    public synchronized void addRule(ComplianceRule rule) {
+        rules.add(rule);
+        recheckAll();
+    }
+
+    public synchronized void removeRule(String name) {
+        rules.removeIf(r -> r.name().equals(name));
+        recheckAll();
+    }
+
+    public synchronized List<ComplianceRule> getRules() {
+        return List.copyOf(rules);
+    }
+
+    public boolean isCompliant() {
+        return violationCount == 0;
+    }
+
+    /** Every current breach: roster-wide first, then per staff member. */
+    public synchronized List<Violation> getViolations() {
+        List<Violation> all = new ArrayList<>(violationCount);
+        all.addAll(rosterViolations);
+        for (Staff s : staff.values()) all.addAll(staffViolations.getOrDefault(s.getUsername(), List.of()));
+        return all;
+    }
+
+    public synchronized DailyHours hoursOf(String username) {
+        return hours.get(username);
+    }
+
+    private void recheckAll() {
+        for (Staff s : staff.values()) recheckStaff(s);
+        recheckRoster();
+    }
+
+    private void recheckStaff(Staff s) {
+        List<Violation> found = new ArrayList<>(0);
+        DailyHours totals = hours.get(s.getUsername());
+        for (ComplianceRule rule : rules) rule.checkStaff(s, totals, found);
+        List<Violation> old = staffViolations.put(s.getUsername(), found);
+        violationCount += found.size() - (old == null ? 0 : old.size());
+    }
+
+    private void recheckRoster() {
+        List<Violation> found = new ArrayList<>(0);
+        Collection<Staff> all = Collections.unmodifiableCollection(staff.values());
+        for (ComplianceRule rule : rules) rule.checkRoster(all, found);
+        violationCount += found.size() - rosterViolations.size();
+        rosterViolations = found;
+    }
+}
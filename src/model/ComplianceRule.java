@@ -0,0 +1,22 @@
+package model;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * A pluggable roster rule. Per-staff checks re-run only for the staff member
+ * whose shifts changed; roster checks re-run when staff join or leave.
+ * See {@link ComplianceRules} for the built-in rules.
+ */
+public interface ComplianceRule extends Serializable {
+
+    /** Short name used in {@link Violation#rule()}. */
+    String name();
+
+    /** Add this staff member's breaches to out. */
+    default void checkStaff(Staff staff, DailyHours hours, List<Violation> out) {}
+
+    /** Add roster-wide breaches to out. */
+    default void checkRoster(Collection<Staff> staff, List<Violation> out) {}
+}
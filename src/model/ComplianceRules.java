@@ -0,0 +1,157 @@
+package model;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+/** Built-in {@link ComplianceRule}s. */
+public final class ComplianceRules {
+    private ComplianceRules() {}
+
+    /** The rules a new CareHome starts with: ≤ 8 h per day and no overlapping shifts (nurses). */
+    public static List<ComplianceRule> defaults() {
+        return List.of(maxDailyHours(8), noOverlappingShifts());
+    }
+
+    /** Nurses may not be rostered for more than the given hours on any day. */
+    public static ComplianceRule maxDailyHours(int hours) {
+        return new MaxDailyHours(hours);
+    }
+
+    /** A nurse's shifts on the same day (weekly) or at the same time (dated) may not overlap. */
+    public static ComplianceRule noOverlappingShifts() {
+        return new NoOverlap();
+    }
+
+    /**
+     * A nurse needs at least the given hours off between consecutive shifts
+     * (weekly shifts wrap around the week; dated shifts follow the calendar).
+     */
+    public static ComplianceRule minimumRest(int hours) {
+        return new MinimumRest(hours);
+    }
+
+    /** At least one doctor must be on staff. */
+    public static ComplianceRule doctorCoverage() {
+        return new DoctorCoverage();
+    }
+
+    // -------------------------------------------------------------------
+    // package-private so RosterGenerator can read their limits
+
+    record MaxDailyHours(int hours) implements ComplianceRule {
+        public String name() { return "max-daily-hours"; }
+
+        public void checkStaff(Staff staff, DailyHours totals, List<Violation> out) {
+            if (!(staff instanceof Nurse)) return;
+            for (DayOfWeek day : DayOfWeek.values()) {
+                if (totals.minutes(day) > hours * 60L)
+                    out.add(new Violation(name(), staff.getUsername(), "Nurse " + staff.getName()
+                            + " exceeds " + hours + " hours on " + day));
+            }
+            for (LocalDate date : totals.dates()) {
+                if (totals.minutes(date) > hours * 60L)
+                    out.add(new Violation(name(), staff.getUsername(), "Nurse " + staff.getName()
+                            + " exceeds " + hours + " hours on " + date));
+            }
+        }
+    }
+
+    private record NoOverlap() implements ComplianceRule {
+        public String name() { return "no-overlap"; }
+
+        public void checkStaff(Staff staff, DailyHours totals, List<Violation> out) {
+            if (!(staff instanceof Nurse)) return;
+            Shift latest = null; // shift ending last so far on the current day
+            for (Shift cur : sortedByWeekMinute(weekly(staff))) {
+                if (latest != null && cur.getDay() == latest.getDay()
+                        && cur.getStartTime().isBefore(latest.getEndTime())) {
+                    out.add(new Violation(name(), staff.getUsername(), "Nurse " + staff.getName()
+                            + " has overlapping shifts: " + latest + " and " + cur));
+                }
+                if (latest == null || cur.getDay() != latest.getDay() || cur.getEndTime().isAfter(latest.getEndTime()))
+                    latest = cur;
+            }
+            latest = null;     // dated: shift ending last so far
+            for (Shift cur : sortedByStart(dated(staff))) {
+                if (latest != null && start(cur) < end(latest)) {
+                    out.add(new Violation(name(), staff.getUsername(), "Nurse " + staff.getName()
+                            + " has overlapping shifts: " + latest + " and " + cur));
+                }
+                if (latest == null || end(cur) > end(latest)) latest = cur;
+            }
+        }
+    }
+
+    record MinimumRest(int hours) implements ComplianceRule {
+        public String name() { return "minimum-rest"; }
+
+        public void checkStaff(Staff staff, DailyHours totals, List<Violation> out) {
+            if (!(staff instanceof Nurse)) return;
+            List<Shift> dated = sortedByStart(dated(staff));
+            for (int i = 1; i < dated.size(); i++) {
+                Shift prev = dated.get(i - 1), cur = dated.get(i);
+                long gap = start(cur) - end(prev);
+                if (gap >= 0 && gap < hours * 60L)
+                    out.add(new Violation(name(), staff.getUsername(), "Nurse " + staff.getName()
+                            + " has less than " + hours + " hours rest between " + prev + " and " + cur));
+            }
+            List<Shift> sorted = sortedByWeekMinute(weekly(staff));
+            int n = sorted.size();
+            if (n < 2) return;
+            for (int i = 0; i < n; i++) {
+                Shift cur = sorted.get(i), next = sorted.get((i + 1) % n);
+                int gap = weekMinute(next) - (weekMinute(cur) + (int) cur.getMinutes());
+                if (i == n - 1) gap += 7 * 24 * 60; // wrap to next week
+                if (gap >= 0 && gap < hours * 60)
+                    out.add(new Violation(name(), staff.getUsername(), "Nurse " + staff.getName()
+                            + " has less than " + hours + " hours rest between " + cur + " and " + next));
+            }
+        }
+    }
+
+    private record DoctorCoverage() implements ComplianceRule {
+        public String name() { return "doctor-coverage"; }
+
+        public void checkRoster(Collection<Staff> staff, List<Violation> out) {
+            if (staff.stream().noneMatch(s -> s instanceof Doctor))
+                out.add(new Violation(name(), null, "Compliance: No doctor available."));
+        }
+    }
+
+    private static List<Shift> weekly(Staff staff) {
+        return staff.getShifts().stream().filter(s -> s.getDate() == null).toList();
+    }
+
+    private static List<Shift> dated(Staff staff) {
+        return staff.getShifts().stream().filter(s -> s.getDate() != null).toList();
+    }
+
+    // minutes since the epoch
+    private static long start(Shift s) {
+        return s.getDate().toEpochDay() * 24 * 60 + s.getStartTime().getHour() * 60 + s.getStartTime().getMinute();
+    }
+
+    private static long end(Shift s) {
+        return start(s) + s.getMinutes();
+    }
+
+    private static List<Shift> sortedByStart(List<Shift> shifts) {
+        List<Shift> sorted = new ArrayList<>(shifts);
+        sorted.sort(Comparator.comparingLong(ComplianceRules::start));
+        return sorted;
+    }
+
+    private static int weekMinute(Shift s) {
+        return s.getDay().ordinal() * 24 * 60 + s.getStartTime().getHour() * 60 + s.getStartTime().getMinute();
+    }
+
+    private static List<Shift> sortedByWeekMinute(List<Shift> shifts) {
+        List<Shift> sorted = new ArrayList<>(shifts);
+        sorted.sort(Comparator.comparingInt(ComplianceRules::weekMinute));
+        return sorted;
+    }
+}
@@ -0,0 +1,33 @@
+package model;
+
+import java.io.Serializable;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Running total of rostered minutes for one staff member: per day of week
+ * for weekly shifts, per calendar date for dated ones. A shift counts
+ * towards the day it starts on.
+ */
+public final class DailyHours implements Serializable {
+    private final long[] minutes = new long[7]; // [MONDAY..SUNDAY], weekly shifts
+    private final Map<LocalDate, Long> dated = new TreeMap<>();
+
+    /* package-private */ void add(Shift s) {
+        if (s.getDate() == null) minutes[s.getDay().ordinal()] += s.getMinutes();
+        else dated.merge(s.getDate(), s.getMinutes(), Long::sum);
+    }
+
+    public long minutes(DayOfWeek day) { return minutes[day.ordinal()]; }
+
+    public double hours(DayOfWeek day) { return minutes[day.ordinal()] / 60.0; }
+
+    /** Minutes of dated shifts starting on {@code date}. */
+    public long minutes(LocalDate date) { return dated.getOrDefault(date, 0L); }
+
+    /** Dates with at least one dated shift, in order. */
+    public Set<LocalDate> dates() { return dated.keySet(); }
+}
@@ -0,0 +1,135 @@
+package model;
+
+import java.io.Serializable;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Next due time of every active prescription in the home, kept in one
+ * ordered set so a medication round can ask "what is overdue" or "what is
+ * due in the next N minutes" in O(log n + k) instead of visiting every
+ * resident. Prescriptions are daily at their {@link Prescription#getTime()};
+ * recording a dose moves that prescription on to its next day.
+ */
+public class DoseScheduler implements Serializable {
+
+    /** A dose counts against the pending slot if given at most this long before it is due. */
+    public static final Duration EARLY_WINDOW = Duration.ofHours(2);
+
+    /** One pending dose. Ordered by due time, then creation order. */
+    public static final class DueDose implements Comparable<DueDose>, Serializable {
+        private final String residentId;
+        private final Prescription prescription;
+        private final LocalDateTime due;
+        private final long seq;
+
+        private DueDose(String residentId, Prescription prescription, LocalDateTime due, long seq) {
+            this.residentId = residentId;
+            this.prescription = prescription;
+            this.due = due;
+            this.seq = seq;
+        }
+
+        public String getResidentId() { return residentId; }
+        public Prescription getPrescription() { return prescription; }
+        public LocalDateTime getDue() { return due; }
+
+        @Override public int compareTo(DueDose o) {
+            int c = due.compareTo(o.due);
+            return c != 0 ? c : Long.compare(seq, o.seq);
+        }
+
+        @Override public String toString() { return due + " " + residentId + ": " + prescription; }
+    }
+
+    private final TreeSet<DueDose> queue = new TreeSet<>();
+    private final Map<String, List<DueDose>> byResident = new HashMap<>();
+    private long nextSeq = 1;
+
+    /** Schedule a new prescription from its first slot at or after from. */
+    public synchronized void prescriptionAdded(String residentId, Prescription p, LocalDateTime from) {
+        LocalDateTime due = from.toLocalDate().atTime(p.getTime());
+        if (due.isBefore(from)) due = due.plusDays(1);
+        insert(new DueDose(residentId, p, due, nextSeq++));
+    }
+
+    /**
+     * A dose was given: the earliest pending slot of that medicine moves to
+     * its next day, if the dose was not given more than EARLY_WINDOW early.
+     */
+    public synchronized void administered(String residentId, AdministrationRecord rec) {
+        List<DueDose> pending = byResident.get(residentId);
+        if (pending == null) return;
+        DueDose match = null;
+        for (DueDose d : pending) {
+            if (d.prescription.getMedicineCode() == rec.getMedicineCode()
+                    && (match == null || d.due.isBefore(match.due))) match = d;
+        }
+        LocalDateTime when = rec.getAdministeredAt();
+        if (match == null || when.isBefore(match.due.minus(EARLY_WINDOW))) return;
+
+        remove(match);
+        LocalDateTime next = match.due.plusDays(1);
+        while (!next.isAfter(when)) next = next.plusDays(1);
+        insert(new DueDose(residentId, match.prescription, next, match.seq));
+    }
+
+    /** Re-create a pending dose as it was saved (loading a saved home). */
+    /* package-private */ synchronized void restore(String residentId, Prescription p, LocalDateTime due) {
+        insert(new DueDose(residentId, p, due, nextSeq++));
+    }
+
+    /** Drop every pending dose of a discharged resident. */
+    public synchronized void residentDischarged(String residentId) {
+        List<DueDose> pending = byResident.remove(residentId);
+        if (pending != null) queue.removeAll(pending);
+    }
+
+    /** Earliest pending dose, or null if nothing is prescribed. */
+    public synchronized DueDose nextDue() {
+        return queue.isEmpty() ? null : queue.first();
+    }
+
+    /** Doses due before now, most overdue first. */
+    public synchronized List<DueDose> overdue(LocalDateTime now) {
+        return List.copyOf(queue.headSet(probe(now, Long.MIN_VALUE)));
+    }
+
+    /** Doses due in [now, now + window), soonest first. */
+    public synchronized List<DueDose> dueWithin(LocalDateTime now, Duration window) {
+        return List.copyOf(queue.subSet(probe(now, Long.MIN_VALUE), probe(now.plus(window), Long.MIN_VALUE)));
+    }
+
+    /** Pending doses of one resident. */
+    public synchronized List<DueDose> dueFor(String residentId) {
+        List<DueDose> pending = byResident.getOrDefault(residentId, List.of());
+        List<DueDose> sorted = new ArrayList<>(pending);
+        Collections.sort(sorted);
+        return sorted;
+    }
+
+    /** Pending doses of one resident as held, unsorted and not copied (encoding a home with changes paused). */
+    /* package-private */ synchronized List<DueDose> pending(String residentId) {
+        return byResident.getOrDefault(residentId, List.of());
+    }
+
+    public synchronized int size() {
+        return queue.size();
+    }
+
+    private void insert(DueDose d) {
+        queue.add(d);
+        byResident.computeIfAbsent(d.residentId, k -> new ArrayList<>(2)).add(d);
+    }
+
+    private void remove(DueDose d) {
+        queue.remove(d);
+        byResident.get(d.residentId).remove(d);
+    }
+
+    private static DueDose probe(LocalDateTime t, long seq) {
+        return new DueDose(null, null, t, seq);
+    }
+
+}
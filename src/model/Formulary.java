@@ -0,0 +1,99 @@
+package model;
+
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Process-wide dictionary of medicine and dosage names.
+ *
+ * {@link Prescription} and {@link AdministrationRecord} keep small int codes
+ * instead of their own strings, so "Paracetamol" is held once however many
+ * doses mention it, and "all doses of X" is an int comparison. Codes are
+ * dense, never reused and only valid in this JVM: serialized records write
+ * the shared {@link Term} object instead (once per stream, back-references
+ * after that), which is re-interned here when read. Lookups are lock-free;
+ * adding a new name locks the table.
+ */
+public final class Formulary {
+
+    public static final Formulary MEDICINES = new Formulary(Term.MEDICINE);
+    public static final Formulary DOSAGES = new Formulary(Term.DOSAGE);
+
+    private final byte kind;
+    private final Map<String, Term> byName = new ConcurrentHashMap<>();
+    private volatile Term[] byCode = new Term[64];
+    private volatile int size;
+
+    private Formulary(byte kind) {
+        this.kind = kind;
+    }
+
+    /** Code of {@code name}, adding it if new. */
+    public int code(String name) {
+        return term(name).code;
+    }
+
+    /** Code of {@code name}, or -1 if no record has used it. */
+    public int find(String name) {
+        Term t = name == null ? null : byName.get(name);
+        return t == null ? -1 : t.code;
+    }
+
+    public String name(int code) {
+        return term(code).name;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /* package-private */ Term term(String name) {
+        if (name == null) throw new IllegalArgumentException("Name required");
+        Term t = byName.get(name);
+        return t != null ? t : add(name);
+    }
+
+    /* package-private */ Term term(int code) {
+        if (code < 0 || code >= size) throw new IllegalArgumentException("Unknown code " + code);
+        return byCode[code];
+    }
+
+    private synchronized Term add(String name) {
+        Term t = byName.get(name);
+        if (t != null) return t;
+        Term[] codes = byCode;
+        if (size == codes.length) codes = Arrays.copyOf(codes, size * 2);
+        t = new Term(kind, name, size);
+        codes[size] = t;
+        byCode = codes;
+        size++;                                     // publishes the new entry
+        byName.put(name, t);
+        return t;
+    }
+
+    /** One dictionary entry; in a stream it stands for its name and maps back to a live code. */
+    /* package-private */ static final class Term implements Serializable {
+        static final byte MEDICINE = 1, DOSAGE = 2;
+
+        private final byte kind;
+        private final String name;
+        private final transient int code;
+
+        private Term(byte kind, String name, int code) {
+            this.kind = kind;
+            this.name = name;
+            this.code = code;
+        }
+
+        int code() {
+            return code;
+        }
+
+        private Object readResolve() throws ObjectStreamException {
+            return (kind == DOSAGE ? DOSAGES : MEDICINES).term(name);
+        }
+    }
+}
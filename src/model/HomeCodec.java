@@ -0,0 +1,625 @@
+package model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32C;
+
+/**
+ * Binary form of a whole {@link CareHome}, used by {@link CareHome#saveData}
+ * and {@link CareHome#loadData} in place of Java serialization.
+ * <pre>
+ *   header    magic "CHOMEDAT", format version (u16), oldest reader version able to read it (u16)
+ *   sections  [tag u8][length i32][payload] ..., then tag 0
+ *   footer    CRC32C of everything before it (i32)
+ * </pre>
+ * A section payload is a record count and records, each
+ * {@code [new strings][length][fields]}. Readers skip sections they do not
+ * know and the unread tail of each record, so a newer version may add
+ * sections or append fields to records; reading an older file, fields
+ * missing at the end of a record read as 0 / null. A change older readers
+ * cannot tolerate raises the minimum reader version.
+ *
+ * Numbers are varints (signed ones zig-zagged), strings UTF-8 with a varint
+ * length. Strings that repeat within a section (staff ids, medicine and
+ * dosage names) are written once and referenced by index after that. A
+ * record's first uses are written ahead of its length, so a reader skipping
+ * fields it does not know still numbers every string the same way.
+ *
+ * The image is built in memory and written with channel writes to a temp file
+ * that then replaces the target; loading reads the file with one channel read
+ * and checks the CRC before decoding. Dated shifts are stored once, in roster
+ * order; derived state (occupancy, compliance totals, the audit index) is
+ * rebuilt, not stored.
+ * Compliance rules are stored by name; custom rules are code, not data, and
+ * are not saved.
+ */
+final class HomeCodec {
+
+    static final int FORMAT_VERSION = 1;
+    private static final int MIN_READER_VERSION = 1;
+    private static final long MAGIC = 0x43484F4D45444154L;   // "CHOMEDAT"
+    private static final int HEADER = 12;
+
+    private static final int END = 0;
+    private static final int TOPOLOGY = 1;
+    private static final int RULES = 2;
+    private static final int STAFF = 3;
+    private static final int RESIDENTS = 4;
+    private static final int AUDIT = 5;
+    private static final int ROSTER = 6;
+
+    private HomeCodec() {}
+
+    /** Whether the file starts like one of ours (as opposed to e.g. a Java-serialized save). */
+    static boolean isCodecFile(Path file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer b = ByteBuffer.allocate(8);
+            while (b.hasRemaining() && ch.read(b) >= 0) { }
+            return !b.hasRemaining() && b.getLong(0) == MAGIC;
+        }
+    }
+
+    // -------------------------------------------------------------------
+    // WRITE
+    // -------------------------------------------------------------------
+    static void write(Path file, byte[] image, int length) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                               StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer b = ByteBuffer.wrap(image, 0, length);
+            while (b.hasRemaining()) ch.write(b);
+            ch.force(true);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /** The whole home as a file image; call with mutations paused (see {@link CareHome#checkpoint}). */
+    static Out encode(CareHome home) {
+        int last = home.lastImageSize;
+        Out out = new Out(Math.max(1 << 16, last + (last >> 3)));     // room to grow without copying
+        out.i64(MAGIC);
+        out.u16(FORMAT_VERSION);
+        out.u16(MIN_READER_VERSION);
+
+        Topology topo = home.getBedRegistry().getTopology();
+        int s = out.beginSection(TOPOLOGY, topo.wardCount());
+        for (int w = 1; w <= topo.wardCount(); w++) {
+            int r = out.beginRecord();
+            out.varint(topo.roomCount(w));
+            for (int room = 1; room <= topo.roomCount(w); room++) out.varint(topo.bedCount(w, room));
+            out.endRecord(r);
+        }
+        out.endSection(s);
+
+        List<ComplianceRule> rules = home.getCompliance().getRules();
+        s = out.beginSection(RULES, rules.size());
+        for (ComplianceRule rule : rules) {
+            int r = out.beginRecord();
+            out.str(rule.name());
+            out.varint(rule instanceof ComplianceRules.MaxDailyHours m ? m.hours()
+                     : rule instanceof ComplianceRules.MinimumRest m ? m.hours() : 0);
+            out.endRecord(r);
+        }
+        out.endSection(s);
+
+        s = out.beginSection(STAFF, home.getStaffList().size());
+        for (Staff st : home.getStaffList().values()) writeStaff(out, st);
+        out.endSection(s);
+
+        RosterStore roster = home.getRoster();
+        synchronized (roster) {
+            s = out.beginSection(ROSTER, roster.size());
+            for (int i = 0; i < roster.size(); i++) {
+                Shift sh = roster.shift(i);
+                int r = out.beginRecord();
+                out.ref(roster.staffOf(i));
+                out.svarint(sh.getDate().toEpochDay());
+                out.varint(sh.getStartTime().toSecondOfDay());
+                out.varint(sh.getEndTime().toSecondOfDay());
+                out.varint(sh.getWard());
+                out.endRecord(r);
+            }
+            out.endSection(s);
+        }
+
+        DoseScheduler doses = home.getDoseScheduler();
+        s = out.beginSection(RESIDENTS, home.getResidents().size());
+        for (Resident res : home.getResidents().values()) writeResident(out, res, doses);
+        out.endSection(s);
+
+        AuditLog audit = home.getAudit();
+        synchronized (audit) {
+            s = out.beginSection(AUDIT, audit.size());
+            long prev = 0;
+            for (int i = 0; i < audit.size(); i++) {
+                AuditEntry e = audit.entry(i);
+                int r = out.beginRecord();
+                out.svarint(e.at() - prev);
+                out.ref(e.actor());
+                out.ref(e.action());
+                out.ref(e.subject());
+                out.str(e.message());
+                out.endRecord(r);
+                prev = e.at();
+            }
+            out.endSection(s);
+        }
+
+        out.u8(END);
+        CRC32C crc = new CRC32C();
+        crc.update(out.buf, 0, out.size);
+        out.i32((int) crc.getValue());
+        home.lastImageSize = out.size;
+        return out;
+    }
+
+    private static void writeStaff(Out out, Staff st) {
+        int r = out.beginRecord();
+        out.u8(st instanceof Manager ? 'M' : st instanceof Doctor ? 'D' : st instanceof Nurse ? 'N' : '?');
+        out.str(st.getId());
+        out.str(st.getName());
+        out.varint(st.getGender());
+        out.str(st.getUsername());
+        out.str(st.getPasswordHash());
+        out.str(st.getRole());
+        out.str(st instanceof Doctor d ? d.getSpecialization() : null);
+        String[] assigned = st instanceof Nurse n ? n.getAssignedResidents().toArray(new String[0]) : new String[0];
+        out.varint(assigned.length);
+        for (String id : assigned) out.ref(id);
+        List<Shift> weekly = new ArrayList<>();              // dated shifts are in the ROSTER section
+        for (Shift sh : st.getShifts()) if (sh.getDate() == null) weekly.add(sh);
+        out.varint(weekly.size());
+        for (Shift sh : weekly) {
+            out.u8(sh.getDay().getValue());
+            out.varint(sh.getStartTime().toSecondOfDay());
+            out.varint(sh.getEndTime().toSecondOfDay());
+        }
+        out.endRecord(r);
+    }
+
+    private static void writeResident(Out out, Resident res, DoseScheduler doses) {
+        List<DoseScheduler.DueDose> due = doses.pending(res.getId());
+
+        int r = out.beginRecord();
+        out.str(res.getId());
+        out.str(res.getName());
+        out.varint(res.getGender());
+        out.svarint(res.getAge());
+        Bed bed = res.getBed();
+        out.varint(bed == null ? 0 : bed.getPackedId());
+
+        List<Prescription> ps = res.getPrescriptions();
+        out.varint(ps.size());
+        for (Prescription p : ps) {
+            out.ref(p.getMedicine());
+            out.ref(p.getDosage());
+            out.varint(p.getTime().toSecondOfDay());
+            out.ref(p.getDoctorId());
+            LocalDateTime next = null;
+            for (DoseScheduler.DueDose d : due) if (d.getPrescription() == p) next = d.getDue();
+            out.u8(next != null ? 1 : 0);
+            if (next != null) out.svarint(next.toEpochSecond(ZoneOffset.UTC));
+        }
+
+        AdministrationHistory history = res.getAdministrationHistory();
+        synchronized (history) {
+            out.varint(history.size());
+            long[] prev = {0};
+            history.forEach(a -> {
+                long sec = a.getAdministeredAt().toEpochSecond(ZoneOffset.UTC);
+                out.ref(a.getMedicine());
+                out.ref(a.getDosage());
+                out.svarint(sec - prev[0]);
+                out.varint(a.getAdministeredAt().getNano());
+                out.ref(a.getNurseId());
+                prev[0] = sec;
+            });
+        }
+        out.endRecord(r);
+    }
+
+    // -------------------------------------------------------------------
+    // READ
+    // -------------------------------------------------------------------
+    static CareHome read(Path file) throws IOException {
+        byte[] data;
+        int length;
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = ch.size();
+            if (size > Integer.MAX_VALUE - 16) throw new IOException("File too large: " + file);
+            ByteBuffer b = ByteBuffer.allocate((int) size);
+            while (b.hasRemaining() && ch.read(b) >= 0) { }
+            data = b.array();
+            length = b.position();
+        }
+        return read(data, 0, length, file.toString());
+    }
+
+    /** Decode the image in {@code data[from, from + length)}; {@code file} names it in errors. */
+    static CareHome read(byte[] data, int from, int length, String file) throws IOException {
+        if (length < HEADER + 5 || ByteBuffer.wrap(data).getLong(from) != MAGIC)
+            throw new IOException("Not a care home file: " + file);
+        int limit = from + length - 4;
+        CRC32C crc = new CRC32C();
+        crc.update(data, from, length - 4);
+        if ((int) crc.getValue() != ByteBuffer.wrap(data).getInt(limit))
+            throw new IOException("Checksum mismatch, file is damaged: " + file);
+        In in = new In(data, from + 8, limit);
+        int version = in.u16(), minReader = in.u16();
+        if (minReader > FORMAT_VERSION)
+            throw new IOException(file + " needs format version " + minReader + " (this build reads up to "
+                                  + FORMAT_VERSION + ", file written by version " + version + ")");
+        try {
+            return decode(in);
+        } catch (RuntimeException e) {      // bad index, impossible date, ... under a valid checksum
+            throw new IOException("Corrupt care home file " + file + ": " + e, e);
+        }
+    }
+
+    private static CareHome decode(In in) throws IOException {
+        CareHome home = null;
+        Map<String, Staff> staff = new java.util.LinkedHashMap<>();   // tracked once all their shifts are in
+        List<String> rosterStaff = new ArrayList<>();
+        List<Shift> rosterShifts = new ArrayList<>();
+        while (true) {
+            int tag = in.u8();
+            if (tag == END) break;
+            int length = in.i32();
+            int end = in.pos + length;
+            if (length < 0 || end > in.limit) throw new IOException("Section " + tag + " overruns the file");
+            if (tag != TOPOLOGY && home == null) home = new CareHome();
+            in.dictionary.clear();
+            int count = tag >= TOPOLOGY && tag <= ROSTER ? (int) in.varint() : 0;
+            switch (tag) {
+                case TOPOLOGY -> {
+                    int[][] wards = new int[count][];
+                    for (int w = 0; w < count; w++) {
+                        int r = in.record();
+                        wards[w] = new int[(int) in.varint()];
+                        for (int room = 0; room < wards[w].length; room++) wards[w][room] = (int) in.varint();
+                        in.leave(r);
+                    }
+                    home = new CareHome(new Topology(wards));
+                }
+                case RULES -> readRules(in, home, count);
+                case STAFF -> {
+                    for (int i = 0; i < count; i++) {
+                        Staff st = readStaff(in);
+                        staff.put(st.getUsername(), st);
+                    }
+                }
+                case ROSTER -> {
+                    for (int i = 0; i < count; i++) {
+                        int r = in.record();
+                        String user = in.ref();
+                        LocalDate date = LocalDate.ofEpochDay(in.svarint());
+                        LocalTime start = LocalTime.ofSecondOfDay(in.varint());
+                        LocalTime finish = LocalTime.ofSecondOfDay(in.varint());
+                        Shift sh = new Shift(date, start, finish, (int) in.varint());
+                        in.leave(r);
+                        Staff st = staff.get(user);
+                        if (st == null) throw new IOException("Rostered shift of unknown staff " + user);
+                        st.addShift(sh);
+                        rosterStaff.add(user);
+                        rosterShifts.add(sh);
+                    }
+                }
+                case RESIDENTS -> {
+                    home.reserveResidents(count);
+                    for (int i = 0; i < count; i++) readResident(in, home);
+                }
+                case AUDIT -> {
+                    long at = 0;
+                    for (int i = 0; i < count; i++) {
+                        int r = in.record();
+                        at += in.svarint();
+                        String actor = in.ref(), action = in.ref(), subject = in.ref();
+                        home.restoreAuditEntry(new AuditEntry(at, actor, action, subject, in.str()));
+                        in.leave(r);
+                    }
+                }
+                default -> { }                                  // written by a newer version: skip
+            }
+            in.pos = end;
+        }
+        if (home == null) home = new CareHome();
+        home.restoreStaff(staff.values());
+        for (int i = 0; i < rosterShifts.size(); i++) home.restoreRosterShift(rosterStaff.get(i), rosterShifts.get(i));
+        return home;
+    }
+
+    private static void readRules(In in, CareHome home, int count) {
+        ComplianceEngine compliance = home.getCompliance();
+        for (ComplianceRule rule : compliance.getRules()) compliance.removeRule(rule.name());
+        for (int i = 0; i < count; i++) {
+            int r = in.record();
+            String name = in.str();
+            int param = (int) in.varint();
+            in.leave(r);
+            ComplianceRule rule = switch (name) {
+                case "max-daily-hours" -> ComplianceRules.maxDailyHours(param);
+                case "minimum-rest" -> ComplianceRules.minimumRest(param);
+                case "no-overlap" -> ComplianceRules.noOverlappingShifts();
+                case "doctor-coverage" -> ComplianceRules.doctorCoverage();
+                default -> null;                                // a rule this version does not have
+            };
+            if (rule != null) compliance.addRule(rule);
+        }
+    }
+
+    private static Staff readStaff(In in) throws IOException {
+        int r = in.record();
+        int kind = in.u8();
+        String id = in.str(), name = in.str();
+        char gender = (char) in.varint();
+        String user = in.str(), hash = in.str(), role = in.str(), specialization = in.str();
+        Staff st = switch (kind) {
+            case 'M' -> new Manager(id, name, gender, user, hash);
+            case 'D' -> new Doctor(id, name, gender, user, hash, specialization);
+            case 'N' -> new Nurse(id, name, gender, user, hash);
+            default -> throw new IOException("Unknown kind of staff for " + user);
+        };
+        if (role != null) st.setRole(role);
+        int assigned = (int) in.varint();
+        for (int i = 0; i < assigned; i++) {
+            String residentId = in.ref();
+            if (st instanceof Nurse n) n.addResident(residentId);
+        }
+        int shifts = (int) in.varint();
+        for (int i = 0; i < shifts; i++) {
+            DayOfWeek day = DayOfWeek.of(in.u8());
+            LocalTime start = LocalTime.ofSecondOfDay(in.varint());
+            st.addShift(new Shift(day, start, LocalTime.ofSecondOfDay(in.varint())));
+        }
+        in.leave(r);
+        return st;
+    }
+
+    private static void readResident(In in, CareHome home) {
+        int r = in.record();
+        Resident res = new Resident(in.str(), in.str(), (char) in.varint(), (int) in.svarint());
+        int packed = (int) in.varint();
+        home.restoreResident(res, packed == 0 ? null : home.getBedRegistry().get(packed));
+
+        int prescriptions = (int) in.varint();
+        for (int i = 0; i < prescriptions; i++) {
+            String med = in.ref(), dose = in.ref();
+            LocalTime time = LocalTime.ofSecondOfDay(in.varint());
+            Prescription p = new Prescription(med, dose, time, in.ref());
+            LocalDateTime due = in.u8() == 0 ? null : LocalDateTime.ofEpochSecond(in.svarint(), 0, ZoneOffset.UTC);
+            home.restorePrescription(res, p, due);
+        }
+
+        int doses = (int) in.varint();
+        long sec = 0;
+        for (int i = 0; i < doses; i++) {
+            String med = in.ref(), dose = in.ref();
+            sec += in.svarint();
+            LocalDateTime at = LocalDateTime.ofEpochSecond(sec, (int) in.varint(), ZoneOffset.UTC);
+            res.addAdministration(new AdministrationRecord(med, dose, at, in.ref()));
+        }
+        in.leave(r);
+    }
+
+    // -------------------------------------------------------------------
+    // BYTES
+    // -------------------------------------------------------------------
+    /** Growable big-endian output with varints, back-patched lengths and a per-section string dictionary. */
+    static final class Out {
+        byte[] buf;
+        int size;
+        private final Map<String, Integer> dictionary = new HashMap<>();
+        private final List<String> firstUses = new ArrayList<>();     // of the open record
+
+        Out(int capacity) {
+            buf = new byte[capacity];
+        }
+
+        private void ensure(int n) {
+            if (size + n > buf.length) buf = Arrays.copyOf(buf, Math.max(buf.length * 2, size + n));
+        }
+
+        void u8(int v) {
+            ensure(1);
+            buf[size++] = (byte) v;
+        }
+
+        void u16(int v) {
+            ensure(2);
+            buf[size++] = (byte) (v >>> 8);
+            buf[size++] = (byte) v;
+        }
+
+        void i32(int v) {
+            ensure(4);
+            putInt(size, v);
+            size += 4;
+        }
+
+        void i64(long v) {
+            i32((int) (v >>> 32));
+            i32((int) v);
+        }
+
+        private void putInt(int at, int v) {
+            buf[at] = (byte) (v >>> 24);
+            buf[at + 1] = (byte) (v >>> 16);
+            buf[at + 2] = (byte) (v >>> 8);
+            buf[at + 3] = (byte) v;
+        }
+
+        void varint(long v) {
+            ensure(10);
+            while ((v & ~0x7FL) != 0) {
+                buf[size++] = (byte) (v & 0x7F | 0x80);
+                v >>>= 7;
+            }
+            buf[size++] = (byte) v;
+        }
+
+        void svarint(long v) {
+            varint(v << 1 ^ v >> 63);
+        }
+
+        /** Length + 1 (0 = null), then UTF-8 (getBytes copies ASCII in bulk, well ahead of a char loop). */
+        void str(String s) {
+            if (s == null) { varint(0); return; }
+            byte[] utf8 = s.getBytes(StandardCharsets.UTF_8);
+            varint(utf8.length + 1);
+            ensure(utf8.length);
+            System.arraycopy(utf8, 0, buf, size, utf8.length);
+            size += utf8.length;
+        }
+
+        /** 0 = null, k = k-1'th string of this section (first uses go ahead of the record, see endRecord). */
+        void ref(String s) {
+            if (s == null) { varint(0); return; }
+            Integer i = dictionary.get(s);
+            if (i == null) {
+                i = dictionary.size();
+                dictionary.put(s, i);
+                firstUses.add(s);
+            }
+            varint(i + 1);
+        }
+
+        int beginSection(int tag, int count) {
+            u8(tag);
+            i32(0);
+            dictionary.clear();
+            int start = size;
+            varint(count);
+            return start;
+        }
+
+        void endSection(int start) {
+            putInt(start - 4, size - start);
+        }
+
+        // two bytes reserved (no first uses, one-byte length); otherwise the fields are moved along
+        int beginRecord() {
+            firstUses.clear();
+            u8(0);
+            u8(0);
+            return size;
+        }
+
+        void endRecord(int start) {
+            int len = size - start;
+            if (firstUses.isEmpty() && len < 0x80) { buf[start - 1] = (byte) len; return; }
+            byte[] fields = Arrays.copyOfRange(buf, start, size);
+            size = start - 2;
+            varint(firstUses.size());
+            for (String s : firstUses) str(s);
+            varint(len);
+            ensure(len);
+            System.arraycopy(fields, 0, buf, size, len);
+            size += len;
+            firstUses.clear();
+        }
+    }
+
+    /**
+     * Reader over a checked image; mirrors {@link Out}. Inside a record, a
+     * field past its end reads as 0 / null (written by an older version).
+     */
+    private static final class In {
+        final byte[] buf;
+        final int limit;
+        int pos;
+        int end;                                  // of the current record, else limit
+        final List<String> dictionary = new ArrayList<>();
+
+        In(byte[] buf, int pos, int limit) {
+            this.buf = buf;
+            this.pos = pos;
+            this.limit = limit;
+            this.end = limit;
+        }
+
+        private void need(int n) {
+            if (n < 0 || pos + n > end) throw new IndexOutOfBoundsException("Truncated at byte " + pos);
+        }
+
+        int u8() {
+            if (pos == end) return 0;
+            need(1);
+            return buf[pos++] & 0xFF;
+        }
+
+        int u16() {
+            need(2);
+            int v = (buf[pos] & 0xFF) << 8 | buf[pos + 1] & 0xFF;
+            pos += 2;
+            return v;
+        }
+
+        int i32() {
+            need(4);
+            int v = (buf[pos] & 0xFF) << 24 | (buf[pos + 1] & 0xFF) << 16 | (buf[pos + 2] & 0xFF) << 8 | buf[pos + 3] & 0xFF;
+            pos += 4;
+            return v;
+        }
+
+        long varint() {
+            if (pos == end) return 0;
+            long v = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                need(1);
+                long b = buf[pos++] & 0xFF;
+                v |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) return v;
+            }
+            throw new IndexOutOfBoundsException("Varint too long at byte " + pos);
+        }
+
+        long svarint() {
+            long v = varint();
+            return v >>> 1 ^ -(v & 1);
+        }
+
+        String str() {
+            int n = (int) varint() - 1;
+            if (n < 0) return null;
+            need(n);
+            String s = new String(buf, pos, n, StandardCharsets.UTF_8);
+            pos += n;
+            return s;
+        }
+
+        String ref() {
+            int k = (int) varint();
+            return k == 0 ? null : dictionary.get(k - 1);
+        }
+
+        /** Enter a record; returns where it ends (pass to {@link #leave} to skip unread fields). */
+        int record() {
+            for (int n = (int) varint(); n > 0; n--) dictionary.add(str());
+            int len = (int) varint();
+            need(len);
+            end = pos + len;
+            return end;
+        }
+
+        void leave(int recordEnd) {
+            pos = recordEnd;
+            end = limit;
+        }
+    }
+}
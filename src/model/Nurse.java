@@ -1,7 +1,7 @@
 package model;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Represents a Nurse in the Resident HealthCare System.
@@ -9,23 +9,24 @@ import java.util.List;
  */
 public class Nurse extends Staff {
 
-    private List<String> assignedResidents; // list of resident IDs for this nurse
+    private Set<String> assignedResidents; // IDs of residents in this nurse's care (see AccessPolicy)
 
     public Nurse(String id, String name, char gender,
                  String username, String passwordHash) {
         super(id, name, gender, username, passwordHash, "NURSE");
-        this.assignedResidents = new ArrayList<>();
+        this.assignedResidents = ConcurrentHashMap.newKeySet();
     }
 
-    public List<String> getAssignedResidents() {
+    public Set<String> getAssignedResidents() {
         return assignedResidents;
     }
 
-    public void addResident(String residentId) {
+    /** Use {@link CareHome#assignResident} so the change is journaled. */
+    void addResident(String residentId) {
         assignedResidents.add(residentId);
     }
 
-    public void removeResident(String residentId) {
+    void removeResident(String residentId) {
         assignedResidents.remove(residentId);
     }
 
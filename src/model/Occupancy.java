@@ -0,0 +1,93 @@
+package model;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Live occupancy counters for a {@link BedRegistry}: facility, ward and room
+ * totals, each split by gender. Updated by the registry whenever a bed is
+ * claimed, released or restored; every query is a constant-time read.
+ *
+ * Counters are individually atomic; a reader racing with a move may see the
+ * new bed counted before the old one is released.
+ */
+public final class Occupancy {
+    private final int[] wardCapacity;    // [ward]
+    private final int[] roomCapacity;    // [room index]
+    private final int bedTotal;
+
+    private final AtomicInteger total = new AtomicInteger();
+    private final AtomicInteger male = new AtomicInteger();
+    private final AtomicIntegerArray wardTotal, wardMale;   // [ward], index 0 unused
+    private final AtomicIntegerArray roomTotal, roomMale;   // [room index]
+
+    Occupancy(BedRegistry registry) {
+        int wards = registry.wardCount();
+        wardCapacity = new int[wards + 1];
+        roomCapacity = new int[registry.roomTotal()];
+        for (int w = 1; w <= wards; w++) {
+            wardCapacity[w] = registry.inWard(w).size();
+            for (int r = 1; r <= registry.roomCount(w); r++)
+                roomCapacity[registry.roomIndex(w, r)] = registry.inRoom(w, r).size();
+        }
+        bedTotal = registry.size();
+        wardTotal = new AtomicIntegerArray(wards + 1);
+        wardMale = new AtomicIntegerArray(wards + 1);
+        roomTotal = new AtomicIntegerArray(roomCapacity.length);
+        roomMale = new AtomicIntegerArray(roomCapacity.length);
+    }
+
+    void occupied(Bed bed, char gender) {
+        change(bed, gender, 1);
+    }
+
+    void vacated(Bed bed, char gender) {
+        change(bed, gender, -1);
+    }
+
+    private void change(Bed bed, char gender, int delta) {
+        total.addAndGet(delta);
+        wardTotal.addAndGet(bed.getWard(), delta);
+        roomTotal.addAndGet(bed.getRoomIndex(), delta);
+        if (gender == 'M') {
+            male.addAndGet(delta);
+            wardMale.addAndGet(bed.getWard(), delta);
+            roomMale.addAndGet(bed.getRoomIndex(), delta);
+        }
+    }
+
+    // ---- facility ----
+    public int beds() { return bedTotal; }
+    public int occupied() { return total.get(); }
+    public int vacant() { return bedTotal - total.get(); }
+
+    /** Occupied beds held by residents of the given gender ('M' or 'F'). */
+    public int occupied(char gender) {
+        return gender == 'M' ? male.get() : total.get() - male.get();
+    }
+
+    // ---- ward (1-based) ----
+    public int bedsInWard(int ward) { return wardCapacity[ward]; }
+    public int occupiedInWard(int ward) { return wardTotal.get(ward); }
+    public int vacantInWard(int ward) { return wardCapacity[ward] - wardTotal.get(ward); }
+
+    public int occupiedInWard(int ward, char gender) {
+        int m = wardMale.get(ward);
+        return gender == 'M' ? m : wardTotal.get(ward) - m;
+    }
+
+    // ---- room (facility-wide room index, see BedRegistry#roomIndex) ----
+    public int bedsInRoom(int roomIndex) { return roomCapacity[roomIndex]; }
+    public int occupiedInRoom(int roomIndex) { return roomTotal.get(roomIndex); }
+    public int vacantInRoom(int roomIndex) { return roomCapacity[roomIndex] - roomTotal.get(roomIndex); }
+
+    public int occupiedInRoom(int roomIndex, char gender) {
+        int m = roomMale.get(roomIndex);
+        return gender == 'M' ? m : roomTotal.get(roomIndex) - m;
+    }
+
+    /** Occupied fraction of a ward, 0..1. */
+    public double wardRate(int ward) {
+        return wardCapacity[ward] == 0 ? 0 : (double) wardTotal.get(ward) / wardCapacity[ward];
+    }
+}
@@ -0,0 +1,28 @@
+package model;
+
+/** Actions guarded by {@link AccessPolicy}; each is one bit of a permission mask. */
+public enum Permission {
+    ADD_STAFF("Only manager can add staff!"),
+    ADMIT("Only manager can add residents!"),
+    DISCHARGE("Only manager can discharge!"),
+    CHANGE_PASSWORD("Only manager can change passwords!"),
+    EDIT_SHIFTS("Only manager can edit shifts!"),
+    MOVE("Only nurse can move residents!"),
+    ADMINISTER("Only a nurse can administer medication."),
+    PRESCRIBE("Only doctors can add prescriptions!"),
+    ASSIGN_RESIDENTS("Only manager can assign residents to nurses!");
+
+    final int bit = 1 << ordinal();
+    final String denial;
+
+    Permission(String denial) {
+        this.denial = denial;
+    }
+
+    /** Mask with the given permissions set. */
+    public static int mask(Permission... ps) {
+        int m = 0;
+        for (Permission p : ps) m |= p.bit;
+        return m;
+    }
+}
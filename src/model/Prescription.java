@@ -1,25 +1,43 @@
 package model;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.time.LocalTime;
 
 public class Prescription implements Serializable {
-    private final String medicine;
-    private final String dosage;
+    private transient int medicine;   // Formulary.MEDICINES code
+    private transient int dosage;     // Formulary.DOSAGES code
     private final LocalTime time;
     private final String doctorId;
 
     public Prescription(String medicine, String dosage, LocalTime time, String doctorId) {
-        this.medicine = medicine;
-        this.dosage = dosage;
+        this.medicine = Formulary.MEDICINES.code(medicine);
+        this.dosage = Formulary.DOSAGES.code(dosage);
         this.time = time;
         this.doctorId = doctorId;
     }
 
-    public String getMedicine() { return medicine; }
-    public String getDosage() { return dosage; }
+    public String getMedicine() { return Formulary.MEDICINES.name(medicine); }
+    public String getDosage() { return Formulary.DOSAGES.name(dosage); }
+    public int getMedicineCode() { return medicine; }
+    public int getDosageCode() { return dosage; }
     public LocalTime getTime() { return time; }
     public String getDoctorId() { return doctorId; }
 
-    @Override public String toString() { return medicine + " " + dosage + " @ " + time; }
+    // codes are per JVM: write the shared dictionary terms (each once per stream)
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        out.writeObject(Formulary.MEDICINES.term(medicine));
+        out.writeObject(Formulary.DOSAGES.term(dosage));
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        medicine = ((Formulary.Term) in.readObject()).code();
+        dosage = ((Formulary.Term) in.readObject()).code();
+    }
+
+    @Override public String toString() { return getMedicine() + " " + getDosage() + " @ " + time; }
 }
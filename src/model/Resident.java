@@ -1,8 +1,8 @@
 package model;
 
 import java.io.Serializable;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Represents a resident (patient) in the Care Home.
@@ -11,9 +11,9 @@ import java.util.List;
 public class Resident extends Person implements Serializable {
 
     private int age;
-    private Bed bed;                               // null if not assigned yet
-    private final List<Prescription> prescriptions = new ArrayList<>();
-    private final List<AdministrationRecord> administrations = new ArrayList<>(); // ✅ new
+    private volatile Bed bed;                      // null if not assigned yet
+    private final List<Prescription> prescriptions = new CopyOnWriteArrayList<>(); // few, read often
+    private final AdministrationHistory administrations = new AdministrationHistory(); // time-indexed
 
     public Resident(String id, String name, char gender, int age) {
         super(id, name, gender);
@@ -29,8 +29,11 @@ public class Resident extends Person implements Serializable {
 
     public List<Prescription> getPrescriptions() { return prescriptions; }
 
-    /** All administered medication records for this resident. */
-    public List<AdministrationRecord> getAdministrations() { return administrations; }
+    /** All administered medication records for this resident, oldest first (a copy). */
+    public List<AdministrationRecord> getAdministrations() { return administrations.all(); }
+
+    /** Time-indexed view for range and latest-dose queries. */
+    public AdministrationHistory getAdministrationHistory() { return administrations; }
 
     // --- domain helpers ---
     public void addPrescription(Prescription p) {
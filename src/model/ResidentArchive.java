@@ -0,0 +1,11 @@
+package model;
+
+/**
+ * Keeps the records of discharged residents. {@link CareHome} hands each
+ * record over while discharging, under the resident's lock, so
+ * implementations must queue the write rather than block on it.
+ */
+public interface ResidentArchive {
+    /** Archive one resident's record (CSV text); returns where it is kept, for the audit line. */
+    String archive(String residentId, String name, long dischargedAt, String record);
+}
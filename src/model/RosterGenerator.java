@@ -0,0 +1,582 @@
+package model;
+
+import exceptions.ShiftViolationException;
+import exceptions.UnauthorizedActionException;
+import util.Metrics;
+import util.OpStats;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Builds a dated nurse roster that meets ward coverage targets.
+ *
+ * Configure the period, the shift slots (e.g. 07–15, 15–23, 23–07), how
+ * many nurses each ward needs per slot and who is unavailable, then call
+ * {@link #generate}. The result can be reviewed and then applied with
+ * {@link Result#assignTo}, which assigns every shift or none.
+ *
+ * Hard constraints: at most one shift per nurse per day, the home's
+ * {@link ComplianceRules#maxDailyHours max-daily-hours} and
+ * {@link ComplianceRules#minimumRest minimum-rest} rules (plus
+ * {@link #minRestHours}), a weekly hour cap, availability, and the nurses'
+ * existing dated shifts. Each search first builds a roster by constraint
+ * propagation (every nurse-day keeps a bitmask of slots it can still take;
+ * the slot with the least spare supply is filled next) and then improves
+ * it by local search: ejection chains to fill gaps, then moves that even
+ * out hours. One search runs per core with its own random seed until the
+ * time budget runs out; the best roster (fewest gaps, then fairest) wins.
+ */
+public final class RosterGenerator {
+    private static final OpStats GENERATE = Metrics.op("RosterGenerator.generate");
+    private static final int MINUTES_PER_DAY = 24 * 60;
+
+    /** A shift pattern; an end before the start runs past midnight. */
+    public record Slot(LocalTime start, LocalTime end) {
+        public Slot {
+            if (start.equals(end)) throw new IllegalArgumentException("Slot has no length: " + start);
+        }
+
+        public int minutes() {
+            int m = (end.toSecondOfDay() - start.toSecondOfDay()) / 60;
+            return m < 0 ? m + MINUTES_PER_DAY : m;
+        }
+
+        @Override public String toString() { return start + "-" + end; }
+    }
+
+    /** One shift to assign. */
+    public record Assignment(String username, Shift shift) {}
+
+    /** Coverage the roster could not provide. */
+    public record Gap(LocalDate date, int ward, Slot slot, int missing) {}
+
+    /**
+     * Outcome of {@link #generate}: the shifts to assign, what stays
+     * uncovered, and any breach of the home's compliance rules found when
+     * re-checking the nurses' dated shifts with the new ones added.
+     */
+    public record Result(List<Assignment> assignments, List<Gap> gaps, List<Violation> violations,
+                         long elapsedMillis, int searches) {
+
+        public boolean complete() { return gaps.isEmpty(); }
+
+        /**
+         * Assign every shift, all or nothing; returns how many. Refused if the
+         * roster breaks a compliance rule, or if a shift no longer fits (e.g.
+         * the nurse was given an overlapping shift since it was generated).
+         */
+        public int assignTo(CareHome home, Manager manager)
+                throws UnauthorizedActionException, ShiftViolationException {
+            if (!violations.isEmpty())
+                throw new ShiftViolationException(violations.stream().map(Violation::message).toList());
+            return home.addShifts(manager, assignments);
+        }
+    }
+
+    private final LocalDate first;
+    private final int days;
+    private final List<Slot> slots = new ArrayList<>();
+    private final Map<String, Integer> needs = new LinkedHashMap<>();   // "ward:slot" or "ward:slot:DAY"
+    private final Map<String, Set<LocalDate>> off = new HashMap<>();
+    private final Map<String, Long> excludedSlots = new HashMap<>();
+    private List<String> nurses;                                        // null = every nurse of the home
+    private int maxWeeklyHours = 48;
+    private int minRestHours = 11;
+    private Duration budget = Duration.ofSeconds(5);
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private long seed = 1;
+
+    /** Roster {@code days} days starting on {@code first}. */
+    public RosterGenerator(LocalDate first, int days) {
+        if (days < 1) throw new IllegalArgumentException("Days must be 1 or more");
+        this.first = first;
+        this.days = days;
+    }
+
+    /** Add a shift slot; returns its index for {@link #need}. */
+    public int slot(LocalTime start, LocalTime end) {
+        if (slots.size() == Long.SIZE) throw new IllegalArgumentException("At most 64 slots");
+        slots.add(new Slot(start, end));
+        return slots.size() - 1;
+    }
+
+    /** {@code ward} needs {@code count} nurses on slot {@code slot} every day. */
+    public RosterGenerator need(int ward, int slot, int count) {
+        checkNeed(ward, slot, count);
+        needs.put(ward + ":" + slot, count);
+        return this;
+    }
+
+    /** Override {@link #need(int, int, int)} for one day of the week. */
+    public RosterGenerator need(DayOfWeek day, int ward, int slot, int count) {
+        checkNeed(ward, slot, count);
+        needs.put(ward + ":" + slot + ":" + day, count);
+        return this;
+    }
+
+    private void checkNeed(int ward, int slot, int count) {
+        if (ward < 1 || ward > Byte.MAX_VALUE) throw new IllegalArgumentException("Ward out of range: " + ward);
+        if (slot < 0 || slot >= slots.size()) throw new IllegalArgumentException("No slot " + slot);
+        if (count < 0) throw new IllegalArgumentException("Count must be >= 0");
+    }
+
+    /** Only these nurses (usernames) are rostered; by default every nurse of the home. */
+    public RosterGenerator nurses(Collection<String> usernames) {
+        this.nurses = new ArrayList<>(usernames);
+        return this;
+    }
+
+    public RosterGenerator unavailable(String username, LocalDate date) {
+        off.computeIfAbsent(username, u -> new HashSet<>()).add(date);
+        return this;
+    }
+
+    /** Never give {@code username} this slot (e.g. no nights). */
+    public RosterGenerator excludeSlot(String username, int slot) {
+        if (slot < 0 || slot >= slots.size()) throw new IllegalArgumentException("No slot " + slot);
+        excludedSlots.merge(username, 1L << slot, (a, b) -> a | b);
+        return this;
+    }
+
+    /** Cap per nurse per 7-day block from the first day (default 48), existing shifts included. */
+    public RosterGenerator maxWeeklyHours(int hours) {
+        this.maxWeeklyHours = hours;
+        return this;
+    }
+
+    /** Rest between shifts (default 11); the home's minimum-rest rule wins if it is longer. */
+    public RosterGenerator minRestHours(int hours) {
+        this.minRestHours = hours;
+        return this;
+    }
+
+    public RosterGenerator budget(Duration budget) {
+        this.budget = budget;
+        return this;
+    }
+
+    public RosterGenerator threads(int threads) {
+        this.threads = Math.max(1, threads);
+        return this;
+    }
+
+    public RosterGenerator seed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    // -------------------------------------------------------------------
+    // GENERATE
+    // -------------------------------------------------------------------
+    /** Search for the best roster within the time budget. The home is only read. */
+    public Result generate(CareHome home) throws InterruptedException {
+        long t0 = System.nanoTime();
+        try {
+            if (slots.isEmpty()) throw new IllegalStateException("No slots defined");
+            Problem p = new Problem(home);
+            if (p.n == 0)                                   // nobody to roster: every need is a gap
+                return p.result(home, new Search(p, new Random(seed), false), (System.nanoTime() - t0) / 1_000_000, 0);
+            long deadline = t0 + budget.toNanos();
+            ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+                Thread t = new Thread(r, "roster-search");
+                t.setDaemon(true);
+                return t;
+            });
+            try {
+                List<Callable<Search>> searches = new ArrayList<>();
+                for (int i = 0; i < threads; i++) {
+                    long s = seed + i;
+                    boolean jitter = i > 0;
+                    searches.add(() -> new Search(p, new Random(s), jitter).run(deadline));
+                }
+                Search best = null;
+                for (Future<Search> f : pool.invokeAll(searches)) {
+                    Search s = f.get();
+                    if (best == null || s.betterThan(best)) best = s;
+                }
+                return p.result(home, best, (System.nanoTime() - t0) / 1_000_000, threads);
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof RuntimeException re ? re : new IllegalStateException(e.getCause());
+            } finally {
+                pool.shutdownNow();
+            }
+        } catch (Exception e) {
+            GENERATE.failed(e);
+            throw e;
+        } finally {
+            GENERATE.stop(t0);
+        }
+    }
+
+    /** Everything a search needs, flattened into arrays; shared read-only by all searches. */
+    private final class Problem {
+        final String[] names;
+        final int n, d, s, w, cells, weeks;   // cells per day = slots × wards; cell = slot * w + ward - 1
+        final int[] start, len;               // [slot] minute of day, minutes
+        final int[] need;                     // [day * cells + cell]
+        final long[] allowed;                 // [nurse * d + day] slot bits
+        final long[] baseWeek;                // [nurse * weeks + week] minutes already rostered
+        final long maxWeek;
+        final int rest, reach, minLen;        // reach: days either side a shift can clash with
+
+        Problem(CareHome home) {
+            List<String> pool = nurses;
+            if (pool == null) {
+                pool = new ArrayList<>();
+                for (Staff st : home.getStaffList().values()) if (st instanceof Nurse) pool.add(st.getUsername());
+                Collections.sort(pool);
+            }
+            names = pool.toArray(new String[0]);
+            n = names.length;
+            d = days;
+            s = slots.size();
+            int wards = 1;
+            for (String key : needs.keySet()) wards = Math.max(wards, Integer.parseInt(key.substring(0, key.indexOf(':'))));
+            w = wards;
+            cells = s * w;
+            weeks = (d + 6) / 7;
+
+            int maxDaily = Integer.MAX_VALUE, restRule = minRestHours * 60;
+            for (ComplianceRule rule : home.getCompliance().getRules()) {
+                if (rule instanceof ComplianceRules.MaxDailyHours m) maxDaily = Math.min(maxDaily, m.hours() * 60);
+                if (rule instanceof ComplianceRules.MinimumRest m) restRule = Math.max(restRule, m.hours() * 60);
+            }
+            rest = restRule;
+            maxWeek = maxWeeklyHours * 60L;
+
+            start = new int[s];
+            len = new int[s];
+            int longest = 0, shortest = Integer.MAX_VALUE;
+            for (int i = 0; i < s; i++) {
+                start[i] = slots.get(i).start().getHour() * 60 + slots.get(i).start().getMinute();
+                len[i] = slots.get(i).minutes();
+                longest = Math.max(longest, len[i]);
+                shortest = Math.min(shortest, len[i]);
+            }
+            minLen = shortest;
+            reach = (longest + rest) / MINUTES_PER_DAY + 1;
+
+            need = new int[d * cells];
+            for (int day = 0; day < d; day++) {
+                DayOfWeek dow = first.plusDays(day).getDayOfWeek();
+                for (int ward = 1; ward <= w; ward++) {
+                    for (int slot = 0; slot < s; slot++) {
+                        Integer c = needs.get(ward + ":" + slot + ":" + dow);
+                        if (c == null) c = needs.getOrDefault(ward + ":" + slot, 0);
+                        need[day * cells + slot * w + ward - 1] = c;
+                    }
+                }
+            }
+
+            // static domains: availability, excluded slots, daily cap and clashes with existing shifts
+            RosterStore roster = home.getRoster();
+            allowed = new long[n * d];
+            baseWeek = new long[n * weeks];
+            for (int i = 0; i < n; i++) {
+                String u = names[i];
+                Set<LocalDate> away = off.getOrDefault(u, Set.of());
+                long excluded = excludedSlots.getOrDefault(u, 0L);
+                for (int k = 0; k < weeks; k++)
+                    baseWeek[i * weeks + k] = roster.minutes(u, first.plusDays(7L * k), first.plusDays(7L * k + 7));
+                for (int day = 0; day < d; day++) {
+                    LocalDate date = first.plusDays(day);
+                    if (away.contains(date)) continue;
+                    long already = roster.minutes(u, date, date.plusDays(1));
+                    long bits = 0;
+                    for (int slot = 0; slot < s; slot++) {
+                        if ((excluded & 1L << slot) != 0 || already + len[slot] > maxDaily) continue;
+                        var from = date.atTime(slots.get(slot).start()).minusMinutes(rest);
+                        var to = date.atTime(slots.get(slot).start()).plusMinutes(len[slot] + rest);
+                        if (roster.firstWithin(u, from, to) < 0) bits |= 1L << slot;
+                    }
+                    allowed[i * d + day] = bits;
+                }
+            }
+        }
+
+        Result result(CareHome home, Search best, long elapsedMillis, int searches) {
+            List<Assignment> out = new ArrayList<>();
+            Map<String, List<Shift>> added = new LinkedHashMap<>();
+            for (int day = 0; day < d; day++) {
+                LocalDate date = first.plusDays(day);
+                for (int i = 0; i < n; i++) {
+                    int c = best.plan[i * d + day];
+                    if (c < 0) continue;
+                    Slot slot = slots.get(c / w);
+                    Shift shift = new Shift(date, slot.start(), slot.end(), c % w + 1);
+                    out.add(new Assignment(names[i], shift));
+                    added.computeIfAbsent(names[i], u -> new ArrayList<>()).add(shift);
+                }
+            }
+            List<Gap> gaps = new ArrayList<>();
+            for (int day = 0; day < d; day++) {
+                for (int c = 0; c < cells; c++) {
+                    int missing = need[day * cells + c] - best.cover[day * cells + c];
+                    if (missing > 0) gaps.add(new Gap(first.plusDays(day), c % w + 1, slots.get(c / w), missing));
+                }
+            }
+            return new Result(out, gaps, recheck(home, added), elapsedMillis, searches);
+        }
+
+        // the home's own rules over each nurse's dated shifts plus the new ones
+        private List<Violation> recheck(CareHome home, Map<String, List<Shift>> added) {
+            List<Violation> found = new ArrayList<>();
+            List<ComplianceRule> rules = home.getCompliance().getRules();
+            for (Map.Entry<String, List<Shift>> e : added.entrySet()) {
+                Staff real = home.getStaffList().get(e.getKey());
+                if (real == null) continue;
+                Nurse copy = new Nurse(real.getId(), real.getName(), real.getGender(), real.getUsername(), null);
+                DailyHours hours = new DailyHours();
+                for (Shift sh : real.getShifts()) if (sh.getDate() != null) { copy.addShift(sh); hours.add(sh); }
+                for (Shift sh : e.getValue()) { copy.addShift(sh); hours.add(sh); }
+                for (ComplianceRule rule : rules) rule.checkStaff(copy, hours, found);
+            }
+            return found;
+        }
+    }
+
+    /** One search: a plan plus the counters that make its checks O(1). */
+    private static final class Search {
+        final Problem p;
+        final Random rnd;
+        final boolean jitter;
+        final int[] plan;        // [nurse * d + day] -> cell, -1 = off
+        final int[] cover;       // [day * cells + cell]
+        final long[] week;       // [nurse * weeks + week] minutes, existing shifts included
+        final long[] total;      // [nurse] minutes added by this roster
+        long sumSquares;         // fairness: sum of total^2 (in hours)
+        int uncovered;
+
+        Search(Problem p, Random rnd, boolean jitter) {
+            this.p = p;
+            this.rnd = rnd;
+            this.jitter = jitter;
+            plan = new int[p.n * p.d];
+            Arrays.fill(plan, -1);
+            cover = new int[p.d * p.cells];
+            week = p.baseWeek.clone();
+            total = new long[p.n];
+            for (int x : p.need) uncovered += x;
+        }
+
+        boolean betterThan(Search o) {
+            return uncovered != o.uncovered ? uncovered < o.uncovered : sumSquares < o.sumSquares;
+        }
+
+        Search run(long deadline) {
+            construct();
+            improve(deadline);
+            return this;
+        }
+
+        // ---- checks and moves -------------------------------------------------
+
+        boolean feasible(int nurse, int day, int slot) {
+            if (plan[nurse * p.d + day] >= 0 || (p.allowed[nurse * p.d + day] & 1L << slot) == 0) return false;
+            if (week[nurse * p.weeks + day / 7] + p.len[slot] > p.maxWeek) return false;
+            for (int k = Math.max(0, day - p.reach); k <= Math.min(p.d - 1, day + p.reach); k++) {
+                int c = k == day ? -1 : plan[nurse * p.d + k];
+                if (c >= 0 && clash(day, slot, k, c / p.w)) return false;
+            }
+            return true;
+        }
+
+        // two shifts closer than the rest period (or overlapping)
+        boolean clash(int day1, int slot1, int day2, int slot2) {
+            long s1 = (long) day1 * MINUTES_PER_DAY + p.start[slot1], e1 = s1 + p.len[slot1];
+            long s2 = (long) day2 * MINUTES_PER_DAY + p.start[slot2], e2 = s2 + p.len[slot2];
+            return s1 < e2 + p.rest && s2 < e1 + p.rest;
+        }
+
+        void assign(int nurse, int day, int cell) {
+            int slot = cell / p.w, len = p.len[slot];
+            plan[nurse * p.d + day] = cell;
+            if (++cover[day * p.cells + cell] <= p.need[day * p.cells + cell]) uncovered--;
+            week[nurse * p.weeks + day / 7] += len;
+            sumSquares -= square(total[nurse]);
+            total[nurse] += len;
+            sumSquares += square(total[nurse]);
+        }
+
+        void unassign(int nurse, int day) {
+            int cell = plan[nurse * p.d + day], len = p.len[cell / p.w];
+            plan[nurse * p.d + day] = -1;
+            if (cover[day * p.cells + cell]-- <= p.need[day * p.cells + cell]) uncovered++;
+            week[nurse * p.weeks + day / 7] -= len;
+            sumSquares -= square(total[nurse]);
+            total[nurse] -= len;
+            sumSquares += square(total[nurse]);
+        }
+
+        static long square(long minutes) {
+            long h = minutes / 60;
+            return h * h;
+        }
+
+        /** Least-loaded feasible nurse for the slot (ties broken at random when jittering), or -1. */
+        int pick(int day, int slot, int exclude) {
+            int best = -1;
+            long bestLoad = Long.MAX_VALUE;
+            for (int i = 0; i < p.n; i++) {
+                if (i == exclude || !feasible(i, day, slot)) continue;
+                long load = total[i] * 64 + (jitter ? rnd.nextInt(64 * 60) : 0);
+                if (load < bestLoad) { bestLoad = load; best = i; }
+            }
+            return best;
+        }
+
+        // ---- construction: propagate domains, fill the tightest slot first ----
+
+        void construct() {
+            long[] dom = p.allowed.clone();
+            int[] support = new int[p.d * p.s];          // nurses that can still take [day, slot]
+            for (int i = 0; i < p.n; i++)
+                for (int day = 0; day < p.d; day++)
+                    for (long b = dom[i * p.d + day]; b != 0; b &= b - 1)
+                        support[day * p.s + Long.numberOfTrailingZeros(b)]++;
+            boolean[] dead = new boolean[p.d * p.s];
+
+            while (true) {
+                int bestDay = -1, bestSlot = -1;
+                long bestSlack = Long.MAX_VALUE;
+                for (int day = 0; day < p.d; day++) {
+                    for (int slot = 0; slot < p.s; slot++) {
+                        if (dead[day * p.s + slot]) continue;
+                        int missing = missing(day, slot);
+                        if (missing == 0) continue;
+                        long slack = (long) (support[day * p.s + slot] - missing) * 1024 + (jitter ? rnd.nextInt(1024) : 0);
+                        if (slack < bestSlack) { bestSlack = slack; bestDay = day; bestSlot = slot; }
+                    }
+                }
+                if (bestDay < 0) return;
+
+                int nurse = pick(bestDay, bestSlot, -1);
+                if (nurse < 0) { dead[bestDay * p.s + bestSlot] = true; continue; }
+                assign(nurse, bestDay, mostShortWard(bestDay, bestSlot));
+                propagate(dom, support, nurse, bestDay);
+            }
+        }
+
+        int missing(int day, int slot) {
+            int missing = 0;
+            for (int ward = 0; ward < p.w; ward++) {
+                int c = day * p.cells + slot * p.w + ward;
+                missing += Math.max(0, p.need[c] - cover[c]);
+            }
+            return missing;
+        }
+
+        int mostShortWard(int day, int slot) {
+            int best = slot * p.w, gap = Integer.MIN_VALUE;
+            for (int ward = 0; ward < p.w; ward++) {
+                int c = slot * p.w + ward;
+                int g = p.need[day * p.cells + c] - cover[day * p.cells + c];
+                if (g > gap) { gap = g; best = c; }
+            }
+            return best;
+        }
+
+        // drop every slot the nurse can no longer take after being given a shift on `day`
+        void propagate(long[] dom, int[] support, int nurse, int day) {
+            int wk = day / 7;
+            boolean weekFull = week[nurse * p.weeks + wk] + p.minLen > p.maxWeek;
+            for (int k = 0; k < p.d; k++) {
+                boolean near = Math.abs(k - day) <= p.reach;
+                if (!near && !(weekFull && k / 7 == wk)) continue;
+                long bits = dom[nurse * p.d + k], keep = bits;
+                for (long b = bits; b != 0; b &= b - 1) {
+                    int slot = Long.numberOfTrailingZeros(b);
+                    if (!feasible(nurse, k, slot)) keep &= ~(1L << slot);
+                }
+                for (long b = bits & ~keep; b != 0; b &= b - 1)
+                    support[k * p.s + Long.numberOfTrailingZeros(b)]--;
+                dom[nurse * p.d + k] = keep;
+            }
+        }
+
+        // ---- local search --------------------------------------------------------
+
+        void improve(long deadline) {
+            int stale = 0, limit = 50 * p.n * p.d + 10_000;
+            for (long it = 0; stale < limit; it++) {
+                if ((it & 255) == 0 && (System.nanoTime() >= deadline || Thread.currentThread().isInterrupted())) return;
+                boolean improved = uncovered > 0 && rnd.nextInt(4) != 0 ? fillGap() : rebalance();
+                stale = improved ? 0 : stale + 1;
+            }
+        }
+
+        // take a random uncovered cell: give it to a free nurse, or free one up by handing
+        // a blocking shift of theirs to somebody else (ejection chain of length two)
+        boolean fillGap() {
+            int n = p.d * p.cells, at = rnd.nextInt(n), idx = -1;
+            for (int k = 0; k < n; k++) {
+                int c = (at + k) % n;
+                if (cover[c] < p.need[c]) { idx = c; break; }
+            }
+            if (idx < 0) return false;
+            int day = idx / p.cells, cell = idx % p.cells, slot = cell / p.w;
+
+            int nurse = pick(day, slot, -1);
+            if (nurse >= 0) { assign(nurse, day, cell); return true; }
+
+            int from = rnd.nextInt(p.n);
+            for (int k = 0; k < p.n; k++) {
+                int i = (from + k) % p.n;
+                if ((p.allowed[i * p.d + day] & 1L << slot) == 0) continue;
+                int blockDay = blocker(i, day, slot);
+                if (blockDay < 0) continue;
+                int blockCell = plan[i * p.d + blockDay];
+                unassign(i, blockDay);
+                if (feasible(i, day, slot)) {
+                    assign(i, day, cell);
+                    int other = pick(blockDay, blockCell / p.w, i);
+                    if (other >= 0) { assign(other, blockDay, blockCell); return true; }
+                    unassign(i, day);
+                }
+                assign(i, blockDay, blockCell);
+            }
+            return false;
+        }
+
+        // a day whose shift stops the nurse taking `slot` on `day`, chosen at random, or -1
+        int blocker(int nurse, int day, int slot) {
+            int lo = Math.max(0, day - p.reach), hi = Math.min(p.d - 1, day + p.reach);
+            if (week[nurse * p.weeks + day / 7] + p.len[slot] > p.maxWeek) {
+                lo = Math.min(lo, day / 7 * 7);
+                hi = Math.max(hi, Math.min(p.d - 1, day / 7 * 7 + 6));
+            }
+            int found = -1, seen = 0;
+            for (int k = lo; k <= hi; k++) {
+                if (plan[nurse * p.d + k] >= 0 && rnd.nextInt(++seen) == 0) found = k;
+            }
+            return found;
+        }
+
+        // hand a random shift to a nurse with fewer hours, if that evens things out
+        boolean rebalance() {
+            int i = rnd.nextInt(p.n), day = rnd.nextInt(p.d);
+            int cell = plan[i * p.d + day];
+            if (cell < 0) return false;
+            int j = rnd.nextInt(p.n);
+            int len = p.len[cell / p.w];
+            if (j == i || total[j] + len >= total[i]) return false;
+            if (!feasible(j, day, cell / p.w)) return false;
+            long before = sumSquares;
+            unassign(i, day);
+            assign(j, day, cell);
+            if (sumSquares < before) return true;
+            unassign(j, day);
+            assign(i, day, cell);
+            return false;
+        }
+    }
+}
@@ -0,0 +1,313 @@
+package model;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Dated shifts of every staff member, stored as columns of primitives.
+ *
+ * Shift {@code i} is (epoch day, start minute, end minute, staff, ward) at
+ * index {@code i} of the columns; the end minute counts from the start of the
+ * same day, so an overnight shift ends after minute 1440. Staff usernames are
+ * interned to small ints. A year of rosters for a few hundred staff is
+ * roughly 20 bytes per shift in memory and 6–8 bytes per shift serialized.
+ *
+ * Interval index: the shifts ordered by absolute start minute, plus the
+ * longest shift length. Everything on duty at minute {@code t} started in
+ * {@code (t - longest, t]}, so a coverage query is one binary search and a
+ * scan of about one shift-length's worth of shifts. The order is re-sorted
+ * lazily after out-of-order inserts. All methods synchronize on this object.
+ */
+public final class RosterStore implements Serializable {
+
+    private static final int MINUTES_PER_DAY = 24 * 60;
+    private static final int ORDINAL_BITS = 24;
+    private static final long ORDINAL_MASK = (1L << ORDINAL_BITS) - 1;
+
+    /** Two shifts of the same staff member that overlap in time. */
+    public record Overlap(String staff, int first, int second) {}
+
+    private transient int size;
+    private transient int[] day = new int[64];          // epoch day
+    private transient short[] start = new short[64];    // minute of day
+    private transient short[] end = new short[64];      // minute from the start of day, > start
+    private transient int[] staff = new int[64];        // index into names
+    private transient byte[] ward = new byte[64];       // unsigned, 0 = any ward; read through wardOf
+
+    private transient List<String> names = new ArrayList<>();
+    private transient Map<String, Integer> staffIndex = new HashMap<>();
+
+    private transient long[] byStart = new long[64];    // absolute start << 24 | ordinal
+    private transient boolean sorted = true;
+    private transient int longest;                      // longest shift in minutes
+
+    // -------------------------------------------------------------------
+    // ADD
+    // -------------------------------------------------------------------
+    /** Store a dated shift of {@code username}; returns its ordinal. */
+    public synchronized int add(String username, Shift s) {
+        if (s.getDate() == null) throw new IllegalArgumentException("Shift has no date: " + s);
+        if (s.getWard() > Topology.MAX_WARDS) throw new IllegalArgumentException("Ward out of range: " + s.getWard());
+        if (size == ORDINAL_MASK) throw new IllegalStateException("Roster is full");
+        int from = minuteOf(s.getStartTime());
+        int to = from + (int) s.getMinutes();
+        return add(internStaff(username), (int) s.getDate().toEpochDay(), from, to, s.getWard());
+    }
+
+    private int add(int who, int epochDay, int from, int to, int wardNo) {
+        if (size == day.length) grow();
+        int i = size++;
+        day[i] = epochDay;
+        start[i] = (short) from;
+        end[i] = (short) to;
+        staff[i] = who;
+        ward[i] = (byte) wardNo;
+        long key = key(absStart(i), i);
+        if (i > 0 && key < byStart[i - 1]) sorted = false;
+        byStart[i] = key;
+        longest = Math.max(longest, to - from);
+        return i;
+    }
+
+    private void grow() {
+        int n = day.length * 2;
+        day = Arrays.copyOf(day, n);
+        start = Arrays.copyOf(start, n);
+        end = Arrays.copyOf(end, n);
+        staff = Arrays.copyOf(staff, n);
+        ward = Arrays.copyOf(ward, n);
+        byStart = Arrays.copyOf(byStart, n);
+    }
+
+    private int internStaff(String username) {
+        Integer id = staffIndex.get(username);
+        if (id != null) return id;
+        names.add(username);
+        staffIndex.put(username, names.size() - 1);
+        return names.size() - 1;
+    }
+
+    // -------------------------------------------------------------------
+    // QUERIES
+    // -------------------------------------------------------------------
+    /** Staff on duty at {@code at} on {@code wardNo} (0 = any ward), in shift start order. */
+    public synchronized List<String> onDuty(LocalDateTime at, int wardNo) {
+        Set<String> out = new LinkedHashSet<>();
+        int t = absMinute(at);
+        for (int k = lowerBound(t - longest + 1); k < size; k++) {
+            int i = ordinal(byStart[k]);
+            if (absStart(i) > t) break;
+            if (absEnd(i) > t && inWard(i, wardNo)) out.add(names.get(staff[i]));
+        }
+        return new ArrayList<>(out);
+    }
+
+    /** Number of shifts covering {@code at} on {@code wardNo} (0 = any ward). */
+    public synchronized int coverage(LocalDateTime at, int wardNo) {
+        int t = absMinute(at), n = 0;
+        for (int k = lowerBound(t - longest + 1); k < size; k++) {
+            int i = ordinal(byStart[k]);
+            if (absStart(i) > t) break;
+            if (absEnd(i) > t && inWard(i, wardNo)) n++;
+        }
+        return n;
+    }
+
+    /** Ordinal of a shift of {@code username} that overlaps {@code s}, or -1 if there is none. */
+    public synchronized int firstOverlap(String username, Shift s) {
+        if (s.getDate() == null) return -1;
+        int from = (int) s.getDate().toEpochDay() * MINUTES_PER_DAY + minuteOf(s.getStartTime());
+        return firstWithin(username, from, from + (int) s.getMinutes());
+    }
+
+    /** Ordinal of a shift of {@code username} overlapping [from, to), or -1 if there is none. */
+    public synchronized int firstWithin(String username, LocalDateTime from, LocalDateTime to) {
+        return firstWithin(username, absMinute(from), absMinute(to));
+    }
+
+    private int firstWithin(String username, int from, int to) {
+        Integer who = staffIndex.get(username);
+        if (who == null) return -1;
+        for (int k = lowerBound(from - longest + 1); k < size; k++) {
+            int i = ordinal(byStart[k]);
+            if (absStart(i) >= to) break;
+            if (staff[i] == who && absEnd(i) > from) return i;
+        }
+        return -1;
+    }
+
+    /** Every overlapping pair of shifts of the same staff member, by start time. */
+    public synchronized List<Overlap> overlaps() {
+        ensureSorted();
+        List<Overlap> out = new ArrayList<>();
+        int[] latest = new int[names.size()];              // per staff: ordinal + 1 of the shift ending last
+        for (int k = 0; k < size; k++) {
+            int i = ordinal(byStart[k]);
+            int prev = latest[staff[i]] - 1;
+            if (prev >= 0 && absEnd(prev) > absStart(i)) out.add(new Overlap(names.get(staff[i]), prev, i));
+            if (prev < 0 || absEnd(i) > absEnd(prev)) latest[staff[i]] = i + 1;
+        }
+        return out;
+    }
+
+    /** Rostered minutes of {@code username} on shifts starting in [from, to). */
+    public synchronized long minutes(String username, LocalDate from, LocalDate to) {
+        Integer who = staffIndex.get(username);
+        if (who == null) return 0;
+        int lo = (int) from.toEpochDay() * MINUTES_PER_DAY, hi = (int) to.toEpochDay() * MINUTES_PER_DAY;
+        long total = 0;
+        for (int k = lowerBound(lo); k < size; k++) {
+            int i = ordinal(byStart[k]);
+            if (absStart(i) >= hi) break;
+            if (staff[i] == who) total += end[i] - start[i];
+        }
+        return total;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized String staffOf(int i) {
+        check(i);
+        return names.get(staff[i]);
+    }
+
+    /** Shift {@code i} as a {@link Shift} object. */
+    public synchronized Shift shift(int i) {
+        check(i);
+        return new Shift(LocalDate.ofEpochDay(day[i]), LocalTime.of(start[i] / 60, start[i] % 60),
+                         LocalTime.of(end[i] % MINUTES_PER_DAY / 60, end[i] % 60), wardOf(i));
+    }
+
+    private void check(int i) {
+        if (i < 0 || i >= size) throw new IndexOutOfBoundsException("Shift " + i + " of " + size);
+    }
+
+    private boolean inWard(int i, int wardNo) {
+        return wardNo == 0 || wardOf(i) == wardNo;
+    }
+
+    private int wardOf(int i) {
+        return ward[i] & 0xFF;
+    }
+
+    // first position in start order with an absolute start >= t
+    private int lowerBound(int t) {
+        ensureSorted();
+        long k = key(t, 0);
+        int lo = 0, hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (byStart[mid] < k) lo = mid + 1; else hi = mid;
+        }
+        return lo;
+    }
+
+    private void ensureSorted() {
+        if (sorted) return;
+        Arrays.sort(byStart, 0, size);
+        sorted = true;
+    }
+
+    private int absStart(int i) {
+        return day[i] * MINUTES_PER_DAY + start[i];
+    }
+
+    private int absEnd(int i) {
+        return day[i] * MINUTES_PER_DAY + end[i];
+    }
+
+    private static long key(int absStart, int ordinal) {
+        return (long) absStart << ORDINAL_BITS | ordinal;
+    }
+
+    private static int ordinal(long key) {
+        return (int) (key & ORDINAL_MASK);
+    }
+
+    private static int minuteOf(LocalTime t) {
+        return t.getHour() * 60 + t.getMinute();
+    }
+
+    private static int absMinute(LocalDateTime t) {
+        return (int) t.toLocalDate().toEpochDay() * MINUTES_PER_DAY + minuteOf(t.toLocalTime());
+    }
+
+    // -------------------------------------------------------------------
+    // SERIALIZATION: names, then per shift (zig-zag day delta, start, length, staff, ward) as varints
+    // -------------------------------------------------------------------
+    private synchronized void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        out.writeInt(names.size());
+        for (String name : names) out.writeUTF(name);
+        out.writeInt(size);
+        int prevDay = 0;
+        for (int i = 0; i < size; i++) {
+            int delta = day[i] - prevDay;
+            writeVarInt(out, delta << 1 ^ delta >> 31);
+            writeVarInt(out, start[i]);
+            writeVarInt(out, end[i] - start[i]);
+            writeVarInt(out, staff[i]);
+            out.writeByte(ward[i]);
+            prevDay = day[i];
+        }
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        int n = in.readInt();
+        names = new ArrayList<>(n);
+        staffIndex = new HashMap<>();
+        for (int i = 0; i < n; i++) internStaff(in.readUTF());
+        int count = in.readInt();
+        int capacity = Math.max(64, Integer.highestOneBit(Math.max(1, count - 1)) << 1);
+        day = new int[capacity];
+        start = new short[capacity];
+        end = new short[capacity];
+        staff = new int[capacity];
+        ward = new byte[capacity];
+        byStart = new long[capacity];
+        sorted = true;
+        int prevDay = 0;
+        for (int i = 0; i < count; i++) {
+            int zz = readVarInt(in);
+            prevDay += zz >>> 1 ^ -(zz & 1);
+            int from = readVarInt(in);
+            int to = from + readVarInt(in);
+            int who = readVarInt(in);
+            if (who >= names.size()) throw new IOException("Corrupt roster: staff " + who);
+            add(who, prevDay, from, to, in.readUnsignedByte());
+        }
+    }
+
+    private static void writeVarInt(ObjectOutputStream out, int v) throws IOException {
+        while ((v & ~0x7F) != 0) {
+            out.writeByte(v & 0x7F | 0x80);
+            v >>>= 7;
+        }
+        out.writeByte(v);
+    }
+
+    private static int readVarInt(ObjectInputStream in) throws IOException {
+        int v = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.readUnsignedByte();
+            v |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return v;
+        }
+        throw new IOException("Corrupt roster: varint too long");
+    }
+}
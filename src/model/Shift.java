@@ -2,17 +2,22 @@ package model;
 
 import java.io.Serializable;
 import java.time.DayOfWeek;
+import java.time.LocalDate;
 import java.time.LocalTime;
 
 /**
  * Represents a work shift assigned to a staff member.
- * Includes the day of week, start time, and end time.
+ * Includes the day of week, start time, and end time; a rostered shift also
+ * has a calendar date and optionally a ward (0 = any ward). A shift whose end
+ * is before its start runs past midnight.
  */
 public class Shift implements Serializable {
 
     private DayOfWeek day;      // e.g., MONDAY, TUESDAY
     private LocalTime startTime;
     private LocalTime endTime;
+    private LocalDate date;     // null for a weekly (undated) shift
+    private int ward;           // 0 = not tied to a ward
 
     public Shift(DayOfWeek day, LocalTime startTime, LocalTime endTime) {
         this.day = day;
@@ -20,6 +25,15 @@ public class Shift implements Serializable {
         this.endTime = endTime;
     }
 
+    /** A shift on a given date, optionally on one ward (0 = any). */
+    public Shift(LocalDate date, LocalTime startTime, LocalTime endTime, int ward) {
+        this(date.getDayOfWeek(), startTime, endTime);
+        if (ward < 0) throw new IllegalArgumentException("Ward must be >= 0: " + ward);
+        if (startTime.equals(endTime)) throw new IllegalArgumentException("Shift has no length: " + startTime);
+        this.date = date;
+        this.ward = ward;
+    }
+
     public DayOfWeek getDay() {
         return day;
     }
@@ -32,15 +46,31 @@ public class Shift implements Serializable {
         return endTime;
     }
 
+    /** Calendar date, or null for a weekly shift. */
+    public LocalDate getDate() {
+        return date;
+    }
+
+    public int getWard() {
+        return ward;
+    }
+
     /**
      * Calculates total hours in this shift.
      */
     public long getHours() {
-        return java.time.Duration.between(startTime, endTime).toHours();
+        return getMinutes() / 60;
+    }
+
+    /** Total minutes in this shift (overnight shifts wrap past midnight). */
+    public long getMinutes() {
+        long m = java.time.Duration.between(startTime, endTime).toMinutes();
+        return m < 0 ? m + 24 * 60 : m;
     }
 
     @Override
     public String toString() {
-        return day + " " + startTime + " - " + endTime;
+        String when = date == null ? day.toString() : date + " (" + day + ")";
+        return when + " " + startTime + " - " + endTime + (ward > 0 ? " W" + ward : "");
     }
 }
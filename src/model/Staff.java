@@ -14,6 +14,8 @@ public abstract class Staff extends Person {
     private String passwordHash;   // hashed password (not plain text)
     private String role;           // MANAGER, DOCTOR, NURSE
     private List<Shift> shifts;    // daily/weekly work shifts
+    private ComplianceEngine shiftListener; // keeps compliance totals current, null if untracked
+    /* package-private */ transient volatile AccessPolicy.Grants grants; // cached by AccessPolicy
 
     public Staff(String id, String name, char gender,
                  String username, String passwordHash, String role) {
@@ -39,6 +41,12 @@ public abstract class Staff extends Person {
      */
     public void addShift(Shift shift) {
         shifts.add(shift);
+        ComplianceEngine listener = shiftListener;
+        if (listener != null) listener.shiftAdded(this, shift);
+    }
+
+    /* package-private */ void setShiftListener(ComplianceEngine engine) {
+        this.shiftListener = engine;
     }
 
     @Override
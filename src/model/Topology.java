@@ -0,0 +1,107 @@
+package model;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Physical layout of a facility: how many wards, how many rooms per ward
+ * and how many beds per room.
+ *
+ * Layout files have one line per ward listing the bed count of each room
+ * in order; {@code N*C} repeats a room of C beds N times. Blank lines and
+ * lines starting with '#' are ignored.
+ * <pre>
+ *   # ward: beds per room
+ *   W1: 1 2 2 3 4 4
+ *   W2: 40*4
+ * </pre>
+ */
+public final class Topology implements Serializable {
+
+    public static final int MAX_WARDS = 255;
+    public static final int MAX_ROOMS_PER_WARD = 4095;
+    public static final int MAX_BEDS_PER_ROOM = 64;
+
+    private final int[][] bedsPerRoom; // [ward-1][room-1] -> bed count
+
+    public Topology(int[][] bedsPerRoom) {
+        if (bedsPerRoom.length == 0 || bedsPerRoom.length > MAX_WARDS)
+            throw new IllegalArgumentException("Ward count must be 1.." + MAX_WARDS);
+        this.bedsPerRoom = new int[bedsPerRoom.length][];
+        for (int w = 0; w < bedsPerRoom.length; w++) {
+            int[] rooms = bedsPerRoom[w];
+            if (rooms.length == 0 || rooms.length > MAX_ROOMS_PER_WARD)
+                throw new IllegalArgumentException("Ward " + (w + 1) + " must have 1.." + MAX_ROOMS_PER_WARD + " rooms");
+            for (int r = 0; r < rooms.length; r++) {
+                if (rooms[r] < 1 || rooms[r] > MAX_BEDS_PER_ROOM)
+                    throw new IllegalArgumentException("Room W" + (w + 1) + "-R" + (r + 1)
+                            + " must have 1.." + MAX_BEDS_PER_ROOM + " beds");
+            }
+            this.bedsPerRoom[w] = rooms.clone();
+        }
+    }
+
+    /** The original layout: 2 wards × 6 rooms with 1–4 beds each. */
+    public static Topology defaultLayout() {
+        int[] ward = {1, 2, 2, 3, 4, 4};
+        return new Topology(new int[][] { ward, ward });
+    }
+
+    /** Read a layout file (see class comment for the format). */
+    public static Topology load(Path file) throws IOException {
+        return parse(Files.readAllLines(file));
+    }
+
+    public static Topology parse(List<String> lines) {
+        List<int[]> wards = new ArrayList<>();
+        int lineNo = 0;
+        for (String raw : lines) {
+            lineNo++;
+            String line = raw.strip();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+
+            int colon = line.indexOf(':');
+            if (colon < 0)
+                throw new IllegalArgumentException("Line " + lineNo + ": expected 'W<n>: <beds per room>'");
+            String label = line.substring(0, colon).strip();
+            if (!label.equalsIgnoreCase("W" + (wards.size() + 1)))
+                throw new IllegalArgumentException("Line " + lineNo + ": expected ward W" + (wards.size() + 1)
+                        + " but found " + label);
+
+            List<Integer> rooms = new ArrayList<>();
+            for (String tok : line.substring(colon + 1).strip().split("[\\s,]+")) {
+                if (tok.isEmpty()) continue;
+                try {
+                    int star = tok.indexOf('*');
+                    if (star < 0) {
+                        rooms.add(Integer.parseInt(tok));
+                    } else {
+                        int times = Integer.parseInt(tok.substring(0, star));
+                        int beds = Integer.parseInt(tok.substring(star + 1));
+                        for (int i = 0; i < times; i++) rooms.add(beds);
+                    }
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Line " + lineNo + ": bad room entry '" + tok + "'");
+                }
+            }
+            wards.add(rooms.stream().mapToInt(Integer::intValue).toArray());
+        }
+        return new Topology(wards.toArray(new int[0][]));
+    }
+
+    public int wardCount() { return bedsPerRoom.length; }
+
+    public int roomCount(int ward) { return bedsPerRoom[ward - 1].length; }
+
+    public int bedCount(int ward, int room) { return bedsPerRoom[ward - 1][room - 1]; }
+
+    public int totalBeds() {
+        int total = 0;
+        for (int[] ward : bedsPerRoom) for (int beds : ward) total += beds;
+        return total;
+    }
+}
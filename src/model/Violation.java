@@ -0,0 +1,8 @@
+package model;
+
+import java.io.Serializable;
+
+/** One compliance breach: which rule, which staff member (null for roster-wide rules) and why. */
+public record Violation(String rule, String username, String message) implements Serializable {
+    @Override public String toString() { return message; }
+}
@@ -1,9 +1,12 @@
 module ResidentHealthCareSystem {
     requires javafx.controls;
     requires javafx.fxml;
+    requires java.sql;
+    requires java.management;
 
     // your packages:
     exports view;       // so the launcher is visible
     opens view to javafx.fxml; // if/when you use FXML
     exports model;      // handy for controllers that reference model classes
+    exports util;       // JMX reads the metrics MXBean interfaces
 }
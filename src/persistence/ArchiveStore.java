@@ -0,0 +1,551 @@
+package persistence;
+
+import model.ResidentArchive;
+import util.Metrics;
+import util.OpStats;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BooleanSupplier;
+import java.util.zip.*;
+
+/**
+ * Append-only container for the records of discharged residents, in place
+ * of one loose CSV file per resident.
+ *
+ * Each record is deflated into a block of its own. The index maps resident
+ * id, name and discharge time to the block's offset, so fetching a record
+ * is one positional read. It is kept in memory and in residents.idx.
+ * {@link #archive} only queues the record: a single writer thread appends
+ * queued blocks, forces them to disk once per batch and then extends the
+ * index. Queued records can be read straight away. A batch that cannot be
+ * written stays queued and is retried with backoff; flushes waiting on it
+ * fail meanwhile. On open, blocks written
+ * after the last index entry are indexed again and a torn block at the
+ * end is cut off. Files in the directory:
+ * <pre>
+ *   residents.arc   magic, then blocks of [length][crc32c][at, id, name, raw length, deflated CSV]
+ *   residents.idx   magic, then [offset][length][at, id, name] per block
+ * </pre>
+ */
+public final class ArchiveStore implements ResidentArchive, AutoCloseable {
+
+    private static final OpStats WRITE = Metrics.op("ArchiveStore.write");
+    private static final OpStats READ = Metrics.op("ArchiveStore.read");
+    private static final long DATA_MAGIC = 0x4348415243480001L;    // "CHARCH" v1
+    private static final long INDEX_MAGIC = 0x4348415249580001L;   // "CHARIX" v1
+    private static final String DATA = "residents.arc";
+    private static final String INDEX = "residents.idx";
+    private static final int MAGIC_BYTES = 8, BLOCK_HEADER = 8;
+    private static final int CAPACITY = 4096, BATCH = 256;
+    public static final long FLUSH_TIMEOUT_MILLIS = 30_000;
+    private static final int MAX_ATTEMPTS_ON_CLOSE = 3;      // after close, give up on a batch that keeps failing
+    private static final long BACKOFF_MILLIS = 50, MAX_BACKOFF_MILLIS = 5_000;
+    private static final DateTimeFormatter EXPORT_NAME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmssSSS");
+
+    /** One archived discharge. */
+    public static final class Discharge {
+        private final String residentId, name;
+        private final long dischargedAt;
+        private long offset = -1;          // block start in residents.arc; -1 while queued
+        private int length;
+        private String pending;            // the record until its block is on disk
+
+        private Discharge(String residentId, String name, long dischargedAt) {
+            this.residentId = residentId;
+            this.name = name;
+            this.dischargedAt = dischargedAt;
+        }
+
+        public String getResidentId() { return residentId; }
+        public String getName() { return name; }
+        public long getDischargedAt() { return dischargedAt; }
+
+        @Override
+        public String toString() {
+            return residentId + " " + name + " (discharged " + Instant.ofEpochMilli(dischargedAt) + ")";
+        }
+    }
+
+    /** One queued discharge, or a flush barrier when discharge is null. */
+    private record Entry(Discharge discharge, CompletableFuture<Void> barrier) {}
+
+    private final Path dir;
+    private final String location;
+    private FileChannel data, index;
+    private long dataEnd, indexEnd;
+    private boolean indexBroken;           // stop extending residents.idx; the next open re-indexes the tail
+
+    // in memory, guarded by this
+    private final List<Discharge> all = new ArrayList<>();
+    private final Map<String, List<Discharge>> byId = new HashMap<>();
+    private final TreeMap<String, List<Discharge>> byName = new TreeMap<>();   // lower-case name
+    private final TreeMap<Long, List<Discharge>> byTime = new TreeMap<>();
+
+    private final BlockingQueue<Entry> queue = new ArrayBlockingQueue<>(CAPACITY);
+    private final AtomicInteger unwritten = new AtomicInteger();
+    private final Thread thread;
+    private volatile boolean running = true;
+    // enqueuers hold the read lock from the running check to the put; close() takes the write lock
+    private final ReentrantReadWriteLock closing = new ReentrantReadWriteLock();
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private final AtomicInteger releases = new AtomicInteger();    // close() and the writer; the second closes the files
+
+    // writer thread only
+    private final ByteArrayOutputStream scratch = new ByteArrayOutputStream(4096);
+    private final Deflater deflater = new Deflater();
+
+    private ArchiveStore(Path dir) {
+        this.dir = dir;
+        this.location = dir.resolve(DATA).toString();
+        this.thread = new Thread(this::run, "archive-writer");
+        this.thread.setDaemon(true);
+    }
+
+    /** Open (or create) an archive directory and start its writer thread. */
+    public static ArchiveStore open(Path dir) throws IOException {
+        Files.createDirectories(dir);
+        ArchiveStore store = new ArchiveStore(dir);
+        store.recover();
+        store.thread.start();
+        Metrics.gauge("archive.unwritten", store::getUnwritten);
+        return store;
+    }
+
+    // -------------------------------------------------------------------
+    // ARCHIVE
+    // -------------------------------------------------------------------
+    /** Queue a record; it is indexed (and readable) at once and written in the background. */
+    @Override
+    public String archive(String residentId, String name, long dischargedAt, String record) {
+        if (residentId == null || name == null || record == null)
+            throw new IllegalArgumentException("Resident id, name and record required");
+        Discharge d = new Discharge(residentId, name, dischargedAt);
+        d.pending = record;
+        unwritten.incrementAndGet();
+        try {
+            enqueue(new Entry(d, null));
+        } catch (RuntimeException e) {
+            unwritten.decrementAndGet();
+            throw e;
+        }
+        synchronized (this) {
+            add(d);
+        }
+        return location;
+    }
+
+    /** Wait (at most {@link #FLUSH_TIMEOUT_MILLIS}) until every record queued before this call is on disk. */
+    public void flush() throws IOException {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        enqueue(new Entry(null, done));
+        try {
+            done.get(FLUSH_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while flushing the archive");
+        } catch (TimeoutException e) {
+            throw new IOException("Archive flush timed out after " + FLUSH_TIMEOUT_MILLIS + " ms", e);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException io ? io : new IOException("Archive flush failed", e.getCause());
+        }
+    }
+
+    private void enqueue(Entry e) {
+        closing.readLock().lock();
+        try {
+            if (!running) throw new IllegalStateException("Archive is closed");
+            queue.put(e);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while queueing archive record", ex);
+        } finally {
+            closing.readLock().unlock();
+        }
+    }
+
+    // -------------------------------------------------------------------
+    // LOOKUP
+    // -------------------------------------------------------------------
+    /** Every discharge of this resident, oldest first. */
+    public synchronized List<Discharge> find(String residentId) {
+        return List.copyOf(byId.getOrDefault(residentId, List.of()));
+    }
+
+    /** Discharges of residents whose name starts with the prefix (any case), by name. */
+    public synchronized List<Discharge> findByName(String prefix) {
+        String from = prefix.toLowerCase(Locale.ROOT);
+        List<Discharge> out = new ArrayList<>();
+        for (List<Discharge> l : byName.subMap(from, true, from + Character.MAX_VALUE, true).values()) out.addAll(l);
+        return out;
+    }
+
+    /** Discharges with from &lt;= time &lt; to, oldest first. */
+    public synchronized List<Discharge> between(long from, long to) {
+        List<Discharge> out = new ArrayList<>();
+        for (List<Discharge> l : byTime.subMap(from, true, to, false).values()) out.addAll(l);
+        return out;
+    }
+
+    /** The record of the resident's latest discharge, or null if they were never archived. */
+    public String latest(String residentId) throws IOException {
+        List<Discharge> l = find(residentId);
+        return l.isEmpty() ? null : read(l.get(l.size() - 1));
+    }
+
+    /** A discharge's record (CSV text): one read of its block, or the queued text. */
+    public String read(Discharge d) throws IOException {
+        long t0 = System.nanoTime();
+        try {
+            long offset;
+            int length;
+            synchronized (this) {
+                if (d.pending != null) return d.pending;
+                offset = d.offset;
+                length = d.length;
+            }
+            byte[] block = new byte[length];
+            readFully(ByteBuffer.wrap(block), offset);
+            DataInputStream in = body(block, offset);
+            in.readLong();
+            in.readUTF();
+            in.readUTF();
+            int raw = in.readInt();
+            try (InflaterInputStream z = new InflaterInputStream(in)) {
+                return new String(z.readNBytes(raw), StandardCharsets.UTF_8);
+            }
+        } catch (Exception e) {
+            READ.failed(e);
+            throw e;
+        } finally {
+            READ.stop(t0);
+        }
+    }
+
+    public synchronized int size() {
+        return all.size();
+    }
+
+    /** Records queued but not yet on disk. */
+    public int getUnwritten() {
+        return unwritten.get();
+    }
+
+    public String getLocation() {
+        return location;
+    }
+
+    // -------------------------------------------------------------------
+    // EXPORT
+    // -------------------------------------------------------------------
+    /**
+     * Write every record with from &lt;= discharge time &lt; to into a zip of
+     * {@code archive_<id>_<time>.csv} files. Returns the number written.
+     * Throws CancellationException (and removes the partial file) once
+     * {@code cancelled} returns true.
+     */
+    public long export(long from, long to, Path out, AuditExporter.Progress progress, BooleanSupplier cancelled)
+            throws IOException {
+        List<Discharge> selected = between(from, to);
+        long total = selected.size(), written = 0;
+        Path tmp = out.resolveSibling(out.getFileName() + ".part");
+        try (ZipOutputStream zip = new ZipOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+            for (Discharge d : selected) {
+                if (cancelled.getAsBoolean()) throw new CancellationException("Export cancelled");
+                String when = EXPORT_NAME.format(Instant.ofEpochMilli(d.dischargedAt).atZone(ZoneId.systemDefault()));
+                zip.putNextEntry(new ZipEntry("archive_" + d.residentId + "_" + when + ".csv"));
+                zip.write(read(d).getBytes(StandardCharsets.UTF_8));
+                zip.closeEntry();
+                progress.update(++written, total);
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+        Files.move(tmp, out, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        progress.update(total, total);
+        return total;
+    }
+
+    // -------------------------------------------------------------------
+    // WRITER THREAD
+    // -------------------------------------------------------------------
+    private void run() {
+        List<Discharge> batch = new ArrayList<>(BATCH);           // kept until it is written
+        List<CompletableFuture<Void>> barriers = new ArrayList<>();
+        int failures = 0;
+        boolean interrupted = false;
+        while (!interrupted && (running || !queue.isEmpty() || !batch.isEmpty())) {
+            if (failures > 0 && !running && failures >= MAX_ATTEMPTS_ON_CLOSE) break;
+            try {
+                if (failures > 0)
+                    Thread.sleep(Math.min(MAX_BACKOFF_MILLIS, BACKOFF_MILLIS << Math.min(failures - 1, 16)));
+                Entry e = batch.isEmpty() ? queue.poll(100, TimeUnit.MILLISECONDS)
+                        : batch.size() < BATCH ? queue.poll() : null;    // retrying a full batch: take nothing more
+                for (; e != null; e = batch.size() < BATCH ? queue.poll() : null) {
+                    if (e.discharge() == null) { barriers.add(e.barrier()); break; }
+                    batch.add(e.discharge());
+                }
+            } catch (InterruptedException ie) {
+                interrupted = true;                                // write what was collected, then stop
+            }
+            IOException failure = write(batch);
+            if (failure == null) { batch.clear(); failures = 0; } else failures++;
+            for (CompletableFuture<Void> b : barriers) {
+                if (failure == null) b.complete(null); else b.completeExceptionally(failure);
+            }
+            barriers.clear();
+        }
+        // stop taking entries; draining meanwhile frees anyone blocked in put()
+        while (!closing.writeLock().tryLock()) { failQueued(); Thread.onSpinWait(); }
+        try {
+            running = false;
+        } finally {
+            closing.writeLock().unlock();
+        }
+        failQueued();
+        if (unwritten.get() > 0)
+            System.err.println("Archive writer stopped with " + unwritten.get() + " records not written");
+        deflater.end();
+        try {
+            release();
+        } catch (IOException e) {
+            System.err.println("Archive files not closed cleanly: " + e.getMessage());
+        }
+    }
+
+    // entries left once the writer has stopped: records stay readable in memory, waiting flushes fail
+    private void failQueued() {
+        IOException stopped = new IOException("Archive writer stopped before this was written");
+        for (Entry e; (e = queue.poll()) != null; ) {
+            if (e.discharge() == null) e.barrier().completeExceptionally(stopped);
+        }
+    }
+
+    // append the batch's blocks, force them once, then publish their offsets and extend the index
+    private IOException write(List<Discharge> batch) {
+        if (batch.isEmpty()) return null;
+        long t0 = System.nanoTime();
+        long start = dataEnd;
+        ByteBuffer[] blocks = new ByteBuffer[batch.size()];
+        try {
+            for (int i = 0; i < blocks.length; i++) blocks[i] = ByteBuffer.wrap(encode(batch.get(i)));
+            data.position(start);
+            long size = 0;
+            for (ByteBuffer b : blocks) size += b.remaining();
+            for (long done = 0; done < size; ) done += data.write(blocks);
+            data.force(false);
+        } catch (IOException e) {
+            WRITE.failed(e);
+            try { data.truncate(start); } catch (IOException ignored) {}
+            System.err.println("Archive writer could not write " + batch.size() + " records: " + e.getMessage());
+            return e;                                           // records stay queued in memory and are retried
+        } finally {
+            WRITE.stop(t0);
+        }
+
+        long offset = start;
+        synchronized (this) {
+            for (int i = 0; i < blocks.length; i++) {
+                Discharge d = batch.get(i);
+                d.offset = offset;
+                d.length = blocks[i].capacity();
+                d.pending = null;
+                offset += d.length;
+            }
+        }
+        dataEnd = offset;
+        unwritten.addAndGet(-batch.size());
+        appendIndex(batch);
+        return null;
+    }
+
+    private byte[] encode(Discharge d) throws IOException {
+        byte[] raw = d.pending.getBytes(StandardCharsets.UTF_8);
+        scratch.reset();
+        DataOutputStream out = new DataOutputStream(scratch);
+        out.writeLong(0);                                       // length and crc, filled in below
+        out.writeLong(d.dischargedAt);
+        out.writeUTF(d.residentId);
+        out.writeUTF(d.name);
+        out.writeInt(raw.length);
+        deflater.reset();
+        DeflaterOutputStream z = new DeflaterOutputStream(out, deflater, 4096);
+        z.write(raw);
+        z.finish();
+        byte[] block = scratch.toByteArray();
+        CRC32C crc = new CRC32C();
+        crc.update(block, BLOCK_HEADER, block.length - BLOCK_HEADER);
+        ByteBuffer.wrap(block).putInt(block.length - BLOCK_HEADER).putInt((int) crc.getValue());
+        return block;
+    }
+
+    // not forced: an index that falls behind is rebuilt from the blocks on open
+    private void appendIndex(List<Discharge> written) {
+        if (indexBroken) return;
+        try {
+            ByteArrayOutputStream buf = new ByteArrayOutputStream(64 * written.size());
+            DataOutputStream out = new DataOutputStream(buf);
+            for (Discharge d : written) writeIndexEntry(out, d);
+            ByteBuffer b = ByteBuffer.wrap(buf.toByteArray());
+            while (b.hasRemaining()) index.write(b, indexEnd + b.position());
+            indexEnd += b.capacity();
+        } catch (IOException e) {
+            indexBroken = true;
+            System.err.println("Archive index not updated (rebuilt on next open): " + e.getMessage());
+        }
+    }
+
+    private static void writeIndexEntry(DataOutputStream out, Discharge d) throws IOException {
+        out.writeLong(d.offset);
+        out.writeInt(d.length);
+        out.writeLong(d.dischargedAt);
+        out.writeUTF(d.residentId);
+        out.writeUTF(d.name);
+    }
+
+    // -------------------------------------------------------------------
+    // RECOVERY
+    // -------------------------------------------------------------------
+    private void recover() throws IOException {
+        data = FileChannel.open(dir.resolve(DATA), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                                StandardOpenOption.WRITE);
+        index = FileChannel.open(dir.resolve(INDEX), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                                 StandardOpenOption.WRITE);
+        if (!checkMagic(data, DATA_MAGIC)) throw new IOException(location + " is not a resident archive");
+        if (!checkMagic(index, INDEX_MAGIC)) {                  // unreadable index: rebuild it from the blocks
+            index.truncate(0);
+            checkMagic(index, INDEX_MAGIC);
+        }
+
+        // indexed blocks: each entry must start where the previous one ended
+        long pos = MAGIC_BYTES, dataSize = data.size();
+        indexEnd = MAGIC_BYTES;
+        ByteBuffer ib = ByteBuffer.allocate((int) (index.size() - MAGIC_BYTES));
+        while (ib.hasRemaining()) if (index.read(ib, MAGIC_BYTES + ib.position()) < 0) break;
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(ib.array(), 0, ib.position()));
+        try {
+            while (in.available() > 0) {
+                long offset = in.readLong();
+                int length = in.readInt();
+                long at = in.readLong();
+                String id = in.readUTF(), name = in.readUTF();
+                if (offset != pos || length < BLOCK_HEADER || offset + length > dataSize) break;
+                Discharge d = new Discharge(id, name, at);
+                d.offset = offset;
+                d.length = length;
+                add(d);
+                pos += length;
+                indexEnd = MAGIC_BYTES + ib.position() - in.available();
+            }
+        } catch (EOFException torn) {
+            // an entry cut short: dropped below
+        }
+        index.truncate(indexEnd);
+
+        // blocks after the last indexed one: index them again, cut off a torn one
+        List<Discharge> tail = new ArrayList<>();
+        ByteBuffer head = ByteBuffer.allocate(BLOCK_HEADER);
+        while (pos + BLOCK_HEADER <= dataSize) {
+            head.clear();
+            readFully(head, pos);
+            int length = BLOCK_HEADER + head.getInt(0);
+            if (length <= BLOCK_HEADER || pos + length > dataSize) break;
+            byte[] block = new byte[length];
+            readFully(ByteBuffer.wrap(block), pos);
+            Discharge d;
+            try {
+                DataInputStream body = body(block, pos);
+                long at = body.readLong();
+                d = new Discharge(body.readUTF(), body.readUTF(), at);
+            } catch (IOException corrupt) {
+                break;
+            }
+            d.offset = pos;
+            d.length = length;
+            add(d);
+            tail.add(d);
+            pos += length;
+        }
+        if (pos < dataSize) data.truncate(pos);
+        dataEnd = pos;
+        appendIndex(tail);
+    }
+
+    // positional reads may return fewer bytes than asked for
+    private void readFully(ByteBuffer b, long at) throws IOException {
+        while (b.hasRemaining())
+            if (data.read(b, at + b.position()) < 0) throw new EOFException("Archive block cut short at " + at);
+    }
+
+    // an empty file gets the magic; otherwise whether it starts with it
+    private static boolean checkMagic(FileChannel ch, long magic) throws IOException {
+        ByteBuffer b = ByteBuffer.allocate(MAGIC_BYTES);
+        if (ch.size() == 0) {
+            b.putLong(magic).flip();
+            while (b.hasRemaining()) ch.write(b, b.position());
+            return true;
+        }
+        while (b.hasRemaining()) if (ch.read(b, b.position()) < 0) return false;
+        return b.getLong(0) == magic;
+    }
+
+    // the block's body after its crc is checked
+    private static DataInputStream body(byte[] block, long offset) throws IOException {
+        ByteBuffer b = ByteBuffer.wrap(block);
+        int length = b.getInt(), crc = b.getInt();
+        if (length != block.length - BLOCK_HEADER) throw new IOException("Corrupt archive block at " + offset);
+        CRC32C check = new CRC32C();
+        check.update(block, BLOCK_HEADER, length);
+        if ((int) check.getValue() != crc) throw new IOException("Corrupt archive block at " + offset);
+        return new DataInputStream(new ByteArrayInputStream(block, BLOCK_HEADER, length));
+    }
+
+    private void add(Discharge d) {
+        all.add(d);
+        byId.computeIfAbsent(d.residentId, k -> new ArrayList<>(1)).add(d);
+        byName.computeIfAbsent(d.name.toLowerCase(Locale.ROOT), k -> new ArrayList<>(1)).add(d);
+        byTime.computeIfAbsent(d.dischargedAt, k -> new ArrayList<>(1)).add(d);
+    }
+
+    /**
+     * Stop accepting records, write what is queued and close the files. If
+     * the writer is still busy after a while, it closes them when it is done.
+     */
+    @Override
+    public void close() throws IOException {
+        if (!closed.compareAndSet(false, true)) return;
+        closing.writeLock().lock();
+        try {
+            running = false;                                    // no enqueue gets past its check from here on
+        } finally {
+            closing.writeLock().unlock();
+        }
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        release();
+    }
+
+    private void release() throws IOException {
+        if (releases.incrementAndGet() < 2) return;
+        try {
+            data.close();
+        } finally {
+            index.close();
+        }
+    }
+}
@@ -1,14 +1,71 @@
 package persistence;
 
+import util.Metrics;
+import util.OpStats;
+
 import java.sql.*;
 import java.time.LocalDateTime;
+import java.util.List;
 
 public class AuditDao {
-    public static void log(String message) throws SQLException {
-        try (PreparedStatement ps = Db.get().prepareStatement("INSERT INTO Audit(ts,message) VALUES(?,?)")) {
-            ps.setString(1, LocalDateTime.now().toString());
-            ps.setString(2, message);
-            ps.executeUpdate();
+    private static final OpStats LOG = Metrics.op("AuditDao.log");
+    private static final OpStats INSERT_BATCH = Metrics.op("AuditDao.insertBatch");
+    private static AuditWriter writer;
+
+    /** Queue an audit line; it is committed in the background with its batch. */
+    public static void log(String message) {
+        log(LocalDateTime.now().toString(), message);
+    }
+
+    /** Queue an audit line stamped {@code ts}. */
+    public static void log(String ts, String message) {
+        long t0 = System.nanoTime();
+        try {
+            writer().log(ts, message);
+        } finally {
+            LOG.stop(t0);   // enqueue time, including any wait on a full queue
         }
     }
+
+    /** Queue an audit line and wait until it is committed (e.g. discharge events). */
+    public static void logDurable(String message) throws SQLException {
+        logDurable(LocalDateTime.now().toString(), message);
+    }
+
+    /** {@link #logDurable(String)} for a line stamped {@code ts}. */
+    public static void logDurable(String ts, String message) throws SQLException {
+        writer().logDurable(ts, message);
+    }
+
+    /** Wait until every queued audit line is committed. */
+    public static void flush() throws SQLException {
+        writer().flush();
+    }
+
+    /** Shared background writer, started on first use and drained at JVM exit. */
+    public static synchronized AuditWriter writer() {
+        if (writer == null) {
+            AuditWriter w = new AuditWriter();
+            Runtime.getRuntime().addShutdownHook(new Thread(w::close, "audit-writer-shutdown"));
+            Metrics.gauge("audit.queueDepth", w::getQueueDepth);
+            Metrics.gauge("audit.peakQueueDepth", w::getPeakQueueDepth);
+            Metrics.gauge("audit.blockedOffers", w::getBlockedOffers);
+            Metrics.gauge("audit.dropped", w::getDropped);
+            writer = w;
+        }
+        return writer;
+    }
+
+    /** Insert a batch of queued lines in one transaction (writer thread only). */
+    static void insertBatch(List<AuditWriter.Entry> batch) throws SQLException {
+        Db.write(INSERT_BATCH, s -> {
+            PreparedStatement ps = s.prepare("INSERT INTO Audit(ts,message) VALUES(?,?)");
+            for (AuditWriter.Entry e : batch) {
+                ps.setString(1, e.ts());
+                ps.setString(2, e.message());
+                ps.addBatch();
+            }
+            return ps.executeBatch();
+        });
+    }
 }
@@ -0,0 +1,188 @@
+package persistence;
+
+import model.AuditEntry;
+import model.AuditLog;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Streams audit entries to a file as CSV or JSON Lines, optionally gzipped.
+ *
+ * Entries are read one at a time from the log (no copy of the log is made),
+ * encoded into a 1 MB buffer and written to the file channel (or the gzip
+ * stream) whenever it fills. The file is written under a temporary name and
+ * moved into place when complete, so a cancelled or failed export leaves
+ * nothing behind. Meant to run off the UI thread.
+ */
+public final class AuditExporter {
+
+    public enum Format { CSV, JSONL }
+
+    /** Told how many of the matching entries have been written so far. */
+    @FunctionalInterface
+    public interface Progress {
+        void update(long written, long total);
+    }
+
+    private static final int BUFFER = 1 << 20;
+    private static final int PROGRESS_EVERY = 4096;
+
+    private final Format format;
+    private final boolean gzip;
+
+    public AuditExporter(Format format, boolean gzip) {
+        this.format = format;
+        this.gzip = gzip;
+    }
+
+    /** Conventional file name, e.g. "audit.jsonl.gz". */
+    public String defaultFileName() {
+        return "audit." + (format == Format.CSV ? "csv" : "jsonl") + (gzip ? ".gz" : "");
+    }
+
+    /**
+     * Write every entry with from &lt;= time &lt; to. Returns the number written.
+     * Throws CancellationException (and removes the partial file) once
+     * {@code cancelled} returns true.
+     */
+    public long export(AuditLog log, long from, long to, Path out, Progress progress, BooleanSupplier cancelled)
+            throws IOException {
+        int first = log.firstIndexAt(from);
+        int end = to == Long.MAX_VALUE ? log.size() : log.firstIndexAt(to);
+        long total = Math.max(0, end - first);
+
+        Path tmp = out.resolveSibling(out.getFileName() + ".part");
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                               StandardOpenOption.TRUNCATE_EXISTING);
+             Sink sink = new Sink(ch, gzip)) {
+            if (format == Format.CSV) sink.write("timestamp,actor,action,subject,message\n");
+            StringBuilder line = new StringBuilder(256);
+            for (int i = first; i < end; i++) {
+                line.setLength(0);
+                AuditEntry e = log.entry(i);
+                if (format == Format.CSV) csv(line, e); else json(line, e);
+                sink.write(line);
+                long written = i - first + 1;
+                if (written % PROGRESS_EVERY == 0) {
+                    if (cancelled.getAsBoolean()) throw new CancellationException("Export cancelled");
+                    progress.update(written, total);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+        Files.move(tmp, out, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        progress.update(total, total);
+        return total;
+    }
+
+    private static String timestamp(long at) {
+        return Instant.ofEpochMilli(at).atZone(ZoneId.systemDefault()).toLocalDateTime().toString();
+    }
+
+    private static void csv(StringBuilder sb, AuditEntry e) {
+        sb.append(timestamp(e.at())).append(',');
+        csvField(sb, e.actor()).append(',');
+        csvField(sb, e.action()).append(',');
+        csvField(sb, e.subject()).append(',');
+        csvField(sb, e.message()).append('\n');
+    }
+
+    private static StringBuilder csvField(StringBuilder sb, String v) {
+        if (v == null) return sb;
+        sb.append('"');
+        for (int i = 0; i < v.length(); i++) {
+            char c = v.charAt(i);
+            if (c == '"') sb.append('"');
+            sb.append(c);
+        }
+        return sb.append('"');
+    }
+
+    private static void json(StringBuilder sb, AuditEntry e) {
+        sb.append("{\"ts\":\"").append(timestamp(e.at())).append('"');
+        jsonField(sb, "actor", e.actor());
+        jsonField(sb, "action", e.action());
+        jsonField(sb, "subject", e.subject());
+        jsonField(sb, "message", e.message());
+        sb.append("}\n");
+    }
+
+    private static void jsonField(StringBuilder sb, String name, String v) {
+        sb.append(",\"").append(name).append("\":");
+        if (v == null) { sb.append("null"); return; }
+        sb.append('"');
+        for (int i = 0; i < v.length(); i++) {
+            char c = v.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+                    else sb.append(c);
+                }
+            }
+        }
+        sb.append('"');
+    }
+
+    /** UTF-8 encoder into one large buffer, drained to the channel or through gzip. */
+    private static final class Sink implements AutoCloseable {
+        private final FileChannel channel;
+        private final OutputStream gzip;              // null for plain output
+        private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+        private final ByteBuffer buf = ByteBuffer.allocate(BUFFER);
+
+        Sink(FileChannel channel, boolean gzip) throws IOException {
+            this.channel = channel;
+            this.gzip = gzip ? new GZIPOutputStream(Channels.newOutputStream(channel), BUFFER) : null;
+        }
+
+        void write(CharSequence text) throws IOException {
+            CharBuffer chars = CharBuffer.wrap(text);
+            while (true) {
+                CoderResult r = encoder.encode(chars, buf, false);
+                if (r.isOverflow()) { drain(); continue; }
+                if (r.isError()) r.throwException();
+                return;
+            }
+        }
+
+        private void drain() throws IOException {
+            buf.flip();
+            if (gzip != null) {
+                gzip.write(buf.array(), buf.arrayOffset() + buf.position(), buf.remaining());
+            } else {
+                while (buf.hasRemaining()) channel.write(buf);
+            }
+            buf.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            drain();
+            if (gzip != null) gzip.close(); else channel.force(false);
+        }
+    }
+}
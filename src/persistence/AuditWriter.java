@@ -0,0 +1,251 @@
+package persistence;
+
+import java.sql.*;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Background audit pipeline: callers enqueue into a bounded queue and a
+ * single writer thread drains it into batched transactions, so a burst of
+ * audit lines costs one commit (one fsync) per batch instead of one per line.
+ *
+ * A batch is committed when it reaches {@code batchSize} entries, when
+ * {@code lingerMillis} has passed since its first entry, or when someone
+ * calls {@link #flush()}. When the queue is full, callers wait; every such
+ * wait is counted in {@link #getBlockedOffers()}. A failed commit is retried
+ * with backoff. After {@link #close()} nothing more is accepted, and any
+ * flush still waiting then fails instead of hanging.
+ */
+public final class AuditWriter implements AutoCloseable {
+
+    public static final int DEFAULT_CAPACITY = 8192;
+    public static final int DEFAULT_BATCH_SIZE = 512;
+    public static final long DEFAULT_LINGER_MILLIS = 200;
+    public static final long FLUSH_TIMEOUT_MILLIS = 30_000;
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long BACKOFF_MILLIS = 50;       // doubled after each failed attempt
+
+    /** One queued audit line, or a flush barrier when message is null. */
+    public record Entry(String ts, String message, CompletableFuture<Void> barrier) {}
+
+    /** Where committed batches go; {@link AuditDao} by default. */
+    @FunctionalInterface
+    public interface Sink {
+        void insert(List<Entry> batch) throws SQLException;
+    }
+
+    private final BlockingQueue<Entry> queue;
+    private final int batchSize;
+    private final long lingerNanos;
+    private final Sink sink;
+    private final Thread thread;
+    private volatile boolean running = true;
+    // enqueuers hold the read lock from the running check to the put; close() takes the write lock
+    private final ReentrantReadWriteLock closing = new ReentrantReadWriteLock();
+
+    // backpressure / throughput metrics
+    private final AtomicLong enqueued = new AtomicLong();
+    private final AtomicLong blockedOffers = new AtomicLong();
+    private final AtomicLong peakDepth = new AtomicLong();
+    private final AtomicLong committed = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    public AuditWriter() {
+        this(DEFAULT_CAPACITY, DEFAULT_BATCH_SIZE, DEFAULT_LINGER_MILLIS);
+    }
+
+    public AuditWriter(int capacity, int batchSize, long lingerMillis) {
+        this(capacity, batchSize, lingerMillis, AuditDao::insertBatch);
+    }
+
+    public AuditWriter(int capacity, int batchSize, long lingerMillis, Sink sink) {
+        if (capacity < 1 || batchSize < 1 || lingerMillis < 0)
+            throw new IllegalArgumentException("capacity and batch size must be positive, linger >= 0");
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = batchSize;
+        this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(lingerMillis);
+        this.sink = sink;
+        this.thread = new Thread(this::run, "audit-writer");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /** Queue one audit line. Returns immediately unless the queue is full. */
+    public void log(String message) {
+        log(LocalDateTime.now().toString(), message);
+    }
+
+    /** Queue one audit line stamped {@code ts} (e.g. copied from the model's audit trail). */
+    public void log(String ts, String message) {
+        enqueue(new Entry(ts, message, null));
+    }
+
+    /** Queue one audit line and wait until it (and everything before it) is committed. */
+    public void logDurable(String message) throws SQLException {
+        logDurable(LocalDateTime.now().toString(), message);
+    }
+
+    /** {@link #logDurable(String)} for a line stamped {@code ts}. */
+    public void logDurable(String ts, String message) throws SQLException {
+        log(ts, message);
+        flush();
+    }
+
+    /** Wait (at most {@link #FLUSH_TIMEOUT_MILLIS}) until every line queued before this call is committed. */
+    public void flush() throws SQLException {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        enqueue(new Entry(null, null, done));
+        try {
+            done.get(FLUSH_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while flushing audit log", e);
+        } catch (TimeoutException e) {
+            throw new SQLException("Audit flush timed out after " + FLUSH_TIMEOUT_MILLIS + " ms", e);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof SQLException se ? se
+                    : new SQLException("Audit flush failed", e.getCause());
+        }
+    }
+
+    private void enqueue(Entry e) {
+        closing.readLock().lock();
+        try {
+            if (!running) throw new IllegalStateException("Audit writer is closed");
+            if (!queue.offer(e)) {
+                blockedOffers.incrementAndGet();
+                queue.put(e);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while queueing audit entry", ex);
+        } finally {
+            closing.readLock().unlock();
+        }
+        if (e.message() != null) enqueued.incrementAndGet();
+        long depth = queue.size();
+        if (depth > peakDepth.get()) peakDepth.accumulateAndGet(depth, Math::max);
+    }
+
+    // ---------------- writer thread ----------------
+    private void run() {
+        List<Entry> batch = new ArrayList<>(batchSize);
+        List<CompletableFuture<Void>> barriers = new ArrayList<>();
+        boolean interrupted = false;
+        while (!interrupted && (running || !queue.isEmpty())) {
+            try {
+                Entry first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                long deadline = System.nanoTime() + lingerNanos;
+                Entry e = first;
+                while (true) {
+                    if (e.message() == null) { barriers.add(e.barrier()); break; }
+                    batch.add(e);
+                    if (batch.size() >= batchSize) break;
+                    e = queue.poll();
+                    if (e == null) {
+                        long wait = deadline - System.nanoTime();
+                        if (wait <= 0 || !running) break;
+                        e = queue.poll(wait, TimeUnit.NANOSECONDS);
+                        if (e == null) break;
+                    }
+                }
+            } catch (InterruptedException ie) {
+                interrupted = true;                         // commit what was collected, then stop
+            }
+            SQLException failure = commit(batch);
+            for (CompletableFuture<Void> b : barriers) {
+                if (failure == null) b.complete(null); else b.completeExceptionally(failure);
+            }
+            batch.clear();
+            barriers.clear();
+        }
+        // stop taking entries; draining meanwhile frees anyone blocked in put()
+        while (!closing.writeLock().tryLock()) { failQueued(); Thread.onSpinWait(); }
+        try {
+            running = false;
+        } finally {
+            closing.writeLock().unlock();
+        }
+        failQueued();
+    }
+
+    // entries left once the writer has stopped: lines are dropped, waiting flushes fail
+    private void failQueued() {
+        SQLException closed = new SQLException("Audit writer stopped before this was committed");
+        for (Entry e; (e = queue.poll()) != null; ) {
+            if (e.message() == null) e.barrier().completeExceptionally(closed);
+            else dropped.incrementAndGet();
+        }
+    }
+
+    private SQLException commit(List<Entry> batch) {
+        if (batch.isEmpty()) return null;
+        SQLException last = null;
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            try {
+                sink.insert(batch);
+                committed.addAndGet(batch.size());
+                batches.incrementAndGet();
+                return null;
+            } catch (SQLException e) {
+                last = e;
+            }
+            if (attempt < MAX_ATTEMPTS && !backoff(attempt)) break;
+        }
+        dropped.addAndGet(batch.size());
+        System.err.println("Audit writer dropped " + batch.size() + " entries: " + last.getMessage());
+        return last;
+    }
+
+    // false if interrupted (stop retrying)
+    private static boolean backoff(int attempt) {
+        try {
+            Thread.sleep(BACKOFF_MILLIS << (attempt - 1));
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /** Stop accepting entries, commit what is queued and stop the writer thread. */
+    @Override
+    public void close() {
+        closing.writeLock().lock();
+        try {
+            if (!running && !thread.isAlive()) return;
+            running = false;                                // no enqueue gets past its check from here on
+        } finally {
+            closing.writeLock().unlock();
+        }
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (thread.isAlive()) thread.interrupt();           // stuck committing: give up on what is left
+        else failQueued();
+    }
+
+    // ---------------- metrics ----------------
+    public int getQueueDepth() { return queue.size(); }
+    public long getPeakQueueDepth() { return peakDepth.get(); }
+    public int getQueueCapacity() { return queue.size() + queue.remainingCapacity(); }
+    /** Number of log calls that found the queue full and had to wait. */
+    public long getBlockedOffers() { return blockedOffers.get(); }
+    public long getEnqueued() { return enqueued.get(); }
+    public long getCommitted() { return committed.get(); }
+    public long getBatches() { return batches.get(); }
+    public long getDropped() { return dropped.get(); }
+}
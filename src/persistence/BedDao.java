@@ -1,48 +1,57 @@
 package persistence;
 
 import model.*;
+import util.Metrics;
+import util.OpStats;
 
 import java.sql.*;
 import java.util.*;
 
 public class BedDao {
+    private static final OpStats INIT_BEDS = Metrics.op("BedDao.initBedsFromModel");
+    private static final OpStats SET_OCCUPANT = Metrics.op("BedDao.setOccupant");
+    private static final OpStats LOAD_INTO_MODEL = Metrics.op("BedDao.loadIntoModel");
+
     public static void initBedsFromModel(CareHome home) throws SQLException {
         // Seed table with the same bed IDs your model constructs
-        try (PreparedStatement ps = Db.get().prepareStatement("""
-            INSERT INTO Bed(id,residentId) VALUES(?,NULL)
-            ON CONFLICT(id) DO NOTHING
-        """)) {
+        Db.write(INIT_BEDS, s -> {
+            PreparedStatement ps = s.prepare("""
+                INSERT INTO Bed(id,residentId) VALUES(?,NULL)
+                ON CONFLICT(id) DO NOTHING
+            """);
             for (Bed b : home.getBeds()) {
                 ps.setString(1, b.getBedId());
                 ps.addBatch();
             }
             ps.executeBatch();
-        }
+            return null;
+        });
     }
 
     public static void setOccupant(String bedId, String residentId) throws SQLException {
-        try (PreparedStatement ps = Db.get().prepareStatement("UPDATE Bed SET residentId=? WHERE id=?")) {
+        Db.write(SET_OCCUPANT, s -> {
+            PreparedStatement ps = s.prepare("UPDATE Bed SET residentId=? WHERE id=?");
             if (residentId == null) ps.setNull(1, Types.VARCHAR); else ps.setString(1, residentId);
             ps.setString(2, bedId);
-            ps.executeUpdate();
-        }
+            return ps.executeUpdate();
+        });
     }
 
+    /** Re-apply bed occupancy from the Bed table: one query, one hash lookup per row. */
     public static void loadIntoModel(CareHome home) throws SQLException {
         // Clear any current occupancy, then set from DB
-        for (Bed b : home.getBeds()) { if (b.isOccupied()) { b.getOccupant().setBed(null); b.vacate(); } }
-        try (PreparedStatement ps = Db.get().prepareStatement("SELECT id,residentId FROM Bed");
-             ResultSet rs = ps.executeQuery()) {
-            while (rs.next()) {
-                String bedId = rs.getString(1);
-                String rid = rs.getString(2);
-                if (rid != null && home.getResidents().containsKey(rid)) {
-                    Resident r = home.getResidents().get(rid);
-                    for (Bed b : home.getBeds()) {
-                        if (b.getBedId().equals(bedId)) { b.assign(r); r.setBed(b); break; }
-                    }
+        for (Bed b : home.getBeds()) { if (b.isOccupied()) home.restoreBed(b, null); }
+        BedRegistry registry = home.getBedRegistry();
+        Map<String, Resident> residents = home.getResidents();
+        Db.read(LOAD_INTO_MODEL, s -> {
+            try (ResultSet rs = s.prepare("SELECT id,residentId FROM Bed WHERE residentId IS NOT NULL").executeQuery()) {
+                while (rs.next()) {
+                    Bed b = registry.byCode(rs.getString(1));
+                    Resident r = residents.get(rs.getString(2));
+                    if (b != null && r != null) home.restoreBed(b, r);
                 }
             }
-        }
+            return null;
+        });
     }
 }
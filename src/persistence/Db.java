@@ -1,63 +1,218 @@
 package persistence;
 
+import util.OpStats;
+
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.locks.ReentrantLock;
 
+/**
+ * Connection manager for the SQLite store.
+ *
+ * The database runs in WAL mode with one writer connection and a small pool
+ * of read-only connections, so report queries can run while admissions
+ * write. All work goes through {@link #read} or {@link #write}, which lend
+ * a {@link DbSession} (connection + prepared-statement cache) for the
+ * duration of one transaction.
+ */
 public final class Db {
-    private static final String URL = "jdbc:sqlite:carehome.db";
-    private static Connection CONN;
+    public static final String DEFAULT_URL = "jdbc:sqlite:carehome.db";
+    public static final int DEFAULT_READERS = 4;
+
+    /** Unit of database work run inside one transaction. */
+    @FunctionalInterface
+    public interface Work<T> {
+        T run(DbSession s) throws SQLException;
+    }
+
+    private static String url = DEFAULT_URL;
+    private static int readerCount = DEFAULT_READERS;
+
+    private static final ReentrantLock WRITE_LOCK = new ReentrantLock();
+    private static DbSession writer;                 // guarded by WRITE_LOCK
+    private static volatile boolean wal;             // the writer has switched this file to WAL
+    private static BlockingQueue<DbSession> readers; // idle read-only sessions
+    private static final List<DbSession> allReaders = new ArrayList<>();
 
     private Db() {}
 
-    public static Connection get() throws SQLException {
-        if (CONN == null || CONN.isClosed()) {
-            CONN = DriverManager.getConnection(URL);
-            CONN.createStatement().execute("PRAGMA foreign_keys = ON");
+    /** Point the manager at another database (closes any open connections). */
+    public static synchronized void configure(String jdbcUrl, int readerConnections) {
+        close();
+        wal = false;
+        url = jdbcUrl;
+        readerCount = jdbcUrl.contains(":memory:") ? 0 : Math.max(0, readerConnections); // in-memory DBs are per-connection
+    }
+
+    /** Run read-only work on a pooled reader connection (or the writer if none are configured). */
+    public static <T> T read(Work<T> work) throws SQLException {
+        if (WRITE_LOCK.isHeldByCurrentThread()) return work.run(writer); // see own uncommitted writes
+        BlockingQueue<DbSession> pool = readers();
+        if (pool == null) return write(work);
+
+        DbSession s;
+        try {
+            s = pool.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted waiting for a reader connection", e);
+        }
+        try {
+            return inTransaction(s, work);
+        } finally {
+            pool.add(s);
+        }
+    }
+
+    /** Run work on the single writer connection, inside one transaction. Nested calls join the outer one. */
+    public static <T> T write(Work<T> work) throws SQLException {
+        if (WRITE_LOCK.isHeldByCurrentThread()) return work.run(writer);
+        WRITE_LOCK.lock();
+        try {
+            if (writer == null) writer = open(false);
+            return inTransaction(writer, work);
+        } finally {
+            WRITE_LOCK.unlock();
         }
-        return CONN;
+    }
+
+    /** {@link #read(Work)}, recording latency and errors under {@code op}. */
+    public static <T> T read(OpStats op, Work<T> work) throws SQLException {
+        long t0 = System.nanoTime();
+        try {
+            return read(work);
+        } catch (SQLException | RuntimeException e) {
+            op.failed(e);
+            throw e;
+        } finally {
+            op.stop(t0);
+        }
+    }
+
+    /** {@link #write(Work)}, recording latency and errors under {@code op}. */
+    public static <T> T write(OpStats op, Work<T> work) throws SQLException {
+        long t0 = System.nanoTime();
+        try {
+            return write(work);
+        } catch (SQLException | RuntimeException e) {
+            op.failed(e);
+            throw e;
+        } finally {
+            op.stop(t0);
+        }
+    }
+
+    private static <T> T inTransaction(DbSession s, Work<T> work) throws SQLException {
+        Connection c = s.connection();
+        c.setAutoCommit(false);
+        try {
+            T result = work.run(s);
+            c.commit();
+            return result;
+        } catch (SQLException | RuntimeException e) {
+            try { c.rollback(); } catch (SQLException suppressed) { e.addSuppressed(suppressed); }
+            throw e;
+        } finally {
+            c.setAutoCommit(true);
+        }
+    }
+
+    private static synchronized BlockingQueue<DbSession> readers() throws SQLException {
+        if (readerCount == 0) return null;
+        if (readers == null) {
+            if (!wal) write(s -> null); // writer first: it switches the file to WAL
+            BlockingQueue<DbSession> pool = new ArrayBlockingQueue<>(readerCount);
+            for (int i = 0; i < readerCount; i++) {
+                DbSession s = open(true);
+                allReaders.add(s);
+                pool.add(s);
+            }
+            readers = pool;
+        }
+        return readers;
+    }
+
+    private static DbSession open(boolean readOnly) throws SQLException {
+        Connection c = DriverManager.getConnection(url);
+        try (Statement st = c.createStatement()) {
+            st.execute("PRAGMA busy_timeout = 5000");
+            st.execute("PRAGMA foreign_keys = ON");
+            st.execute("PRAGMA temp_store = MEMORY");
+            st.execute("PRAGMA cache_size = -16000"); // 16 MB page cache per connection
+            if (readOnly) {
+                st.execute("PRAGMA query_only = ON");
+            } else {
+                st.execute("PRAGMA journal_mode = WAL");
+                wal = true;
+                st.execute("PRAGMA synchronous = NORMAL"); // durable at checkpoint, safe with WAL
+            }
+        }
+        return new DbSession(c);
+    }
+
+    /** Close every pooled connection; the next call reopens them. */
+    public static synchronized void close() {
+        WRITE_LOCK.lock();
+        try {
+            if (writer != null) { writer.close(); writer = null; }
+        } finally {
+            WRITE_LOCK.unlock();
+        }
+        for (DbSession s : allReaders) s.close();
+        allReaders.clear();
+        readers = null;
     }
 
     // Create tables if not exist
     public static void init() throws SQLException {
-        try (Statement st = get().createStatement()) {
-            st.execute("""
-                CREATE TABLE IF NOT EXISTS Staff(
-                  id TEXT PRIMARY KEY,
-                  username TEXT UNIQUE,
-                  role TEXT NOT NULL,
-                  name TEXT NOT NULL,
-                  gender CHAR(1) NOT NULL
-                );
-            """);
-            st.execute("""
-                CREATE TABLE IF NOT EXISTS Resident(
-                  id TEXT PRIMARY KEY,
-                  name TEXT NOT NULL,
-                  gender CHAR(1) NOT NULL,
-                  age INTEGER NOT NULL
-                );
-            """);
-            st.execute("""
-                CREATE TABLE IF NOT EXISTS Bed(
-                  id TEXT PRIMARY KEY,
-                  residentId TEXT REFERENCES Resident(id) ON DELETE SET NULL
-                );
-            """);
-            st.execute("""
-                CREATE TABLE IF NOT EXISTS Prescription(
-                  id INTEGER PRIMARY KEY AUTOINCREMENT,
-                  residentId TEXT NOT NULL REFERENCES Resident(id) ON DELETE CASCADE,
-                  medicine TEXT NOT NULL,
-                  dosage TEXT NOT NULL,
-                  time TEXT NOT NULL,
-                  doctorId TEXT NOT NULL
-                );
-            """);
-            st.execute("""
-                CREATE TABLE IF NOT EXISTS Audit(
-                  ts TEXT NOT NULL,
-                  message TEXT NOT NULL
-                );
-            """);
-        }
+        write(s -> {
+            try (Statement st = s.connection().createStatement()) {
+                st.execute("""
+                    CREATE TABLE IF NOT EXISTS Staff(
+                      id TEXT PRIMARY KEY,
+                      username TEXT UNIQUE,
+                      role TEXT NOT NULL,
+                      name TEXT NOT NULL,
+                      gender CHAR(1) NOT NULL
+                    );
+                """);
+                st.execute("""
+                    CREATE TABLE IF NOT EXISTS Resident(
+                      id TEXT PRIMARY KEY,
+                      name TEXT NOT NULL,
+                      gender CHAR(1) NOT NULL,
+                      age INTEGER NOT NULL
+                    );
+                """);
+                st.execute("""
+                    CREATE TABLE IF NOT EXISTS Bed(
+                      id TEXT PRIMARY KEY,
+                      residentId TEXT REFERENCES Resident(id) ON DELETE SET NULL
+                    );
+                """);
+                st.execute("""
+                    CREATE TABLE IF NOT EXISTS Prescription(
+                      id INTEGER PRIMARY KEY AUTOINCREMENT,
+                      residentId TEXT NOT NULL REFERENCES Resident(id) ON DELETE CASCADE,
+                      medicine TEXT NOT NULL,
+                      dosage TEXT NOT NULL,
+                      time TEXT NOT NULL,
+                      doctorId TEXT NOT NULL
+                    );
+                """);
+                st.execute("CREATE INDEX IF NOT EXISTS idx_bed_resident ON Bed(residentId)");
+                st.execute("CREATE INDEX IF NOT EXISTS idx_prescription_resident ON Prescription(residentId)");
+                st.execute("""
+                    CREATE TABLE IF NOT EXISTS Audit(
+                      ts TEXT NOT NULL,
+                      message TEXT NOT NULL
+                    );
+                """);
+            }
+            return null;
+        });
     }
 }
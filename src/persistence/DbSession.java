@@ -0,0 +1,50 @@
+package persistence;
+
+import java.sql.*;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * One pooled connection plus its prepared-statement cache. Statements handed
+ * out by {@link #prepare} belong to the session: callers close their result
+ * sets but never the statements.
+ */
+public final class DbSession implements AutoCloseable {
+
+    private final Connection connection;
+    private final Map<String, PreparedStatement> statements = new HashMap<>();
+
+    DbSession(Connection connection) {
+        this.connection = connection;
+    }
+
+    /** Cached statement for this SQL text, prepared on first use; reused ones come back with no parameters or batch. */
+    public PreparedStatement prepare(String sql) throws SQLException {
+        PreparedStatement ps = statements.get(sql);
+        if (ps == null || ps.isClosed()) {
+            ps = connection.prepareStatement(sql);
+            statements.put(sql, ps);
+        } else {
+            ps.clearParameters();
+            ps.clearBatch();     // left over if the last batch loop failed before executeBatch
+        }
+        return ps;
+    }
+
+    public Connection connection() {
+        return connection;
+    }
+
+    int cachedStatements() {
+        return statements.size();
+    }
+
+    @Override
+    public void close() {
+        for (PreparedStatement ps : statements.values()) {
+            try { ps.close(); } catch (SQLException ignored) {}
+        }
+        statements.clear();
+        try { connection.close(); } catch (SQLException ignored) {}
+    }
+}
@@ -0,0 +1,193 @@
+package persistence;
+
+import model.*;
+import model.CareEvent.*;
+
+import java.io.*;
+import java.time.*;
+
+/**
+ * Compact binary form of {@link CareEvent}s for the journal. Each record is
+ * {@code seq, type, at, actor} followed by the fields of its type; strings
+ * are written with a presence flag so nulls survive the round trip.
+ */
+final class JournalCodec {
+
+    private static final byte STAFF_ADDED = 1;
+    private static final byte RESIDENT_ADMITTED = 2;
+    private static final byte RESIDENT_MOVED = 3;
+    private static final byte PRESCRIPTION_ADDED = 4;
+    private static final byte DOSE_ADMINISTERED = 5;
+    private static final byte RESIDENT_DISCHARGED = 6;
+    private static final byte PASSWORD_CHANGED = 7;
+    private static final byte SHIFT_ASSIGNED = 8;
+    private static final byte DATED_SHIFT_ASSIGNED = 9;   // SHIFT_ASSIGNED + epoch day and ward
+    private static final byte RESIDENT_ASSIGNED = 10;
+
+    private JournalCodec() {}
+
+    /** A decoded record: its sequence number and event. */
+    record Entry(long seq, CareEvent event) {}
+
+    static void write(DataOutputStream out, long seq, CareEvent e) throws IOException {
+        out.writeLong(seq);
+        out.writeByte(typeOf(e));
+        out.writeLong(e.at());
+        writeStr(out, e.actor());
+
+        if (e instanceof StaffAdded ev) {
+            Staff s = ev.staff();
+            out.writeByte(s instanceof Manager ? 'M' : s instanceof Doctor ? 'D' : 'N');
+            writeStr(out, s.getId());
+            writeStr(out, s.getName());
+            out.writeChar(s.getGender());
+            writeStr(out, s.getUsername());
+            writeStr(out, s.getPasswordHash());
+            if (s instanceof Doctor d) writeStr(out, d.getSpecialization());
+
+        } else if (e instanceof ResidentAdmitted ev) {
+            Resident r = ev.resident();
+            writeStr(out, r.getId());
+            writeStr(out, r.getName());
+            out.writeChar(r.getGender());
+            out.writeInt(r.getAge());
+            out.writeInt(ev.bedId());
+
+        } else if (e instanceof ResidentMoved ev) {
+            writeStr(out, ev.residentId());
+            out.writeInt(ev.fromBedId());
+            out.writeInt(ev.toBedId());
+
+        } else if (e instanceof PrescriptionAdded ev) {
+            Prescription p = ev.prescription();
+            writeStr(out, ev.residentId());
+            writeStr(out, p.getMedicine());
+            writeStr(out, p.getDosage());
+            out.writeInt(p.getTime().toSecondOfDay());
+            writeStr(out, p.getDoctorId());
+
+        } else if (e instanceof DoseAdministered ev) {
+            AdministrationRecord a = ev.record();
+            writeStr(out, ev.residentId());
+            writeStr(out, a.getMedicine());
+            writeStr(out, a.getDosage());
+            writeDateTime(out, a.getAdministeredAt());
+            writeStr(out, a.getNurseId());
+
+        } else if (e instanceof ResidentDischarged ev) {
+            writeStr(out, ev.residentId());
+            out.writeInt(ev.bedId());
+            writeStr(out, ev.archiveFile());
+
+        } else if (e instanceof PasswordChanged ev) {
+            writeStr(out, ev.username());
+            writeStr(out, ev.passwordHash());
+
+        } else if (e instanceof ShiftAssigned ev) {
+            Shift s = ev.shift();
+            writeStr(out, ev.username());
+            out.writeByte(s.getDay().getValue());
+            out.writeInt(s.getStartTime().toSecondOfDay());
+            out.writeInt(s.getEndTime().toSecondOfDay());
+            if (s.getDate() != null) {
+                out.writeInt((int) s.getDate().toEpochDay());
+                out.writeByte(s.getWard());
+            }
+
+        } else if (e instanceof ResidentAssigned ev) {
+            writeStr(out, ev.username());
+            writeStr(out, ev.residentId());
+            out.writeBoolean(ev.assigned());
+        }
+    }
+
+    static Entry read(DataInputStream in) throws IOException {
+        long seq = in.readLong();
+        byte type = in.readByte();
+        long at = in.readLong();
+        String actor = readStr(in);
+
+        CareEvent e = switch (type) {
+            case STAFF_ADDED -> {
+                byte role = in.readByte();
+                String id = readStr(in), name = readStr(in);
+                char gender = in.readChar();
+                String user = readStr(in), hash = readStr(in);
+                Staff s = switch (role) {
+                    case 'M' -> new Manager(id, name, gender, user, hash);
+                    case 'D' -> new Doctor(id, name, gender, user, hash, readStr(in));
+                    default -> new Nurse(id, name, gender, user, hash);
+                };
+                yield new StaffAdded(at, actor, s);
+            }
+            case RESIDENT_ADMITTED -> {
+                String id = readStr(in), name = readStr(in);
+                char gender = in.readChar();
+                int age = in.readInt();
+                yield new ResidentAdmitted(at, actor, new Resident(id, name, gender, age), in.readInt());
+            }
+            case RESIDENT_MOVED -> new ResidentMoved(at, actor, readStr(in), in.readInt(), in.readInt());
+            case PRESCRIPTION_ADDED -> {
+                String rid = readStr(in), med = readStr(in), dose = readStr(in);
+                LocalTime time = LocalTime.ofSecondOfDay(in.readInt());
+                yield new PrescriptionAdded(at, actor, rid, new Prescription(med, dose, time, readStr(in)));
+            }
+            case DOSE_ADMINISTERED -> {
+                String rid = readStr(in), med = readStr(in), dose = readStr(in);
+                LocalDateTime when = readDateTime(in);
+                yield new DoseAdministered(at, actor, rid, new AdministrationRecord(med, dose, when, readStr(in)));
+            }
+            case RESIDENT_DISCHARGED -> new ResidentDischarged(at, actor, readStr(in), in.readInt(), readStr(in));
+            case PASSWORD_CHANGED -> new PasswordChanged(at, actor, readStr(in), readStr(in));
+            case SHIFT_ASSIGNED -> {
+                String user = readStr(in);
+                DayOfWeek day = DayOfWeek.of(in.readByte());
+                LocalTime start = LocalTime.ofSecondOfDay(in.readInt());
+                LocalTime end = LocalTime.ofSecondOfDay(in.readInt());
+                yield new ShiftAssigned(at, actor, user, new Shift(day, start, end));
+            }
+            case DATED_SHIFT_ASSIGNED -> {
+                String user = readStr(in);
+                in.readByte();                                  // day of week, implied by the date
+                LocalTime start = LocalTime.ofSecondOfDay(in.readInt());
+                LocalTime end = LocalTime.ofSecondOfDay(in.readInt());
+                LocalDate date = LocalDate.ofEpochDay(in.readInt());
+                yield new ShiftAssigned(at, actor, user, new Shift(date, start, end, in.readUnsignedByte()));
+            }
+            case RESIDENT_ASSIGNED -> new ResidentAssigned(at, actor, readStr(in), readStr(in), in.readBoolean());
+            default -> throw new IOException("Unknown journal record type " + type);
+        };
+        return new Entry(seq, e);
+    }
+
+    private static byte typeOf(CareEvent e) {
+        if (e instanceof StaffAdded) return STAFF_ADDED;
+        if (e instanceof ResidentAdmitted) return RESIDENT_ADMITTED;
+        if (e instanceof ResidentMoved) return RESIDENT_MOVED;
+        if (e instanceof PrescriptionAdded) return PRESCRIPTION_ADDED;
+        if (e instanceof DoseAdministered) return DOSE_ADMINISTERED;
+        if (e instanceof ResidentDischarged) return RESIDENT_DISCHARGED;
+        if (e instanceof PasswordChanged) return PASSWORD_CHANGED;
+        if (e instanceof ResidentAssigned) return RESIDENT_ASSIGNED;
+        return ((ShiftAssigned) e).shift().getDate() != null ? DATED_SHIFT_ASSIGNED : SHIFT_ASSIGNED;
+    }
+
+    private static void writeStr(DataOutputStream out, String s) throws IOException {
+        out.writeBoolean(s != null);
+        if (s != null) out.writeUTF(s);
+    }
+
+    private static String readStr(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeDateTime(DataOutputStream out, LocalDateTime t) throws IOException {
+        out.writeLong(t.toEpochSecond(ZoneOffset.UTC));
+        out.writeInt(t.getNano());
+    }
+
+    private static LocalDateTime readDateTime(DataInputStream in) throws IOException {
+        long sec = in.readLong();
+        return LocalDateTime.ofEpochSecond(sec, in.readInt(), ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,317 @@
+package persistence;
+
+import model.CareEvent;
+import model.CareHome;
+import model.CareJournal;
+import util.Metrics;
+import util.OpStats;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only change log plus periodic snapshots for one {@link CareHome}.
+ *
+ * Every change is appended to the current journal segment before it is
+ * applied, so saving costs one small record instead of the whole object
+ * graph. {@link #compact()} writes a snapshot of the home and starts a new
+ * segment; {@link #recover} loads the latest snapshot and replays the
+ * records after it. Files in the directory:
+ * <pre>
+ *   snapshot.dat              magic, last sequence covered, CareHome image (see CareHome#toImage)
+ *   journal-&lt;firstSeq&gt;.log    frames of [length][crc32][record]
+ * </pre>
+ */
+public final class JournalStore implements CareJournal, AutoCloseable {
+
+    private static final OpStats APPEND = Metrics.op("JournalStore.append");
+    private static final OpStats COMPACT = Metrics.op("JournalStore.compact");
+    private static final long SNAPSHOT_MAGIC = 0x4348534E41500001L; // "CHSNAP" v1
+    private static final String SNAPSHOT = "snapshot.dat";
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private final Path dir;
+    private final boolean syncEachRecord;
+
+    private CareHome home;
+    private FileOutputStream segmentFile;
+    private DataOutputStream segment;
+    private long seq;                  // last sequence appended
+    private long snapshotSeq;          // last sequence covered by snapshot.dat
+    private final ByteArrayOutputStream scratch = new ByteArrayOutputStream(256);
+    private final DataOutputStream scratchOut = new DataOutputStream(scratch);
+    private final CRC32 crc = new CRC32();
+    private ScheduledExecutorService compactor;
+
+    private JournalStore(Path dir, boolean syncEachRecord) {
+        this.dir = dir;
+        this.syncEachRecord = syncEachRecord;
+    }
+
+    /**
+     * Open (or create) a journal directory. With syncEachRecord every append
+     * is forced to disk; otherwise records reach the OS immediately and the
+     * disk on {@link #sync()} / compaction.
+     */
+    public static JournalStore open(Path dir, boolean syncEachRecord) throws IOException {
+        Files.createDirectories(dir);
+        return new JournalStore(dir, syncEachRecord);
+    }
+
+    // -------------------------------------------------------------------
+    // RECOVERY
+    // -------------------------------------------------------------------
+    /**
+     * Load the latest snapshot (or fresh.get() if there is none), replay every
+     * journaled change after it and attach this store as the home's journal.
+     */
+    public synchronized CareHome recover(Supplier<CareHome> fresh) throws IOException {
+        CareHome h = readSnapshot();
+        if (h == null) { h = fresh.get(); snapshotSeq = 0; }
+        seq = snapshotSeq;
+
+        List<Path> segments = segments();
+        for (int i = 0; i < segments.size(); i++) {
+            boolean last = i == segments.size() - 1;
+            long valid = replaySegment(segments.get(i), h);
+            long size = Files.size(segments.get(i));
+            if (valid < size) {
+                if (!last)
+                    throw new IOException("Journal segment " + segments.get(i).getFileName()
+                            + " is damaged at byte " + valid + "; later segments cannot be replayed");
+                try (FileChannel ch = FileChannel.open(segments.get(i), StandardOpenOption.WRITE)) {
+                    ch.truncate(valid); // drop a torn final record
+                }
+            }
+        }
+        attach(h, segments.isEmpty() ? null : segments.get(segments.size() - 1));
+        return h;
+    }
+
+    /** Take over a home loaded some other way: snapshot it and journal from here on. */
+    public void adopt(CareHome h) throws IOException {
+        synchronized (this) {
+            if (home != null) home.setJournal(null);
+            closeSegment();
+            for (Path p : segments()) Files.delete(p); // history of the replaced home no longer applies
+            attach(h, null);
+        }
+        compact(); // outside the monitor: checkpoint lock first, then this store (same order as appends)
+    }
+
+    private void attach(CareHome h, Path tail) throws IOException {
+        home = h;
+        openSegment(tail != null ? tail : dir.resolve(segmentName(seq + 1)));
+        h.setJournal(this);
+    }
+
+    private CareHome readSnapshot() throws IOException {
+        Path file = dir.resolve(SNAPSHOT);
+        if (!Files.exists(file)) return null;
+        byte[] data = Files.readAllBytes(file);
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+        if (data.length < 16) throw new IOException("Not a snapshot file: " + file);
+        long magic = in.readLong();
+        long covered = in.readLong();
+        if (magic != SNAPSHOT_MAGIC) throw new IOException("Not a snapshot file: " + file);
+        CareHome h = CareHome.fromImage(data, 16, data.length - 16, file.toString());
+        snapshotSeq = covered;
+        return h;
+    }
+
+    /** Replay records after the snapshot; returns the byte length of the intact prefix. */
+    private long replaySegment(Path file, CareHome h) throws IOException {
+        long valid = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            CRC32 check = new CRC32();
+            while (true) {
+                int len, sum;
+                byte[] body;
+                try {
+                    len = in.readInt();
+                    sum = in.readInt();
+                    if (len <= 0) break;
+                    body = in.readNBytes(len);
+                } catch (EOFException eof) {
+                    break;
+                }
+                if (body.length < len) break;
+                check.reset();
+                check.update(body);
+                if ((int) check.getValue() != sum) break;
+
+                JournalCodec.Entry entry = JournalCodec.read(new DataInputStream(new ByteArrayInputStream(body)));
+                if (entry.seq() > snapshotSeq) {
+                    h.replay(entry.event());
+                    seq = entry.seq();
+                }
+                valid += 8 + len;
+            }
+        }
+        return valid;
+    }
+
+    // -------------------------------------------------------------------
+    // APPEND
+    // -------------------------------------------------------------------
+    @Override
+    public synchronized void append(CareEvent e) {
+        long t0 = System.nanoTime();
+        try {
+            scratch.reset();
+            JournalCodec.write(scratchOut, seq + 1, e);
+            crc.reset();
+            crc.update(scratch.toByteArray(), 0, scratch.size());
+            segment.writeInt(scratch.size());
+            segment.writeInt((int) crc.getValue());
+            scratch.writeTo(segment);
+            segment.flush();
+            if (syncEachRecord) segmentFile.getChannel().force(false);
+            seq++;
+        } catch (IOException ex) {
+            APPEND.failed(ex);
+            throw new UncheckedIOException("Could not journal change", ex);
+        } finally {
+            APPEND.stop(t0);
+        }
+    }
+
+    /** Force every appended record to disk. */
+    public synchronized void sync() throws IOException {
+        if (segment == null) throw new IllegalStateException("Journal is not attached to a home");
+        segment.flush();
+        segmentFile.getChannel().force(false);
+    }
+
+    // -------------------------------------------------------------------
+    // COMPACTION
+    // -------------------------------------------------------------------
+    /**
+     * Snapshot the home and drop the journal segments the snapshot covers.
+     * Mutations pause only while the home is encoded into memory; the
+     * file write happens afterwards.
+     */
+    public void compact() throws IOException {
+        long t0 = System.nanoTime();
+        try {
+            snapshotAndTrim();
+        } catch (IOException | RuntimeException e) {
+            COMPACT.failed(e);
+            throw e;
+        } finally {
+            COMPACT.stop(t0);
+        }
+    }
+
+    private void snapshotAndTrim() throws IOException {
+        CareHome h;
+        synchronized (this) { h = home; }
+        if (h == null) throw new IllegalStateException("Journal is not attached to a home");
+
+        long[] upTo = new long[1];
+        byte[] image = h.checkpoint(() -> {
+            synchronized (this) {
+                upTo[0] = seq;
+                sync();
+                closeSegment();
+                openSegment(dir.resolve(segmentName(seq + 1)));
+            }
+            return h.toImage();
+        });
+
+        Path tmp = dir.resolve(SNAPSHOT + ".tmp");
+        try (FileOutputStream fos = new FileOutputStream(tmp.toFile());
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos, 1 << 16))) {
+            out.writeLong(SNAPSHOT_MAGIC);
+            out.writeLong(upTo[0]);
+            out.write(image);
+            out.flush();
+            fos.getChannel().force(true);
+        }
+        Files.move(tmp, dir.resolve(SNAPSHOT), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        synchronized (this) {
+            snapshotSeq = upTo[0];
+            for (Path p : segments()) {
+                if (firstSeqOf(p) <= snapshotSeq) Files.deleteIfExists(p);
+            }
+        }
+    }
+
+    /** Compact in the background every period once at least minRecords changes have accumulated. */
+    public synchronized void startCompaction(long period, TimeUnit unit, long minRecords) {
+        if (compactor != null) return;
+        compactor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "journal-compactor");
+            t.setDaemon(true);
+            return t;
+        });
+        compactor.scheduleWithFixedDelay(() -> {
+            try {
+                if (getRecordsSinceSnapshot() >= minRecords) compact();
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Journal compaction failed: " + e.getMessage());
+            }
+        }, period, period, unit);
+    }
+
+    public synchronized long getSequence() { return seq; }
+
+    public synchronized long getRecordsSinceSnapshot() { return seq - snapshotSeq; }
+
+    @Override
+    public void close() throws IOException {
+        ScheduledExecutorService c;
+        synchronized (this) { c = compactor; compactor = null; }
+        if (c != null) {
+            c.shutdown();
+            try { c.awaitTermination(30, TimeUnit.SECONDS); }
+            catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+        }
+        synchronized (this) {
+            if (home != null) home.setJournal(null);
+            home = null;
+            if (segment != null) sync();
+            closeSegment();
+        }
+    }
+
+    // -------------------------------------------------------------------
+    // SEGMENT FILES
+    // -------------------------------------------------------------------
+    private void openSegment(Path file) throws IOException {
+        segmentFile = new FileOutputStream(file.toFile(), true);
+        segment = new DataOutputStream(new BufferedOutputStream(segmentFile, 1 << 16));
+    }
+
+    private void closeSegment() throws IOException {
+        if (segment != null) { segment.close(); segment = null; segmentFile = null; }
+    }
+
+    private List<Path> segments() throws IOException {
+        List<Path> list = new ArrayList<>();
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path p : ds) list.add(p);
+        }
+        list.sort((a, b) -> Long.compare(firstSeqOf(a), firstSeqOf(b)));
+        return list;
+    }
+
+    private static String segmentName(long firstSeq) {
+        return SEGMENT_PREFIX + String.format("%019d", firstSeq) + SEGMENT_SUFFIX;
+    }
+
+    private static long firstSeqOf(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+}
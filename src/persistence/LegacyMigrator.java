@@ -0,0 +1,58 @@
+package persistence;
+
+import model.CareHome;
+import persistence.legacy.LegacyReader;
+
+import java.io.*;
+import java.nio.file.*;
+
+/**
+ * One-time conversion of a carehome.dat written with Java serialization
+ * (before the binary format) into the current format. The original is kept
+ * next to it as {@code <name>.legacy}. Run it from the command line
+ * ({@code java persistence.LegacyMigrator carehome.dat}) or let the app do
+ * it on Load.
+ */
+public final class LegacyMigrator {
+
+    private static final int STREAM_MAGIC = 0xACED;   // ObjectOutputStream header
+
+    private LegacyMigrator() {}
+
+    /** Whether the file starts with a Java serialization stream header. */
+    public static boolean isLegacy(Path file) throws IOException {
+        if (!Files.isRegularFile(file)) return false;
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(file))) {
+            return in.readUnsignedShort() == STREAM_MAGIC;
+        } catch (EOFException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Convert the file if it is in the old format. Returns true if it was
+     * converted, false if there was nothing to do.
+     */
+    public static boolean migrateIfNeeded(Path file) throws IOException {
+        if (!isLegacy(file)) return false;
+        migrate(file);
+        return true;
+    }
+
+    /** Read the old file, back it up as {@code .legacy} and save it in the current format. */
+    public static CareHome migrate(Path file) throws IOException {
+        CareHome home = LegacyReader.read(file);
+        Path backup = file.resolveSibling(file.getFileName() + ".legacy");
+        Files.copy(file, backup, StandardCopyOption.REPLACE_EXISTING);
+        home.saveData(file.toString());
+        return home;
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path file = Path.of(args.length > 0 ? args[0] : "carehome.dat");
+        if (migrateIfNeeded(file))
+            System.out.println(file + " converted; the original is kept as " + file.getFileName() + ".legacy");
+        else
+            System.out.println(file + " is already in the current format (or missing); nothing to do");
+    }
+}
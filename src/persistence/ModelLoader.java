@@ -0,0 +1,80 @@
+package persistence;
+
+import model.*;
+import util.Metrics;
+import util.OpStats;
+
+import java.sql.*;
+import java.time.LocalTime;
+import java.util.*;
+
+/**
+ * Rebuilds a whole {@link CareHome} from the database in one pass per table:
+ * residents joined with their bed, then prescriptions and audit rows streamed
+ * in insertion order. Every row is placed with a hash lookup, so hydration is
+ * linear in the number of rows.
+ */
+public final class ModelLoader {
+    private static final OpStats LOAD = Metrics.op("ModelLoader.load");
+
+
+    private ModelLoader() {}
+
+    /** Hydrate a home with the default layout. */
+    public static CareHome load() throws SQLException {
+        return load(Topology.defaultLayout());
+    }
+
+    public static CareHome load(Topology topology) throws SQLException {
+        CareHome home = new CareHome(topology);
+        return Db.read(LOAD, s -> {   // one read transaction: a consistent snapshot of all tables
+            Map<String, Resident> residents = loadResidents(s, home);
+            loadPrescriptions(s, home, residents);
+            loadAudit(s, home);
+            return home;
+        });
+    }
+
+    private static Map<String, Resident> loadResidents(DbSession s, CareHome home) throws SQLException {
+        BedRegistry registry = home.getBedRegistry();
+        Map<String, Resident> byId = new HashMap<>();
+        try (ResultSet rs = s.prepare("""
+                SELECT r.id, r.name, r.gender, r.age, b.id
+                FROM Resident r LEFT JOIN Bed b ON b.residentId = r.id
+            """).executeQuery()) {
+            while (rs.next()) {
+                Resident r = byId.get(rs.getString(1));
+                if (r == null) {
+                    r = new Resident(rs.getString(1), rs.getString(2),
+                                     rs.getString(3).charAt(0), rs.getInt(4));
+                    home.restoreResident(r, null);
+                    byId.put(r.getId(), r);
+                }
+                String bedId = rs.getString(5);
+                Bed bed = bedId == null ? null : registry.byCode(bedId);
+                if (bed != null) home.restoreBed(bed, r);
+            }
+        }
+        return byId;
+    }
+
+    private static void loadPrescriptions(DbSession s, CareHome home, Map<String, Resident> residents) throws SQLException {
+        try (ResultSet rs = s.prepare(
+                "SELECT residentId,medicine,dosage,time,doctorId FROM Prescription ORDER BY id").executeQuery()) {
+            while (rs.next()) {
+                Resident r = residents.get(rs.getString(1));
+                if (r == null) continue;
+                home.restorePrescription(r, new Prescription(rs.getString(2), rs.getString(3),
+                                                             LocalTime.parse(rs.getString(4)), rs.getString(5)));
+            }
+        }
+    }
+
+    private static void loadAudit(DbSession s, CareHome home) throws SQLException {
+        try (ResultSet rs = s.prepare("SELECT ts,message FROM Audit ORDER BY rowid").executeQuery()) {
+            while (rs.next()) {
+                home.restoreAuditEntry(rs.getString(1) + " - " + rs.getString(2));
+            }
+        }
+    }
+}
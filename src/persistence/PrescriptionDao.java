@@ -1,22 +1,50 @@
 package persistence;
 
 import model.Prescription;
+import util.Metrics;
+import util.OpStats;
 
 import java.sql.*;
-import java.time.LocalTime;
+import java.util.List;
 
 public class PrescriptionDao {
+    private static final OpStats INSERT = Metrics.op("PrescriptionDao.insert");
+    private static final OpStats REPLACE = Metrics.op("PrescriptionDao.replaceFor");
+
     public static void insert(String residentId, Prescription p) throws SQLException {
-        try (PreparedStatement ps = Db.get().prepareStatement("""
-            INSERT INTO Prescription(residentId,medicine,dosage,time,doctorId)
-            VALUES(?,?,?,?,?)
-        """)) {
+        Db.write(INSERT, s -> {
+            PreparedStatement ps = s.prepare("""
+                INSERT INTO Prescription(residentId,medicine,dosage,time,doctorId)
+                VALUES(?,?,?,?,?)
+            """);
             ps.setString(1, residentId);
             ps.setString(2, p.getMedicine());
             ps.setString(3, p.getDosage());
             ps.setString(4, p.getTime().toString());
             ps.setString(5, p.getDoctorId());
-            ps.executeUpdate();
-        }
+            return ps.executeUpdate();
+        });
+    }
+
+    /** Make the resident's stored prescriptions exactly {@code current} (one transaction). */
+    public static void replaceFor(String residentId, List<Prescription> current) throws SQLException {
+        Db.write(REPLACE, s -> {
+            PreparedStatement del = s.prepare("DELETE FROM Prescription WHERE residentId=?");
+            del.setString(1, residentId);
+            del.executeUpdate();
+            PreparedStatement ps = s.prepare("""
+                INSERT INTO Prescription(residentId,medicine,dosage,time,doctorId)
+                VALUES(?,?,?,?,?)
+            """);
+            for (Prescription p : current) {
+                ps.setString(1, residentId);
+                ps.setString(2, p.getMedicine());
+                ps.setString(3, p.getDosage());
+                ps.setString(4, p.getTime().toString());
+                ps.setString(5, p.getDoctorId());
+                ps.addBatch();
+            }
+            return ps.executeBatch();
+        });
     }
 }
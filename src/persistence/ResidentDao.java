@@ -1,34 +1,51 @@
 package persistence;
 
 import model.Resident;
+import util.Metrics;
+import util.OpStats;
 
 import java.sql.*;
 import java.util.*;
 
 public class ResidentDao {
+    private static final OpStats UPSERT = Metrics.op("ResidentDao.upsert");
+    private static final OpStats FIND_ALL = Metrics.op("ResidentDao.findAll");
+    private static final OpStats DELETE = Metrics.op("ResidentDao.delete");
+
     public static void upsert(Resident r) throws SQLException {
-        try (PreparedStatement ps = Db.get().prepareStatement("""
-            INSERT INTO Resident(id,name,gender,age) VALUES(?,?,?,?)
-            ON CONFLICT(id) DO UPDATE SET name=excluded.name, gender=excluded.gender, age=excluded.age
-        """)) {
+        Db.write(UPSERT, s -> {
+            PreparedStatement ps = s.prepare("""
+                INSERT INTO Resident(id,name,gender,age) VALUES(?,?,?,?)
+                ON CONFLICT(id) DO UPDATE SET name=excluded.name, gender=excluded.gender, age=excluded.age
+            """);
             ps.setString(1, r.getId());
             ps.setString(2, r.getName());
             ps.setString(3, String.valueOf(r.getGender()));
             ps.setInt(4, r.getAge());
-            ps.executeUpdate();
-        }
+            return ps.executeUpdate();
+        });
+    }
+
+    /** Remove a discharged resident; their prescriptions go with them and their bed is cleared. */
+    public static void delete(String residentId) throws SQLException {
+        Db.write(DELETE, s -> {
+            PreparedStatement ps = s.prepare("DELETE FROM Resident WHERE id=?");
+            ps.setString(1, residentId);
+            return ps.executeUpdate();
+        });
     }
 
     public static Map<String, Resident> findAll() throws SQLException {
-        Map<String, Resident> map = new LinkedHashMap<>();
-        try (PreparedStatement ps = Db.get().prepareStatement("SELECT id,name,gender,age FROM Resident");
-             ResultSet rs = ps.executeQuery()) {
-            while (rs.next()) {
-                map.put(rs.getString(1),
-                        new Resident(rs.getString(1), rs.getString(2),
-                                     rs.getString(3).charAt(0), rs.getInt(4)));
+        return Db.read(FIND_ALL, s -> {
+            Map<String, Resident> map = new LinkedHashMap<>();
+            try (ResultSet rs = s.prepare("SELECT id,name,gender,age FROM Resident").executeQuery()) {
+                while (rs.next()) {
+                    map.put(rs.getString(1),
+                            new Resident(rs.getString(1), rs.getString(2),
+                                         rs.getString(3).charAt(0), rs.getInt(4)));
+                }
             }
-        }
-        return map;
+            return map;
+        });
     }
 }
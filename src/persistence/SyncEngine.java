@@ -0,0 +1,234 @@
+package persistence;
+
+import model.*;
+import model.CareEvent.*;
+import util.Metrics;
+import util.OpStats;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Write-behind copy of a {@link CareHome} in the SQLite store.
+ *
+ * Subscribes to the home's {@link CareEventBus} and only records what
+ * became dirty: resident ids, bed ids and residents whose prescriptions
+ * changed. Every flush interval (or on {@link #flush()}) the current state
+ * of each dirty item is written in one transaction, so ten edits to the same
+ * resident between flushes cost one row write. A failed flush keeps
+ * everything dirty for the next attempt.
+ *
+ * New audit lines go to the {@link AuditDao} group-commit writer as their
+ * events arrive. Discharges and password changes are logged durably: the
+ * subscriber waits until their line is committed before moving on.
+ */
+public final class SyncEngine implements CareEventBus.Subscriber, AutoCloseable {
+    private static final OpStats FLUSH = Metrics.op("SyncEngine.flush");
+
+    private final Object lock = new Object();           // guards the dirty sets, home and auditCursor
+    private CareHome home;
+    private Set<String> dirtyResidents = new HashSet<>();
+    private Set<String> dirtyPrescriptions = new HashSet<>();
+    private Set<Integer> dirtyBeds = new HashSet<>();
+    private int auditCursor;                             // audit lines already handed to the audit writer
+
+    private final ReentrantLock flushLock = new ReentrantLock(); // one flush at a time
+
+    private final CareEventBus.Subscription subscription;
+    private final ScheduledExecutorService timer;
+
+    /**
+     * Start syncing {@code home} every {@code interval}. The bed rows are
+     * created up front and every resident is written on the first flush.
+     */
+    public SyncEngine(CareHome home, CareEventBus bus, long interval, TimeUnit unit) throws SQLException {
+        attach(home);
+        subscription = bus.subscribe("sqlite-sync", this);
+        timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "sqlite-sync-flush");
+            t.setDaemon(true);
+            return t;
+        });
+        timer.scheduleWithFixedDelay(() -> {
+            try {
+                flushDirty();
+            } catch (SQLException | RuntimeException e) {
+                System.err.println("SQLite sync failed (will retry): " + e.getMessage());
+            }
+        }, interval, interval, unit);
+    }
+
+    /**
+     * Follow another home (e.g. after loading carehome.dat): everything it
+     * holds is marked dirty, and only audit lines added from now on are copied.
+     */
+    public void attach(CareHome h) throws SQLException {
+        BedDao.initBedsFromModel(h);
+        flushLock.lock();
+        try {
+            synchronized (lock) {
+                home = h;
+                markAll();
+                auditCursor = h.getAuditLog().size();
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /** Re-write every resident, bed and prescription list on the next flush. */
+    public void markAll() {
+        synchronized (lock) {
+            dirtyResidents.addAll(home.getResidents().keySet());
+            dirtyPrescriptions.addAll(home.getResidents().keySet());
+            for (Bed b : home.getBeds()) dirtyBeds.add(b.getPackedId());
+        }
+    }
+
+    // bus thread: note what changed and pass on its audit line
+    @Override
+    public void onEvent(CareEvent e, long sequence, boolean endOfBatch) throws SQLException {
+        List<AuditWriter.Entry> audit;
+        synchronized (lock) {
+            if (e instanceof ResidentAdmitted ev) {
+                dirtyResidents.add(ev.resident().getId());
+                dirtyPrescriptions.add(ev.resident().getId());   // may arrive with prescriptions already
+                dirtyBeds.add(ev.bedId());
+            } else if (e instanceof ResidentMoved ev) {
+                if (ev.fromBedId() != 0) dirtyBeds.add(ev.fromBedId());
+                dirtyBeds.add(ev.toBedId());
+            } else if (e instanceof PrescriptionAdded ev) {
+                dirtyPrescriptions.add(ev.residentId());
+            } else if (e instanceof ResidentDischarged ev) {
+                dirtyResidents.add(ev.residentId());
+                if (ev.bedId() != 0) dirtyBeds.add(ev.bedId());
+            }
+            audit = auditTail();
+        }
+        copyAudit(audit, e instanceof ResidentDischarged || e instanceof PasswordChanged);
+    }
+
+    /** Events were lost, so the dirty sets are incomplete: fall back to a full sync. */
+    @Override
+    public void onOverrun(long missed) {
+        markAll();
+    }
+
+    /** Wait until every change and audit line made before this call is committed to the database. */
+    public void flush() throws SQLException {
+        try {
+            if (!subscription.awaitCaughtUp(30, TimeUnit.SECONDS))
+                throw new SQLException("Timed out waiting for pending changes");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted waiting for pending changes", e);
+        }
+        flushDirty();
+        AuditDao.flush();
+    }
+
+    private void flushDirty() throws SQLException {
+        flushLock.lock();
+        try {
+            CareHome h;
+            Set<String> residents, prescriptions;
+            Set<Integer> beds;
+            List<AuditWriter.Entry> audit;
+            synchronized (lock) {
+                h = home;
+                audit = auditTail();                        // lines no event has passed on yet
+                residents = dirtyResidents;
+                prescriptions = dirtyPrescriptions;
+                beds = dirtyBeds;
+                dirtyResidents = new HashSet<>();
+                dirtyPrescriptions = new HashSet<>();
+                dirtyBeds = new HashSet<>();
+            }
+            copyAudit(audit, false);
+            if (residents.isEmpty() && prescriptions.isEmpty() && beds.isEmpty()) return;
+
+            try {
+                Db.write(FLUSH, s -> {
+                    write(h, residents, prescriptions, beds);
+                    return null;
+                });
+            } catch (SQLException | RuntimeException e) {
+                synchronized (lock) {                       // keep them for the next attempt
+                    if (home == h) {
+                        dirtyResidents.addAll(residents);
+                        dirtyPrescriptions.addAll(prescriptions);
+                        dirtyBeds.addAll(beds);
+                    }
+                }
+                throw e;
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    // parents before children: resident rows, then beds and prescriptions that reference them, then deletes
+    private static void write(CareHome h, Set<String> residents, Set<String> prescriptions, Set<Integer> beds)
+            throws SQLException {
+        List<String> gone = new ArrayList<>();
+        for (String id : residents) {
+            Resident r = h.getResidents().get(id);
+            if (r != null) ResidentDao.upsert(r); else gone.add(id);
+        }
+        BedRegistry registry = h.getBedRegistry();
+        for (int packed : beds) {
+            Bed b = registry.get(packed);
+            if (b == null) continue;
+            Resident occupant = b.getOccupant();
+            BedDao.setOccupant(b.getBedId(), occupant == null ? null : occupant.getId());
+        }
+        for (String id : prescriptions) {
+            Resident r = h.getResidents().get(id);
+            if (r != null) PrescriptionDao.replaceFor(id, r.getPrescriptions());
+        }
+        for (String id : gone) ResidentDao.delete(id);
+    }
+
+    // audit lines past the cursor (caller holds lock); they are "<date> - <message>", as ModelLoader rebuilds them
+    private List<AuditWriter.Entry> auditTail() {
+        List<String> log = home.getAuditLog();
+        List<AuditWriter.Entry> out = new ArrayList<>();
+        synchronized (log) {
+            for (; auditCursor < log.size(); auditCursor++) {
+                String line = log.get(auditCursor);
+                int sep = line.indexOf(" - ");
+                out.add(sep < 0 ? new AuditWriter.Entry("", line, null)
+                                : new AuditWriter.Entry(line.substring(0, sep), line.substring(sep + 3), null));
+            }
+        }
+        return out;
+    }
+
+    // durable: return only once the last line (and everything queued before it) is committed
+    private static void copyAudit(List<AuditWriter.Entry> lines, boolean durable) throws SQLException {
+        for (int i = 0; i < lines.size(); i++) {
+            AuditWriter.Entry a = lines.get(i);
+            if (durable && i == lines.size() - 1) AuditDao.logDurable(a.ts(), a.message());
+            else AuditDao.log(a.ts(), a.message());
+        }
+        if (durable && lines.isEmpty()) AuditDao.flush();   // its line went out with an earlier event
+    }
+
+    /** Stop the subscriber and the timer after a final flush. */
+    @Override
+    public void close() throws SQLException {
+        try {
+            flush();
+        } finally {
+            subscription.close();
+            timer.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package persistence.legacy;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/** Frozen shape of {@code model.AdministrationRecord} (see {@link LegacyReader}). */
+final class AdministrationRecord implements Serializable {
+    private static final long serialVersionUID = -3234404761452750822L;
+
+    String medicine;
+    String dosage;
+    LocalDateTime administeredAt;
+    String nurseId;
+}
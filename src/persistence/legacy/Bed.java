@@ -0,0 +1,11 @@
+package persistence.legacy;
+
+import java.io.Serializable;
+
+/** Frozen shape of {@code model.Bed} (see {@link LegacyReader}). */
+final class Bed implements Serializable {
+    private static final long serialVersionUID = 4720722492552110946L;
+
+    String bedId;
+    Resident occupant;
+}
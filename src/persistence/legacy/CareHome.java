@@ -0,0 +1,15 @@
+package persistence.legacy;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.Map;
+
+/** Frozen shape of {@code model.CareHome} (see {@link LegacyReader}). */
+final class CareHome implements Serializable {
+    private static final long serialVersionUID = -7680828184730371682L;
+
+    Map<String, Staff> staffList;
+    Map<String, Resident> residents;
+    Map<String, Bed> beds;
+    List<String> auditLog;
+}
@@ -0,0 +1,8 @@
+package persistence.legacy;
+
+/** Frozen shape of {@code model.Doctor} (see {@link LegacyReader}). */
+final class Doctor extends Staff {
+    private static final long serialVersionUID = 6855759320784105344L;
+
+    String specialization;
+}
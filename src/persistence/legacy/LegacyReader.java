@@ -0,0 +1,128 @@
+package persistence.legacy;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Reads a carehome.dat written with Java serialization by the versions before
+ * the binary format, into a current {@link model.CareHome}.
+ *
+ * The stream is not read into the live model classes, whose shape has moved
+ * on, but into frozen copies of the old ones in this package. Only those and
+ * the few JDK classes the old files contain are resolved; anything else in
+ * the stream is refused. Old builds wrote different serialVersionUIDs for
+ * the same fields (the default one changes with every method), so a class
+ * whose fields match its frozen copy is read as that copy whatever its UID.
+ */
+public final class LegacyReader {
+
+    private static final Map<String, Class<?>> FROZEN = Map.ofEntries(
+            Map.entry("model.CareHome", CareHome.class),
+            Map.entry("model.Person", Person.class),
+            Map.entry("model.Staff", Staff.class),
+            Map.entry("model.Manager", Manager.class),
+            Map.entry("model.Doctor", Doctor.class),
+            Map.entry("model.Nurse", Nurse.class),
+            Map.entry("model.Resident", Resident.class),
+            Map.entry("model.Bed", Bed.class),
+            Map.entry("model.Shift", Shift.class),
+            Map.entry("model.Prescription", Prescription.class),
+            Map.entry("model.AdministrationRecord", AdministrationRecord.class));
+
+    private static final Set<String> JDK = Set.of(
+            "java.util.ArrayList", "java.util.LinkedList", "java.util.HashMap", "java.util.LinkedHashMap",
+            "java.util.TreeMap", "java.lang.Enum", "java.time.DayOfWeek", "java.time.Ser");
+
+    private LegacyReader() {}
+
+    /** The home stored in {@code file}; IOException if it is not an old care home file. */
+    public static model.CareHome read(Path file) throws IOException {
+        CareHome old;
+        try (ObjectInputStream in = new FrozenInput(new BufferedInputStream(Files.newInputStream(file)))) {
+            old = (CareHome) in.readObject();
+        } catch (ClassNotFoundException | ClassCastException | ObjectStreamException e) {
+            throw new IOException(file + " could not be read in the old format: " + e.getMessage(), e);
+        }
+        return convert(old, file);
+    }
+
+    private static final class FrozenInput extends ObjectInputStream {
+        FrozenInput(InputStream in) throws IOException {
+            super(in);
+        }
+
+        @Override
+        protected ObjectStreamClass readClassDescriptor() throws IOException, ClassNotFoundException {
+            ObjectStreamClass read = super.readClassDescriptor();
+            Class<?> frozen = FROZEN.get(read.getName());
+            if (frozen == null) return read;
+            ObjectStreamClass local = ObjectStreamClass.lookup(frozen);
+            return read.getSerialVersionUID() != local.getSerialVersionUID() && sameFields(read, local) ? local : read;
+        }
+
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+            String name = desc.getName();
+            Class<?> frozen = FROZEN.get(name);
+            if (frozen != null) return frozen;
+            if (name.startsWith(LegacyReader.class.getPackageName() + ".") || JDK.contains(name))
+                return super.resolveClass(desc);
+            throw new InvalidClassException(name, "not expected in a care home file");
+        }
+
+        // same names and kinds in the same order: the stream's values line up with the frozen fields
+        private static boolean sameFields(ObjectStreamClass a, ObjectStreamClass b) {
+            ObjectStreamField[] fa = a.getFields(), fb = b.getFields();
+            if (fa.length != fb.length) return false;
+            for (int i = 0; i < fa.length; i++) {
+                if (!fa[i].getName().equals(fb[i].getName()) || fa[i].getTypeCode() != fb[i].getTypeCode()) return false;
+            }
+            return true;
+        }
+    }
+
+    // -------------------------------------------------------------------
+    // CONVERSION
+    // -------------------------------------------------------------------
+    private static model.CareHome convert(CareHome old, Path file) throws IOException {
+        model.CareHome home = new model.CareHome();
+        for (Resident r : values(old.residents)) {
+            model.Resident res = new model.Resident(r.id, r.name, r.gender, r.age);
+            model.Bed bed = null;
+            if (r.bed != null) {
+                bed = home.getBedRegistry().byCode(r.bed.bedId);
+                if (bed == null) throw new IOException(file + ": bed " + r.bed.bedId + " of " + r.id + " does not exist");
+            }
+            home.restoreResident(res, bed);
+            for (Prescription p : list(r.prescriptions))
+                home.restorePrescription(res, new model.Prescription(p.medicine, p.dosage, p.time, p.doctorId));
+            for (AdministrationRecord a : list(r.administrations))
+                res.addAdministration(new model.AdministrationRecord(a.medicine, a.dosage, a.administeredAt, a.nurseId));
+        }
+        for (Staff s : values(old.staffList)) {
+            model.Staff st;
+            if (s instanceof Manager) st = new model.Manager(s.id, s.name, s.gender, s.username, s.passwordHash);
+            else if (s instanceof Doctor d) st = new model.Doctor(s.id, s.name, s.gender, s.username, s.passwordHash, d.specialization);
+            else st = new model.Nurse(s.id, s.name, s.gender, s.username, s.passwordHash);
+            if (s.role != null) st.setRole(s.role);
+            for (Shift sh : list(s.shifts)) st.addShift(new model.Shift(sh.day, sh.startTime, sh.endTime));
+            home.restoreStaff(st);
+            if (s instanceof Nurse n)
+                for (String id : list(n.assignedResidents)) home.restoreAssignedResident((model.Nurse) st, id);
+        }
+        for (String line : list(old.auditLog)) home.restoreAuditEntry(line);
+        return home;
+    }
+
+    private static <T> List<T> list(List<T> l) {
+        return l == null ? List.of() : l;
+    }
+
+    private static <V> Iterable<V> values(Map<String, V> m) {
+        return m == null ? List.of() : m.values();
+    }
+}
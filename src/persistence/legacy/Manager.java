@@ -0,0 +1,6 @@
+package persistence.legacy;
+
+/** Frozen shape of {@code model.Manager} (see {@link LegacyReader}). */
+final class Manager extends Staff {
+    private static final long serialVersionUID = 5023446285569441756L;
+}
@@ -0,0 +1,10 @@
+package persistence.legacy;
+
+import java.util.List;
+
+/** Frozen shape of {@code model.Nurse} (see {@link LegacyReader}). */
+final class Nurse extends Staff {
+    private static final long serialVersionUID = -3816706765438731297L;
+
+    List<String> assignedResidents;
+}
@@ -0,0 +1,12 @@
+package persistence.legacy;
+
+import java.io.Serializable;
+
+/** Frozen shape of {@code model.Person} as serialized before the binary format (see {@link LegacyReader}). */
+abstract class Person implements Serializable {
+    private static final long serialVersionUID = 8637723173055554167L;
+
+    String id;
+    String name;
+    char gender;
+}
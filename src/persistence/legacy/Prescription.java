@@ -0,0 +1,14 @@
+package persistence.legacy;
+
+import java.io.Serializable;
+import java.time.LocalTime;
+
+/** Frozen shape of {@code model.Prescription} (see {@link LegacyReader}). */
+final class Prescription implements Serializable {
+    private static final long serialVersionUID = -5938025591545291952L;
+
+    String medicine;
+    String dosage;
+    LocalTime time;
+    String doctorId;
+}
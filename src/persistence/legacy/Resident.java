@@ -0,0 +1,16 @@
+package persistence.legacy;
+
+import java.util.List;
+
+/**
+ * Frozen shape of {@code model.Resident} (see {@link LegacyReader}). Files
+ * from before dose records have no {@code administrations}; it stays null.
+ */
+final class Resident extends Person {
+    private static final long serialVersionUID = 9197229216634076707L;
+
+    int age;
+    Bed bed;
+    List<Prescription> prescriptions;
+    List<AdministrationRecord> administrations;
+}
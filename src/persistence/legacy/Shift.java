@@ -0,0 +1,14 @@
+package persistence.legacy;
+
+import java.io.Serializable;
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+
+/** Frozen shape of {@code model.Shift} (see {@link LegacyReader}). */
+final class Shift implements Serializable {
+    private static final long serialVersionUID = 4254717440111012681L;
+
+    DayOfWeek day;
+    LocalTime startTime;
+    LocalTime endTime;
+}
@@ -0,0 +1,13 @@
+package persistence.legacy;
+
+import java.util.List;
+
+/** Frozen shape of {@code model.Staff} (see {@link LegacyReader}). */
+abstract class Staff extends Person {
+    private static final long serialVersionUID = -4010619827738501968L;
+
+    String username;
+    String passwordHash;
+    String role;
+    List<Shift> shifts;
+}
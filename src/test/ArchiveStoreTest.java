@@ -0,0 +1,101 @@
+package test;
+
+import model.*;
+import org.junit.jupiter.api.Test;
+import persistence.ArchiveStore;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ArchiveStoreTest {
+
+    private Manager mgr() { return new Manager("M1","Manager",'M',"mgr","p"); }
+
+    private Nurse nurse() { return new Nurse("N1","Nina",'F',"nina","p"); }
+
+    private Doctor doc() { return new Doctor("D1","Dev",'M',"dev","p","General"); }
+
+    // 1) Discharges go to the archive in the background; lookups by id, name and time; the index survives a torn tail
+    @Test
+    void archiveStore_indexesCompressedRecordsAndRecoversTail() throws Exception {
+        Path dir = Files.createTempDirectory("archive");
+        CareHome home = new CareHome();
+        Manager m = mgr();
+        ArchiveStore archive = ArchiveStore.open(dir);
+        home.setArchive(archive);
+        home.addResident(m, new Resident("R1","Ray",'M',80), "W1-R2-B1");
+        home.addResident(m, new Resident("R2","Rita",'F',77), "W1-R2-B2");
+        home.addPrescription(doc(), "R1", new Prescription("Aspirin", "100mg", LocalTime.of(9, 0), "D1"));
+        home.administerMedication(nurse(), "R1", "Aspirin", "100mg", LocalDateTime.of(2026, 3, 3, 9, 0));
+        home.dischargeResident(m, "R1");
+        assertTrue(archive.latest("R1").startsWith("Resident,R1,Ray,M,80\nPrescriptions\nAspirin,100mg,09:00\n"));  // before it is written
+        home.dischargeResident(m, "R2");
+        archive.flush();
+        assertEquals(0, archive.getUnwritten());
+        assertTrue(home.getAuditLog().get(home.getAuditLog().size() - 1).contains(archive.getLocation()));
+
+        assertEquals(2, archive.findByName("r").size());
+        assertEquals("R2", archive.findByName("RIT").get(0).getResidentId());
+        assertEquals(2, archive.between(0, Long.MAX_VALUE).size());
+        assertTrue(archive.latest("R1").endsWith("2026-03-03T09:00,Aspirin,100mg,N1\n"));
+        assertNull(archive.latest("R9"));
+
+        Path zip = dir.resolve("export.zip");
+        assertEquals(2, archive.export(Long.MIN_VALUE, Long.MAX_VALUE, zip, (done, total) -> {}, () -> false));
+        try (var z = new java.util.zip.ZipFile(zip.toFile())) {
+            assertEquals(2, z.size());
+        }
+        archive.archive("R3", "Sam", 3_000L, "Resident,R3,Sam,M,90\n");
+        archive.close();
+
+        // a half-written block after the last one is cut off; unindexed blocks are found again
+        long good = Files.size(dir.resolve("residents.arc"));
+        Files.write(dir.resolve("residents.arc"), new byte[] {0, 0, 1, 0, 7, 7}, java.nio.file.StandardOpenOption.APPEND);
+        Files.delete(dir.resolve("residents.idx"));
+        try (ArchiveStore reopened = ArchiveStore.open(dir)) {
+            assertEquals(3, reopened.size());
+            assertEquals(good, Files.size(dir.resolve("residents.arc")));
+            assertEquals("Resident,R3,Sam,M,90\n", reopened.latest("R3"));
+            assertEquals(1, reopened.find("R1").size());
+        }
+        try (ArchiveStore again = ArchiveStore.open(dir)) {                      // now from the rebuilt index
+            assertEquals(3, again.size());
+            assertTrue(again.latest("R2").startsWith("Resident,R2,Rita,F,77"));
+        }
+    }
+
+    // 2) close writes what is queued, then refuses more; archiving and flushing racing close never hang
+    @Test
+    void close_writesQueueAndNeverStrandsAFlush() throws Exception {
+        Path dir = Files.createTempDirectory("archive");
+        ArchiveStore archive = ArchiveStore.open(dir);
+        for (int i = 0; i < 500; i++) archive.archive("R" + i, "Name " + i, i, "Resident,R" + i + "\n");
+        archive.close();
+        assertEquals(0, archive.getUnwritten());
+        assertThrows(IllegalStateException.class, () -> archive.archive("R9", "Late", 9, "x"));
+        assertThrows(IllegalStateException.class, archive::flush);
+        try (ArchiveStore reopened = ArchiveStore.open(dir)) {
+            assertEquals(500, reopened.size());
+        }
+
+        for (int round = 0; round < 50; round++) {
+            ArchiveStore racing = ArchiveStore.open(Files.createTempDirectory("archive"));
+            Thread writer = new Thread(() -> {
+                try {
+                    for (int i = 0; i < 20; i++) racing.archive("R" + i, "Name", i, "Resident\n");
+                    racing.flush();
+                } catch (java.io.IOException | IllegalStateException expected) {
+                    // closed first, or stopped before the flush was reached
+                }
+            });
+            writer.start();
+            racing.close();
+            writer.join(5_000);
+            assertFalse(writer.isAlive(), "archive or flush hung after close (round " + round + ")");
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package test;
+
+import model.AuditEntry;
+import model.AuditLog;
+import org.junit.jupiter.api.Test;
+import persistence.AuditExporter;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AuditExporterTest {
+
+    // 1) Audit export streams the time range in each format; a cancelled export leaves no file
+    @Test
+    void auditExport_writesFormatsAndHonoursCancel() throws Exception {
+        AuditLog log = new AuditLog();
+        for (int i = 0; i < 10_000; i++)
+            log.append(new AuditEntry(1_000L * i, "N1", "DoseAdministered", "R" + i, "gave \"dose\" " + i));
+        Path dir = Files.createTempDirectory("export");
+
+        Path csv = dir.resolve("audit.csv");
+        assertEquals(5_000, new AuditExporter(AuditExporter.Format.CSV, false)
+                .export(log, 5_000_000L, Long.MAX_VALUE, csv, (done, total) -> {}, () -> false));
+        List<String> lines = Files.readAllLines(csv);
+        assertEquals(5_001, lines.size());
+        assertTrue(lines.get(1).endsWith(",\"N1\",\"DoseAdministered\",\"R5000\",\"gave \"\"dose\"\" 5000\""));
+
+        Path jsonl = dir.resolve("audit.jsonl.gz");
+        new AuditExporter(AuditExporter.Format.JSONL, true)
+                .export(log, 0, 2_000_000L, jsonl, (done, total) -> {}, () -> false);
+        try (var in = new java.io.BufferedReader(new java.io.InputStreamReader(
+                new java.util.zip.GZIPInputStream(Files.newInputStream(jsonl)), java.nio.charset.StandardCharsets.UTF_8))) {
+            List<String> rows = in.lines().toList();
+            assertEquals(2_000, rows.size());
+            assertTrue(rows.get(7).contains("\"subject\":\"R7\",\"message\":\"gave \\\"dose\\\" 7\"}"));
+        }
+
+        Path cancelled = dir.resolve("cancelled.csv");
+        assertThrows(java.util.concurrent.CancellationException.class, () ->
+                new AuditExporter(AuditExporter.Format.CSV, false)
+                        .export(log, Long.MIN_VALUE, Long.MAX_VALUE, cancelled, (done, total) -> {}, () -> true));
+        assertFalse(Files.exists(cancelled));
+        assertFalse(Files.exists(dir.resolve("cancelled.csv.part")));
+    }
+}
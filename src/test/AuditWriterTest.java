@@ -0,0 +1,66 @@
+package test;
+
+import org.junit.jupiter.api.Test;
+import persistence.AuditWriter;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AuditWriterTest {
+
+    // 1) flush returns once everything before it is committed; failed commits are retried, then reported
+    @Test
+    void flush_waitsForEarlierLinesAndReportsFailures() throws Exception {
+        List<String> committed = new CopyOnWriteArrayList<>();
+        AuditWriter w = new AuditWriter(64, 8, 5, batch -> batch.forEach(e -> committed.add(e.message())));
+        for (int i = 0; i < 20; i++) w.log("line " + i);
+        w.flush();
+        assertEquals(20, committed.size());
+        assertEquals("line 19", committed.get(19));
+        w.close();
+
+        AtomicInteger attempts = new AtomicInteger();
+        AuditWriter failing = new AuditWriter(64, 8, 5, batch -> {
+            attempts.incrementAndGet();
+            throw new SQLException("disk full");
+        });
+        failing.log("lost");
+        long t0 = System.nanoTime();
+        assertThrows(SQLException.class, failing::flush);
+        assertEquals(3, attempts.get());
+        assertTrue(System.nanoTime() - t0 >= 100_000_000L);       // backed off 50 + 100 ms
+        assertEquals(1, failing.getDropped());
+        failing.close();
+    }
+
+    // 2) close commits what is queued, then refuses more; a flush racing close completes instead of hanging
+    @Test
+    void close_drainsQueueAndNeverStrandsAFlush() throws Exception {
+        List<String> committed = new CopyOnWriteArrayList<>();
+        AuditWriter w = new AuditWriter(1024, 16, 50, batch -> batch.forEach(e -> committed.add(e.message())));
+        for (int i = 0; i < 100; i++) w.log("line " + i);
+        w.close();
+        assertEquals(100, committed.size());
+        assertThrows(IllegalStateException.class, () -> w.log("late"));
+        assertThrows(IllegalStateException.class, w::flush);
+
+        for (int round = 0; round < 50; round++) {
+            AuditWriter racing = new AuditWriter(16, 4, 1, batch -> {});
+            Thread flusher = new Thread(() -> {
+                try {
+                    racing.flush();
+                } catch (SQLException | IllegalStateException expected) {
+                    // closed first, or stopped before the flush was reached
+                }
+            });
+            flusher.start();
+            racing.close();
+            flusher.join(5_000);
+            assertFalse(flusher.isAlive(), "flush hung after close (round " + round + ")");
+        }
+    }
+}
@@ -10,7 +10,11 @@ import static org.junit.jupiter.api.Assertions.*;
 
 public class CareHomeTest {
 
-    private CareHome freshHome() { return new CareHome(); }
+    private CareHome freshHome() {
+        CareHome home = new CareHome();
+        home.setPasswordHasher(new util.PasswordHasher(util.PasswordHasher.MIN_ITERATIONS)); // tests don't measure hashing
+        return home;
+    }
 
     private Manager mgr() { return new Manager("M1","Manager",'M',"mgr","p"); }
 
@@ -99,4 +103,678 @@ public class CareHomeTest {
         CareHome loaded = CareHome.loadData(file);
         assertTrue(loaded.getResidents().containsKey("R1"));
     }
+
+    // 6) Topology: layout file drives the bed registry; packed ids resolve in O(1)
+    @Test
+    void topologyLayout_buildsIndexedRegistry() throws Exception {
+        Topology layout = Topology.parse(java.util.List.of(
+                "# ward: beds per room",
+                "W1: 1 2",
+                "W2: 3*4"));
+        CareHome home = new CareHome(layout);
+        BedRegistry reg = home.getBedRegistry();
+
+        assertEquals(15, home.getBeds().size());
+        assertEquals(3, reg.inWard(1).size());
+        assertEquals(4, reg.inRoom(2, 3).size());
+
+        Bed bed = reg.get(BedRegistry.pack(2, 3, 4));
+        assertEquals("W2-R3-B4", bed.getBedId());
+        assertSame(bed, reg.byCode("W2-R3-B4"));
+        for (String bad : new String[] {"W02-R3-B4", "W2-R3-B4 ", "W2-R3", "W2-R3-B5", "w2-r3-b4", "", null})
+            assertNull(reg.byCode(bad), bad);
+
+        home.addResident(mgr(), new Resident("R1","Ray",'M',80), bed.getPackedId());
+        assertTrue(bed.isOccupied());
+        assertNull(reg.get(BedRegistry.pack(3, 1, 1)));
+    }
+
+    // 7) Concurrency: parallel moves never double-book a bed or lose a resident
+    @Test
+    void concurrentMoves_keepOccupancyConsistent() throws Exception {
+        CareHome home = new CareHome(Topology.parse(java.util.List.of("W1: 20*4", "W2: 20*4", "W3: 20*4")));
+        Manager m = mgr();
+        Nurse n = nurse();
+        java.util.List<Bed> all = new java.util.ArrayList<>(home.getBeds());
+        for (int i = 0; i < 60; i++) {
+            home.addResident(m, new Resident("R" + i, "Res" + i, i % 2 == 0 ? 'M' : 'F', 70), all.get(i * 4).getPackedId());
+        }
+
+        java.util.concurrent.ExecutorService pool = java.util.concurrent.Executors.newFixedThreadPool(8);
+        java.util.List<java.util.concurrent.Future<?>> futures = new java.util.ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            final long seed = t;
+            futures.add(pool.submit(() -> {
+                java.util.Random rnd = new java.util.Random(seed);
+                for (int k = 0; k < 2000; k++) {
+                    String rid = "R" + rnd.nextInt(60);
+                    Bed target = all.get(rnd.nextInt(all.size()));
+                    try { home.moveResident(n, rid, target.getPackedId()); }
+                    catch (BedOccupiedException expected) { /* lost the race: fine */ }
+                    catch (Exception e) { throw new RuntimeException(e); }
+                }
+            }));
+        }
+        for (var f : futures) f.get();
+        pool.shutdown();
+
+        long occupied = home.getBeds().stream().filter(Bed::isOccupied).count();
+        assertEquals(60, occupied);
+        for (Resident r : home.getResidents().values()) {
+            assertSame(r, r.getBed().getOccupant());
+        }
+    }
+
+    // 8) Compliance engine: every breach is reported, and totals follow each new shift
+    @Test
+    void complianceEngine_reportsAllViolations() throws Exception {
+        CareHome home = freshHome();
+        Manager m = mgr();
+        Nurse n = nurse();
+        home.addStaff(m, n);
+        home.getCompliance().addRule(ComplianceRules.doctorCoverage());
+
+        home.addShiftForNurse(m, "nina", new Shift(java.time.DayOfWeek.MONDAY, LocalTime.of(8,0), LocalTime.of(16,0)));
+        assertEquals(1, home.getCompliance().getViolations().size()); // no doctor yet
+
+        home.addStaff(m, doc());
+        assertTrue(home.getCompliance().isCompliant());
+
+        n.addShift(new Shift(java.time.DayOfWeek.MONDAY, LocalTime.of(14,0), LocalTime.of(22,0)));
+        assertEquals(16 * 60, home.getCompliance().hoursOf("nina").minutes(java.time.DayOfWeek.MONDAY));
+
+        ShiftViolationException ex = assertThrows(ShiftViolationException.class, home::checkCompliance);
+        assertEquals(2, ex.getViolations().size()); // > 8h and overlap
+    }
+
+    // 9) Administration history: time-range and latest-dose queries
+    @Test
+    void administrationHistory_answersRangeQueries() throws Exception {
+        CareHome home = freshHome();
+        Nurse n = nurse();
+        home.addResident(mgr(), new Resident("R1","Ray",'M',80), "W1-R2-B1");
+        java.time.LocalDateTime day = java.time.LocalDateTime.of(2025, 3, 1, 0, 0);
+        home.administerMedication(n, "R1", "Paracetamol", "500mg", day.plusHours(20));
+        home.administerMedication(n, "R1", "Amoxicillin", "250mg", day.plusHours(9));   // back-dated
+        home.administerMedication(n, "R1", "Paracetamol", "500mg", day.plusHours(33));
+
+        AdministrationHistory h = home.getResidents().get("R1").getAdministrationHistory();
+        assertEquals("Amoxicillin", h.all().get(0).getMedicine());
+        assertEquals(2, h.between(day, day.plusDays(1)).size());
+        assertEquals(day.plusHours(33), h.latest("Paracetamol").getAdministeredAt());
+        assertTrue(h.given("Amoxicillin", day, day.plusDays(1)));
+        assertFalse(h.given("Amoxicillin", day.plusDays(1), day.plusDays(2)));
+
+        assertThrows(IllegalArgumentException.class, () ->
+                home.administerMedication(n, "R1", "Paracetamol", "500mg", day.plusHours(33)));
+    }
+
+    // 10) Dose scheduler: worklist follows prescriptions, doses and discharges
+    @Test
+    void doseScheduler_tracksDueDoses() throws Exception {
+        DoseScheduler sched = new DoseScheduler();
+        java.time.LocalDateTime morning = java.time.LocalDateTime.of(2025, 3, 1, 7, 0);
+        Prescription am = new Prescription("Amoxicillin","500mg", LocalTime.of(8,0), "D1");
+        Prescription pm = new Prescription("Paracetamol","500mg", LocalTime.of(20,0), "D1");
+        sched.prescriptionAdded("R1", am, morning);
+        sched.prescriptionAdded("R2", pm, morning);
+
+        assertEquals(am, sched.nextDue().getPrescription());
+        assertEquals(1, sched.dueWithin(morning, java.time.Duration.ofHours(2)).size());
+        assertEquals(1, sched.overdue(morning.plusHours(2)).size());
+
+        sched.administered("R1", new AdministrationRecord("Amoxicillin","500mg", morning.plusHours(1).plusMinutes(5), "N1"));
+        assertEquals(0, sched.overdue(morning.plusHours(2)).size());
+        assertEquals(morning.plusDays(1).plusHours(1), sched.dueFor("R1").get(0).getDue());
+
+        sched.residentDischarged("R2");
+        assertEquals(1, sched.size());
+    }
+
+    // 11) Metrics: histogram percentiles and per-type error counts
+    @Test
+    void metrics_recordLatencyAndErrors() throws Exception {
+        util.LatencyHistogram h = new util.LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) h.record(i * 1_000L);          // 1..1000 µs
+        assertEquals(1000, h.count());
+        assertEquals(500_000, h.percentileNanos(0.50), 500_000 * 0.125);
+        assertEquals(990_000, h.percentileNanos(0.99), 990_000 * 0.125);
+        assertEquals(1_000_000, h.maxNanos());
+
+        util.OpStats op = util.Metrics.op("CareHome.addResident");
+        long calls = op.getCount(), errors = op.getErrorCount();
+        CareHome home = freshHome();
+        home.addResident(mgr(), new Resident("R1","Ray",'M',80), "W1-R2-B1");
+        assertThrows(BedOccupiedException.class, () ->
+                home.addResident(mgr(), new Resident("R2","Ann",'F',70), "W1-R2-B1"));
+        assertThrows(UnauthorizedActionException.class, () ->
+                home.addResident(null, new Resident("R3","Bo",'M',70), "W1-R3-B1"));
+
+        assertEquals(calls + 3, op.getCount());
+        assertEquals(errors + 2, op.getErrorCount());
+        assertTrue(op.getErrorsByType().get("BedOccupiedException") >= 1);
+    }
+
+    // 12) Listeners see each applied change once, failed changes not at all
+    @Test
+    void listener_receivesAppliedChangesOnly() throws Exception {
+        CareHome home = freshHome();
+        java.util.List<CareEvent> seen = new java.util.ArrayList<>();
+        home.addListener(seen::add);
+
+        home.addResident(mgr(), new Resident("R1","Ray",'M',80), "W1-R2-B1");
+        assertThrows(BedOccupiedException.class, () ->
+                home.addResident(mgr(), new Resident("R2","Ann",'F',70), "W1-R2-B1"));
+        home.moveResident(nurse(), "R1", "W1-R3-B1");
+
+        assertEquals(2, seen.size());
+        CareEvent.ResidentMoved moved = (CareEvent.ResidentMoved) seen.get(1);
+        assertEquals(home.getBedRegistry().byCode("W1-R2-B1").getPackedId(), moved.fromBedId());
+        assertEquals(home.getBedRegistry().byCode("W1-R3-B1").getPackedId(), moved.toBedId());
+    }
+
+    // 13) Event bus: every subscriber sees events in order; a stalled one is overrun, not waited for
+    @Test
+    void eventBus_fansOutWithoutBlockingOnSlowSubscribers() throws Exception {
+        CareHome home = freshHome();
+        try (CareEventBus bus = new CareEventBus(8)) {
+            home.addListener(bus);
+            java.util.List<Long> seqs = java.util.Collections.synchronizedList(new java.util.ArrayList<>());
+            CareEventBus.Subscription fast = bus.subscribe("test-fast", (e, seq, end) -> seqs.add(seq));
+            java.util.concurrent.CountDownLatch gate = new java.util.concurrent.CountDownLatch(1);
+            long[] missed = new long[1];
+            CareEventBus.Subscription slow = bus.subscribe("test-slow", new CareEventBus.Subscriber() {
+                public void onEvent(CareEvent e, long seq, boolean end) throws Exception { gate.await(); }
+                public void onOverrun(long n) { missed[0] += n; }
+            });
+
+            home.addStaff(mgr(), nurse());
+            for (int i = 1; i <= 20; i++)
+                home.addShiftForNurse(mgr(), "nina", new Shift(java.time.DayOfWeek.MONDAY, LocalTime.of(i % 20, 0), LocalTime.of(i % 20, 30)));
+            assertEquals(21, bus.getCursor());                  // publishing never waited for "slow"
+
+            assertTrue(fast.awaitCaughtUp(5, java.util.concurrent.TimeUnit.SECONDS));
+            for (int i = 1; i < seqs.size(); i++) assertTrue(seqs.get(i) > seqs.get(i - 1));
+            assertEquals(21, seqs.size() + fast.getOverruns());
+            gate.countDown();
+            assertTrue(slow.awaitCaughtUp(5, java.util.concurrent.TimeUnit.SECONDS));
+            assertTrue(slow.getOverruns() > 0);
+            assertEquals(slow.getOverruns(), missed[0]);
+        }
+    }
+
+    // 14) Occupancy counters follow admit, move and discharge, and survive save/load
+    @Test
+    void occupancy_countersTrackBedChanges() throws Exception {
+        CareHome home = freshHome();
+        home.addResident(mgr(), new Resident("R1","Ray",'M',80), "W1-R2-B1");
+        home.addResident(mgr(), new Resident("R2","Ann",'F',70), "W1-R2-B2");
+        home.moveResident(nurse(), "R1", "W2-R4-B1");
+
+        Occupancy occ = home.getOccupancy();
+        BedRegistry reg = home.getBedRegistry();
+        assertEquals(2, occ.occupied());
+        assertEquals(1, occ.occupied('M'));
+        assertEquals(1, occ.occupiedInWard(1));
+        assertEquals(1, occ.occupiedInWard(2, 'M'));
+        assertEquals(1, occ.occupiedInRoom(reg.roomIndex(1, 2), 'F'));
+        assertEquals(0, occ.occupiedInRoom(reg.roomIndex(1, 2), 'M'));
+        assertEquals(occ.beds() - 2, occ.vacant());
+
+        java.io.File f = java.io.File.createTempFile("occupancy", ".dat");
+        f.deleteOnExit();
+        home.dischargeResident(mgr(), "R2", java.io.File.createTempFile("archive", ".csv").getPath());
+        home.saveData(f.getPath());
+        Occupancy loaded = CareHome.loadData(f.getPath()).getOccupancy();
+        assertEquals(1, loaded.occupied());
+        assertEquals(0, loaded.occupiedInWard(1));
+        assertEquals(1, loaded.occupiedInWard(2));
+    }
+
+    // 15) Allocation: first matching vacant bed, same-gender rooms, size and ward limits, batches
+    @Test
+    void admit_allocatesFirstMatchingBed() throws Exception {
+        CareHome home = freshHome();   // each ward: rooms of 1,2,2,3,4,4 beds
+        assertEquals("W1-R1-B1", home.admit(mgr(), new Resident("R1","Ray",'M',80), BedRequest.any()).getBedId());
+        assertEquals("W1-R2-B1", home.admit(mgr(), new Resident("R2","Ann",'F',70), BedRequest.any()).getBedId());
+        assertEquals("W1-R3-B1", home.admit(mgr(), new Resident("R3","Bob",'M',75), BedRequest.any()).getBedId());
+        assertEquals("W1-R2-B2", home.admit(mgr(), new Resident("R4","Eve",'F',72), BedRequest.any()).getBedId());
+        assertEquals("W2-R5-B1", home.admit(mgr(), new Resident("R5","Max",'M',81),
+                BedRequest.any().onlyWard(2).roomSize(4, 4)).getBedId());
+
+        java.util.List<Resident> transfers = new java.util.ArrayList<>();
+        for (int i = 0; i < 14; i++) transfers.add(new Resident("T" + i, "Transfer " + i, 'F', 60));
+        java.util.List<Bed> placed = home.admitAll(mgr(), transfers, BedRequest.any().onlyWard(1).mixedGender());
+        assertEquals(12, placed.stream().filter(java.util.Objects::nonNull).count()); // 16 beds, 4 taken
+        assertNull(placed.get(13));
+        assertEquals(0, home.getOccupancy().vacantInWard(1));
+        assertThrows(BedOccupiedException.class, () ->
+                home.admit(mgr(), new Resident("X","Xi",'M',66), BedRequest.any().onlyWard(1)));
+    }
+
+    // 16) Audit search by actor, subject, action, words and time, with paging
+    @Test
+    void auditLog_searchesByTermsAndTime() throws Exception {
+        AuditLog log = new AuditLog();
+        for (int i = 0; i < 1000; i++) {
+            String nurse = i % 2 == 0 ? "N1" : "N2";
+            String resident = "R" + (i % 10);
+            log.append(new AuditEntry(1_000L * i, nurse, "DoseAdministered", resident,
+                    "Nurse (" + nurse + ") administered " + (i % 3 == 0 ? "Paracetamol" : "Amoxicillin") + " to " + resident));
+        }
+        log.add(new java.util.Date(2_000_000L) + " - restored line about Paracetamol");
+
+        AuditLog.Page p = log.search(AuditQuery.all().by("N1").about("R4"));
+        assertEquals(100, p.total());                                   // i ≡ 4 (mod 10)
+        p = log.search(AuditQuery.all().by("N1").about("R4").containing("paracetamol").page(0, 5));
+        assertEquals(33, p.total());                                     // i ≡ 24 (mod 30)
+        assertEquals(5, p.entries().size());
+        assertEquals(24_000, p.entries().get(0).at());
+        assertEquals(54_000, log.search(AuditQuery.all().by("N1").about("R4").containing("paracetamol").page(1, 5))
+                .entries().get(0).at());
+        assertEquals(10, log.search(AuditQuery.all().about("R4").between(0, 100_000)).total());
+        assertEquals(1, log.search(AuditQuery.all().containing("restored paracetamol")).total());
+        assertEquals(0, log.search(AuditQuery.all().by("N9")).total());
+        assertEquals("restored line about Paracetamol", log.get(1000).substring(log.get(1000).indexOf(" - ") + 3));
+    }
+
+    // 17) Dated roster: coverage by ward and time (incl. overnight), overlap rejection, compact save/load
+    @Test
+    void roster_answersCoverageAndRejectsOverlaps() throws Exception {
+        CareHome home = freshHome();
+        Manager m = mgr();
+        home.addStaff(m, nurse());
+        home.addStaff(m, new Nurse("N2","Ola",'F',"ola","p"));
+        java.time.LocalDate mon = java.time.LocalDate.of(2026, 3, 2);
+        home.addShiftForNurse(m, "nina", new Shift(mon, LocalTime.of(22,0), LocalTime.of(8,0), 2));
+        home.addShiftForNurse(m, "ola", new Shift(mon.plusDays(1), LocalTime.of(0,0), LocalTime.of(6,0), 1));
+        home.addShiftForNurse(m, "nina", new Shift(mon.plusDays(1), LocalTime.of(20,0), LocalTime.of(23,0), 2));
+
+        RosterStore roster = home.getRoster();
+        java.time.LocalDateTime threeAm = mon.plusDays(1).atTime(3, 0);
+        assertEquals(java.util.List.of("nina"), roster.onDuty(threeAm, 2));
+        assertEquals(java.util.List.of("nina", "ola"), roster.onDuty(threeAm, 0));
+        assertEquals(0, roster.coverage(mon.plusDays(1).atTime(8, 0), 0));   // end is exclusive
+        assertEquals(10 * 60 + 3 * 60, roster.minutes("nina", mon, mon.plusDays(7)));
+
+        assertThrows(IllegalArgumentException.class, () ->
+                home.addShiftForNurse(m, "nina", new Shift(mon.plusDays(1), LocalTime.of(7,0), LocalTime.of(9,0), 1)));
+        assertEquals(3, roster.size());
+        assertTrue(roster.overlaps().isEmpty());
+
+        // dated shifts count per calendar date: three Monday day shifts are three compliant days
+        CareHome weeks = freshHome();
+        weeks.addStaff(m, new Nurse("N3","Ada",'F',"ada","p"));
+        for (int w = 0; w < 3; w++)
+            weeks.addShiftForNurse(m, "ada", new Shift(mon.plusWeeks(w), LocalTime.of(8,0), LocalTime.of(16,0), 1));
+        weeks.checkCompliance();
+
+        java.io.File f = java.io.File.createTempFile("roster", ".dat");
+        f.deleteOnExit();
+        home.saveData(f.getPath());
+        RosterStore loaded = CareHome.loadData(f.getPath()).getRoster();
+        assertEquals(3, loaded.size());
+        assertEquals(java.util.List.of("nina", "ola"), loaded.onDuty(threeAm, 0));
+        assertEquals("22:00", loaded.shift(0).getStartTime().toString());
+        assertEquals(2, loaded.shift(0).getWard());
+    }
+
+    // 18) Roster generator: covers every ward target within the rules, respects availability, assigns all or nothing
+    @Test
+    void rosterGenerator_coversTargetsWithinRules() throws Exception {
+        CareHome home = freshHome();
+        Manager m = mgr();
+        for (int i = 0; i < 12; i++) home.addStaff(m, new Nurse("N" + i, "Nurse " + i, 'F', "n" + i, "p"));
+        java.time.LocalDate mon = java.time.LocalDate.of(2026, 3, 2);
+        home.addShiftForNurse(m, "n0", new Shift(mon, LocalTime.of(7,0), LocalTime.of(15,0), 1)); // already rostered
+
+        RosterGenerator gen = new RosterGenerator(mon, 14).budget(java.time.Duration.ofSeconds(2)).threads(2);
+        int early = gen.slot(LocalTime.of(7,0), LocalTime.of(15,0));
+        int night = gen.slot(LocalTime.of(23,0), LocalTime.of(7,0));
+        gen.need(1, early, 2).need(2, early, 1).need(1, night, 1).need(2, night, 1);
+        gen.need(java.time.DayOfWeek.SUNDAY, 2, early, 0);
+        gen.unavailable("n1", mon.plusDays(3)).excludeSlot("n2", night);
+
+        RosterGenerator.Result r = gen.generate(home);
+        assertTrue(r.complete(), "gaps: " + r.gaps());
+        assertTrue(r.violations().isEmpty(), "violations: " + r.violations());
+        assertEquals(14 * 5 - 2, r.assignments().size());
+        for (RosterGenerator.Assignment a : r.assignments()) {
+            assertFalse(a.username().equals("n1") && a.shift().getDate().equals(mon.plusDays(3)));
+            assertFalse(a.username().equals("n2") && a.shift().getStartTime().getHour() == 23);
+        }
+
+        RosterGenerator.Result broken = new RosterGenerator.Result(r.assignments(), r.gaps(),
+                java.util.List.of(new Violation("max-daily-hours", "n3", "n3 works too long")), 0, 1);
+        assertThrows(exceptions.ShiftViolationException.class, () -> broken.assignTo(home, m));
+        java.util.List<RosterGenerator.Assignment> clashing = new java.util.ArrayList<>(r.assignments());
+        clashing.add(new RosterGenerator.Assignment("n0", new Shift(mon, LocalTime.of(8,0), LocalTime.of(12,0), 2)));
+        assertThrows(IllegalArgumentException.class, () ->
+                new RosterGenerator.Result(clashing, r.gaps(), java.util.List.of(), 0, 1).assignTo(home, m));
+        assertEquals(1, home.getRoster().size());                            // all or nothing
+
+        r.assignTo(home, m);
+        home.checkCompliance();                                              // 8h/day counted per date, not per weekday
+        assertEquals(2, home.getRoster().coverage(mon.plusDays(5).atTime(3, 0), 0));
+        assertEquals(2, home.getRoster().onDuty(mon.plusDays(1).atTime(9, 0), 1).size());
+        assertTrue(home.getRoster().overlaps().isEmpty());
+    }
+
+    // 19) Formulary: equal names share one code; doses of a drug are found by code; terms survive a round trip
+    @Test
+    void formulary_sharesCodesAndSerializesTermsOnce() throws Exception {
+        Prescription p = new Prescription(new String("Paracetamol"), "500mg", LocalTime.of(8,0), "D1");
+        AdministrationRecord a = new AdministrationRecord("Paracetamol", new String("500mg"),
+                java.time.LocalDateTime.of(2026, 1, 1, 8, 0), "N1");
+        assertEquals(p.getMedicineCode(), a.getMedicineCode());
+        assertEquals(p.getDosageCode(), a.getDosageCode());
+        assertEquals("Paracetamol", Formulary.MEDICINES.name(a.getMedicineCode()));
+        assertEquals(-1, Formulary.MEDICINES.find("No such drug"));
+
+        AdministrationHistory h = new AdministrationHistory();
+        for (int i = 0; i < 1000; i++)
+            h.add(new AdministrationRecord(i % 4 == 0 ? "Ibuprofen" : "Paracetamol", "500mg",
+                    java.time.LocalDateTime.of(2026, 1, 1, 8, 0).plusHours(i), "N1"));
+        assertEquals(250, h.of("Ibuprofen").size());
+
+        java.io.ByteArrayOutputStream bytes = new java.io.ByteArrayOutputStream();
+        try (java.io.ObjectOutputStream out = new java.io.ObjectOutputStream(bytes)) { out.writeObject(h); }
+        String raw = bytes.toString(java.nio.charset.StandardCharsets.ISO_8859_1);
+        assertEquals(raw.indexOf("Paracetamol"), raw.lastIndexOf("Paracetamol"));   // written once
+        AdministrationHistory back;
+        try (java.io.ObjectInputStream in = new java.io.ObjectInputStream(new java.io.ByteArrayInputStream(bytes.toByteArray()))) {
+            back = (AdministrationHistory) in.readObject();
+        }
+        assertEquals(750, back.of("Paracetamol").size());
+        assertEquals("500mg", back.latest("Ibuprofen").getDosage());
+    }
+
+    // 20) Auth: hashed passwords, sessions by token, role checks, expiry, LRU bound, legacy upgrade
+    @Test
+    void auth_loginSessionsAndRoleChecks() throws Exception {
+        CareHome home = freshHome();
+        Manager m = mgr();
+        home.addStaff(m, nurse());
+        assertTrue(util.PasswordHasher.isHash(home.getStaffList().get("nina").getPasswordHash()));   // never plain text
+        AuthService auth = new AuthService(home, java.time.Duration.ofMinutes(5), java.time.Duration.ofHours(1), 2);
+        home.addListener(auth);
+
+        AuthService.Session s = auth.login("nina", "p".toCharArray());
+        assertEquals("NURSE", s.role());
+        assertEquals("nina", auth.require(s.token(), Nurse.class).getUsername());
+        assertThrows(UnauthorizedActionException.class, () -> auth.require(s.token(), Manager.class));
+        assertThrows(UnauthorizedActionException.class, () -> auth.login("nina", "wrong".toCharArray()));
+        assertThrows(UnauthorizedActionException.class, () -> auth.login("nobody", "p".toCharArray()));
+
+        home.changeStaffPassword(m, "nina", "new-secret");                     // ends her sessions
+        assertThrows(UnauthorizedActionException.class, () -> auth.authenticate(s.token()));
+        assertThrows(UnauthorizedActionException.class, () -> auth.login("nina", "p".toCharArray()));
+        String t1 = auth.login("nina", "new-secret".toCharArray()).token();
+        auth.login("nina", "new-secret".toCharArray());
+        auth.login("nina", "new-secret".toCharArray());
+        assertEquals(2, auth.activeSessions());                                 // bounded: oldest dropped
+        assertThrows(UnauthorizedActionException.class, () -> auth.authenticate(t1));
+
+        // plain text from an old save: accepted once, then replaced by a hash
+        home.replay(new CareEvent.StaffAdded(0, "import", new Doctor("D9","Old",'M',"old","legacy","GP")));
+        auth.login("old", "legacy".toCharArray());
+        assertTrue(util.PasswordHasher.isHash(home.getStaffList().get("old").getPasswordHash()));
+        auth.login("old", "legacy".toCharArray());
+
+        AuthService quick = new AuthService(home, java.time.Duration.ofMillis(1), java.time.Duration.ofHours(1), 10);
+        String t = quick.login("old", "legacy".toCharArray()).token();
+        Thread.sleep(5);
+        assertThrows(UnauthorizedActionException.class, () -> quick.authenticate(t));
+    }
+
+    // 21) Access policy: role masks, per-staff grants and revokes, ward limits, assigned residents, cheap denials
+    @Test
+    void accessPolicy_scopesActionsByRoleWardAndResident() throws Exception {
+        CareHome home = freshHome();
+        Manager m = mgr();
+        Nurse n = nurse(), other = new Nurse("N2","Ola",'F',"ola","p");
+        home.addStaff(m, n);
+        home.addStaff(m, other);
+        home.addResident(m, new Resident("R1","Ray",'M',80), "W1-R2-B1");
+        home.addResident(m, new Resident("R2","Ann",'F',70), "W2-R2-B1");
+        AccessPolicy policy = home.getAccessPolicy();
+
+        // scoping is off by default; once on, a nurse with no assignments may not administer at all
+        home.administerMedication(n, "R2", "Paracetamol", "500mg", java.time.LocalDateTime.of(2025, 1, 1, 8, 0));
+        policy.assignedResidentsOnly(Permission.ADMINISTER);
+        assertThrows(UnauthorizedActionException.class, () ->
+                home.administerMedication(n, "R1", "Paracetamol", "500mg", java.time.LocalDateTime.of(2025, 1, 1, 8, 30)));
+
+        home.assignResident(m, "nina", "R1");
+        UnauthorizedActionException notMine = assertThrows(UnauthorizedActionException.class, () ->
+                home.administerMedication(n, "R2", "Paracetamol", "500mg", java.time.LocalDateTime.of(2025, 1, 1, 9, 0)));
+        assertEquals(0, notMine.getStackTrace().length);                          // denials skip the stack walk
+        home.administerMedication(n, "R1", "Paracetamol", "500mg", java.time.LocalDateTime.of(2025, 1, 1, 9, 0));
+        home.moveResident(n, "R2", "W2-R3-B1");                                    // moving is not scoped by default
+
+        policy.wards("ola", 1);
+        assertThrows(UnauthorizedActionException.class, () -> home.moveResident(other, "R2", "W1-R3-B1"));  // from ward 2
+        assertThrows(UnauthorizedActionException.class, () -> home.moveResident(other, "R1", "W2-R4-B1"));  // to ward 2
+        home.moveResident(other, "R1", "W1-R3-B1");
+        policy.wards("ola");
+        home.moveResident(other, "R2", "W1-R4-B1");
+
+        policy.revoke("mgr", Permission.DISCHARGE);                               // cached grants are re-resolved
+        assertFalse(policy.allows(m, Permission.DISCHARGE));
+        assertTrue(policy.allows(m, Permission.ADMIT));
+        assertThrows(UnauthorizedActionException.class, () -> home.dischargeResident(m, "R1", "unused.csv"));
+        policy.grant("nina", Permission.EDIT_SHIFTS);
+        assertTrue(policy.allows(n, Permission.EDIT_SHIFTS));
+        assertFalse(policy.allows(other, Permission.EDIT_SHIFTS));
+        assertFalse(policy.allows(null, Permission.MOVE));
+        policy.role("DOCTOR");                                                     // a role with no permissions
+        assertThrows(UnauthorizedActionException.class, () ->
+                home.addPrescription(doc(), "R1", new Prescription("Aspirin", "100mg", LocalTime.of(8, 0), "D1")));
+    }
+
+    // 22) Binary save file: full round trip, checksum catches corruption, unknown sections are skipped
+    @Test
+    void binaryCodec_roundTripsAndIsForwardCompatible() throws Exception {
+        CareHome home = freshHome();
+        Manager m = mgr();
+        Nurse n = nurse();
+        home.addStaff(m, n);
+        home.addStaff(m, new Doctor("D1","Dev",'M',"dev","p","Cardiology"));
+        home.addShiftForNurse(m, "nina", new Shift(java.time.DayOfWeek.MONDAY, LocalTime.of(8,0), LocalTime.of(16,0)));
+        home.addShiftForNurse(m, "nina", new Shift(java.time.LocalDate.of(2026, 3, 3), LocalTime.of(22,0), LocalTime.of(6,0), 2));
+        home.getCompliance().removeRule("doctor-coverage");
+        home.getCompliance().addRule(ComplianceRules.minimumRest(10));
+        home.addResident(m, new Resident("R1","Ray",'M',80), "W1-R2-B1");
+        home.addResident(m, new Resident("R2","Zoë",'F',91), "W2-R1-B1");
+        home.assignResident(m, "nina", "R1");
+        home.addPrescription(doc(), "R1", new Prescription("Paracetamol","500mg",LocalTime.of(8,0),"D1"));
+        java.time.LocalDateTime at = java.time.LocalDateTime.of(2026, 3, 3, 8, 0, 5, 123_000_000);
+        home.administerMedication(n, "R1", "Paracetamol", "500mg", at);
+
+        java.io.File f = java.io.File.createTempFile("codec", ".dat");
+        f.deleteOnExit();
+        home.saveData(f.getPath());
+        CareHome back = CareHome.loadData(f.getPath());
+
+        assertEquals("Cardiology", ((Doctor) back.getStaffList().get("dev")).getSpecialization());
+        Nurse nina = (Nurse) back.getStaffList().get("nina");
+        assertEquals(java.util.Set.of("R1"), nina.getAssignedResidents());
+        assertEquals(2, nina.getShifts().size());
+        assertEquals(1, back.getRoster().size());
+        assertEquals(home.getStaffList().get("nina").getPasswordHash(), nina.getPasswordHash());
+        assertEquals(home.getCompliance().getRules().stream().map(ComplianceRule::name).toList(),
+                back.getCompliance().getRules().stream().map(ComplianceRule::name).toList());
+        Resident r2 = back.getResidents().get("R2");
+        assertEquals("Zoë", r2.getName());
+        assertEquals("W2-R1-B1", r2.getBed().getBedId());
+        Resident r1 = back.getResidents().get("R1");
+        assertEquals("Paracetamol", r1.getPrescriptions().get(0).getMedicine());
+        assertEquals(at, r1.getAdministrations().get(0).getAdministeredAt());
+        assertEquals(home.getDoseScheduler().dueFor("R1").get(0).getDue(), back.getDoseScheduler().dueFor("R1").get(0).getDue());
+        assertEquals(home.getAudit().size(), back.getAudit().size());
+        AuditQuery q = AuditQuery.all().about("R1").containing("paracetamol");
+        assertEquals(home.getAudit().search(q).total(), back.getAudit().search(q).total());
+
+        // a newer writer's extra section (tag 99) before the end marker is skipped, and so is an
+        // extra trailing ref field of a staff record (its string still counts); a short record takes defaults
+        byte[] bytes = java.nio.file.Files.readAllBytes(f.toPath());
+        int endTag = bytes.length - 5;
+        java.io.ByteArrayOutputStream grown = new java.io.ByteArrayOutputStream();
+        grown.write(bytes, 0, endTag);
+        grown.write(new byte[] {99, 0, 0, 0, 3, 1, 2, 3});
+        java.io.ByteArrayOutputStream staff = new java.io.ByteArrayOutputStream();
+        staff.write(3);                                                            // records
+        staffRecord(staff, new String[] {"future"}, "fut", "NURSE", 0, 0, 1);       // + ref to "future"
+        staffRecord(staff, new String[] {"R2"}, "gil", "NURSE", 1, 2, 0);           // assigned: ref to "R2"
+        staffRecord(staff, new String[0], "hal", null);                            // ends after the hash
+        grown.write(3);
+        grown.write(java.nio.ByteBuffer.allocate(4).putInt(staff.size()).array());
+        staff.writeTo(grown);
+        grown.write(0);
+        java.util.zip.CRC32C crc = new java.util.zip.CRC32C();
+        crc.update(grown.toByteArray());
+        grown.write(java.nio.ByteBuffer.allocate(4).putInt((int) crc.getValue()).array());
+        java.nio.file.Files.write(f.toPath(), grown.toByteArray());
+        CareHome grownBack = CareHome.loadData(f.getPath());
+        assertEquals(2, grownBack.getResidents().size());
+        assertTrue(grownBack.getStaffList().containsKey("fut"));
+        assertEquals(java.util.Set.of("R2"), ((Nurse) grownBack.getStaffList().get("gil")).getAssignedResidents());
+        Staff hal = grownBack.getStaffList().get("hal");
+        assertEquals("NURSE", hal.getRole());
+        assertTrue(hal.getShifts().isEmpty());
+
+        bytes[bytes.length / 2] ^= 1;                                              // one flipped bit
+        java.nio.file.Files.write(f.toPath(), bytes);
+        assertThrows(java.io.IOException.class, () -> CareHome.loadData(f.getPath()));
+    }
+
+    // a staff record of a nurse: first-used strings, then the fields; every value here fits one byte
+    private static void staffRecord(java.io.ByteArrayOutputStream out, String[] firstUses, String user,
+                                    String role, int... tail) {
+        java.io.ByteArrayOutputStream fields = new java.io.ByteArrayOutputStream();
+        fields.write('N');
+        ascii(fields, "N-" + user);
+        ascii(fields, user);                                                       // name
+        fields.write('F');
+        ascii(fields, user);
+        ascii(fields, "hash");
+        if (role != null) {
+            ascii(fields, role);
+            ascii(fields, null);                                                   // specialization
+            for (int b : tail) fields.write(b);
+        }
+        out.write(firstUses.length);
+        for (String s : firstUses) ascii(out, s);
+        out.write(fields.size());
+        out.writeBytes(fields.toByteArray());
+    }
+
+    private static void ascii(java.io.ByteArrayOutputStream out, String s) {
+        if (s == null) { out.write(0); return; }
+        out.write(s.length() + 1);
+        out.writeBytes(s.getBytes(java.nio.charset.StandardCharsets.US_ASCII));
+    }
+
+    // 23) Dose history read by a JVM that interned the medicines in another order still finds the latest dose
+    @Test
+    void administrationHistory_survivesOtherInterningOrder() throws Exception {
+        Formulary.MEDICINES.code("Order-B");
+        Formulary.MEDICINES.code("Order-A");
+        java.io.File f = java.io.File.createTempFile("history", ".ser");
+        f.deleteOnExit();
+        String javaExe = ProcessHandle.current().info().command().orElse("java");
+        Process p = new ProcessBuilder(javaExe, "-cp", System.getProperty("java.class.path"),
+                HistoryWriter.class.getName(), f.getPath()).inheritIO().start();
+        assertEquals(0, p.waitFor());
+
+        AdministrationHistory h;
+        try (var in = new java.io.ObjectInputStream(new java.io.FileInputStream(f))) {
+            h = (AdministrationHistory) in.readObject();
+        }
+        java.time.LocalDate day = java.time.LocalDate.of(2026, 1, 1);
+        assertEquals(day.atTime(8, 0), h.latest("Order-A").getAdministeredAt());
+        assertEquals(day.atTime(9, 0), h.latest("Order-B").getAdministeredAt());
+        assertTrue(h.given("Order-A", day.atTime(7, 0), day.atTime(8, 30)));     // the double-dose guard
+        assertFalse(h.given("Order-B", day.atTime(7, 0), day.atTime(8, 30)));
+    }
+
+    /** Run in a fresh JVM by test 23: interns Order-A before Order-B and writes a history. */
+    public static class HistoryWriter {
+        public static void main(String[] args) throws Exception {
+            java.time.LocalDate day = java.time.LocalDate.of(2026, 1, 1);
+            AdministrationHistory h = new AdministrationHistory();
+            h.add(new AdministrationRecord("Order-A", "1 tab", day.atTime(8, 0), "N1"));
+            h.add(new AdministrationRecord("Order-B", "1 tab", day.atTime(9, 0), "N1"));
+            try (var out = new java.io.ObjectOutputStream(new java.io.FileOutputStream(args[0]))) {
+                out.writeObject(h);
+            }
+        }
+    }
+
+    // 24) Roster generator with no nurses: every target comes back as a gap, nothing to assign
+    @Test
+    void rosterGenerator_withoutNursesReportsAllGaps() throws Exception {
+        CareHome home = freshHome();
+        home.addStaff(mgr(), doc());
+        java.time.LocalDate mon = java.time.LocalDate.of(2026, 3, 2);
+        RosterGenerator gen = new RosterGenerator(mon, 7).threads(2);
+        int early = gen.slot(LocalTime.of(7,0), LocalTime.of(15,0));
+        gen.need(1, early, 2).need(2, early, 1);
+
+        RosterGenerator.Result r = gen.generate(home);
+        assertFalse(r.complete());
+        assertTrue(r.assignments().isEmpty());
+        assertEquals(14, r.gaps().size());
+        assertEquals(7 * 3, r.gaps().stream().mapToInt(RosterGenerator.Gap::missing).sum());
+        assertEquals(0, r.assignTo(home, mgr()));
+    }
+
+    // 25) Roster wards above 127 keep their number in memory and through serialization
+    @Test
+    void rosterStore_highWardNumbers() throws Exception {
+        RosterStore roster = new RosterStore();
+        java.time.LocalDate mon = java.time.LocalDate.of(2026, 3, 2);
+        roster.add("nina", new Shift(mon, LocalTime.of(8,0), LocalTime.of(16,0), 200));
+        roster.add("ola", new Shift(mon, LocalTime.of(8,0), LocalTime.of(16,0), Topology.MAX_WARDS));
+        assertThrows(IllegalArgumentException.class, () ->
+                roster.add("ada", new Shift(mon, LocalTime.of(8,0), LocalTime.of(16,0), Topology.MAX_WARDS + 1)));
+
+        java.time.LocalDateTime nine = mon.atTime(9, 0);
+        assertEquals(java.util.List.of("nina"), roster.onDuty(nine, 200));
+        assertEquals(1, roster.coverage(nine, 255));
+        assertEquals(200, roster.shift(0).getWard());
+
+        var bytes = new java.io.ByteArrayOutputStream();
+        try (var out = new java.io.ObjectOutputStream(bytes)) {
+            out.writeObject(roster);
+        }
+        RosterStore back;
+        try (var in = new java.io.ObjectInputStream(new java.io.ByteArrayInputStream(bytes.toByteArray()))) {
+            back = (RosterStore) in.readObject();
+        }
+        assertEquals(255, back.shift(1).getWard());
+        assertEquals(java.util.List.of("ola"), back.onDuty(nine, 255));
+    }
+
+    // 26) Event bus: an idle subscriber blocks instead of polling, and a publish or close wakes it
+    @Test
+    void eventBus_idleSubscriberBlocksUntilPublished() throws Exception {
+        try (CareEventBus bus = new CareEventBus(8)) {
+            java.util.List<Long> seqs = java.util.Collections.synchronizedList(new java.util.ArrayList<>());
+            CareEventBus.Subscription sub = bus.subscribe("test-idle", (e, seq, end) -> seqs.add(seq));
+            Thread t = Thread.getAllStackTraces().keySet().stream()
+                    .filter(th -> th.getName().equals("bus-test-idle")).findFirst().orElseThrow();
+            long deadline = System.nanoTime() + java.util.concurrent.TimeUnit.SECONDS.toNanos(5);
+            while (t.getState() != Thread.State.WAITING && System.nanoTime() < deadline) Thread.sleep(1);
+            assertEquals(Thread.State.WAITING, t.getState());   // parked without a timeout
+
+            bus.publish(new CareEvent.ResidentDischarged(0, "mgr", "R1", 0, null));
+            assertTrue(sub.awaitCaughtUp(5, java.util.concurrent.TimeUnit.SECONDS));
+            assertEquals(java.util.List.of(1L), seqs);
+
+            sub.close();
+            t.join(1000);
+            assertFalse(t.isAlive());
+        }
+    }
 }
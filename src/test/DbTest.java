@@ -0,0 +1,126 @@
+package test;
+
+import persistence.Db;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DbTest {
+
+    private static final String INSERT = "INSERT INTO Resident(id,name,gender,age) VALUES(?,?,?,?)";
+
+    // a fresh database file; callers point Db back at the default when done
+    private void openDb() throws Exception {
+        Db.configure("jdbc:sqlite:" + Files.createTempDirectory("db").resolve("carehome.db"), Db.DEFAULT_READERS);
+        Db.init();
+    }
+
+    private static int residents() throws SQLException {
+        return Db.read(s -> {
+            try (ResultSet rs = s.prepare("SELECT COUNT(*) FROM Resident").executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        });
+    }
+
+    private static void insert(PreparedStatement ps, String id) throws SQLException {
+        ps.setString(1, id);
+        ps.setString(2, "Res " + id);
+        ps.setString(3, "M");
+        ps.setInt(4, 80);
+    }
+
+    // 1) A session hands back the same prepared statement for the same SQL, with no leftover batch
+    @Test
+    void session_reusesStatementsWithoutLeftoverBatch() throws Exception {
+        openDb();
+        try {
+            PreparedStatement first = Db.write(s -> {
+                PreparedStatement ps = s.prepare(INSERT);
+                assertSame(ps, s.prepare(INSERT));
+                insert(ps, "R1");
+                ps.addBatch();                                   // never executed
+                return ps;
+            });
+            Db.write(s -> {
+                PreparedStatement ps = s.prepare(INSERT);
+                assertSame(first, ps);                           // the writer keeps its cache across transactions
+                assertEquals(0, ps.executeBatch().length);
+                insert(ps, "R2");
+                return ps.executeUpdate();
+            });
+            assertEquals(1, residents());
+        } finally {
+            Db.configure(Db.DEFAULT_URL, Db.DEFAULT_READERS);
+        }
+    }
+
+    // 2) Readers see the last commit while a write is open; the writer sees its own uncommitted rows
+    @Test
+    void read_doesNotWaitForOpenWrite() throws Exception {
+        openDb();
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            CountDownLatch written = new CountDownLatch(1), release = new CountDownLatch(1);
+            Future<Integer> writer = pool.submit(() -> Db.write(s -> {
+                PreparedStatement ps = s.prepare(INSERT);
+                insert(ps, "R1");
+                ps.executeUpdate();
+                int own = residents();                           // joins the open transaction
+                written.countDown();
+                try {
+                    if (!release.await(10, TimeUnit.SECONDS)) throw new SQLException("never released");
+                } catch (InterruptedException e) {
+                    throw new SQLException(e);
+                }
+                return own;
+            }));
+            assertTrue(written.await(10, TimeUnit.SECONDS));
+            assertEquals(0, residents());                        // would block here without WAL and the reader pool
+            release.countDown();
+            assertEquals(1, (int) writer.get(10, TimeUnit.SECONDS));
+            assertEquals(1, residents());
+        } finally {
+            pool.shutdownNow();
+            Db.configure(Db.DEFAULT_URL, Db.DEFAULT_READERS);
+        }
+    }
+
+    // 3) A failed write rolls back; reader connections refuse writes
+    @Test
+    void write_rollsBackOnFailureAndReadersAreReadOnly() throws Exception {
+        openDb();
+        try {
+            assertThrows(IllegalStateException.class, () -> Db.write(s -> {
+                PreparedStatement ps = s.prepare(INSERT);
+                insert(ps, "R1");
+                ps.executeUpdate();
+                throw new IllegalStateException("abort");
+            }));
+            assertEquals(0, residents());
+            assertThrows(SQLException.class, () -> Db.read(s -> {
+                PreparedStatement ps = s.prepare(INSERT);
+                insert(ps, "R2");
+                return ps.executeUpdate();
+            }));
+            Db.write(s -> {                                      // the writer is still usable
+                PreparedStatement ps = s.prepare(INSERT);
+                insert(ps, "R3");
+                return ps.executeUpdate();
+            });
+            assertEquals(1, residents());
+        } finally {
+            Db.configure(Db.DEFAULT_URL, Db.DEFAULT_READERS);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package test;
+
+import model.*;
+import persistence.JournalStore;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JournalStoreTest {
+
+    private Manager mgr() { return new Manager("M1","Manager",'M',"mgr","p"); }
+
+    private Nurse nurse() { return new Nurse("N1","Nina",'F',"nina","p"); }
+
+    private Doctor doc() { return new Doctor("D1","Dev",'M',"dev","p","General"); }
+
+    // 1) Changes made after the last snapshot are replayed from the journal
+    @Test
+    void recover_replaysJournalWithoutSave() throws Exception {
+        Path dir = Files.createTempDirectory("journal");
+        Manager m = mgr();
+        try (JournalStore store = JournalStore.open(dir, false)) {
+            CareHome home = store.recover(CareHome::new);
+            home.addStaff(m, nurse());
+            home.addResident(m, new Resident("R1","Ray",'M',80), "W1-R2-B1");
+            home.addPrescription(doc(), "R1", new Prescription("Amoxicillin","500mg", LocalTime.of(9,0), "D1"));
+            home.moveResident(nurse(), "R1", "W2-R4-B3");
+            home.administerMedication(nurse(), "R1", "Amoxicillin", "500mg", LocalDateTime.of(2025, 1, 1, 9, 5));
+            home.assignResident(m, "nina", "R1");
+            Nurse busy = new Nurse("N2","Ola",'F',"ola","p");
+            busy.addShift(new Shift(java.time.DayOfWeek.MONDAY, LocalTime.of(8,0), LocalTime.of(16,0)));
+            assertThrows(IllegalArgumentException.class, () -> home.addStaff(m, busy));   // shifts would not be journaled
+        }
+
+        try (JournalStore store = JournalStore.open(dir, false)) {
+            CareHome home = store.recover(CareHome::new);
+            Resident r = home.getResidents().get("R1");
+            assertEquals("W2-R4-B3", r.getBed().getBedId());
+            assertFalse(home.getBedRegistry().byCode("W1-R2-B1").isOccupied());
+            assertEquals(1, r.getPrescriptions().size());
+            assertEquals(1, r.getAdministrations().size());
+            assertEquals(java.util.Set.of("R1"), ((Nurse) home.getStaffList().get("nina")).getAssignedResidents());
+            assertFalse(home.getStaffList().containsKey("ola"));
+            assertEquals(6, home.getAuditLog().size());
+        }
+    }
+
+    // 2) Compaction writes a snapshot; later changes still come back from the journal tail
+    @Test
+    void compact_thenRecover_combinesSnapshotAndTail() throws Exception {
+        Path dir = Files.createTempDirectory("journal");
+        Manager m = mgr();
+        try (JournalStore store = JournalStore.open(dir, true)) {
+            CareHome home = store.recover(CareHome::new);
+            home.addResident(m, new Resident("R1","Ray",'M',80), "W1-R2-B1");
+            store.compact();
+            assertEquals(0, store.getRecordsSinceSnapshot());
+            byte[] snapshot = Files.readAllBytes(dir.resolve("snapshot.dat"));
+            assertEquals("CHOMEDAT", new String(snapshot, 16, 8, java.nio.charset.StandardCharsets.US_ASCII)); // not serialized
+            home.addResident(m, new Resident("R2","Ann",'F',77), "W1-R3-B1");
+            home.dischargeResident(m, "R1", dir.resolve("archive_R1.csv").toString());
+        }
+
+        try (JournalStore store = JournalStore.open(dir, false)) {
+            CareHome home = store.recover(CareHome::new);
+            assertFalse(home.getResidents().containsKey("R1"));
+            assertTrue(home.getBedRegistry().byCode("W1-R3-B1").isOccupied());
+            assertEquals(3, store.getSequence());
+        }
+    }
+}
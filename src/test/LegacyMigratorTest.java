@@ -0,0 +1,59 @@
+package test;
+
+import model.*;
+import org.junit.jupiter.api.Test;
+import persistence.LegacyMigrator;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LegacyMigratorTest {
+
+    private Manager mgr() { return new Manager("M1","Manager",'M',"mgr","p"); }
+
+    private Nurse nurse() { return new Nurse("N1","Nina",'F',"nina","p"); }
+
+    private Doctor doc() { return new Doctor("D1","Dev",'M',"dev","p","General"); }
+
+    // 1) The checked-in carehome.dat from before the binary format is converted once and backed up
+    @Test
+    void legacyMigrator_convertsBaselineFileOnce() throws Exception {
+        Path file = Files.createTempDirectory("migrate").resolve("carehome.dat");
+        Files.copy(Path.of("carehome.dat"), file);
+        assertTrue(LegacyMigrator.isLegacy(file));
+        assertThrows(java.io.IOException.class, () -> CareHome.loadData(file.toString()));
+
+        assertTrue(LegacyMigrator.migrateIfNeeded(file));
+        assertTrue(LegacyMigrator.isLegacy(file.resolveSibling("carehome.dat.legacy")));
+        assertFalse(LegacyMigrator.migrateIfNeeded(file));                     // already converted
+        CareHome back = CareHome.loadData(file.toString());
+        Resident sam = back.getResidents().get("R1");
+        assertEquals("Sam", sam.getName());
+        assertEquals(75, sam.getAge());
+        assertEquals("W1-R2-B1", sam.getBed().getBedId());
+        assertSame(sam, back.getBedRegistry().byCode("W1-R2-B1").getOccupant());
+        assertTrue(back.getStaffList().get("nina") instanceof Nurse);
+        assertEquals("General", ((Doctor) back.getStaffList().get("dev")).getSpecialization());
+        assertEquals(3, back.getAuditLog().size());
+        assertTrue(back.getAuditLog().get(2).endsWith("Manager added resident Sam to W1-R2-B1"));
+    }
+
+    // 2) A serialized file whose classes do not match the old shapes is refused and left untouched
+    @Test
+    void legacyMigrator_refusesUnknownShapes() throws Exception {
+        CareHome home = new CareHome();
+        home.addStaff(mgr(), nurse());
+        home.addStaff(mgr(), doc());
+        Path file = Files.createTempDirectory("migrate").resolve("carehome.dat");
+        try (var out = new java.io.ObjectOutputStream(Files.newOutputStream(file))) {
+            out.writeObject(home);
+        }
+        byte[] before = Files.readAllBytes(file);
+
+        assertThrows(java.io.IOException.class, () -> LegacyMigrator.migrateIfNeeded(file));
+        assertTrue(java.util.Arrays.equals(before, Files.readAllBytes(file)));
+        assertFalse(Files.exists(file.resolveSibling("carehome.dat.legacy")));
+    }
+}
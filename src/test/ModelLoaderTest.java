@@ -0,0 +1,74 @@
+package test;
+
+import model.*;
+import persistence.AuditDao;
+import persistence.BedDao;
+import persistence.Db;
+import persistence.ModelLoader;
+import persistence.PrescriptionDao;
+import persistence.ResidentDao;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.time.LocalTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ModelLoaderTest {
+
+    // 1) One load rebuilds residents with their beds, prescriptions in insertion order and the audit trail
+    @Test
+    void load_hydratesHomeFromTables() throws Exception {
+        Db.configure("jdbc:sqlite:" + Files.createTempDirectory("loader").resolve("carehome.db"), Db.DEFAULT_READERS);
+        try {
+            Db.init();
+            BedDao.initBedsFromModel(new CareHome());
+            for (int i = 1; i <= 200; i++)
+                ResidentDao.upsert(new Resident("R" + i, "Res " + i, i % 2 == 0 ? 'F' : 'M', 60 + i % 40));
+            BedDao.setOccupant("W1-R2-B1", "R1");
+            BedDao.setOccupant("W2-R4-B3", "R2");
+            PrescriptionDao.insert("R1", new Prescription("Aspirin", "100mg", LocalTime.of(8, 0), "D1"));
+            PrescriptionDao.insert("R2", new Prescription("Paracetamol", "500mg", LocalTime.of(12, 0), "D1"));
+            PrescriptionDao.insert("R1", new Prescription("Amoxicillin", "250mg", LocalTime.of(20, 0), "D2"));
+            AuditDao.log("2026-03-02T08:00", "first");
+            AuditDao.logDurable("2026-03-02T09:00", "second");
+
+            CareHome home = ModelLoader.load();
+            assertEquals(200, home.getResidents().size());
+            Resident r1 = home.getResidents().get("R1");
+            assertEquals("W1-R2-B1", r1.getBed().getBedId());
+            assertSame(r1, home.getBedRegistry().byCode("W1-R2-B1").getOccupant());
+            assertEquals("W2-R4-B3", home.getResidents().get("R2").getBed().getBedId());
+            assertNull(home.getResidents().get("R3").getBed());
+            assertEquals(2, home.getOccupancy().occupied());
+
+            assertEquals(2, r1.getPrescriptions().size());
+            assertEquals("Aspirin", r1.getPrescriptions().get(0).getMedicine());
+            assertEquals("Amoxicillin", r1.getPrescriptions().get(1).getMedicine());
+            assertEquals(LocalTime.of(20, 0), r1.getPrescriptions().get(1).getTime());
+            assertEquals("D2", r1.getPrescriptions().get(1).getDoctorId());
+            assertTrue(home.getResidents().get("R3").getPrescriptions().isEmpty());
+
+            assertEquals(2, home.getAuditLog().size());
+            assertTrue(home.getAuditLog().get(0).endsWith("first"));
+            assertTrue(home.getAuditLog().get(1).endsWith("second"));
+        } finally {
+            Db.configure(Db.DEFAULT_URL, Db.DEFAULT_READERS);
+        }
+    }
+
+    // 2) An empty database loads as an empty home with every bed free
+    @Test
+    void load_emptyDatabase() throws Exception {
+        Db.configure("jdbc:sqlite:" + Files.createTempDirectory("loader").resolve("carehome.db"), Db.DEFAULT_READERS);
+        try {
+            Db.init();
+            CareHome home = ModelLoader.load();
+            assertTrue(home.getResidents().isEmpty());
+            assertTrue(home.getAuditLog().isEmpty());
+            assertEquals(0, home.getOccupancy().occupied());
+        } finally {
+            Db.configure(Db.DEFAULT_URL, Db.DEFAULT_READERS);
+        }
+    }
+}
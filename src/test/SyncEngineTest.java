@@ -0,0 +1,148 @@
+package test;
+
+import model.*;
+import persistence.Db;
+import persistence.SyncEngine;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalTime;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SyncEngineTest {
+
+    private Manager mgr() { return new Manager("M1","Manager",'M',"mgr","p"); }
+
+    private Nurse nurse() { return new Nurse("N1","Nina",'F',"nina","p"); }
+
+    private Doctor doc() { return new Doctor("D1","Dev",'M',"dev","p","General"); }
+
+    // a fresh database file in its own directory; callers point Db back at the default when done
+    private Path openDb() throws Exception {
+        Path dir = Files.createTempDirectory("sync");
+        Db.configure("jdbc:sqlite:" + dir.resolve("carehome.db"), Db.DEFAULT_READERS);
+        Db.init();
+        return dir;
+    }
+
+    // number of rows matching a query with one string parameter
+    private static int count(String sql, String arg) throws Exception {
+        return Db.read(s -> {
+            PreparedStatement ps = s.prepare(sql);
+            ps.setString(1, arg);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        });
+    }
+
+    private static String occupant(String bedId) throws Exception {
+        return Db.read(s -> {
+            PreparedStatement ps = s.prepare("SELECT residentId FROM Bed WHERE id=?");
+            ps.setString(1, bedId);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getString(1) : null;
+            }
+        });
+    }
+
+    // 1) Admit, move, prescribe and discharge each reach the database
+    @Test
+    void flush_writesEachChange() throws Exception {
+        Path dir = openDb();
+        CareHome home = new CareHome();
+        Manager m = mgr();
+        try (CareEventBus bus = new CareEventBus(64)) {
+            home.addListener(bus);
+            try (SyncEngine sync = new SyncEngine(home, bus, 1, TimeUnit.HOURS)) {
+                home.addResident(m, new Resident("R1","Ray",'M',80), "W1-R2-B1");
+                sync.flush();
+                assertEquals(1, count("SELECT COUNT(*) FROM Resident WHERE id=?", "R1"));
+                assertEquals(0, count("SELECT COUNT(*) FROM Prescription WHERE residentId=?", "R1"));
+                assertEquals("R1", occupant("W1-R2-B1"));
+
+                home.moveResident(nurse(), "R1", "W2-R4-B3");
+                sync.flush();
+                assertNull(occupant("W1-R2-B1"));
+                assertEquals("R1", occupant("W2-R4-B3"));
+
+                home.addPrescription(doc(), "R1", new Prescription("Amoxicillin","500mg", LocalTime.of(9,0), "D1"));
+                sync.flush();
+                assertEquals(1, count("SELECT COUNT(*) FROM Prescription WHERE residentId=?", "R1"));
+
+                home.dischargeResident(m, "R1", dir.resolve("archive_R1.csv").toString());
+                sync.flush();
+                assertEquals(0, count("SELECT COUNT(*) FROM Resident WHERE id=?", "R1"));
+                assertEquals(0, count("SELECT COUNT(*) FROM Prescription WHERE residentId=?", "R1"));
+                assertNull(occupant("W2-R4-B3"));
+                assertEquals(home.getAuditLog().size(), count("SELECT COUNT(*) FROM Audit WHERE message<>?", ""));
+            }
+        } finally {
+            Db.configure(Db.DEFAULT_URL, Db.DEFAULT_READERS);
+        }
+    }
+
+    // 2) Discharging and re-admitting the same id between flushes leaves no stale prescriptions behind
+    @Test
+    void readmit_beforeFlush_replacesPrescriptions() throws Exception {
+        Path dir = openDb();
+        CareHome home = new CareHome();
+        Manager m = mgr();
+        try (CareEventBus bus = new CareEventBus(64)) {
+            home.addListener(bus);
+            try (SyncEngine sync = new SyncEngine(home, bus, 1, TimeUnit.HOURS)) {
+                home.addResident(m, new Resident("R1","Ray",'M',80), "W1-R2-B1");
+                home.addPrescription(doc(), "R1", new Prescription("Aspirin","100mg", LocalTime.of(8,0), "D1"));
+                sync.flush();
+                assertEquals(1, count("SELECT COUNT(*) FROM Prescription WHERE residentId=?", "R1"));
+
+                home.dischargeResident(m, "R1", dir.resolve("archive_R1.csv").toString());
+                home.addResident(m, new Resident("R1","Ray",'M',80), "W1-R3-B1");  // the row is upserted, not deleted
+                sync.flush();
+                assertEquals(1, count("SELECT COUNT(*) FROM Resident WHERE id=?", "R1"));
+                assertEquals(0, count("SELECT COUNT(*) FROM Prescription WHERE residentId=?", "R1"));
+                assertNull(occupant("W1-R2-B1"));
+                assertEquals("R1", occupant("W1-R3-B1"));
+            }
+        } finally {
+            Db.configure(Db.DEFAULT_URL, Db.DEFAULT_READERS);
+        }
+    }
+
+    // 3) After an overrun every resident, bed and prescription list is rewritten
+    @Test
+    void onOverrun_rewritesEverything() throws Exception {
+        Path dir = openDb();
+        CareHome home = new CareHome();
+        Manager m = mgr();
+        try (CareEventBus bus = new CareEventBus(64)) {
+            home.addListener(bus);
+            try (SyncEngine sync = new SyncEngine(home, bus, 1, TimeUnit.HOURS)) {
+                home.addResident(m, new Resident("R1","Ray",'M',80), "W1-R2-B1");
+                home.addPrescription(doc(), "R1", new Prescription("Aspirin","100mg", LocalTime.of(8,0), "D1"));
+                sync.flush();
+
+                Db.write(s -> {                                  // the store drifts from the model
+                    s.connection().createStatement().executeUpdate("DELETE FROM Resident");
+                    return null;
+                });
+                assertNull(occupant("W1-R2-B1"));
+                sync.flush();
+                assertEquals(0, count("SELECT COUNT(*) FROM Resident WHERE id=?", "R1")); // nothing was dirty
+
+                sync.onOverrun(3);
+                sync.flush();
+                assertEquals(1, count("SELECT COUNT(*) FROM Resident WHERE id=?", "R1"));
+                assertEquals(1, count("SELECT COUNT(*) FROM Prescription WHERE residentId=?", "R1"));
+                assertEquals("R1", occupant("W1-R2-B1"));
+            }
+        } finally {
+            Db.configure(Db.DEFAULT_URL, Db.DEFAULT_READERS);
+        }
+    }
+}
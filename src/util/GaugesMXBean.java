@@ -0,0 +1,8 @@
+package util;
+
+import java.util.Map;
+
+/** JMX view of every registered gauge (queue depths, live counts). */
+public interface GaugesMXBean {
+    Map<String, Long> getValues();
+}
@@ -0,0 +1,129 @@
+package util;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+/**
+ * Process-wide registry of operation stats and gauges.
+ *
+ * Operations are created once (usually into a static final field) and
+ * recorded without locks or allocation. {@link #exposeJmx()} publishes them
+ * under {@code carehome:type=Operation,name=...} and {@code carehome:type=Gauges};
+ * {@link #startDump} appends a plain-text summary to a local file.
+ */
+public final class Metrics {
+    private static final Map<String, OpStats> OPS = new ConcurrentHashMap<>();
+    private static final Map<String, LongSupplier> GAUGES = new ConcurrentHashMap<>();
+    private static volatile MBeanServer jmx;
+    private static ScheduledExecutorService dumper;
+
+    private Metrics() {}
+
+    /** The stats for an operation, created on first use. */
+    public static OpStats op(String name) {
+        return OPS.computeIfAbsent(name, n -> {
+            OpStats op = new OpStats(n);
+            if (jmx != null) register(jmx, op);
+            return op;
+        });
+    }
+
+    /** Register (or replace) a gauge read on demand, e.g. a queue depth or a live count. */
+    public static void gauge(String name, LongSupplier value) {
+        GAUGES.put(name, value);
+    }
+
+    public static Map<String, OpStats> ops() {
+        return new TreeMap<>(OPS);
+    }
+
+    /** Current value of every gauge; a gauge that throws reads as -1. */
+    public static Map<String, Long> gauges() {
+        Map<String, Long> out = new TreeMap<>();
+        GAUGES.forEach((name, g) -> {
+            long v;
+            try { v = g.getAsLong(); } catch (RuntimeException e) { v = -1; }
+            out.put(name, v);
+        });
+        return out;
+    }
+
+    /** Publish every operation (now and later) and the gauges on the platform MBean server. */
+    public static synchronized void exposeJmx() {
+        if (jmx != null) return;
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName gauges = new ObjectName("carehome:type=Gauges");
+            if (!server.isRegistered(gauges)) server.registerMBean(
+                    new StandardMBean((GaugesMXBean) Metrics::gauges, GaugesMXBean.class, true), gauges);
+        } catch (JMException e) {
+            throw new IllegalStateException("Cannot register gauges MBean", e);
+        }
+        jmx = server;
+        OPS.values().forEach(op -> register(server, op));
+    }
+
+    private static void register(MBeanServer server, OpStats op) {
+        try {
+            ObjectName name = new ObjectName("carehome:type=Operation,name=" + ObjectName.quote(op.getName()));
+            if (!server.isRegistered(name)) server.registerMBean(op, name);
+        } catch (JMException e) {
+            throw new IllegalStateException("Cannot register MBean for " + op.getName(), e);
+        }
+    }
+
+    /** Append a summary of every operation and gauge to {@code file} at a fixed rate. */
+    public static synchronized void startDump(Path file, long period, TimeUnit unit) {
+        if (dumper != null) dumper.shutdownNow();
+        dumper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "metrics-dump");
+            t.setDaemon(true);
+            return t;
+        });
+        dumper.scheduleAtFixedRate(() -> {
+            try {
+                Files.writeString(file, summary(), StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            } catch (IOException | UncheckedIOException e) {
+                System.err.println("Metrics dump failed: " + e.getMessage());
+            }
+        }, period, period, unit);
+    }
+
+    public static synchronized void stopDump() {
+        if (dumper != null) { dumper.shutdownNow(); dumper = null; }
+    }
+
+    /** Human-readable table of every operation followed by every gauge. */
+    public static String summary() {
+        StringBuilder sb = new StringBuilder("# metrics ").append(LocalDateTime.now()).append('\n');
+        sb.append(String.format("%-40s %10s %8s %10s %10s %10s %10s%n",
+                "operation", "count", "errors", "p50(us)", "p99(us)", "max(us)", "ops/s"));
+        for (OpStats op : ops().values()) {
+            if (op.getCount() == 0 && op.getErrorCount() == 0) continue;
+            sb.append(String.format("%-40s %10d %8d %10.1f %10.1f %10.1f %10.2f%n",
+                    op.getName(), op.getCount(), op.getErrorCount(),
+                    op.getP50Micros(), op.getP99Micros(), op.getMaxMicros(), op.getThroughputPerSecond()));
+            if (op.getErrorCount() > 0) sb.append("    errors: ").append(op.getErrorsByType()).append('\n');
+        }
+        gauges().forEach((name, v) -> sb.append(String.format("%-40s %10d%n", name, v)));
+        return sb.append('\n').toString();
+    }
+}
@@ -0,0 +1,75 @@
+package util;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency, throughput and error counts of one operation. Typical use:
+ * <pre>
+ * long t0 = System.nanoTime();
+ * try { ... } catch (Exception e) { OP.failed(e); throw e; } finally { OP.stop(t0); }
+ * </pre>
+ * Neither call allocates once an exception type has been seen.
+ */
+public final class OpStats implements OpStatsMXBean {
+    private final String name;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final Map<Class<?>, LongAdder> errors = new ConcurrentHashMap<>();
+    private final AtomicLong errorCount = new AtomicLong();
+    private volatile long sinceNanos = System.nanoTime();
+
+    OpStats(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /** Record the latency of a call that started at {@code startNanos} (success or failure). */
+    public void stop(long startNanos) {
+        latency.record(System.nanoTime() - startNanos);
+    }
+
+    /** Count a failed call by exception type. */
+    public void failed(Throwable t) {
+        errorCount.incrementAndGet();
+        errors.computeIfAbsent(t.getClass(), c -> new LongAdder()).increment();
+    }
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    @Override public long getCount() { return latency.count(); }
+    @Override public long getErrorCount() { return errorCount.get(); }
+    @Override public double getMeanMicros() { return latency.meanNanos() / 1000.0; }
+    @Override public double getP50Micros() { return latency.percentileNanos(0.50) / 1000.0; }
+    @Override public double getP99Micros() { return latency.percentileNanos(0.99) / 1000.0; }
+    @Override public double getMaxMicros() { return latency.maxNanos() / 1000.0; }
+
+    @Override
+    public Map<String, Long> getErrorsByType() {
+        Map<String, Long> out = new TreeMap<>();
+        errors.forEach((type, n) -> out.put(type.getSimpleName(), n.sum()));
+        return out;
+    }
+
+    /** Calls per second since start (or the last reset). */
+    @Override
+    public double getThroughputPerSecond() {
+        double seconds = (System.nanoTime() - sinceNanos) / 1e9;
+        return seconds <= 0 ? 0 : latency.count() / seconds;
+    }
+
+    @Override
+    public void reset() {
+        latency.reset();
+        errors.clear();
+        errorCount.set(0);
+        sinceNanos = System.nanoTime();
+    }
+}
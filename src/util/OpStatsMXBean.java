@@ -0,0 +1,16 @@
+package util;
+
+import java.util.Map;
+
+/** JMX view of one instrumented operation (latencies in microseconds). */
+public interface OpStatsMXBean {
+    long getCount();
+    long getErrorCount();
+    Map<String, Long> getErrorsByType();
+    double getMeanMicros();
+    double getP50Micros();
+    double getP99Micros();
+    double getMaxMicros();
+    double getThroughputPerSecond();
+    void reset();
+}
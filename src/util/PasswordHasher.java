@@ -0,0 +1,114 @@
+package util;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Salted PBKDF2-HMAC-SHA512 password hashes.
+ *
+ * A hash is stored as {@code $pbkdf2-sha512$<iterations>$<salt>$<hash>}
+ * (Base64, 16-byte salt, 64-byte hash), so it carries its own cost and any
+ * hasher can verify it. The cost of new hashes is set per instance; the
+ * default ({@link #standard()}) is 210,000 iterations, overridable with the
+ * {@code carehome.pbkdf2.iterations} system property. Comparison is
+ * constant-time. Instances are immutable and thread-safe.
+ */
+public final class PasswordHasher {
+    public static final int DEFAULT_ITERATIONS = 210_000;
+    public static final int MIN_ITERATIONS = 1_000;
+
+    private static final String PREFIX = "$pbkdf2-sha512$";
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA512";
+    private static final int SALT_BYTES = 16, HASH_BITS = 512;
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final PasswordHasher STANDARD =
+            new PasswordHasher(Integer.getInteger("carehome.pbkdf2.iterations", DEFAULT_ITERATIONS));
+
+    private final int iterations;
+
+    public PasswordHasher(int iterations) {
+        if (iterations < MIN_ITERATIONS)
+            throw new IllegalArgumentException("At least " + MIN_ITERATIONS + " iterations required");
+        this.iterations = iterations;
+    }
+
+    public static PasswordHasher standard() {
+        return STANDARD;
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    /** A new salted hash of the password. */
+    public String hash(char[] password) {
+        byte[] salt = new byte[SALT_BYTES];
+        RANDOM.nextBytes(salt);
+        byte[] hash = derive(password, salt, iterations);
+        Base64.Encoder b64 = Base64.getEncoder().withoutPadding();
+        return PREFIX + iterations + "$" + b64.encodeToString(salt) + "$" + b64.encodeToString(hash);
+    }
+
+    /**
+     * Whether the password matches. A stored value that is not a hash (plain
+     * text from before hashing was introduced) is compared as is.
+     */
+    public static boolean verify(char[] password, String stored) {
+        if (stored == null) return false;
+        if (!isHash(stored)) {
+            return MessageDigest.isEqual(new String(password).getBytes(java.nio.charset.StandardCharsets.UTF_8),
+                                         stored.getBytes(java.nio.charset.StandardCharsets.UTF_8));
+        }
+        String[] parts = stored.substring(PREFIX.length()).split("\\$");
+        if (parts.length != 3) return false;
+        try {
+            Base64.Decoder b64 = Base64.getDecoder();
+            byte[] expected = b64.decode(parts[2]);
+            byte[] actual = derive(password, b64.decode(parts[1]), Integer.parseInt(parts[0]));
+            return MessageDigest.isEqual(expected, actual);
+        } catch (IllegalArgumentException e) {           // malformed number or Base64
+            return false;
+        }
+    }
+
+    /** True unless the value is one of our hashes at this hasher's cost or higher. */
+    public boolean needsRehash(String stored) {
+        if (stored == null || !isHash(stored)) return true;
+        int end = stored.indexOf('$', PREFIX.length());
+        try {
+            return end < 0 || Integer.parseInt(stored.substring(PREFIX.length(), end)) < iterations;
+        } catch (NumberFormatException e) {
+            return true;
+        }
+    }
+
+    public static boolean isHash(String stored) {
+        return stored != null && stored.startsWith(PREFIX);
+    }
+
+    private static byte[] derive(char[] password, byte[] salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(password, salt, iterations, HASH_BITS);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(ALGORITHM + " unavailable", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "PBKDF2-HMAC-SHA512 x" + iterations;
+    }
+
+    /** Overwrite a password buffer once it is no longer needed. */
+    public static void wipe(char[] password) {
+        if (password != null) Arrays.fill(password, '\0');
+    }
+}
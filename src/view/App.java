@@ -1,46 +1,87 @@
 package view;
 
 import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.concurrent.Task;
 import javafx.geometry.Insets;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.GridPane;
-import javafx.scene.layout.ScrollPane;     // scroll
+import javafx.scene.layout.HBox;
 import javafx.scene.layout.VBox;          // menu + toolbar container
 import javafx.stage.Stage;
 
 import model.*;
+import persistence.ArchiveStore;
+import persistence.AuditExporter;
+import persistence.Db;
+import persistence.JournalStore;
+import persistence.LegacyMigrator;
+import persistence.SyncEngine;
+import util.Metrics;                      // JMX + metrics.log
 import util.Validators;                   // validation
 
-import java.io.PrintWriter;               // for CSV export
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
 import java.time.DayOfWeek;
+import java.time.LocalDate;
 import java.time.LocalTime;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 public class App extends Application {
 
     // ---------------- state ----------------
     public static CareHome HOME = new CareHome();
+    private JournalStore journal;         // every change is journaled; snapshots compact it (null if unavailable)
+    private long savedSeq = -1;           // journal sequence at the last Save / Load (-1: none this session)
+    private ArchiveStore archive;         // records of discharged residents
 
     private enum Role { MANAGER, DOCTOR, NURSE }
-    private Role currentRole = Role.MANAGER;
+    private Role currentRole;             // null while signed out
 
-    // one instance of each staff role for actions
-    private final Manager mgr   = new Manager("M1","Manager",'M',"mgr","p");
-    private final Nurse nurse   = new Nurse("N1","Nina",'F',"nina","p");
-    private final Doctor doctor = new Doctor("D1","Dev",'M',"dev","p","General");
+    // every action runs as the signed-in staff member
+    private AuthService auth;             // sessions of the current HOME
+    private String token;
+    private final Label userLabel = new Label();
+
+    // first manager account, created if the home has none
+    private final Manager mgr = new Manager("M1","Manager",'M',"mgr","p");
 
     // remember selection for nurse "move" action
     private Bed selectedBed = null;
 
     private BorderPane root;              // for refreshing
     private final Label status = new Label();  // status bar
+    private final ProgressBar exportProgress = new ProgressBar(0); // shown while an export runs
+    private final Button cancelExport = new Button("Cancel export");
+    private final Map<Integer, Button> tiles = new HashMap<>(); // packed bed id -> tile
+    private final CareListener homeListener = this::onChange;
+    private final CareEventBus bus = new CareEventBus(4096); // background consumers subscribe here
+    private SyncEngine sync;              // write-behind copy in carehome.db (null if SQLite is unavailable)
 
     // ---------------- app start ----------------
     @Override
     public void start(Stage stage) {
-        seed(); // add sample data
+        try {
+            journal = JournalStore.open(Path.of("carehome-journal"), false);
+            HOME = journal.recover(CareHome::new);
+            journal.startCompaction(5, TimeUnit.MINUTES, 500);
+        } catch (Exception ex) {
+            error(ex);               // run without a journal rather than with one attached to nothing
+            if (journal != null) try { journal.close(); } catch (Exception ignored) {}
+            journal = null;
+        }
+        try {
+            archive = ArchiveStore.open(Path.of("carehome-archive"));
+        } catch (Exception ex) { error(ex); }
+        startMetrics();
+        if (HOME.getStaffList().isEmpty()) seed(); // add sample data on first run
+        ensureManager();
+        startSync();
 
         root = new BorderPane();
         root.setPadding(new Insets(10));
@@ -51,16 +92,14 @@ public class App extends Application {
         // File menu
         Menu fileMenu = new Menu("File");
         MenuItem exportAudit = new MenuItem("Export audit log…");
-        exportAudit.setOnAction(e -> {
-            try (PrintWriter out = new PrintWriter("audit.csv")) {
-                out.println("timestamp_and_message");
-                for (String line : HOME.getAuditLog()) {
-                    out.println("\"" + line.replace("\"","\"\"") + "\"");
-                }
-                info("Export", "Audit log written to audit.csv");
-            } catch (Exception ex) { error(ex); }
-        });
-        fileMenu.getItems().addAll(exportAudit);
+        exportAudit.setOnAction(e -> exportAuditDialog());
+        MenuItem searchAudit = new MenuItem("Search audit log…");
+        searchAudit.setOnAction(e -> searchAuditDialog());
+        MenuItem findArchived = new MenuItem("Find discharged resident…");
+        findArchived.setOnAction(e -> findArchivedDialog());
+        MenuItem exportArchive = new MenuItem("Export resident archive…");
+        exportArchive.setOnAction(e -> exportArchiveDialog());
+        fileMenu.getItems().addAll(exportAudit, searchAudit, new SeparatorMenuItem(), findArchived, exportArchive);
 
         // Staff menu (manager utilities)
         Menu staffMenu = new Menu("Staff");
@@ -77,38 +116,50 @@ public class App extends Application {
         MenuItem editShifts = new MenuItem("Edit Nurse Shifts…");
         editShifts.setOnAction(e -> editShiftsDialog());
 
-        staffMenu.getItems().addAll(addNurse, addDoctor, new SeparatorMenuItem(), changePw, editShifts);
+        MenuItem generateRoster = new MenuItem("Generate Nurse Roster…");
+        generateRoster.setOnAction(e -> generateRosterDialog());
+
+        staffMenu.getItems().addAll(addNurse, addDoctor, new SeparatorMenuItem(), changePw, editShifts, generateRoster);
 
         menuBar.getMenus().addAll(fileMenu, staffMenu);
 
-        // ==== ToolBar (Role + Save/Load + Compliance) ====
+        // ==== ToolBar (User + Save/Load + Compliance) ====
         ToolBar bar = new ToolBar();
 
-        ChoiceBox<Role> roleBox = new ChoiceBox<>();
-        roleBox.getItems().addAll(Role.MANAGER, Role.DOCTOR, Role.NURSE);
-        roleBox.setValue(currentRole);
-        roleBox.getSelectionModel().selectedItemProperty().addListener((o, oldV, newV) -> {
-            currentRole = newV;
-            selectedBed = null;
-            refreshUI();
-        });
+        Button switchUser = new Button("Switch user");
+        switchUser.setOnAction(e -> signIn());
 
         Button saveBtn = new Button("Save");
         saveBtn.setOnAction(e -> {
             try {
+                // carehome.dat is what Load goes back to; the journal is forced too
                 HOME.saveData("carehome.dat");
+                if (journal != null) { journal.sync(); savedSeq = journal.getSequence(); }
+                if (sync != null) sync.flush();
                 info("Saved", "State saved to carehome.dat");
-                refreshUI(); // update counts after save (optional)
             } catch (Exception ex) { error(ex); }
         });
 
         Button loadBtn = new Button("Load");
         loadBtn.setOnAction(e -> {
             try {
-                HOME = CareHome.loadData("carehome.dat");
+                if (journal != null && journal.getSequence() != savedSeq
+                        && !confirm("Load", "Discard every change made since the last Save and go back to carehome.dat?"))
+                    return;
+                boolean converted = LegacyMigrator.migrateIfNeeded(Path.of("carehome.dat"));
+                CareHome loaded = CareHome.loadData("carehome.dat");   // if this fails the current home stays bound
+                HOME.removeListener(homeListener);
+                HOME.removeListener(bus);
+                HOME.removeListener(auth);
+                HOME = loaded;
                 selectedBed = null;
-                refreshUI();
-                info("Loaded", "State loaded from carehome.dat");
+                bindHome();
+                if (journal != null) journal.adopt(HOME); // journal continues from the loaded state
+                savedSeq = journal == null ? 0 : journal.getSequence();
+                if (sync != null) sync.attach(HOME);
+                info("Loaded", "State loaded from carehome.dat" + (converted
+                        ? " (converted from the old format; original kept as carehome.dat.legacy)" : ""));
+                signIn();            // sessions belong to the old HOME
             } catch (Exception ex) { error(ex); }
         });
 
@@ -124,24 +175,27 @@ public class App extends Application {
             }
         });
 
-        bar.getItems().addAll(new Label("Role: "), roleBox,
+        Button dueBtn = new Button("Due Doses");
+        dueBtn.setOnAction(e -> showDueDoses());
+
+        bar.getItems().addAll(userLabel, switchUser,
                 new Separator(), saveBtn, loadBtn,
-                new Separator(), complianceBtn);
+                new Separator(), complianceBtn, dueBtn);
 
         // Put MenuBar + ToolBar together at the top
         VBox top = new VBox(menuBar, bar);
         root.setTop(top);
 
-        // center: ScrollPane containing the ward grid
-        ScrollPane sp = new ScrollPane(buildWardGrid());
-        sp.setFitToWidth(true);
-        sp.setPannable(true);
-        root.setCenter(sp);
-
         // bottom: status bar
-        root.setBottom(status);
-        BorderPane.setMargin(status, new Insets(6, 0, 0, 0));
-        updateStatus(); // show initial counts
+        exportProgress.setVisible(false);
+        cancelExport.setVisible(false);
+        HBox bottom = new HBox(10, status, exportProgress, cancelExport);
+        root.setBottom(bottom);
+        BorderPane.setMargin(bottom, new Insets(6, 0, 0, 0));
+
+        // center: ScrollPane containing the ward grid, kept in step with HOME
+        bindHome();
+        signIn();
 
         Scene scene = new Scene(root, 980, 620);
         stage.setTitle("Resident HealthCare System");
@@ -154,83 +208,110 @@ public class App extends Application {
         GridPane grid = new GridPane();
         grid.setHgap(10);
         grid.setVgap(10);
-
-        int col = 0, row = 0, count = 0;
-        for (Bed bed : HOME.getBeds()) {
-            Button b = new Button(bed.getBedId());
-            b.setMinSize(120, 60);
-
-            // color occupied beds by gender
-            if (bed.isOccupied()) {
-                char g = bed.getOccupant().getGender();
-                b.setStyle("-fx-background-color:" + (g == 'M' ? "#cfe8ff" : "#ffd0d0") + "; -fx-font-weight: bold;");
+        tiles.clear();
+
+        // one header row per ward, then one row per room (room label + its beds)
+        BedRegistry registry = HOME.getBedRegistry();
+        int row = 0;
+        for (int w = 1; w <= registry.wardCount(); w++) {
+            grid.add(new Label("Ward " + w), 0, row++, 2, 1);
+            for (int r = 1; r <= registry.roomCount(w); r++) {
+                grid.add(new Label("Room " + r), 0, row);
+                int col = 1;
+                for (Bed bed : registry.inRoom(w, r)) {
+                    grid.add(buildBedButton(bed), col++, row);
+                }
+                row++;
             }
+        }
+        return grid;
+    }
 
-            // left click -> info + select
-            b.setOnAction(e -> {
-                selectedBed = bed;
-                String msg = bed.isOccupied()
-                        ? bed.getBedId() + "\nResident: " + bed.getOccupant().getName()
-                          + " (" + bed.getOccupant().getGender() + ")\nPrescriptions: "
-                          + bed.getOccupant().getPrescriptions().size()
-                        : bed.getBedId() + " is VACANT";
-                info("Bed Details", msg);
-            });
+    private Button buildBedButton(Bed bed) {
+        Button b = new Button(bed.getBedId());
+        b.setMinSize(120, 60);
+        styleTile(b, bed);
+        tiles.put(bed.getPackedId(), b);
+
+        // left click -> info + select
+        b.setOnAction(e -> {
+            selectedBed = bed;
+            String msg = bed.isOccupied()
+                    ? bed.getBedId() + "\nResident: " + bed.getOccupant().getName()
+                      + " (" + bed.getOccupant().getGender() + ")\nPrescriptions: "
+                      + bed.getOccupant().getPrescriptions().size()
+                    : bed.getBedId() + " is VACANT";
+            info("Bed Details", msg);
+        });
 
-            // right-click menu depends on role
-            ContextMenu menu = new ContextMenu();
-
-            if (currentRole == Role.MANAGER) {
-                if (!bed.isOccupied()) {
-                    MenuItem addRes = new MenuItem("Add resident here…");
-                    addRes.setOnAction(e -> addResidentHere(bed));
-                    menu.getItems().add(addRes);
-                } else {
-                    // Manager: discharge
-                    MenuItem discharge = new MenuItem("Discharge resident…");
-                    discharge.setOnAction(e -> dischargeResident(bed.getOccupant()));
-                    menu.getItems().add(discharge);
-                }
-            } else if (currentRole == Role.NURSE) {
-                if (bed.isOccupied()) {
-                    MenuItem select = new MenuItem("Select resident to move");
-                    select.setOnAction(e -> {
-                        selectedBed = bed;
-                        info("Selected", "Selected " + bed.getOccupant().getName()
-                                + ". Now right-click a VACANT bed → Move here.");
-                    });
-                    menu.getItems().add(select);
-
-                    // Nurse: administered dose
-                    MenuItem administer = new MenuItem("Mark dose administered…");
-                    administer.setOnAction(e -> markDoseAdministered(bed.getOccupant()));
-                    menu.getItems().add(administer);
-
-                } else {
-                    MenuItem moveHere = new MenuItem("Move selected resident here");
-                    moveHere.setDisable(selectedBed == null || !selectedBed.isOccupied() || selectedBed == bed);
-                    moveHere.setOnAction(e -> moveSelectedResidentTo(bed));
-                    menu.getItems().add(moveHere);
-                }
-            } else if (currentRole == Role.DOCTOR) {
-                if (bed.isOccupied()) {
-                    MenuItem addRx = new MenuItem("Add prescription…");
-                    addRx.setOnAction(e -> addPrescriptionFor(bed.getOccupant()));
-                    menu.getItems().add(addRx);
-                }
-            }
+        // right-click menu depends on role and occupancy at the time of the click
+        b.setOnContextMenuRequested(e -> {
+            ContextMenu menu = buildBedMenu(bed);
+            if (!menu.getItems().isEmpty()) menu.show(b, e.getScreenX(), e.getScreenY());
+        });
+        return b;
+    }
 
-            b.setOnContextMenuRequested(e -> menu.show(b, e.getScreenX(), e.getScreenY()));
+    // color occupied beds by gender
+    private void styleTile(Button b, Bed bed) {
+        Resident occupant = bed.getOccupant();
+        b.setStyle(occupant == null ? ""
+                : "-fx-background-color:" + (occupant.getGender() == 'M' ? "#cfe8ff" : "#ffd0d0") + "; -fx-font-weight: bold;");
+    }
 
-            grid.add(b, col, row);
-            col++; count++;
-            if (count % 6 == 0) { col = 0; row++; }
+    private ContextMenu buildBedMenu(Bed bed) {
+        ContextMenu menu = new ContextMenu();
+
+        if (currentRole == Role.MANAGER) {
+            if (!bed.isOccupied()) {
+                MenuItem addRes = new MenuItem("Add resident here…");
+                addRes.setOnAction(e -> addResidentHere(bed));
+                menu.getItems().add(addRes);
+            } else {
+                // Manager: discharge
+                MenuItem discharge = new MenuItem("Discharge resident…");
+                discharge.setOnAction(e -> dischargeResident(bed.getOccupant()));
+                menu.getItems().add(discharge);
+            }
+        } else if (currentRole == Role.NURSE) {
+            if (bed.isOccupied()) {
+                MenuItem select = new MenuItem("Select resident to move");
+                select.setOnAction(e -> {
+                    selectedBed = bed;
+                    info("Selected", "Selected " + bed.getOccupant().getName()
+                            + ". Now right-click a VACANT bed → Move here.");
+                });
+                menu.getItems().add(select);
+
+                // Nurse: administered dose
+                MenuItem administer = new MenuItem("Mark dose administered…");
+                administer.setOnAction(e -> markDoseAdministered(bed.getOccupant()));
+                menu.getItems().add(administer);
+
+            } else {
+                MenuItem moveHere = new MenuItem("Move selected resident here");
+                moveHere.setDisable(selectedBed == null || !selectedBed.isOccupied() || selectedBed == bed);
+                moveHere.setOnAction(e -> moveSelectedResidentTo(bed));
+                menu.getItems().add(moveHere);
+            }
+        } else if (currentRole == Role.DOCTOR) {
+            if (bed.isOccupied()) {
+                MenuItem addRx = new MenuItem("Add prescription…");
+                addRx.setOnAction(e -> addPrescriptionFor(bed.getOccupant()));
+                menu.getItems().add(addRx);
+            }
         }
-        return grid;
+        return menu;
     }
 
-    private void refreshUI() {
-        // if center is ScrollPane, swap its content; otherwise, set new ScrollPane
+    /** Build the grid for the current HOME and follow its changes (startup and Load only). */
+    private void bindHome() {
+        HOME.setArchive(archive);
+        HOME.addListener(homeListener);
+        HOME.addListener(bus);
+        auth = new AuthService(HOME);
+        HOME.addListener(auth);
+        signedOut();
         if (root.getCenter() instanceof ScrollPane sp) {
             sp.setContent(buildWardGrid());
         } else {
@@ -239,15 +320,44 @@ public class App extends Application {
             spNew.setPannable(true);
             root.setCenter(spNew);
         }
-        updateStatus(); // refresh counts
+        updateStatus();
+    }
+
+    // model thread -> FX thread; only the tiles of the beds involved are restyled
+    private void onChange(CareEvent e) {
+        if (e instanceof CareEvent.ResidentAdmitted
+                || e instanceof CareEvent.ResidentMoved
+                || e instanceof CareEvent.ResidentDischarged) {
+            Platform.runLater(() -> applyChange(e));
+        }
+    }
+
+    private void applyChange(CareEvent e) {
+        if (e instanceof CareEvent.ResidentAdmitted ev) {
+            refreshTile(ev.bedId());
+        } else if (e instanceof CareEvent.ResidentMoved ev) {
+            if (ev.fromBedId() != 0) refreshTile(ev.fromBedId());
+            refreshTile(ev.toBedId());
+        } else if (e instanceof CareEvent.ResidentDischarged ev && ev.bedId() != 0) {
+            refreshTile(ev.bedId());
+        }
+        updateStatus();
+    }
+
+    private void refreshTile(int packedBedId) {
+        Button b = tiles.get(packedBedId);
+        Bed bed = HOME.getBedRegistry().get(packedBedId);
+        if (b != null && bed != null) styleTile(b, bed);
     }
 
-    // status text updater
+    // status text updater: constant-time reads of the occupancy counters
     private void updateStatus() {
-        int total = HOME.getBeds().size();
-        long occupied = HOME.getBeds().stream().filter(Bed::isOccupied).count();
-        long vacant = total - occupied;
-        status.setText("Beds: " + total + " | Occupied: " + occupied + " | Vacant: " + vacant);
+        Occupancy occ = HOME.getOccupancy();
+        StringBuilder sb = new StringBuilder("Beds: " + occ.beds() + " | Occupied: " + occ.occupied()
+                + " | Vacant: " + occ.vacant());
+        for (int w = 1; w <= HOME.getBedRegistry().wardCount(); w++)
+            sb.append(" | Ward ").append(w).append(": ").append(occ.occupiedInWard(w)).append('/').append(occ.bedsInWard(w));
+        status.setText(sb.toString());
     }
 
     // ---------------- dialog handlers ----------------
@@ -269,8 +379,7 @@ public class App extends Application {
                 int age = Validators.parseInt(p[3], "Age");     // validate age
 
                 Resident r = new Resident(id, name, g, age);
-                HOME.addResident(mgr, r, bed.getBedId());
-                refreshUI();
+                HOME.addResident(as(Manager.class), r, bed.getPackedId());
             } catch (Exception ex) { error(ex); }
         });
     }
@@ -281,9 +390,8 @@ public class App extends Application {
             return;
         }
         try {
-            HOME.moveResident(nurse, selectedBed.getOccupant().getId(), target.getBedId());
+            HOME.moveResident(as(Nurse.class), selectedBed.getOccupant().getId(), target.getPackedId());
             selectedBed = null;
-            refreshUI();
         } catch (Exception ex) { error(ex); }
     }
 
@@ -311,6 +419,7 @@ public class App extends Application {
                 Validators.require(!vals.get(1).isBlank(), "Dosage required.");
                 LocalTime t = Validators.parseTime(vals.get(2)); // validate time
 
+                Doctor doctor = as(Doctor.class);
                 HOME.addPrescription(doctor, r.getId(), new Prescription(vals.get(0), vals.get(1), t, doctor.getId()));
                 info("Prescription", "Added.");
             } catch (Exception ex) { error(ex); }
@@ -343,7 +452,7 @@ public class App extends Application {
                 java.time.LocalTime t = Validators.parseTime(vals.get(2));
 
                 HOME.administerMedication(
-                        nurse, r.getId(), vals.get(0), vals.get(1),
+                        as(Nurse.class), r.getId(), vals.get(0), vals.get(1),
                         java.time.LocalDateTime.of(java.time.LocalDate.now(), t)
                 );
                 info("Administered", "Recorded dose for " + r.getName());
@@ -353,18 +462,172 @@ public class App extends Application {
         });
     }
 
-    // Manager discharge handler
+    // Manager discharge handler: the record goes to the archive in the background
     private void dischargeResident(Resident r) {
-        TextInputDialog td = new TextInputDialog("archive_" + r.getId() + ".csv");
-        td.setTitle("Discharge Resident");
-        td.setHeaderText("Archive file name");
-        td.setContentText("CSV filename:");
-        td.showAndWait().ifPresent(name -> {
+        Alert confirm = new Alert(Alert.AlertType.CONFIRMATION,
+                "Discharge " + r.getName() + " (" + r.getId() + ") and archive their record?");
+        confirm.setHeaderText(null); confirm.setTitle("Discharge Resident");
+        confirm.showAndWait().filter(bt -> bt == ButtonType.OK).ifPresent(bt -> {
             try {
-                Validators.require(!name.isBlank(), "Filename required.");
-                HOME.dischargeResident(mgr, r.getId(), name);
-                refreshUI();
-                info("Discharged", r.getName() + " archived to " + name);
+                HOME.dischargeResident(as(Manager.class), r.getId());
+                info("Discharged", r.getName() + " archived to " + archive.getLocation());
+            } catch (Exception ex) { error(ex); }
+        });
+    }
+
+    // Medication round worklist: overdue first, then the next hour
+    private void showDueDoses() {
+        java.time.LocalDateTime now = java.time.LocalDateTime.now();
+        DoseScheduler sched = HOME.getDoseScheduler();
+        StringBuilder sb = new StringBuilder();
+        for (DoseScheduler.DueDose d : sched.overdue(now)) sb.append("OVERDUE ").append(describe(d)).append('\n');
+        for (DoseScheduler.DueDose d : sched.dueWithin(now, java.time.Duration.ofHours(1))) sb.append(describe(d)).append('\n');
+        info("Due Doses", sb.length() == 0 ? "Nothing due in the next hour." : sb.toString());
+    }
+
+    private String describe(DoseScheduler.DueDose d) {
+        Resident r = HOME.getResidents().get(d.getResidentId());
+        String where = r == null || r.getBed() == null ? "" : " (" + r.getBed().getBedId() + ")";
+        return d.getDue().toLocalTime() + "  " + (r == null ? d.getResidentId() : r.getName()) + where
+                + ": " + d.getPrescription().getMedicine() + " " + d.getPrescription().getDosage();
+    }
+
+    // Audit export: streamed to disk on a background thread with progress and cancel in the status bar
+    private void exportAuditDialog() {
+        Dialog<List<String>> d = new Dialog<>();
+        d.setTitle("Export Audit Log");
+        d.getDialogPane().getButtonTypes().addAll(ButtonType.OK, ButtonType.CANCEL);
+
+        GridPane gp = new GridPane(); gp.setHgap(8); gp.setVgap(8);
+        ComboBox<String> format = new ComboBox<>();
+        format.getItems().addAll("CSV", "CSV (gzip)", "JSON Lines", "JSON Lines (gzip)");
+        format.setValue("CSV");
+        TextField days = new TextField();
+        days.setPromptText("all");
+        gp.addRow(0, new Label("Format:"), format);
+        gp.addRow(1, new Label("Last N days:"), days);
+        d.getDialogPane().setContent(gp);
+
+        d.setResultConverter(bt -> bt==ButtonType.OK ? List.of(format.getValue(), days.getText()) : null);
+
+        d.showAndWait().ifPresent(v -> {
+            try {
+                long from = v.get(1).isBlank() ? Long.MIN_VALUE
+                        : System.currentTimeMillis() - TimeUnit.DAYS.toMillis(Validators.parseInt(v.get(1), "Days"));
+                AuditExporter exporter = new AuditExporter(
+                        v.get(0).startsWith("CSV") ? AuditExporter.Format.CSV : AuditExporter.Format.JSONL,
+                        v.get(0).endsWith("(gzip)"));
+                AuditLog log = HOME.getAudit();
+                Path out = Path.of(exporter.defaultFileName());
+                runExport("audit entries", out, (progress, cancelled) ->
+                        exporter.export(log, from, Long.MAX_VALUE, out, progress, cancelled));
+            } catch (Exception ex) { error(ex); }
+        });
+    }
+
+    /** A background export: writes its file, reporting progress, until cancelled. */
+    private interface ExportJob {
+        long run(AuditExporter.Progress progress, java.util.function.BooleanSupplier cancelled) throws Exception;
+    }
+
+    private void runExport(String what, Path out, ExportJob job) {
+        Task<Long> task = new Task<>() {
+            @Override
+            protected Long call() throws Exception {
+                return job.run(this::updateProgress, this::isCancelled);
+            }
+        };
+        exportProgress.progressProperty().bind(task.progressProperty());
+        exportProgress.setVisible(true);
+        cancelExport.setVisible(true);
+        cancelExport.setOnAction(e -> task.cancel());
+        Runnable done = () -> {
+            exportProgress.progressProperty().unbind();
+            exportProgress.setVisible(false);
+            cancelExport.setVisible(false);
+        };
+        task.setOnSucceeded(e -> { done.run(); info("Export", task.getValue() + " " + what + " written to " + out); });
+        task.setOnCancelled(e -> { done.run(); info("Export", "Export cancelled."); });
+        task.setOnFailed(e -> { done.run(); error(new Exception(task.getException().getMessage(), task.getException())); });
+
+        Thread t = new Thread(task, "export");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    // Audit search: any combination of staff id, resident/staff id, event type, words and recent days
+    private void searchAuditDialog() {
+        Dialog<List<String>> d = new Dialog<>();
+        d.setTitle("Search Audit Log");
+        d.getDialogPane().getButtonTypes().addAll(ButtonType.OK, ButtonType.CANCEL);
+
+        GridPane gp = new GridPane(); gp.setHgap(8); gp.setVgap(8);
+        TextField actor = new TextField(), subject = new TextField(), words = new TextField(), days = new TextField("7");
+        ComboBox<String> action = new ComboBox<>();
+        action.getItems().addAll("", "StaffAdded", "ResidentAdmitted", "ResidentMoved", "PrescriptionAdded",
+                "DoseAdministered", "ResidentDischarged", "PasswordChanged", "ShiftAssigned");
+        action.setValue("");
+        gp.addRow(0, new Label("Staff ID:"), actor);
+        gp.addRow(1, new Label("Resident ID / username:"), subject);
+        gp.addRow(2, new Label("Action:"), action);
+        gp.addRow(3, new Label("Words:"), words);
+        gp.addRow(4, new Label("Last N days:"), days);
+        d.getDialogPane().setContent(gp);
+
+        d.setResultConverter(bt -> bt==ButtonType.OK
+                ? List.of(actor.getText(), subject.getText(), action.getValue(), words.getText(), days.getText()) : null);
+
+        d.showAndWait().ifPresent(v -> {
+            try {
+                int n = Validators.parseInt(v.get(4), "Days");
+                long now = System.currentTimeMillis();
+                AuditQuery q = AuditQuery.all().by(v.get(0)).about(v.get(1)).action(v.get(2)).containing(v.get(3))
+                        .between(now - TimeUnit.DAYS.toMillis(n), Long.MAX_VALUE).page(0, 50);
+                AuditLog.Page page = HOME.getAudit().search(q);
+                StringBuilder sb = new StringBuilder(page.total() + " matching entries");
+                if (page.total() > page.entries().size()) sb.append(" (first ").append(page.entries().size()).append(")");
+                sb.append('\n');
+                for (AuditEntry en : page.entries()) sb.append(en.line()).append('\n');
+                info("Audit Search", sb.toString());
+            } catch (Exception ex) { error(ex); }
+        });
+    }
+
+    // Discharged residents: by id, else by name prefix; one match shows the latest record
+    private void findArchivedDialog() {
+        TextInputDialog td = new TextInputDialog();
+        td.setTitle("Find Discharged Resident");
+        td.setHeaderText(null);
+        td.setContentText("Resident ID or name:");
+        td.showAndWait().ifPresent(q -> {
+            try {
+                as(Manager.class);
+                Validators.require(!q.isBlank(), "Resident ID or name required.");
+                List<ArchiveStore.Discharge> found = archive.find(q.trim());
+                if (found.isEmpty()) found = archive.findByName(q.trim());
+                StringBuilder sb = new StringBuilder(found.size() + " archived discharges\n");
+                for (ArchiveStore.Discharge d : found.subList(0, Math.min(found.size(), 50))) sb.append(d).append('\n');
+                if (!found.isEmpty() && found.stream().map(ArchiveStore.Discharge::getResidentId).distinct().count() == 1)
+                    sb.append('\n').append(archive.read(found.get(found.size() - 1)));
+                info("Resident Archive", sb.toString());
+            } catch (Exception ex) { error(ex); }
+        });
+    }
+
+    private void exportArchiveDialog() {
+        TextInputDialog td = new TextInputDialog();
+        td.setTitle("Export Resident Archive");
+        td.setHeaderText("Discharges to export (zip of CSV records)");
+        td.setContentText("Last N days (blank = all):");
+        td.showAndWait().ifPresent(days -> {
+            try {
+                as(Manager.class);
+                long from = days.isBlank() ? Long.MIN_VALUE
+                        : System.currentTimeMillis() - TimeUnit.DAYS.toMillis(Validators.parseInt(days, "Days"));
+                ArchiveStore a = archive;
+                Path out = Path.of("resident-archive.zip");
+                runExport("resident records", out, (progress, cancelled) ->
+                        a.export(from, Long.MAX_VALUE, out, progress, cancelled));
             } catch (Exception ex) { error(ex); }
         });
     }
@@ -396,7 +659,7 @@ public class App extends Application {
                 Validators.require(!v.get(4).isBlank(), "Password required");
 
                 Nurse n = new Nurse(v.get(0), v.get(1), g, v.get(3), v.get(4));
-                HOME.addStaff(mgr, n);
+                HOME.addStaff(as(Manager.class), n);
                 info("Staff", "Nurse added: " + n.getName());
             } catch (Exception ex) { error(ex); }
         });
@@ -430,7 +693,7 @@ public class App extends Application {
                 Validators.require(!v.get(5).isBlank(), "Specialization required");
 
                 Doctor doc = new Doctor(v.get(0), v.get(1), g, v.get(3), v.get(4), v.get(5));
-                HOME.addStaff(mgr, doc);
+                HOME.addStaff(as(Manager.class), doc);
                 info("Staff", "Doctor added: " + doc.getName());
             } catch (Exception ex) { error(ex); }
         });
@@ -453,7 +716,7 @@ public class App extends Application {
             try {
                 Validators.require(!v.get(0).isBlank(), "Username required");
                 Validators.require(!v.get(1).isBlank(), "Password required");
-                HOME.changeStaffPassword(mgr, v.get(0), v.get(1));
+                HOME.changeStaffPassword(as(Manager.class), v.get(0), v.get(1));
                 info("Staff", "Password updated.");
             } catch (Exception ex) { error(ex); }
         });
@@ -471,15 +734,23 @@ public class App extends Application {
         day.setValue(DayOfWeek.MONDAY);
 
         ComboBox<String> slot = new ComboBox<>();
-        slot.getItems().addAll("08:00-16:00","14:00-22:00");
+        slot.getItems().addAll("08:00-16:00","14:00-22:00","22:00-08:00");
         slot.setValue("08:00-16:00");
 
+        DatePicker date = new DatePicker();              // empty = weekly shift on the chosen day
+        ComboBox<Integer> ward = new ComboBox<>();
+        for (int w = 0; w <= HOME.getBedRegistry().wardCount(); w++) ward.getItems().add(w);
+        ward.setValue(0);
+
         gp.addRow(0, new Label("Nurse username:"), user);
         gp.addRow(1, new Label("Day:"), day);
         gp.addRow(2, new Label("Shift:"), slot);
+        gp.addRow(3, new Label("Date (optional):"), date);
+        gp.addRow(4, new Label("Ward (0 = any):"), ward);
         d.getDialogPane().setContent(gp);
 
-        d.setResultConverter(bt -> bt==ButtonType.OK ? List.of(user.getText(), day.getValue().name(), slot.getValue()) : null);
+        d.setResultConverter(bt -> bt==ButtonType.OK ? List.of(user.getText(), day.getValue().name(), slot.getValue(),
+                date.getValue() == null ? "" : date.getValue().toString(), String.valueOf(ward.getValue())) : null);
 
         d.showAndWait().ifPresent(v -> {
             try {
@@ -487,19 +758,103 @@ public class App extends Application {
                 var parts = v.get(2).split("-");
                 LocalTime start = LocalTime.parse(parts[0]);
                 LocalTime end   = LocalTime.parse(parts[1]);
-                Shift s = new Shift(DayOfWeek.valueOf(v.get(1)), start, end);
-                HOME.addShiftForNurse(mgr, v.get(0), s);
+                Shift s = v.get(3).isEmpty()
+                        ? new Shift(DayOfWeek.valueOf(v.get(1)), start, end)
+                        : new Shift(LocalDate.parse(v.get(3)), start, end, Integer.parseInt(v.get(4)));
+                HOME.addShiftForNurse(as(Manager.class), v.get(0), s);
                 info("Shifts", "Shift assigned.");
             } catch (Exception ex) { error(ex); }
         });
     }
 
+    // Roster generation: early / late / night slots, the same target on every ward, searched in the background
+    private void generateRosterDialog() {
+        if (HOME.getStaffList().values().stream().noneMatch(st -> st instanceof Nurse)) {
+            info("Roster", "There are no nurses to roster; add nurses first.");
+            return;
+        }
+        Dialog<List<String>> d = new Dialog<>();
+        d.setTitle("Generate Nurse Roster");
+        d.getDialogPane().getButtonTypes().addAll(ButtonType.OK, ButtonType.CANCEL);
+
+        GridPane gp = new GridPane(); gp.setHgap(8); gp.setVgap(8);
+        DatePicker from = new DatePicker(LocalDate.now().plusDays(1));
+        TextField weeks = new TextField("4"), early = new TextField("2"), late = new TextField("2"), night = new TextField("1");
+        gp.addRow(0, new Label("First day:"), from);
+        gp.addRow(1, new Label("Weeks:"), weeks);
+        gp.addRow(2, new Label("Nurses per ward 07:00-15:00:"), early);
+        gp.addRow(3, new Label("Nurses per ward 15:00-23:00:"), late);
+        gp.addRow(4, new Label("Nurses per ward 23:00-07:00:"), night);
+        d.getDialogPane().setContent(gp);
+
+        d.setResultConverter(bt -> bt==ButtonType.OK ? List.of(String.valueOf(from.getValue()), weeks.getText(),
+                early.getText(), late.getText(), night.getText()) : null);
+
+        d.showAndWait().ifPresent(v -> {
+            try {
+                RosterGenerator gen = new RosterGenerator(LocalDate.parse(v.get(0)), 7 * Validators.parseInt(v.get(1), "Weeks"));
+                int[] slots = { gen.slot(LocalTime.of(7, 0), LocalTime.of(15, 0)),
+                                gen.slot(LocalTime.of(15, 0), LocalTime.of(23, 0)),
+                                gen.slot(LocalTime.of(23, 0), LocalTime.of(7, 0)) };
+                for (int w = 1; w <= HOME.getBedRegistry().wardCount(); w++)
+                    for (int i = 0; i < slots.length; i++)
+                        gen.need(w, slots[i], Validators.parseInt(v.get(2 + i), "Nurses"));
+                runRosterGeneration(gen);
+            } catch (Exception ex) { error(ex); }
+        });
+    }
+
+    private void runRosterGeneration(RosterGenerator gen) {
+        CareHome home = HOME;
+        Task<RosterGenerator.Result> task = new Task<>() {
+            @Override
+            protected RosterGenerator.Result call() throws Exception {
+                return gen.generate(home);
+            }
+        };
+        task.setOnSucceeded(e -> {
+            RosterGenerator.Result r = task.getValue();
+            StringBuilder sb = new StringBuilder(r.assignments().size() + " shifts found in " + r.elapsedMillis() + " ms.\n");
+            int missing = 0;
+            for (RosterGenerator.Gap g : r.gaps()) missing += g.missing();
+            if (missing > 0) sb.append(missing).append(" nurse-shifts could not be covered, e.g. ").append(r.gaps().get(0)).append(".\n");
+            for (Violation viol : r.violations()) sb.append(viol.message()).append('\n');
+            if (!r.violations().isEmpty()) {
+                info("Roster", sb.append("The roster breaks the rules above and cannot be assigned.").toString());
+                return;
+            }
+            if (r.assignments().isEmpty()) {
+                info("Roster", sb.append("Nothing to assign.").toString());
+                return;
+            }
+            sb.append("Assign these shifts?");
+            Alert confirm = new Alert(Alert.AlertType.CONFIRMATION, sb.toString());
+            confirm.setHeaderText(null); confirm.setTitle("Roster");
+            confirm.showAndWait().filter(bt -> bt == ButtonType.OK).ifPresent(bt -> {
+                try {
+                    info("Roster", r.assignTo(home, as(Manager.class)) + " shifts assigned.");
+                } catch (Exception ex) { error(ex); }
+            });
+        });
+        task.setOnFailed(e -> error(new Exception(task.getException().getMessage(), task.getException())));
+
+        Thread t = new Thread(task, "roster-generate");
+        t.setDaemon(true);
+        t.start();
+    }
+
     // ---------------- helpers ----------------
     private void info(String title, String msg) {
         Alert a = new Alert(Alert.AlertType.INFORMATION, msg);
         a.setHeaderText(null); a.setTitle(title); a.showAndWait();
     }
 
+    private boolean confirm(String title, String msg) {
+        Alert a = new Alert(Alert.AlertType.CONFIRMATION, msg);
+        a.setHeaderText(null); a.setTitle(title);
+        return a.showAndWait().filter(bt -> bt == ButtonType.OK).isPresent();
+    }
+
     private void error(Exception ex) {
         Alert a = new Alert(Alert.AlertType.ERROR, ex.getMessage());
         a.setHeaderText("Error"); a.setTitle("Error"); a.showAndWait();
@@ -507,12 +862,97 @@ public class App extends Application {
 
     private void seed() {
         try {
-            HOME.addStaff(mgr, nurse);
-            HOME.addStaff(mgr, doctor);
+            HOME.addStaff(mgr, new Nurse("N1","Nina",'F',"nina","p"));
+            HOME.addStaff(mgr, new Doctor("D1","Dev",'M',"dev","p","General"));
             Resident r = new Resident("R1", "Sam", 'M', 75);
             HOME.addResident(mgr, r, "W1-R2-B1");
         } catch (Exception ignored) {}
     }
 
+    // a home with no manager could never be administered; the default login is mgr / p
+    private void ensureManager() {
+        if (HOME.getStaffList().values().stream().anyMatch(s -> s instanceof Manager)) return;
+        try {
+            HOME.addStaff(mgr, mgr);
+        } catch (Exception ex) { error(ex); }
+    }
+
+    // ---------------- sign-in ----------------
+    /** Ask for credentials until they are accepted or the dialog is cancelled. */
+    private boolean signIn() {
+        if (token != null) auth.logout(token);
+        signedOut();
+        while (true) {
+            Dialog<List<String>> d = new Dialog<>();
+            d.setTitle("Sign in");
+            d.getDialogPane().getButtonTypes().addAll(ButtonType.OK, ButtonType.CANCEL);
+
+            GridPane gp = new GridPane(); gp.setHgap(8); gp.setVgap(8);
+            TextField user = new TextField();
+            PasswordField pass = new PasswordField();
+            gp.addRow(0, new Label("Username:"), user);
+            gp.addRow(1, new Label("Password:"), pass);
+            d.getDialogPane().setContent(gp);
+
+            d.setResultConverter(bt -> bt==ButtonType.OK ? List.of(user.getText(), pass.getText()) : null);
+
+            Optional<List<String>> v = d.showAndWait();
+            if (v.isEmpty()) return false;
+            try {
+                AuthService.Session s = auth.login(v.get().get(0).trim(), v.get().get(1).toCharArray());
+                token = s.token();
+                currentRole = Role.valueOf(s.role());   // context menus are built per click, so nothing to redraw
+                userLabel.setText("Signed in: " + s.username() + " (" + s.role().toLowerCase() + ") ");
+                return true;
+            } catch (Exception ex) { error(ex); }
+        }
+    }
+
+    private void signedOut() {
+        token = null;
+        currentRole = null;
+        selectedBed = null;
+        userLabel.setText("Signed out ");
+    }
+
+    /** The signed-in staff member, if their role allows the action; checked on every action. */
+    private <T extends Staff> T as(Class<T> role) throws exceptions.UnauthorizedActionException {
+        return auth.require(token, role);
+    }
+
+    /** Mirror HOME into carehome.db every 2 seconds; the app works without it. */
+    private void startSync() {
+        try {
+            Db.init();
+            sync = new SyncEngine(HOME, bus, 2, TimeUnit.SECONDS);
+        } catch (Exception ex) {
+            System.err.println("SQLite sync disabled: " + ex.getMessage());
+        }
+    }
+
+    /** JMX beans plus a minute-by-minute dump to metrics.log; gauges read whatever HOME is current. */
+    private void startMetrics() {
+        Metrics.gauge("home.residents", () -> HOME.getResidents().size());
+        Metrics.gauge("home.beds", () -> HOME.getBedRegistry().size());
+        Metrics.gauge("home.occupiedBeds", () -> HOME.getOccupancy().occupied());
+        Metrics.gauge("home.dosesPending", () -> HOME.getDoseScheduler().size());
+        if (journal != null) Metrics.gauge("journal.recordsSinceSnapshot", journal::getRecordsSinceSnapshot);
+        try {
+            Metrics.exposeJmx();
+        } catch (RuntimeException ex) {
+            System.err.println("JMX metrics unavailable: " + ex.getMessage());
+        }
+        Metrics.startDump(Path.of("metrics.log"), 1, TimeUnit.MINUTES);
+    }
+
+    @Override
+    public void stop() throws Exception {
+        Metrics.stopDump();
+        if (sync != null) sync.close();
+        bus.close();
+        if (journal != null) journal.close();
+        if (archive != null) archive.close();
+    }
+
     public static void main(String[] args) { launch(); }
 }